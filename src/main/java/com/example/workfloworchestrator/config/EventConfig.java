@@ -1,109 +1,121 @@
 package com.example.workfloworchestrator.config;
 
-import com.example.workfloworchestrator.event.BaseEvent;
-import com.example.workfloworchestrator.event.WorkflowEvent;
+import com.example.workfloworchestrator.event.BatchingEventMulticaster;
+import com.example.workfloworchestrator.event.outbox.AmqpEventSender;
+import com.example.workfloworchestrator.event.outbox.EventSender;
+import com.example.workfloworchestrator.event.outbox.ExternalEventPublisher;
+import com.example.workfloworchestrator.event.outbox.HttpEventSender;
+import com.example.workfloworchestrator.event.outbox.OutboxRelay;
+import com.example.workfloworchestrator.messaging.RabbitMQSender;
+import com.example.workfloworchestrator.repository.EventOutboxRepository;
+import com.example.workfloworchestrator.util.JsonCodec;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.event.ApplicationEventMulticaster;
-import org.springframework.context.event.SimpleApplicationEventMulticaster;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
 
-import java.util.concurrent.Executor;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Configuration for event handling
+ * Workflow events go through a bounded ring buffer to a single dispatcher thread, so
+ * publishing never blocks on or fails because of listeners (unless backpressure is BLOCK).
+ * Pipeline metrics:
+ *
+ * workflow.events.published  - workflow events handed to the pipeline
+ * workflow.events.dropped    - events dropped by the backpressure policy
+ * workflow.events.batches    - batches delivered to listeners
+ * workflow.events.queued     - events waiting for delivery
+ *
+ * Events for external systems are written to the event outbox in the publishing transaction
+ * and delivered by the OutboxRelay, so they survive restarts and do not wait on the receiver.
  */
 @Slf4j
 @Configuration
 @RequiredArgsConstructor
 public class EventConfig {
 
-    @Value("${workflow.events.async-executor-pool-size:5}")
-    private int asyncEventExecutorPoolSize;
+    @Value("${workflow.events.pipeline.buffer-size:8192}")
+    private int bufferSize;
 
-    /**
-     * Configure the ApplicationEventMulticaster to use an asynchronous executor
-     * This ensures that event handling doesn't block the main workflow execution
-     */
-    @Bean
-    public ApplicationEventMulticaster applicationEventMulticaster() {
-        SimpleApplicationEventMulticaster eventMulticaster = new SimpleApplicationEventMulticaster();
-        eventMulticaster.setTaskExecutor(asyncEventExecutor());
+    @Value("${workflow.events.pipeline.backpressure:DROP_OLDEST}")
+    private BatchingEventMulticaster.Backpressure backpressure;
 
-        return eventMulticaster;
-    }
+    @Value("${workflow.events.pipeline.sample-rate:10}")
+    private int sampleRate;
+
+    @Value("${workflow.events.pipeline.batch-size:256}")
+    private int batchSize;
 
     /**
-     * Configure the task executor for asynchronous event handling
+     * Replaces Spring's multicaster, so every ApplicationEventPublisher goes through the pipeline
      */
-    @Bean(name = "asyncEventExecutor")
-    public Executor asyncEventExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(asyncEventExecutorPoolSize);
-        executor.setMaxPoolSize(asyncEventExecutorPoolSize * 2);
-        executor.setQueueCapacity(50);
-        executor.setThreadNamePrefix("event-executor-");
-        executor.initialize();
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public BatchingEventMulticaster applicationEventMulticaster() {
+        log.info("Event pipeline: buffer size {}, backpressure {}", bufferSize, backpressure);
+        return new BatchingEventMulticaster(bufferSize, backpressure, sampleRate, batchSize);
+    }
 
-        return executor;
+    @Bean
+    public MeterBinder eventPipelineMetrics(BatchingEventMulticaster applicationEventMulticaster) {
+        return registry -> {
+            FunctionCounter.builder("workflow.events.published", applicationEventMulticaster,
+                    BatchingEventMulticaster::getPublishedCount).register(registry);
+            FunctionCounter.builder("workflow.events.dropped", applicationEventMulticaster,
+                    BatchingEventMulticaster::getDroppedCount).register(registry);
+            FunctionCounter.builder("workflow.events.batches", applicationEventMulticaster,
+                    BatchingEventMulticaster::getBatchCount).register(registry);
+            Gauge.builder("workflow.events.queued", applicationEventMulticaster,
+                    BatchingEventMulticaster::getQueuedCount).register(registry);
+        };
     }
 
     /**
-     * Example bean that could be used to integrate with external monitoring
-     * systems like Prometheus, DataDog, etc.
+     * Destinations come from workflow.events.external-endpoint (HTTP) and
+     * workflow.events.outbox.amqp.exchange (RabbitMQ); with neither, nothing is written to the outbox
      */
     @Bean
     public ExternalEventPublisher externalEventPublisher(
             @Value("${workflow.events.external-integration-enabled:false}") boolean enabled,
-            @Value("${workflow.events.external-endpoint:}") String externalEndpoint) {
-
-        return new ExternalEventPublisher(enabled, externalEndpoint);
-    }
-
-    /**
-     * Example class for publishing events to external systems
-     * This is just a stub - real implementations would connect to specific systems
-     */
-    @Slf4j
-    public static class ExternalEventPublisher {
-
-        private final boolean enabled;
-        private final String endpoint;
-
-        public ExternalEventPublisher(boolean enabled, String endpoint) {
-            this.enabled = enabled;
-            this.endpoint = endpoint;
-
-            if (enabled) {
-                log.info("External event publishing enabled, endpoint: {}", endpoint);
-            } else {
-                log.info("External event publishing disabled");
-            }
+            @Value("${workflow.events.external-endpoint:}") String externalEndpoint,
+            OutboxProperties outboxProperties,
+            EventOutboxRepository outboxRepository,
+            JsonCodec jsonCodec,
+            RestTemplate restTemplate,
+            ObjectProvider<RabbitMQSender> rabbitMQSender) {
+
+        List<EventSender> senders = new ArrayList<>();
+        if (enabled && StringUtils.hasText(externalEndpoint)) {
+            senders.add(new HttpEventSender(restTemplate, externalEndpoint,
+                    outboxProperties.getHttp().getConcurrency(), outboxProperties.getCompressMinBytes()));
         }
 
-        /**
-         * Publish an event to external system
-         */
-        public void publishEvent(BaseEvent event) {
-            if (!enabled) {
-                return;
-            }
+        OutboxProperties.Amqp amqp = outboxProperties.getAmqp();
+        if (enabled && StringUtils.hasText(amqp.getExchange())) {
+            senders.add(new AmqpEventSender(rabbitMQSender.getObject(), amqp.getExchange(), amqp.getRoutingKey(),
+                    amqp.getConcurrency(), outboxProperties.getCompressMinBytes()));
+        }
 
-            // This is just a stub implementation
-            // Real implementation would send event to external system
-            log.debug("Would publish event to external system: {}, eventId: {}",
-                    event.getEventTypeString(), event.getEventId());
+        return new ExternalEventPublisher(senders, outboxRepository, jsonCodec);
+    }
 
-            // Example for different event types
-            if (event instanceof WorkflowEvent) {
-                WorkflowEvent workflowEvent = (WorkflowEvent) event;
-                log.debug("Workflow event details: workflowId: {}, correlationId: {}",
-                        workflowEvent.getWorkflowExecutionId(),
-                        workflowEvent.getCorrelationId());
-            }
-        }
+    @Bean(destroyMethod = "close")
+    public OutboxRelay outboxRelay(ExternalEventPublisher externalEventPublisher,
+                                   EventOutboxRepository outboxRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   OutboxProperties outboxProperties,
+                                   MeterRegistry meterRegistry) {
+        return new OutboxRelay(externalEventPublisher.getSenders(), outboxRepository, transactionManager,
+                outboxProperties, meterRegistry);
     }
 }
@@ -0,0 +1,90 @@
+package com.example.workfloworchestrator.config;
+
+import lombok.Data;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for the pooled HTTP clients used by REST tasks
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "workflow.http.client")
+public class HttpClientProperties {
+
+    /**
+     * I/O model used by REST tasks
+     */
+    private Mode mode = Mode.BLOCKING;
+
+    /**
+     * Maximum pooled connections over all hosts
+     */
+    private int maxConnTotal = 200;
+
+    /**
+     * Maximum pooled connections per host without an explicit limit
+     */
+    private int maxConnPerRoute = 50;
+
+    /**
+     * Maximum pooled connections per host, keyed by scheme, host and optional port,
+     * e.g. "[https://billing.internal]": 100
+     */
+    private Map<String, Integer> routeLimits = new HashMap<>();
+
+    /**
+     * Time to establish a TCP connection
+     */
+    private Duration connectTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Time to wait for response data, unless the task's deadline is sooner
+     */
+    private Duration socketTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Time to wait for a free pooled connection
+     */
+    private Duration connectionRequestTimeout = Duration.ofSeconds(30);
+
+    /**
+     * How long an idle connection is kept when the server does not say
+     */
+    private Duration keepAlive = Duration.ofSeconds(60);
+
+    /**
+     * Maximum age of a pooled connection, so DNS changes are picked up eventually
+     */
+    private Duration timeToLive = Duration.ofMinutes(10);
+
+    /**
+     * Idle time after which a pooled connection is checked before it is reused
+     */
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+
+    /**
+     * Idle time after which the background evictor closes a pooled connection
+     */
+    private Duration evictIdleAfter = Duration.ofSeconds(60);
+
+    /**
+     * HTTP version of the ASYNC client; NEGOTIATE offers HTTP/2 through ALPN on TLS connections
+     */
+    private HttpVersionPolicy httpVersion = HttpVersionPolicy.NEGOTIATE;
+
+    /**
+     * I/O reactor threads of the ASYNC client (0 = one per CPU)
+     */
+    private int ioThreads = 0;
+
+    public enum Mode {
+        BLOCKING,  // RestTemplate on the task execution backend
+        ASYNC      // Non-blocking client, no thread waits for the response
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.workfloworchestrator.config;
+
+import com.example.workfloworchestrator.util.JsonCodec;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
+
+import java.util.Map;
+
+/**
+ * Configuration for JSON handling in executors and messaging
+ * The codec wraps the application's ObjectMapper, so it shares its modules and settings.
+ * workflow.json.bytecode-module=blackbird (or afterburner) replaces reflection in Jackson's
+ * bean (de)serializers with generated accessors; the module jar has to be on the classpath.
+ */
+@Slf4j
+@Configuration
+public class JsonConfig {
+
+    private static final Map<String, String> BYTECODE_MODULES = Map.of(
+            "blackbird", "com.fasterxml.jackson.module.blackbird.BlackbirdModule",
+            "afterburner", "com.fasterxml.jackson.module.afterburner.AfterburnerModule");
+
+    @Bean
+    public JsonCodec jsonCodec(ObjectMapper objectMapper) {
+        return new JsonCodec(objectMapper);
+    }
+
+    /**
+     * Registered with the application's ObjectMapper by Spring Boot, like any Module bean
+     */
+    @Bean
+    @ConditionalOnProperty(name = "workflow.json.bytecode-module")
+    public Module jsonBytecodeModule(@Value("${workflow.json.bytecode-module}") String name) {
+        return createBytecodeModule(name);
+    }
+
+    static Module createBytecodeModule(String name) {
+        String className = BYTECODE_MODULES.get(name.trim().toLowerCase());
+        if (className == null) {
+            throw new IllegalStateException("Unknown JSON bytecode module: " + name
+                    + " (expected one of " + BYTECODE_MODULES.keySet() + ")");
+        }
+
+        ClassLoader classLoader = JsonConfig.class.getClassLoader();
+        if (!ClassUtils.isPresent(className, classLoader)) {
+            throw new IllegalStateException("JSON bytecode module " + name + " needs " + className
+                    + " on the classpath");
+        }
+
+        try {
+            Module module = (Module) ClassUtils.forName(className, classLoader).getDeclaredConstructor().newInstance();
+            log.info("Using JSON bytecode module: {}", module.getModuleName());
+            return module;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create JSON bytecode module " + className, e);
+        }
+    }
+}
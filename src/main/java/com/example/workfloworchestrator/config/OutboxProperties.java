@@ -0,0 +1,83 @@
+package com.example.workfloworchestrator.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for delivering outbox events to external systems
+ * The HTTP destination is workflow.events.external-endpoint; both destinations only receive
+ * events while workflow.events.external-integration-enabled is set.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "workflow.events.outbox")
+public class OutboxProperties {
+
+    /**
+     * Events sent per request or message
+     */
+    private int batchSize = 100;
+
+    /**
+     * Batches of at least this many bytes are gzip-compressed
+     */
+    private int compressMinBytes = 1024;
+
+    /**
+     * How long claimed events stay hidden from other relays while they are delivered
+     */
+    private Duration claimTimeout = Duration.ofSeconds(60);
+
+    /**
+     * Delivery attempts before an event is parked as DEAD
+     */
+    private int maxAttempts = 20;
+
+    /**
+     * Delay before the first retry, doubled with each further attempt
+     */
+    private Duration initialBackoff = Duration.ofSeconds(1);
+
+    /**
+     * Upper bound of the retry delay
+     */
+    private Duration maxBackoff = Duration.ofMinutes(5);
+
+    /**
+     * HTTP destination settings
+     */
+    private Http http = new Http();
+
+    /**
+     * RabbitMQ destination settings
+     */
+    private Amqp amqp = new Amqp();
+
+    @Data
+    public static class Http {
+
+        /**
+         * Batches in flight to the endpoint at once
+         */
+        private int concurrency = 4;
+    }
+
+    @Data
+    public static class Amqp {
+
+        /**
+         * Exchange to publish event batches to, no RabbitMQ delivery when empty
+         */
+        private String exchange = "";
+
+        private String routingKey = "workflow.events";
+
+        /**
+         * Batches in flight to the broker at once
+         */
+        private int concurrency = 2;
+    }
+}
@@ -1,16 +1,24 @@
 package com.example.workfloworchestrator.config;
 
+import com.example.workfloworchestrator.util.JsonCodec;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.batch.SimpleBatchingStrategy;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.BatchingRabbitTemplate;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
+@Slf4j
 @Configuration
 public class RabbitMQConfig {
 
@@ -52,15 +60,74 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(resultQueue).to(resultExchange).with(WORKFLOW_RESULT_ROUTING_KEY);
     }
 
+    /**
+     * Converts messages with the shared JSON codec's mapper instead of a private one per converter
+     */
     @Bean
-    public MessageConverter jsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter jsonMessageConverter(JsonCodec jsonCodec) {
+        return new Jackson2JsonMessageConverter(jsonCodec.getObjectMapper());
     }
 
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter jsonMessageConverter) {
         final RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
-        rabbitTemplate.setMessageConverter(jsonMessageConverter());
+        configurePublishing(rabbitTemplate, jsonMessageConverter);
         return rabbitTemplate;
     }
+
+    /**
+     * Template that collects task messages into batch messages, used by RabbitMQSender when enabled
+     * A batch is sent once it holds size messages or buffer-limit bytes, or timeout-ms after its first message.
+     * The scheduler that times out batches is owned by the template rather than being a bean, so it
+     * does not replace the scheduler behind @Scheduled; it is shut down when the template is destroyed.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "workflow.messaging.rabbitmq.batching.enabled", havingValue = "true")
+    public BatchingRabbitTemplate batchingRabbitTemplate(
+            ConnectionFactory connectionFactory,
+            MessageConverter jsonMessageConverter,
+            @Value("${workflow.messaging.rabbitmq.batching.size:100}") int batchSize,
+            @Value("${workflow.messaging.rabbitmq.batching.buffer-limit:65536}") int bufferLimit,
+            @Value("${workflow.messaging.rabbitmq.batching.timeout-ms:10}") long timeoutMs) {
+
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("rabbit-batch-");
+        scheduler.setDaemon(true);
+        scheduler.initialize();
+
+        BatchingRabbitTemplate batchingRabbitTemplate = new BatchingRabbitTemplate(connectionFactory,
+                new SimpleBatchingStrategy(batchSize, bufferLimit, timeoutMs), scheduler) {
+            @Override
+            public void destroy() {
+                // Send the batch still being collected before the scheduler that would time it out goes away
+                try {
+                    flush();
+                    super.destroy();
+                } finally {
+                    scheduler.shutdown();
+                }
+            }
+        };
+        configurePublishing(batchingRabbitTemplate, jsonMessageConverter);
+        return batchingRabbitTemplate;
+    }
+
+    /**
+     * Publish on the connection factory's separate publisher connection, so publishing is not
+     * blocked by consumers, and report messages the broker nacks or cannot route
+     * Correlated sends are also failed through their CorrelationData, see RabbitMQSender.
+     */
+    private static void configurePublishing(RabbitTemplate rabbitTemplate, MessageConverter messageConverter) {
+        rabbitTemplate.setMessageConverter(messageConverter);
+        rabbitTemplate.setUsePublisherConnection(true);
+        rabbitTemplate.setMandatory(true);
+        rabbitTemplate.setReturnsCallback(returned -> log.warn("Message returned by broker: exchange {}, routingKey {}, reply {}",
+                returned.getExchange(), returned.getRoutingKey(), returned.getReplyText()));
+        rabbitTemplate.setConfirmCallback((correlation, ack, cause) -> {
+            if (!ack) {
+                log.warn("Message not confirmed by broker: correlation {}, cause {}",
+                        correlation != null ? correlation.getId() : null, cause);
+            }
+        });
+    }
 }
@@ -1,23 +1,183 @@
 package com.example.workfloworchestrator.config;
 
+import com.example.workfloworchestrator.engine.cancellation.CancellableHttpRequestFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.RequiredArgsConstructor;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
 import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Configuration for RestTemplate used for HTTP task execution
+ * Configuration for the HTTP clients used for HTTP task execution
+ * Both clients keep a pool of persistent connections per host, so repeated calls to the same
+ * hosts skip the TCP and TLS handshakes. Blocking requests go through HttpComponents so that
+ * cancelling a workflow can abort them mid-flight. Pool metrics, tagged by client:
+ *
+ * workflow.http.pool.leased     - connections in use
+ * workflow.http.pool.available  - idle connections ready for reuse
+ * workflow.http.pool.pending    - requests waiting for a connection
+ * workflow.http.pool.max        - connection limit over all hosts
  */
 @Configuration
+@RequiredArgsConstructor
 public class RestTemplateConfig {
 
+    private final HttpClientProperties properties;
+    private final MeterRegistry meterRegistry;
+
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
+    public RestTemplate restTemplate(RestTemplateBuilder builder, CloseableHttpClient restHttpClient) {
         return builder
-                .setConnectTimeout(Duration.ofSeconds(10))
-                .setReadTimeout(Duration.ofSeconds(30))
+                .requestFactory(() -> new CancellableHttpRequestFactory(restHttpClient))
+                .build();
+    }
+
+    /**
+     * Pooled blocking client behind the RestTemplate, closed with the context to shut down its pool
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient restHttpClient() {
+        return blockingHttpClient(properties, meterRegistry);
+    }
+
+    /**
+     * Non-blocking client for REST tasks, only created in ASYNC mode
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "workflow.http.client.mode", havingValue = "ASYNC")
+    public CloseableHttpAsyncClient restAsyncClient() {
+        CloseableHttpAsyncClient client = asyncHttpClient(properties, meterRegistry);
+        client.start();
+        return client;
+    }
+
+    static CloseableHttpClient blockingHttpClient(HttpClientProperties properties, MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxConnTotal())
+                .setMaxConnPerRoute(properties.getMaxConnPerRoute())
+                .setDefaultConnectionConfig(connectionConfig(properties))
+                .build();
+        applyRouteLimits(properties, connectionManager);
+        bindPoolMetrics("blocking", connectionManager, meterRegistry);
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(defaultRequestConfig(properties))
+                .evictExpiredConnections()
+                .evictIdleConnections(toTimeValue(properties.getEvictIdleAfter()))
+                .build();
+    }
+
+    static CloseableHttpAsyncClient asyncHttpClient(HttpClientProperties properties, MeterRegistry meterRegistry) {
+        PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxConnTotal())
+                .setMaxConnPerRoute(properties.getMaxConnPerRoute())
+                .setDefaultConnectionConfig(connectionConfig(properties))
+                // HTTP/2 is agreed on through ALPN during the TLS handshake, plain connections stay on HTTP/1.1
+                .setDefaultTlsConfig(TlsConfig.custom()
+                        .setVersionPolicy(properties.getHttpVersion())
+                        .build())
+                .build();
+        applyRouteLimits(properties, connectionManager);
+        bindPoolMetrics("async", connectionManager, meterRegistry);
+
+        IOReactorConfig.Builder ioReactorConfig = IOReactorConfig.custom();
+        if (properties.getIoThreads() > 0) {
+            ioReactorConfig.setIoThreadCount(properties.getIoThreads());
+        }
+
+        return HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(defaultRequestConfig(properties))
+                .setIOReactorConfig(ioReactorConfig.build())
+                .evictExpiredConnections()
+                .evictIdleConnections(toTimeValue(properties.getEvictIdleAfter()))
                 .build();
     }
+
+    /**
+     * Get the pool route of a target host, as the client plans it for requests to that host
+     *
+     * @param target the scheme, host and optional port, e.g. https://billing.internal
+     * @return the route
+     */
+    static HttpRoute routeOf(String target) {
+        URI uri = URI.create(target);
+        String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase() : "http";
+        boolean secure = "https".equals(scheme);
+        int port = uri.getPort() > 0 ? uri.getPort() : secure ? 443 : 80;
+        return new HttpRoute(new HttpHost(scheme, uri.getHost(), port), null, secure);
+    }
+
+    private static ConnectionConfig connectionConfig(HttpClientProperties properties) {
+        return ConnectionConfig.custom()
+                .setConnectTimeout(toTimeout(properties.getConnectTimeout()))
+                .setSocketTimeout(toTimeout(properties.getSocketTimeout()))
+                .setTimeToLive(toTimeValue(properties.getTimeToLive()))
+                .setValidateAfterInactivity(toTimeValue(properties.getValidateAfterInactivity()))
+                .build();
+    }
+
+    /**
+     * Get the request config both clients use unless a request brings its own
+     *
+     * @param properties the HTTP client properties
+     * @return the default request config
+     */
+    public static RequestConfig defaultRequestConfig(HttpClientProperties properties) {
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(toTimeout(properties.getConnectionRequestTimeout()))
+                .setResponseTimeout(toTimeout(properties.getSocketTimeout()))
+                .setDefaultKeepAlive(properties.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    private static void applyRouteLimits(HttpClientProperties properties, ConnPoolControl<HttpRoute> pool) {
+        properties.getRouteLimits().forEach((target, limit) -> pool.setMaxPerRoute(routeOf(target), limit));
+    }
+
+    private static void bindPoolMetrics(String client, ConnPoolControl<HttpRoute> pool, MeterRegistry meterRegistry) {
+        Tags tags = Tags.of("client", client);
+        Gauge.builder("workflow.http.pool.leased", pool, p -> p.getTotalStats().getLeased())
+                .tags(tags).strongReference(true).register(meterRegistry);
+        Gauge.builder("workflow.http.pool.available", pool, p -> p.getTotalStats().getAvailable())
+                .tags(tags).strongReference(true).register(meterRegistry);
+        Gauge.builder("workflow.http.pool.pending", pool, p -> p.getTotalStats().getPending())
+                .tags(tags).strongReference(true).register(meterRegistry);
+        Gauge.builder("workflow.http.pool.max", pool, p -> p.getTotalStats().getMax())
+                .tags(tags).strongReference(true).register(meterRegistry);
+    }
+
+    private static Timeout toTimeout(Duration duration) {
+        return Timeout.ofMilliseconds(duration.toMillis());
+    }
+
+    private static TimeValue toTimeValue(Duration duration) {
+        return TimeValue.ofMilliseconds(duration.toMillis());
+    }
 }
@@ -0,0 +1,47 @@
+package com.example.workfloworchestrator.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for the backend that runs task executors
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "workflow.task.execution")
+public class TaskExecutionProperties {
+
+    /**
+     * Thread model used to run task executors
+     */
+    private Backend backend = Backend.VIRTUAL;
+
+    /**
+     * Pool size for the PLATFORM backend
+     */
+    private int threadPoolSize = 10;
+
+    /**
+     * Queue capacity for the PLATFORM backend
+     */
+    private int queueCapacity = 100;
+
+    /**
+     * Maximum concurrent executions for task types without an explicit limit (0 = unlimited)
+     */
+    private int defaultConcurrencyLimit = 0;
+
+    /**
+     * Maximum concurrent executions per task type, e.g. rest-api: 200
+     */
+    private Map<String, Integer> concurrencyLimits = new HashMap<>();
+
+    public enum Backend {
+        VIRTUAL,   // One virtual thread per task execution
+        PLATFORM   // Bounded pool of platform threads
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.workfloworchestrator.config;
+
+import com.example.workfloworchestrator.util.HashedWheelTimer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration for the shared timeout timer
+ */
+@Configuration
+public class TimerConfig {
+
+    @Value("${workflow.timer.tick-duration-ms:100}")
+    private long tickDurationMs;
+
+    @Value("${workflow.timer.ticks-per-wheel:512}")
+    private int ticksPerWheel;
+
+    /**
+     * Single timer thread that drives all task response timeouts
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public HashedWheelTimer workflowTimer() {
+        return new HashedWheelTimer("workflow-timer", tickDurationMs, TimeUnit.MILLISECONDS, ticksPerWheel);
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.workfloworchestrator.engine;
 
+import com.example.workfloworchestrator.engine.cancellation.CancellationRegistry;
+import com.example.workfloworchestrator.engine.cancellation.CancellationToken;
+import com.example.workfloworchestrator.engine.cancellation.ExecutionDeadlines;
+import com.example.workfloworchestrator.engine.cluster.ClusterLeaseManager;
 import com.example.workfloworchestrator.engine.strategy.ExecutionStrategy;
 import com.example.workfloworchestrator.exception.WorkflowException;
 import com.example.workfloworchestrator.model.*;
-import com.example.workfloworchestrator.service.EventPublisherService;
 import com.example.workfloworchestrator.service.TaskExecutionService;
 import com.example.workfloworchestrator.service.WorkflowExecutionService;
 import lombok.RequiredArgsConstructor;
@@ -16,6 +19,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Core workflow engine that orchestrates workflow execution
@@ -28,8 +32,10 @@ public class WorkflowEngine {
 
     private final WorkflowExecutionService workflowExecutionService;
     private final TaskExecutionService taskExecutionService;
-    private final EventPublisherService eventPublisherService;
     private final Map<WorkflowDefinition.ExecutionStrategyType, ExecutionStrategy> executionStrategies;
+    private final ClusterLeaseManager clusterLeaseManager;
+    private final CancellationRegistry cancellationRegistry;
+    private final ExecutionDeadlines executionDeadlines;
 
     /**
      * Execute a workflow asynchronously
@@ -40,6 +46,7 @@ public class WorkflowEngine {
     @Transactional
     public void executeWorkflow(Long workflowExecutionId) {
         WorkflowExecution workflowExecution = workflowExecutionService.getWorkflowExecution(workflowExecutionId);
+        CancellationToken cancellation = CancellationToken.NONE;
 
         try {
             // Check if workflow is in a valid state to execute
@@ -50,10 +57,18 @@ public class WorkflowEngine {
                 return;
             }
 
+            if (!clusterLeaseManager.tryAcquireWorkflow(workflowExecutionId)) {
+                log.info("Workflow {} is held by another node, not executing it here", workflowExecutionId);
+                return;
+            }
+
+            // Cancelling, pausing or timing out the workflow stops this run through its token
+            cancellation = cancellationRegistry.begin(workflowExecutionId);
+            executionDeadlines.armWorkflowDeadline(workflowExecution);
+
             // Set status to RUNNING if not already
             if (workflowExecution.getStatus() == WorkflowStatus.CREATED) {
                 workflowExecutionService.updateWorkflowExecutionStatus(workflowExecutionId, WorkflowStatus.RUNNING);
-                eventPublisherService.publishWorkflowStartedEvent(workflowExecution);
             }
 
             // Get the appropriate execution strategy
@@ -63,23 +78,15 @@ public class WorkflowEngine {
             // Execute workflow using the selected strategy
             CompletableFuture<WorkflowStatus> futureStatus = strategy.execute(workflowExecution);
 
-            futureStatus.thenAccept(status -> {
-                // Update workflow status based on execution result
-                workflowExecutionService.updateWorkflowExecutionStatus(workflowExecutionId, status);
-
-                if (status == WorkflowStatus.COMPLETED) {
-                    eventPublisherService.publishWorkflowCompletedEvent(workflowExecution);
-                } else if (status == WorkflowStatus.FAILED) {
-                    eventPublisherService.publishWorkflowFailedEvent(workflowExecution);
-                }
-            });
+            CancellationToken run = cancellation;
+            futureStatus.whenComplete((status, throwable) -> finishRun(workflowExecutionId, status, throwable, run));
 
         } catch (Exception e) {
             // Handle unexpected errors
             log.error("Error executing workflow {}", workflowExecutionId, e);
-            workflowExecution.setErrorMessage(e.getMessage());
-            workflowExecutionService.updateWorkflowExecutionStatus(workflowExecutionId, WorkflowStatus.FAILED);
-            eventPublisherService.publishWorkflowFailedEvent(workflowExecution);
+            releaseRun(workflowExecutionId, cancellation);
+            executionDeadlines.disarmWorkflowDeadline(workflowExecutionId);
+            workflowExecutionService.failWorkflowExecution(workflowExecutionId, e.getMessage());
         }
     }
 
@@ -96,6 +103,12 @@ public class WorkflowEngine {
         WorkflowExecution workflowExecution = workflowExecutionService.getWorkflowExecution(workflowExecutionId);
         TaskExecution taskExecution = taskExecutionService.getTaskExecution(taskExecutionId);
 
+        // Taken before the rows are touched, so the nested executeWorkflow finds it already held
+        if (!clusterLeaseManager.tryAcquireWorkflow(workflowExecutionId)) {
+            log.info("Workflow {} is held by another node, not restarting task {} here", workflowExecutionId, taskExecutionId);
+            return;
+        }
+
         try {
             // Update workflow status
             workflowExecution.setStatus(WorkflowStatus.RUNNING);
@@ -124,9 +137,11 @@ public class WorkflowEngine {
 
         } catch (Exception e) {
             log.error("Error restarting task {} in workflow {}", taskExecutionId, workflowExecutionId, e);
-            workflowExecution.setErrorMessage(e.getMessage());
-            workflowExecutionService.updateWorkflowExecutionStatus(workflowExecutionId, WorkflowStatus.FAILED);
-            eventPublisherService.publishWorkflowFailedEvent(workflowExecution);
+            workflowExecutionService.failWorkflowExecution(workflowExecutionId, e.getMessage());
+            // executeWorkflow was not reached, so no run of ours will release the lease
+            if (cancellationRegistry.tokenFor(workflowExecutionId) == CancellationToken.NONE) {
+                clusterLeaseManager.releaseWorkflow(workflowExecutionId);
+            }
         }
     }
 
@@ -142,6 +157,14 @@ public class WorkflowEngine {
     public void executeTaskSubset(Long workflowExecutionId, List<Long> taskIds) {
         WorkflowExecution workflowExecution = workflowExecutionService.getWorkflowExecution(workflowExecutionId);
 
+        if (!clusterLeaseManager.tryAcquireWorkflow(workflowExecutionId)) {
+            log.info("Workflow {} is held by another node, not executing task subset here", workflowExecutionId);
+            return;
+        }
+
+        CancellationToken cancellation = cancellationRegistry.begin(workflowExecutionId);
+        executionDeadlines.armWorkflowDeadline(workflowExecution);
+
         try {
             // Update workflow status
             workflowExecution.setStatus(WorkflowStatus.RUNNING);
@@ -154,21 +177,66 @@ public class WorkflowEngine {
             // Execute the subset of tasks
             CompletableFuture<WorkflowStatus> futureStatus = strategy.executeSubset(workflowExecution, taskIds);
 
-            futureStatus.thenAccept(status -> {
-                workflowExecutionService.updateWorkflowExecutionStatus(workflowExecutionId, status);
-
-                if (status == WorkflowStatus.COMPLETED) {
-                    eventPublisherService.publishWorkflowCompletedEvent(workflowExecution);
-                } else if (status == WorkflowStatus.FAILED) {
-                    eventPublisherService.publishWorkflowFailedEvent(workflowExecution);
-                }
-            });
+            futureStatus.whenComplete((status, throwable) -> finishRun(workflowExecutionId, status, throwable, cancellation));
 
         } catch (Exception e) {
             log.error("Error executing task subset for workflow {}", workflowExecutionId, e);
-            workflowExecution.setErrorMessage(e.getMessage());
-            workflowExecutionService.updateWorkflowExecutionStatus(workflowExecutionId, WorkflowStatus.FAILED);
-            eventPublisherService.publishWorkflowFailedEvent(workflowExecution);
+            releaseRun(workflowExecutionId, cancellation);
+            executionDeadlines.disarmWorkflowDeadline(workflowExecutionId);
+            workflowExecutionService.failWorkflowExecution(workflowExecutionId, e.getMessage());
+        }
+    }
+
+    /**
+     * Record the outcome of a run once its strategy completes, then let go of the workflow
+     * A run stopped by cancelling, pausing or timing out the workflow leaves the status set by that
+     * request alone; a strategy that failed fails the workflow. The workflow deadline stays armed
+     * until the workflow finished.
+     *
+     * @param workflowExecutionId the workflow execution ID
+     * @param status the status the strategy completed with, null if it failed
+     * @param throwable the error the strategy failed with, null if it completed
+     * @param cancellation the token of the run
+     */
+    private void finishRun(Long workflowExecutionId, WorkflowStatus status, Throwable throwable,
+                           CancellationToken cancellation) {
+        try {
+            if (cancellation.isCancelled()) {
+                log.info("Workflow {} run stopped, workflow is {}", workflowExecutionId, cancellation.getCancelledAs());
+                if (cancellation.getCancelledAs() != WorkflowStatus.PAUSED) {
+                    executionDeadlines.disarmWorkflowDeadline(workflowExecutionId);
+                }
+                return;
+            }
+
+            if (throwable != null) {
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause() : throwable;
+                log.error("Error executing workflow {}", workflowExecutionId, cause);
+                executionDeadlines.disarmWorkflowDeadline(workflowExecutionId);
+                workflowExecutionService.failWorkflowExecution(workflowExecutionId, cause.getMessage());
+                return;
+            }
+
+            // Update workflow status based on execution result; this also publishes its completed or failed event
+            workflowExecutionService.updateWorkflowExecutionStatus(workflowExecutionId, status);
+            if (status == WorkflowStatus.COMPLETED || status == WorkflowStatus.FAILED) {
+                executionDeadlines.disarmWorkflowDeadline(workflowExecutionId);
+            }
+        } finally {
+            releaseRun(workflowExecutionId, cancellation);
+        }
+    }
+
+    /**
+     * End a run and release the workflow's lease, unless a newer or joined run on this node still holds it
+     *
+     * @param workflowExecutionId the workflow execution ID
+     * @param cancellation the token of the run
+     */
+    private void releaseRun(Long workflowExecutionId, CancellationToken cancellation) {
+        if (cancellationRegistry.end(workflowExecutionId, cancellation)) {
+            clusterLeaseManager.releaseWorkflow(workflowExecutionId);
         }
     }
 
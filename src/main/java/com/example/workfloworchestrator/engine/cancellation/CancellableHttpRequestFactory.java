@@ -0,0 +1,57 @@
+package com.example.workfloworchestrator.engine.cancellation;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * HttpComponents request factory whose requests are aborted when the task running them is cancelled
+ * Each request registers an abort hook on the cancellation token bound to the calling thread,
+ * which closes its connection and unblocks the waiting thread. Hooks live until the task token
+ * is closed, so they are bounded by the requests of one task.
+ *
+ * When the task has a deadline, the response timeout of its requests is the time left until it,
+ * in place of the socket timeout of the connection.
+ */
+public class CancellableHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+    public CancellableHttpRequestFactory(HttpClient httpClient) {
+        super(httpClient);
+    }
+
+    @Override
+    protected ClassicHttpRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+        ClassicHttpRequest request = super.createHttpUriRequest(httpMethod, uri);
+        if (request instanceof Cancellable cancellable) {
+            CancellationToken.current().onCancel(cancellable::cancel);
+        }
+        return request;
+    }
+
+    @Override
+    protected HttpContext createHttpContext(HttpMethod httpMethod, URI uri) {
+        HttpContext context = super.createHttpContext(httpMethod, uri);
+        Instant deadline = CancellationToken.current().getDeadline();
+        if (context != null || deadline == null) {
+            return context;
+        }
+
+        long remainingMs = Math.max(1, Duration.between(Instant.now(), deadline).toMillis());
+        HttpClientContext clientContext = HttpClientContext.create();
+        // Replaces the client's default config for this request, so it is carried over
+        clientContext.setRequestConfig(RequestConfig.copy(createRequestConfig(getHttpClient()))
+                .setResponseTimeout(Timeout.ofMilliseconds(remainingMs))
+                .build());
+        return clientContext;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.workfloworchestrator.engine.cancellation;
+
+import com.example.workfloworchestrator.model.WorkflowStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cancellation tokens of the workflow runs active on this node
+ * The engine begins a run before handing the workflow to its strategy and ends it once the
+ * strategy completes. Cancelling, pausing or timing out a workflow cancels the token of its run,
+ * which stops the strategy from launching further tasks and aborts the tasks in flight.
+ *
+ * A run begun after its workflow's token was cancelled, e.g. on resume, gets a fresh token.
+ */
+@Slf4j
+@Component
+public class CancellationRegistry {
+
+    private final ConcurrentHashMap<Long, ActiveRun> activeRuns = new ConcurrentHashMap<>();
+
+    /**
+     * Begin a run of a workflow, joining the current one if it is still live
+     *
+     * @param workflowExecutionId the workflow execution ID
+     * @return the token of the run
+     */
+    public CancellationToken begin(Long workflowExecutionId) {
+        return activeRuns.compute(workflowExecutionId, (id, run) -> {
+            if (run == null || run.token.isCancelled()) {
+                return new ActiveRun(new CancellationToken());
+            }
+            run.participants++;
+            return run;
+        }).token;
+    }
+
+    /**
+     * End a run of a workflow; the token is dropped once every participant has ended
+     *
+     * @param workflowExecutionId the workflow execution ID
+     * @param token the token returned by begin
+     * @return true if no run of the workflow is left on this node, false if another participant or
+     *         a newer run still drives it and so still needs the workflow's lease
+     */
+    public boolean end(Long workflowExecutionId, CancellationToken token) {
+        boolean[] lastRun = {true};
+        activeRuns.computeIfPresent(workflowExecutionId, (id, run) -> {
+            if (run.token != token) {
+                // A newer run replaced the cancelled one
+                lastRun[0] = false;
+                return run;
+            }
+            if (--run.participants > 0) {
+                lastRun[0] = false;
+                return run;
+            }
+            return null;
+        });
+        return lastRun[0];
+    }
+
+    /**
+     * Get the token of a workflow's active run
+     *
+     * @param workflowExecutionId the workflow execution ID
+     * @return the token, or NONE if the workflow is not running on this node
+     */
+    public CancellationToken tokenFor(Long workflowExecutionId) {
+        if (workflowExecutionId == null) {
+            return CancellationToken.NONE;
+        }
+        ActiveRun run = activeRuns.get(workflowExecutionId);
+        return run != null ? run.token : CancellationToken.NONE;
+    }
+
+    /**
+     * Cancel the active run of a workflow
+     *
+     * @param workflowExecutionId the workflow execution ID
+     * @param status the status the workflow was moved to, CANCELLED or PAUSED, or FAILED on a timeout
+     * @return true if a run was active on this node
+     */
+    public boolean cancel(Long workflowExecutionId, WorkflowStatus status) {
+        ActiveRun run = activeRuns.get(workflowExecutionId);
+        if (run == null) {
+            return false;
+        }
+
+        log.info("Stopping workflow {} run, now {}", workflowExecutionId, status);
+        run.token.cancel(status);
+        return true;
+    }
+
+    public boolean isCancelled(Long workflowExecutionId) {
+        return tokenFor(workflowExecutionId).isCancelled();
+    }
+
+    /**
+     * Get the number of workflow runs active on this node
+     *
+     * @return the active run count
+     */
+    public int getActiveCount() {
+        return activeRuns.size();
+    }
+
+    private static final class ActiveRun {
+
+        private final CancellationToken token;
+
+        // Guarded by the map entry
+        private int participants = 1;
+
+        private ActiveRun(CancellationToken token) {
+            this.token = token;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.workfloworchestrator.engine.cancellation;
+
+import com.example.workfloworchestrator.model.WorkflowStatus;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cooperative cancellation signal of a workflow run or of a single task within it
+ * Strategies poll the token between steps, while in-flight work registers hooks that abort it
+ * (cancelling the task future, aborting an HTTP request, dropping a pending RabbitMQ reply).
+ * A task token is a child of its workflow token and only lives as long as the task, so the
+ * hooks of finished tasks do not pile up on the workflow.
+ *
+ * Blocking executors reach the token of the task they run through {@link #current()}. A task token
+ * may carry the deadline of its task, so executors can size their own I/O timeouts to it.
+ */
+@Slf4j
+public final class CancellationToken {
+
+    /**
+     * Token that is never cancelled, for work that runs outside a tracked workflow run
+     */
+    public static final CancellationToken NONE = new CancellationToken(true, null);
+
+    private static final ThreadLocal<CancellationToken> CURRENT = new ThreadLocal<>();
+
+    private static final Registration NO_REGISTRATION = () -> { };
+
+    private final boolean inert;
+    private final Instant deadline;
+    private final Set<Runnable> hooks = ConcurrentHashMap.newKeySet();
+    private volatile WorkflowStatus cancelledAs;
+    private volatile Registration parentRegistration = NO_REGISTRATION;
+
+    public CancellationToken() {
+        this(false, null);
+    }
+
+    private CancellationToken(boolean inert, Instant deadline) {
+        this.inert = inert;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Get the token bound to the current thread
+     *
+     * @return the bound token, or NONE
+     */
+    public static CancellationToken current() {
+        CancellationToken token = CURRENT.get();
+        return token != null ? token : NONE;
+    }
+
+    public boolean isCancelled() {
+        return cancelledAs != null;
+    }
+
+    /**
+     * Get the status the workflow was moved to when it was cancelled
+     *
+     * @return CANCELLED or PAUSED, FAILED if a deadline expired, null while not cancelled
+     */
+    public WorkflowStatus getCancelledAs() {
+        return cancelledAs;
+    }
+
+    /**
+     * Cancel the token and run its hooks; only the first call has an effect
+     *
+     * @param status the status the workflow was moved to, CANCELLED or PAUSED, or FAILED on a deadline
+     */
+    public void cancel(WorkflowStatus status) {
+        if (inert) {
+            return;
+        }
+
+        synchronized (this) {
+            if (cancelledAs != null) {
+                return;
+            }
+            cancelledAs = status;
+        }
+
+        for (Runnable hook : hooks) {
+            // Whoever removes a hook runs it, so a hook racing with its registration runs once
+            if (hooks.remove(hook)) {
+                runHook(hook);
+            }
+        }
+    }
+
+    /**
+     * Register a hook that aborts in-flight work; runs right away if the token is already cancelled
+     *
+     * @param hook the hook, run on the cancelling thread, so it must not block
+     * @return the registration, closed once the work is done
+     */
+    public Registration onCancel(Runnable hook) {
+        if (inert) {
+            return NO_REGISTRATION;
+        }
+
+        hooks.add(hook);
+        if (isCancelled() && hooks.remove(hook)) {
+            // Cancelled while registering, and cancel() did not get to the hook
+            runHook(hook);
+            return NO_REGISTRATION;
+        }
+        return () -> hooks.remove(hook);
+    }
+
+    /**
+     * Create a token for one task of this run, cancelled together with it
+     *
+     * @return the child token, to be closed when the task is done
+     */
+    public CancellationToken newChild() {
+        return newChild(null);
+    }
+
+    /**
+     * Create a token for one task of this run that also carries the task's deadline
+     * Outside a tracked run the token has no parent, so the deadline still applies.
+     *
+     * @param timeout the time the task may take, null for none
+     * @return the child token, to be closed when the task is done
+     */
+    public CancellationToken newChild(Duration timeout) {
+        Instant childDeadline = timeout != null ? Instant.now().plus(timeout) : null;
+        if (inert) {
+            return childDeadline != null ? new CancellationToken(false, childDeadline) : NONE;
+        }
+
+        CancellationToken child = new CancellationToken(false, childDeadline);
+        child.parentRegistration = onCancel(() -> child.cancel(cancelledAs));
+        return child;
+    }
+
+    /**
+     * Get the time by which the work of this token must be done
+     *
+     * @return the deadline, null if there is none
+     */
+    public Instant getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Detach a task token from its parent and drop its hooks
+     */
+    public void close() {
+        if (!inert) {
+            parentRegistration.close();
+            hooks.clear();
+        }
+    }
+
+    /**
+     * Bind this token to the current thread, so blocking executors can register their hooks on it
+     *
+     * @return the binding, to be closed when the work returns
+     */
+    public Registration bind() {
+        CancellationToken previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    private static void runHook(Runnable hook) {
+        try {
+            hook.run();
+        } catch (Exception e) {
+            log.warn("Cancellation hook failed", e);
+        }
+    }
+
+    /**
+     * Handle of a hook registration or thread binding
+     */
+    @FunctionalInterface
+    public interface Registration extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
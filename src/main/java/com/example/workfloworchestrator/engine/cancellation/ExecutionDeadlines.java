@@ -0,0 +1,175 @@
+package com.example.workfloworchestrator.engine.cancellation;
+
+import com.example.workfloworchestrator.engine.executor.TaskExecutionBackend;
+import com.example.workfloworchestrator.exception.TaskExecutionException;
+import com.example.workfloworchestrator.model.TaskDefinition;
+import com.example.workfloworchestrator.model.WorkflowExecution;
+import com.example.workfloworchestrator.model.WorkflowStatus;
+import com.example.workfloworchestrator.service.WorkflowExecutionService;
+import com.example.workfloworchestrator.util.HashedWheelTimer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Enforces task and workflow timeouts on the shared workflow timer
+ * A task that runs past its timeout has its future completed with a timeout error, which is then
+ * recorded as an ordinary task failure so its retry limit applies; the work itself is aborted
+ * through the task's cancellation token. A workflow that runs past its timeout, measured from its
+ * start, is failed and its active run is stopped.
+ *
+ * Metrics:
+ *
+ * workflow.timeouts  - expired deadlines, tagged by scope (task, workflow)
+ */
+@Slf4j
+@Component
+public class ExecutionDeadlines {
+
+    private final HashedWheelTimer workflowTimer;
+    private final TaskExecutionBackend taskExecutionBackend;
+    private final WorkflowExecutionService workflowExecutionService;
+
+    private final ConcurrentHashMap<Long, HashedWheelTimer.Timeout> workflowDeadlines = new ConcurrentHashMap<>();
+
+    private final Counter taskTimeouts;
+    private final Counter workflowTimeouts;
+
+    // Applies to tasks whose definition sets no timeout; 0 leaves them without one
+    @Value("${workflow.task.default-timeout-seconds:0}")
+    private int defaultTaskTimeoutSeconds = 0;
+
+    public ExecutionDeadlines(HashedWheelTimer workflowTimer, TaskExecutionBackend taskExecutionBackend,
+                              WorkflowExecutionService workflowExecutionService, MeterRegistry meterRegistry) {
+        this.workflowTimer = workflowTimer;
+        this.taskExecutionBackend = taskExecutionBackend;
+        this.workflowExecutionService = workflowExecutionService;
+
+        this.taskTimeouts = meterRegistry.counter("workflow.timeouts", "scope", "task");
+        this.workflowTimeouts = meterRegistry.counter("workflow.timeouts", "scope", "workflow");
+    }
+
+    /**
+     * Create the cancellation token of a task, carrying its deadline if it has a timeout
+     *
+     * @param workflowToken the token of the task's workflow run
+     * @param taskDefinition the task definition
+     * @return the task token, to be closed when the task is done
+     */
+    public CancellationToken newTaskToken(CancellationToken workflowToken, TaskDefinition taskDefinition) {
+        int timeoutSeconds = getTaskTimeoutSeconds(taskDefinition);
+        return timeoutSeconds > 0 ? workflowToken.newChild(Duration.ofSeconds(timeoutSeconds)) : workflowToken.newChild();
+    }
+
+    /**
+     * Time out a task's response once the deadline of its token passes
+     * The token is cancelled as FAILED, which aborts the work behind the response, and the response
+     * is then completed with a {@link TaskExecutionException}. Hooks on the token must leave a response
+     * to this timeout error when the token alone was cancelled as FAILED.
+     *
+     * @param taskDefinition the task definition
+     * @param response the future of the task's response
+     * @param taskToken the token created by {@link #newTaskToken}
+     */
+    public void enforce(TaskDefinition taskDefinition, CompletableFuture<?> response, CancellationToken taskToken) {
+        if (taskToken.getDeadline() == null || response.isDone()) {
+            return;
+        }
+
+        int timeoutSeconds = getTaskTimeoutSeconds(taskDefinition);
+        long delayMs = Math.max(0, Duration.between(Instant.now(), taskToken.getDeadline()).toMillis());
+        AtomicBoolean expired = new AtomicBoolean();
+        HashedWheelTimer.Timeout timeout = workflowTimer.newTimeout(() -> {
+            if (response.isDone() || !expired.compareAndSet(false, true)) {
+                return;
+            }
+            // Abort and count before failing the response, so whoever sees the timeout error sees both
+            taskTimeouts.increment();
+            taskToken.cancel(WorkflowStatus.FAILED);
+            response.completeExceptionally(new TaskExecutionException(
+                    "Task timed out after " + timeoutSeconds + " seconds"));
+        }, delayMs, TimeUnit.MILLISECONDS);
+
+        response.whenComplete((result, throwable) -> timeout.cancel());
+    }
+
+    /**
+     * Get the timeout of a task
+     *
+     * @param taskDefinition the task definition
+     * @return the timeout in seconds, 0 if the task has none
+     */
+    public int getTaskTimeoutSeconds(TaskDefinition taskDefinition) {
+        Integer timeoutSeconds = taskDefinition.getTimeoutSeconds();
+        return timeoutSeconds != null && timeoutSeconds > 0 ? timeoutSeconds : Math.max(0, defaultTaskTimeoutSeconds);
+    }
+
+    /**
+     * Arm the deadline of a workflow if its definition has a timeout; an armed deadline is kept
+     * A deadline that already passed, e.g. for a workflow resumed after it, fires right away.
+     *
+     * @param workflowExecution the workflow execution
+     */
+    public void armWorkflowDeadline(WorkflowExecution workflowExecution) {
+        Integer timeoutSeconds = workflowExecution.getWorkflowDefinition() != null
+                ? workflowExecution.getWorkflowDefinition().getTimeoutSeconds() : null;
+        if (timeoutSeconds == null || timeoutSeconds <= 0 || workflowExecution.getId() == null) {
+            return;
+        }
+
+        LocalDateTime startedAt = workflowExecution.getStartedAt() != null
+                ? workflowExecution.getStartedAt() : LocalDateTime.now();
+        long delayMs = Math.max(0, Duration.between(LocalDateTime.now(), startedAt.plusSeconds(timeoutSeconds)).toMillis());
+
+        Long workflowExecutionId = workflowExecution.getId();
+        workflowDeadlines.computeIfAbsent(workflowExecutionId, id -> workflowTimer.newTimeout(
+                () -> expire(workflowExecutionId, timeoutSeconds), delayMs, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Disarm the deadline of a workflow, e.g. once it finished
+     *
+     * @param workflowExecutionId the workflow execution ID
+     */
+    public void disarmWorkflowDeadline(Long workflowExecutionId) {
+        HashedWheelTimer.Timeout timeout = workflowDeadlines.remove(workflowExecutionId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    /**
+     * Get the number of workflow deadlines waiting to expire
+     *
+     * @return the armed deadline count
+     */
+    public int getArmedWorkflowCount() {
+        return workflowDeadlines.size();
+    }
+
+    private void expire(Long workflowExecutionId, int timeoutSeconds) {
+        workflowDeadlines.remove(workflowExecutionId);
+
+        // Runs on the timer thread, so the database work is handed off
+        taskExecutionBackend.getExecutor().execute(() -> {
+            try {
+                if (workflowExecutionService.timeoutWorkflowExecution(workflowExecutionId,
+                        "Workflow timed out after " + timeoutSeconds + " seconds")) {
+                    workflowTimeouts.increment();
+                }
+            } catch (Exception e) {
+                log.error("Error timing out workflow {}", workflowExecutionId, e);
+            }
+        });
+    }
+}
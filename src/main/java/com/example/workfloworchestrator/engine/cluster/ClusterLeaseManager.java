@@ -0,0 +1,227 @@
+package com.example.workfloworchestrator.engine.cluster;
+
+import com.example.workfloworchestrator.engine.cancellation.CancellationRegistry;
+import com.example.workfloworchestrator.repository.ExecutionLeaseRepository;
+import com.example.workfloworchestrator.repository.TaskRetryCandidate;
+import com.example.workfloworchestrator.repository.WorkflowExecutionSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coordinates work between orchestrator nodes through leases on execution rows
+ * When clustering is enabled, retry and stuck workflow scans claim disjoint batches of rows,
+ * and a workflow execution is only driven by the node holding its lease. Leases of rows this
+ * node is still working on are renewed by a heartbeat; those of a node that dies simply expire
+ * and the rows are picked up by the next scan on another node. The heartbeat also stops local runs
+ * of workflows that were cancelled or paused through another node.
+ *
+ * With clustering disabled (the default) no leases are taken and a single node is assumed.
+ */
+@Slf4j
+@Component
+public class ClusterLeaseManager {
+
+    private final ExecutionLeaseRepository leaseRepository;
+    private final CancellationRegistry cancellationRegistry;
+    private final TransactionTemplate transactionTemplate;
+
+    // Workflow leases taken by this node, with the expiry written at the time; never extended
+    // locally, so a lease another node may have taken over is always re-checked in the database
+    private final Map<Long, LocalDateTime> heldWorkflows = new ConcurrentHashMap<>();
+
+    @Value("${workflow.cluster.enabled:false}")
+    private boolean enabled = false;
+
+    @Value("${workflow.cluster.node-id:}")
+    private String nodeId = "";
+
+    @Value("${workflow.cluster.lease-duration-seconds:60}")
+    private long leaseDurationSeconds = 60;
+
+    @Value("${workflow.cluster.claim-batch-size:100}")
+    private int claimBatchSize = 100;
+
+    public ClusterLeaseManager(ExecutionLeaseRepository leaseRepository, CancellationRegistry cancellationRegistry,
+                               PlatformTransactionManager transactionManager) {
+        this.leaseRepository = leaseRepository;
+        this.cancellationRegistry = cancellationRegistry;
+        // Claims commit on their own, so row locks are never held for the caller's transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get the identifier this node writes into lease_owner
+     *
+     * @return the node ID
+     */
+    public synchronized String getNodeId() {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = defaultNodeId();
+        }
+        return nodeId;
+    }
+
+    /**
+     * Claim a batch of tasks that are due for retry
+     *
+     * @param dueBefore the latest retry time to claim
+     * @return the tasks this node now holds
+     */
+    public List<TaskRetryCandidate> claimTasksToRetry(LocalDateTime dueBefore) {
+        LocalDateTime now = LocalDateTime.now();
+        return transactionTemplate.execute(status ->
+                leaseRepository.claimTasksToRetry(getNodeId(), dueBefore, now, leaseUntil(now), claimBatchSize));
+    }
+
+    /**
+     * Claim a batch of running workflows that no live node holds and that started before a threshold
+     *
+     * @param startedBefore the stuck threshold
+     * @return the workflows this node now holds
+     */
+    public List<WorkflowExecutionSummary> claimStuckWorkflows(LocalDateTime startedBefore) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseUntil = leaseUntil(now);
+        List<WorkflowExecutionSummary> claimed = transactionTemplate.execute(status ->
+                leaseRepository.claimStuckWorkflows(getNodeId(), startedBefore, now, leaseUntil, claimBatchSize));
+
+        if (claimed == null) {
+            return List.of();
+        }
+        claimed.forEach(workflow -> heldWorkflows.put(workflow.id(), leaseUntil));
+        return claimed;
+    }
+
+    /**
+     * Take the lease of a workflow execution before driving it
+     * Always succeeds when clustering is disabled.
+     *
+     * @param workflowExecutionId the workflow execution ID
+     * @return true if this node may execute the workflow
+     */
+    public boolean tryAcquireWorkflow(Long workflowExecutionId) {
+        if (!enabled) {
+            return true;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime heldUntil = heldWorkflows.get(workflowExecutionId);
+        if (heldUntil != null && heldUntil.isAfter(now)) {
+            // Also keeps a caller that already updated the row in its own transaction from waiting on itself
+            return true;
+        }
+
+        LocalDateTime leaseUntil = leaseUntil(now);
+        Boolean acquired = transactionTemplate.execute(status ->
+                leaseRepository.acquireWorkflow(workflowExecutionId, getNodeId(), now, leaseUntil));
+
+        if (Boolean.TRUE.equals(acquired)) {
+            heldWorkflows.put(workflowExecutionId, leaseUntil);
+            return true;
+        }
+        heldWorkflows.remove(workflowExecutionId);
+        return false;
+    }
+
+    /**
+     * Release the lease of a workflow execution once this node stops driving it, so it can be resumed elsewhere
+     *
+     * @param workflowExecutionId the workflow execution ID
+     */
+    public void releaseWorkflow(Long workflowExecutionId) {
+        if (!enabled) {
+            return;
+        }
+        heldWorkflows.remove(workflowExecutionId);
+        transactionTemplate.executeWithoutResult(status -> leaseRepository.releaseWorkflow(workflowExecutionId, getNodeId()));
+    }
+
+    /**
+     * Release the lease of a claimed task once its retry attempt is over, so a further retry
+     * can be claimed right away instead of after the lease expires
+     *
+     * @param taskExecutionId the task execution ID
+     * @param attempt the attempt in flight, null if none was started
+     */
+    public void releaseTaskWhenDone(Long taskExecutionId, CompletableFuture<?> attempt) {
+        if (!enabled) {
+            return;
+        }
+        if (attempt == null) {
+            releaseTask(taskExecutionId);
+        } else {
+            attempt.whenComplete((result, throwable) -> releaseTask(taskExecutionId));
+        }
+    }
+
+    private void releaseTask(Long taskExecutionId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> leaseRepository.releaseTask(taskExecutionId, getNodeId()));
+        } catch (Exception e) {
+            // The lease still expires on its own
+            log.warn("Could not release lease of task {}", taskExecutionId, e);
+        }
+    }
+
+    /**
+     * Renew the leases this node holds, at a third of the lease duration by default
+     */
+    @Scheduled(fixedDelayString = "${workflow.cluster.heartbeat-interval-ms:20000}")
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        heldWorkflows.values().removeIf(heldUntil -> !heldUntil.isAfter(now));
+
+        try {
+            LocalDateTime leaseUntil = leaseUntil(now);
+            Integer renewed = transactionTemplate.execute(status -> leaseRepository.renewLeases(getNodeId(), leaseUntil));
+            log.debug("Node {} renewed {} leases until {}", getNodeId(), renewed, leaseUntil);
+        } catch (Exception e) {
+            log.error("Error renewing leases of node {}", getNodeId(), e);
+        }
+
+        try {
+            // A cancel or pause handled by another node only reached the database
+            leaseRepository.findStoppedWorkflows(getNodeId())
+                    .forEach(workflow -> cancellationRegistry.cancel(workflow.id(), workflow.status()));
+        } catch (Exception e) {
+            log.error("Error checking for stopped workflows of node {}", getNodeId(), e);
+        }
+    }
+
+    private LocalDateTime leaseUntil(LocalDateTime now) {
+        return now.plusSeconds(leaseDurationSeconds);
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        // Unique per process, so a restarted node does not inherit leases of its previous run
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
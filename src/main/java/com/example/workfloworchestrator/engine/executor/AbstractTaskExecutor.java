@@ -3,12 +3,14 @@ package com.example.workfloworchestrator.engine.executor;
 import com.example.workfloworchestrator.exception.TaskExecutionException;
 import com.example.workfloworchestrator.model.ExecutionContext;
 import com.example.workfloworchestrator.model.TaskDefinition;
+import com.example.workfloworchestrator.util.JsonCodec;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Abstract base class for task executors
@@ -17,7 +19,21 @@ import java.util.regex.Pattern;
 @Slf4j
 public abstract class AbstractTaskExecutor implements TaskExecutor {
 
-    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$\\{([^}]+)\\}");
+    private JsonCodec jsonCodec = JsonCodec.defaultCodec();
+
+    /**
+     * Use the application's JSON codec instead of the default one
+     *
+     * @param jsonCodec the shared JSON codec
+     */
+    @Autowired(required = false)
+    public void setJsonCodec(JsonCodec jsonCodec) {
+        this.jsonCodec = jsonCodec;
+    }
+
+    protected JsonCodec getJsonCodec() {
+        return jsonCodec;
+    }
 
     /**
      * Concrete execute method implementing the template pattern
@@ -47,14 +63,36 @@ public abstract class AbstractTaskExecutor implements TaskExecutor {
             return result;
 
         } catch (Exception e) {
-            log.error("Error executing task: {}, type: {}",
-                    taskDefinition.getName(), getTaskType(), e);
+            throw toTaskExecutionException(taskDefinition, e);
+        }
+    }
 
-            if (e instanceof TaskExecutionException) {
-                throw (TaskExecutionException) e;
-            } else {
-                throw new TaskExecutionException("Task execution failed: " + e.getMessage(), e);
-            }
+    /**
+     * Asynchronous variant of the template method
+     * Runs the same pre and post processing around doExecuteAsync
+     *
+     * @param taskDefinition the task definition
+     * @param context the execution context containing input variables
+     * @return CompletableFuture with the map of output values
+     */
+    @Override
+    public final CompletableFuture<Map<String, Object>> executeAsync(TaskDefinition taskDefinition,
+                                                                     ExecutionContext context) {
+        try {
+            // Pre-execution phase
+            validateTaskConfig(taskDefinition);
+            preProcessContext(context);
+
+            log.debug("Executing task asynchronously: {}, type: {}", taskDefinition.getName(), getTaskType());
+
+            return doExecuteAsync(taskDefinition, context)
+                    .thenApply(result -> postProcessResult(result, context))
+                    .exceptionally(throwable -> {
+                        throw toTaskExecutionException(taskDefinition, throwable);
+                    });
+
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(toTaskExecutionException(taskDefinition, e));
         }
     }
 
@@ -69,6 +107,20 @@ public abstract class AbstractTaskExecutor implements TaskExecutor {
     protected abstract Map<String, Object> doExecute(TaskDefinition taskDefinition, ExecutionContext context)
             throws Exception;
 
+    /**
+     * Hook method for executors that can complete without blocking
+     * The default implementation runs doExecute on the calling thread
+     *
+     * @param taskDefinition the task definition
+     * @param context the execution context containing input variables
+     * @return CompletableFuture with the map of output values
+     * @throws Exception if execution cannot be started
+     */
+    protected CompletableFuture<Map<String, Object>> doExecuteAsync(TaskDefinition taskDefinition,
+                                                                    ExecutionContext context) throws Exception {
+        return CompletableFuture.completedFuture(doExecute(taskDefinition, context));
+    }
+
     /**
      * Hook method to validate task configuration
      * Can be overridden by concrete implementations
@@ -102,6 +154,20 @@ public abstract class AbstractTaskExecutor implements TaskExecutor {
         return result != null ? result : new HashMap<>();
     }
 
+    private TaskExecutionException toTaskExecutionException(TaskDefinition taskDefinition, Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause() : throwable;
+
+        log.error("Error executing task: {}, type: {}",
+                taskDefinition.getName(), getTaskType(), cause);
+
+        if (cause instanceof TaskExecutionException) {
+            return (TaskExecutionException) cause;
+        } else {
+            return new TaskExecutionException("Task execution failed: " + cause.getMessage(), cause);
+        }
+    }
+
     /**
      * Create a standard success result
      *
@@ -145,43 +211,6 @@ public abstract class AbstractTaskExecutor implements TaskExecutor {
         return processedConfig;
     }
 
-    /**
-     * Process variables in a string, replacing ${varName} with values from context
-     *
-     * @param input the input string
-     * @param context the execution context
-     * @return the processed string
-     */
-    public String processVariables(String input, ExecutionContext context) {
-        if (input == null || input.isEmpty() || context == null) {
-            return input;
-        }
-
-        // Create a copy of the input string that we'll modify
-        String result = input;
-
-        // Use regex to find all variable placeholders in the format ${varName}
-        Matcher matcher = VARIABLE_PATTERN.matcher(input);
-
-        // For each variable placeholder found
-        while (matcher.find()) {
-            // Extract the variable name (without the ${} delimiters)
-            String variableName = matcher.group(1);
-
-            // Try to get the variable value from the context
-            Object variableValue = context.getVariable(variableName);
-
-            // If the variable exists in the context
-            if (variableValue != null) {
-                // Replace the placeholder with the variable value
-                String placeholder = "${" + variableName + "}";
-                result = result.replace(placeholder, variableValue.toString());
-            }
-        }
-
-        return result;
-    }
-
     /**
      * Extract a JSON object from a string and put it in the context
      *
@@ -194,8 +223,7 @@ public abstract class AbstractTaskExecutor implements TaskExecutor {
             throws com.fasterxml.jackson.core.JsonProcessingException {
 
         if (jsonString != null && !jsonString.isEmpty() && context != null) {
-            com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-            Object jsonObject = mapper.readValue(jsonString, Object.class);
+            Object jsonObject = jsonCodec.read(jsonString);
             context.setVariable(variableName, jsonObject);
         }
     }
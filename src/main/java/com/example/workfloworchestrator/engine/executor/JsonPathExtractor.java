@@ -0,0 +1,127 @@
+package com.example.workfloworchestrator.engine.executor;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Pulls values at configured JSON pointers out of a document without building a tree of it
+ * The parser walks only into objects and arrays on the way to a target and skips everything
+ * else, so memory use is bounded by the extracted values rather than the document size.
+ *
+ * Extraction specs name each value, e.g. "orderId=/data/id, firstItem=/data/items/0".
+ * Scalars are returned as strings, numbers and booleans, objects and arrays as JSON text.
+ */
+public class JsonPathExtractor {
+
+    // Pointer -> output names, in the escaped form JsonPointer prints
+    private final Map<String, List<String>> targets = new HashMap<>();
+    private final Set<String> prefixes = new HashSet<>();
+
+    private JsonPathExtractor() {
+    }
+
+    /**
+     * Parse an extraction spec
+     *
+     * @param spec comma-separated name=pointer pairs
+     * @return the extractor
+     * @throws IllegalArgumentException if a pair or pointer is malformed
+     */
+    public static JsonPathExtractor parse(String spec) {
+        JsonPathExtractor extractor = new JsonPathExtractor();
+
+        for (String pair : spec.split(",")) {
+            if (pair.isBlank()) {
+                continue;
+            }
+
+            int separator = pair.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected name=/json/pointer but got: " + pair.trim());
+            }
+
+            String name = pair.substring(0, separator).trim();
+            JsonPointer pointer = JsonPointer.compile(pair.substring(separator + 1).trim());
+
+            extractor.targets.computeIfAbsent(pointer.toString(), p -> new ArrayList<>()).add(name);
+            for (JsonPointer parent = pointer.head(); parent != null; parent = parent.head()) {
+                extractor.prefixes.add(parent.toString());
+            }
+        }
+
+        return extractor;
+    }
+
+    public boolean isEmpty() {
+        return targets.isEmpty();
+    }
+
+    /**
+     * Extract the target values from a document
+     * Parsing stops as soon as every target has been found.
+     *
+     * @param parser a parser positioned before the document
+     * @return values by output name; targets missing from the document or null in it are left out
+     * @throws IOException if the document is not valid JSON
+     */
+    public Map<String, Object> extract(JsonParser parser) throws IOException {
+        Map<String, Object> values = new HashMap<>();
+        Set<String> pending = new HashSet<>(targets.keySet());
+
+        if (parser.nextToken() != null) {
+            walk(parser, "", pending, values);
+        }
+
+        return values;
+    }
+
+    private void walk(JsonParser parser, String path, Set<String> pending, Map<String, Object> values)
+            throws IOException {
+
+        List<String> names = targets.get(path);
+        if (names != null) {
+            Object value = readValue(parser);
+            if (value != null) {
+                names.forEach(name -> values.put(name, value));
+            }
+            pending.remove(path);
+            return;
+        }
+
+        if (!prefixes.contains(path)) {
+            parser.skipChildren();
+            return;
+        }
+
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            while (!pending.isEmpty() && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String segment = escape(parser.currentName());
+                parser.nextToken();
+                walk(parser, path + "/" + segment, pending, values);
+            }
+        } else if (parser.currentToken() == JsonToken.START_ARRAY) {
+            int index = 0;
+            while (!pending.isEmpty() && parser.nextToken() != JsonToken.END_ARRAY) {
+                walk(parser, path + "/" + index++, pending, values);
+            }
+        }
+    }
+
+    private Object readValue(JsonParser parser) throws IOException {
+        return switch (parser.currentToken()) {
+            case START_OBJECT, START_ARRAY -> parser.readValueAsTree().toString();
+            case VALUE_STRING -> parser.getText();
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getNumberValue();
+            case VALUE_TRUE, VALUE_FALSE -> parser.getBooleanValue();
+            default -> null;
+        };
+    }
+
+    private static String escape(String segment) {
+        return segment.replace("~", "~0").replace("/", "~1");
+    }
+}
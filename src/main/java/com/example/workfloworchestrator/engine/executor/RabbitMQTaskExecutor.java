@@ -1,23 +1,29 @@
 package com.example.workfloworchestrator.engine.executor;
 
+import com.example.workfloworchestrator.engine.cancellation.CancellationToken;
 import com.example.workfloworchestrator.exception.TaskExecutionException;
 import com.example.workfloworchestrator.messaging.RabbitMQSender;
 import com.example.workfloworchestrator.messaging.TaskMessage;
 import com.example.workfloworchestrator.model.ExecutionContext;
 import com.example.workfloworchestrator.model.TaskDefinition;
+import com.example.workfloworchestrator.util.HashedWheelTimer;
+import com.example.workfloworchestrator.util.PersistentHashMap;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Task executor that delegates execution to external services via RabbitMQ
- * Sends task messages and handles responses asynchronously
+ * Sends task messages and handles responses asynchronously; no thread waits for the
+ * publisher confirm or the reply, and timeouts are driven by the shared wheel timer. A message
+ * the broker rejects fails the task right away. Cancelling the workflow
+ * drops the pending reply and its timeout right away.
  */
 @Slf4j
 @Component
@@ -26,10 +32,12 @@ public class RabbitMQTaskExecutor extends AbstractTaskExecutor {
     private static final String TASK_TYPE = "rabbitmq";
 
     private final RabbitMQSender rabbitMQSender;
+    private final HashedWheelTimer workflowTimer;
     private final Map<String, CompletableFuture<Map<String, Object>>> pendingResponses = new ConcurrentHashMap<>();
 
-    public RabbitMQTaskExecutor(RabbitMQSender rabbitMQSender) {
+    public RabbitMQTaskExecutor(RabbitMQSender rabbitMQSender, HashedWheelTimer workflowTimer) {
         this.rabbitMQSender = rabbitMQSender;
+        this.workflowTimer = workflowTimer;
     }
 
     @Override
@@ -42,10 +50,26 @@ public class RabbitMQTaskExecutor extends AbstractTaskExecutor {
         validateTaskConfig(taskDefinition, "exchange", "routingKey");
     }
 
+    @Override
+    public boolean supportsAsyncExecution() {
+        return true;
+    }
+
     @Override
     protected Map<String, Object> doExecute(TaskDefinition taskDefinition, ExecutionContext context)
             throws Exception {
 
+        try {
+            return doExecuteAsync(taskDefinition, context).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    @Override
+    protected CompletableFuture<Map<String, Object>> doExecuteAsync(TaskDefinition taskDefinition,
+                                                                    ExecutionContext context) {
+
         // Get processed configuration
         Map<String, String> config = processConfigVariables(taskDefinition.getConfiguration(), context);
 
@@ -60,12 +84,7 @@ public class RabbitMQTaskExecutor extends AbstractTaskExecutor {
         String correlationId = UUID.randomUUID().toString();
 
         // Create message payload from context variables
-        Map<String, String> payload = new HashMap<>();
-        for (Map.Entry<String, Object> entry : context.getAllVariables().entrySet()) {
-            if (entry.getValue() != null) {
-                payload.put(entry.getKey(), entry.getValue().toString());
-            }
-        }
+        Map<String, String> payload = toPayload(context.getAllVariables());
 
         // Create task message
         TaskMessage taskMessage = new TaskMessage();
@@ -74,24 +93,52 @@ public class RabbitMQTaskExecutor extends AbstractTaskExecutor {
         taskMessage.setInputs(payload);
         taskMessage.setConfiguration(config);
 
-        // Create future for handling response
+        // Create future for handling response; it is completed by handleResponse or the timeout
         CompletableFuture<Map<String, Object>> responseFuture = new CompletableFuture<>();
         pendingResponses.put(correlationId, responseFuture);
 
-        try {
-            // Send message
-            log.debug("Sending RabbitMQ task message with correlationId: {}", correlationId);
-            rabbitMQSender.sendMessage(exchange, routingKey, taskMessage);
+        HashedWheelTimer.Timeout timeout = workflowTimer.newTimeout(() -> {
+            CompletableFuture<Map<String, Object>> pending = pendingResponses.remove(correlationId);
+            if (pending != null) {
+                pending.completeExceptionally(new TaskExecutionException(
+                        "RabbitMQ task timed out after " + timeoutSeconds + " seconds"));
+            }
+        }, timeoutSeconds, TimeUnit.SECONDS);
 
-            // Wait for response with timeout
-            return responseFuture.get(timeoutSeconds, TimeUnit.SECONDS);
+        CancellationToken.Registration cancellation =
+                CancellationToken.current().onCancel(() -> responseFuture.cancel(false));
 
-        } catch (java.util.concurrent.TimeoutException e) {
-            throw new TaskExecutionException("RabbitMQ task timed out after " + timeoutSeconds + " seconds");
-        } finally {
-            // Clean up regardless of success or failure
+        // Clean up regardless of success, failure or cancellation
+        responseFuture.whenComplete((response, throwable) -> {
             pendingResponses.remove(correlationId);
+            timeout.cancel();
+            cancellation.close();
+        });
+
+        try {
+            // Send message; the broker's confirm is not awaited, so parallel waves are pipelined
+            log.debug("Sending RabbitMQ task message with correlationId: {}", correlationId);
+            rabbitMQSender.sendMessageAsync(exchange, routingKey, taskMessage)
+                    .whenComplete((confirmed, throwable) -> {
+                        if (throwable != null) {
+                            responseFuture.completeExceptionally(throwable instanceof CompletionException
+                                    && throwable.getCause() != null ? throwable.getCause() : throwable);
+                        }
+                    });
+        } catch (Exception e) {
+            responseFuture.completeExceptionally(e);
         }
+
+        return responseFuture;
+    }
+
+    /**
+     * Get the number of requests still waiting for a response
+     *
+     * @return the pending response count
+     */
+    public int getPendingResponseCount() {
+        return pendingResponses.size();
     }
 
     /**
@@ -102,7 +149,7 @@ public class RabbitMQTaskExecutor extends AbstractTaskExecutor {
      * @param response the response data
      */
     public void handleResponse(String correlationId, Map<String, Object> response) {
-        CompletableFuture<Map<String, Object>> future = pendingResponses.get(correlationId);
+        CompletableFuture<Map<String, Object>> future = pendingResponses.remove(correlationId);
 
         if (future != null) {
             log.debug("Received RabbitMQ response for correlationId: {}", correlationId);
@@ -112,6 +159,23 @@ public class RabbitMQTaskExecutor extends AbstractTaskExecutor {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> toPayload(Map<String, Object> variables) {
+        // Task inputs are normally all non-null strings, in which case the snapshot is sent as it is
+        boolean allStrings = variables.values().stream().allMatch(value -> value instanceof String);
+        if (allStrings) {
+            return (Map<String, String>) (Map<String, ?>) variables;
+        }
+
+        PersistentHashMap.Builder<String, String> payload = PersistentHashMap.builder();
+        variables.forEach((key, value) -> {
+            if (value != null) {
+                payload.put(key, value.toString());
+            }
+        });
+        return payload.build();
+    }
+
     @Override
     protected Map<String, Object> postProcessResult(Map<String, Object> result, ExecutionContext context) {
         // Add execution metadata if not present
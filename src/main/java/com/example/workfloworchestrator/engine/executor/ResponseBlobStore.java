@@ -0,0 +1,240 @@
+package com.example.workfloworchestrator.engine.executor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * File-backed store for response bodies too large to keep on the heap
+ * Bodies are written to a spill buffer that stays in memory up to a size limit and moves to a
+ * file in the blob directory beyond it. Committed blobs are referenced by ID from task outputs
+ * and deleted once they are older than the configured TTL.
+ */
+@Slf4j
+@Component
+public class ResponseBlobStore {
+
+    private static final String BLOB_PREFIX = "blob-";
+
+    @Value("${workflow.http.response.blob-directory:${java.io.tmpdir}/workflow-blobs}")
+    private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "workflow-blobs");
+
+    @Value("${workflow.http.response.blob-ttl-hours:24}")
+    private long ttlHours = 24;
+
+    /**
+     * Create a buffer that keeps up to maxInMemoryBytes on the heap and spills to a file beyond that
+     *
+     * @param maxInMemoryBytes the largest body kept in memory
+     * @return a new, empty buffer
+     */
+    public SpillBuffer newBuffer(int maxInMemoryBytes) {
+        return new SpillBuffer(maxInMemoryBytes);
+    }
+
+    /**
+     * Open a committed blob for reading
+     *
+     * @param blobId the blob ID from the task outputs
+     * @return stream of the blob contents
+     * @throws IOException if the blob does not exist or cannot be read
+     */
+    public InputStream open(String blobId) throws IOException {
+        return Files.newInputStream(resolve(blobId));
+    }
+
+    /**
+     * Delete a committed blob
+     *
+     * @param blobId the blob ID
+     * @return true if the blob existed
+     */
+    public boolean delete(String blobId) {
+        try {
+            return Files.deleteIfExists(resolve(blobId));
+        } catch (IOException e) {
+            log.warn("Could not delete response blob {}", blobId, e);
+            return false;
+        }
+    }
+
+    /**
+     * Delete blobs older than the TTL
+     */
+    @Scheduled(fixedDelayString = "${workflow.http.response.blob-sweep-interval-ms:3600000}")
+    public void sweepExpired() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        FileTime cutoff = FileTime.from(Instant.now().minus(Duration.ofHours(ttlHours)));
+        int deleted = 0;
+
+        try (Stream<Path> blobs = Files.list(directory)) {
+            for (Path blob : (Iterable<Path>) blobs::iterator) {
+                try {
+                    if (blob.getFileName().toString().startsWith(BLOB_PREFIX)
+                            && Files.getLastModifiedTime(blob).compareTo(cutoff) < 0
+                            && Files.deleteIfExists(blob)) {
+                        deleted++;
+                    }
+                } catch (NoSuchFileException e) {
+                    // Deleted by its owner in the meantime
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not sweep response blobs in {}", directory, e);
+        }
+
+        if (deleted > 0) {
+            log.debug("Deleted {} expired response blobs", deleted);
+        }
+    }
+
+    private Path resolve(String blobId) throws FileNotFoundException {
+        Path blob = directory.resolve(blobId).normalize();
+        if (!blobId.startsWith(BLOB_PREFIX) || !directory.equals(blob.getParent())) {
+            throw new FileNotFoundException("Unknown response blob: " + blobId);
+        }
+        return blob;
+    }
+
+    /**
+     * Output stream that holds a body in memory until it outgrows its limit, then in a blob file
+     * Not thread-safe; a buffer belongs to one response.
+     */
+    public class SpillBuffer extends OutputStream {
+
+        private final int maxInMemoryBytes;
+        private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private Path file;
+        private OutputStream fileOutput;
+        private long size;
+
+        private SpillBuffer(int maxInMemoryBytes) {
+            this.maxInMemoryBytes = maxInMemoryBytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (file == null && size + length > maxInMemoryBytes) {
+                spill();
+            }
+
+            if (file == null) {
+                memory.write(bytes, offset, length);
+            } else {
+                fileOutput.write(bytes, offset, length);
+            }
+            size += length;
+        }
+
+        /**
+         * Copy a stream into the buffer until it ends
+         *
+         * @param input the stream to copy
+         * @return this buffer
+         * @throws IOException if reading or spilling fails
+         */
+        public SpillBuffer readFrom(InputStream input) throws IOException {
+            input.transferTo(this);
+            return this;
+        }
+
+        public boolean isSpilled() {
+            return file != null;
+        }
+
+        public long size() {
+            return size;
+        }
+
+        /**
+         * Read the buffered bytes from the start; no more can be written afterwards
+         *
+         * @return stream of the buffered bytes
+         * @throws IOException if the spill file cannot be read
+         */
+        public InputStream openInputStream() throws IOException {
+            close();
+            return file == null
+                    ? new ByteArrayInputStream(memory.toByteArray())
+                    : new BufferedInputStream(Files.newInputStream(file));
+        }
+
+        /**
+         * Decode a body that stayed in memory
+         *
+         * @param charset the body charset
+         * @return the body text
+         * @throws IllegalStateException if the body was spilled to a file
+         */
+        public String toString(Charset charset) {
+            if (file != null) {
+                throw new IllegalStateException("Body of " + size + " bytes was spilled to a file");
+            }
+            return memory.toString(charset);
+        }
+
+        /**
+         * Keep a spilled body in the store
+         *
+         * @return the blob ID
+         * @throws IOException if the spill file cannot be completed
+         */
+        public String commit() throws IOException {
+            if (file == null) {
+                spill();
+            }
+            close();
+            return file.getFileName().toString();
+        }
+
+        /**
+         * Drop the body, deleting its spill file if there is one
+         */
+        public void discard() {
+            try {
+                close();
+                if (file != null) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                log.warn("Could not delete spilled response body {}", file, e);
+            }
+            memory = new ByteArrayOutputStream();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileOutput != null) {
+                fileOutput.close();
+                fileOutput = null;
+            }
+        }
+
+        private void spill() throws IOException {
+            Files.createDirectories(directory);
+            file = Files.createTempFile(directory, BLOB_PREFIX, ".bin");
+            fileOutput = new BufferedOutputStream(Files.newOutputStream(file));
+            memory.writeTo(fileOutput);
+            memory = new ByteArrayOutputStream(0);
+        }
+    }
+}
@@ -1,38 +1,113 @@
 package com.example.workfloworchestrator.engine.executor;
 
+import com.example.workfloworchestrator.config.HttpClientProperties;
+import com.example.workfloworchestrator.config.RestTemplateConfig;
+import com.example.workfloworchestrator.engine.cancellation.CancellationToken;
+import com.example.workfloworchestrator.engine.executor.ResponseBlobStore.SpillBuffer;
 import com.example.workfloworchestrator.model.ExecutionContext;
 import com.example.workfloworchestrator.model.TaskDefinition;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.async.methods.AbstractBinResponseConsumer;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.async.methods.SimpleResponseConsumer;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 /**
  * Task executor for REST API calls
  * Supports GET, POST, PUT, DELETE, PATCH methods with JSON payloads
+ *
+ * With workflow.http.client.mode=ASYNC, requests go through the non-blocking client and no
+ * thread waits for the response; otherwise they block a worker of the task execution backend.
+ *
+ * With responseMode=STREAM in the task configuration, the body is never held as one string:
+ * it is buffered up to workflow.http.response.max-in-memory-bytes and spilled to the response
+ * blob store beyond that, and only the JSON pointers listed in extractPaths are parsed out of it,
+ * e.g. extractPaths="orderId=/data/id, total=/data/amount". Spilled bodies are referenced by
+ * the responseBodyBlob output; storeResponseBody=false drops the body after extraction.
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class RestApiTaskExecutor extends AbstractTaskExecutor {
 
     private static final String TASK_TYPE = "rest-api";
 
+    private static final String STREAM_MODE = "STREAM";
+
+    // Request methods that carry the configured request body
+    private static final List<HttpMethod> BODY_METHODS = List.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH);
+
     private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
+    private final CloseableHttpAsyncClient asyncClient;
+    private final RequestConfig defaultRequestConfig;
+    private final ResponseBlobStore blobStore;
+    private final Executor responseExecutor;
+
+    @Value("${workflow.http.response.max-in-memory-bytes:262144}")
+    private int maxInMemoryBytes = 262144;
+
+    public RestApiTaskExecutor(RestTemplate restTemplate) {
+        this(restTemplate, new HttpClientProperties(), null, new ResponseBlobStore(), Runnable::run);
+    }
+
+    @Autowired
+    public RestApiTaskExecutor(RestTemplate restTemplate, HttpClientProperties httpClientProperties,
+                               @Nullable CloseableHttpAsyncClient restAsyncClient,
+                               ResponseBlobStore blobStore, TaskExecutionBackend taskExecutionBackend) {
+        this(restTemplate, httpClientProperties, restAsyncClient, blobStore, taskExecutionBackend.getExecutor());
+    }
+
+    RestApiTaskExecutor(RestTemplate restTemplate, HttpClientProperties httpClientProperties,
+                        @Nullable CloseableHttpAsyncClient restAsyncClient,
+                        ResponseBlobStore blobStore, Executor responseExecutor) {
+        this.restTemplate = restTemplate;
+        this.asyncClient = restAsyncClient;
+        this.defaultRequestConfig = RestTemplateConfig.defaultRequestConfig(httpClientProperties);
+        this.blobStore = blobStore;
+        this.responseExecutor = responseExecutor;
+    }
 
     @Override
     public String getTaskType() {
         return TASK_TYPE;
     }
 
+    @Override
+    public boolean supportsAsyncExecution() {
+        return asyncClient != null;
+    }
+
     @Override
     protected void validateTaskConfig(TaskDefinition taskDefinition) {
         validateTaskConfig(taskDefinition, "url", "method");
@@ -64,6 +139,11 @@ public class RestApiTaskExecutor extends AbstractTaskExecutor {
         // Create headers
         HttpHeaders headers = createHeaders(context);
 
+        StreamOptions streamOptions = getStreamOptions(config);
+        if (streamOptions != null) {
+            return executeStreamingRequest(url, HttpMethod.valueOf(method), requestBody, headers, streamOptions);
+        }
+
         // Execute request based on method
         ResponseEntity<String> response = executeRequest(url, method, requestBody, headers);
 
@@ -71,6 +151,108 @@ public class RestApiTaskExecutor extends AbstractTaskExecutor {
         return processResponse(response, context);
     }
 
+    @Override
+    protected CompletableFuture<Map<String, Object>> doExecuteAsync(TaskDefinition taskDefinition,
+                                                                    ExecutionContext context) throws Exception {
+        if (asyncClient == null) {
+            return super.doExecuteAsync(taskDefinition, context);
+        }
+
+        Map<String, String> config = processConfigVariables(taskDefinition.getConfiguration(), context);
+        String url = getRequiredConfig(config, "url");
+        HttpMethod httpMethod = HttpMethod.valueOf(getRequiredConfig(config, "method").toUpperCase());
+        SimpleHttpRequest request = createAsyncRequest(url, httpMethod, config.get("requestBody"), createHeaders(context));
+
+        CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        StreamOptions streamOptions = getStreamOptions(config);
+        Future<?> exchange = streamOptions != null
+                ? executeStreamingAsync(request, streamOptions, result)
+                : executeBufferedAsync(request, context, result);
+
+        CancellationToken.Registration cancellation =
+                CancellationToken.current().onCancel(() -> exchange.cancel(true));
+        result.whenComplete((response, throwable) -> cancellation.close());
+
+        return result;
+    }
+
+    private Future<?> executeBufferedAsync(SimpleHttpRequest request, ExecutionContext context,
+                                           CompletableFuture<Map<String, Object>> result) {
+        // Parsing the body and its JSON runs off the I/O reactor threads, as for streamed responses
+        return asyncClient.execute(
+                SimpleRequestProducer.create(request), SimpleResponseConsumer.create(), new FutureCallback<>() {
+                    @Override
+                    public void completed(SimpleHttpResponse response) {
+                        responseExecutor.execute(() -> {
+                            try {
+                                result.complete(processResponse(toResponseEntity(response), context));
+                            } catch (Exception e) {
+                                result.completeExceptionally(e);
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void failed(Exception e) {
+                        result.completeExceptionally(e);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        result.cancel(false);
+                    }
+                });
+    }
+
+    private Future<?> executeStreamingAsync(SimpleHttpRequest request, StreamOptions streamOptions,
+                                            CompletableFuture<Map<String, Object>> result) {
+        SpillingResponseConsumer consumer = new SpillingResponseConsumer();
+
+        // Extraction may read a spilled body back from disk, so it runs off the I/O reactor threads
+        return asyncClient.execute(SimpleRequestProducer.create(request), consumer, new FutureCallback<>() {
+            @Override
+            public void completed(StreamedResponse response) {
+                responseExecutor.execute(() -> {
+                    try {
+                        result.complete(processStreamedResponse(
+                                response.statusCode(), response.headers(), response.body(), streamOptions));
+                    } catch (Exception e) {
+                        result.completeExceptionally(e);
+                    }
+                });
+            }
+
+            @Override
+            public void failed(Exception e) {
+                consumer.discardBody();
+                result.completeExceptionally(e);
+            }
+
+            @Override
+            public void cancelled() {
+                consumer.discardBody();
+                result.cancel(false);
+            }
+        });
+    }
+
+    /**
+     * Get the streaming options of a task, if it asks for streamed responses
+     *
+     * @param config the processed task configuration
+     * @return the options, or null for buffered responses
+     */
+    private StreamOptions getStreamOptions(Map<String, String> config) {
+        if (!STREAM_MODE.equalsIgnoreCase(config.get("responseMode"))) {
+            return null;
+        }
+
+        String extractPaths = config.get("extractPaths");
+        return new StreamOptions(
+                JsonPathExtractor.parse(extractPaths != null ? extractPaths : ""),
+                !"false".equalsIgnoreCase(config.get("storeResponseBody")));
+    }
+
     /**
      * Create HTTP headers from context
      *
@@ -108,15 +290,7 @@ public class RestApiTaskExecutor extends AbstractTaskExecutor {
      */
     private ResponseEntity<String> executeRequest(String url, String method, String requestBody, HttpHeaders headers) {
         HttpMethod httpMethod = HttpMethod.valueOf(method);
-
-        // Create request entity with body if applicable
-        HttpEntity<String> requestEntity;
-        if (requestBody != null && !requestBody.isEmpty() &&
-                (httpMethod == HttpMethod.POST || httpMethod == HttpMethod.PUT || httpMethod == HttpMethod.PATCH)) {
-            requestEntity = new HttpEntity<>(requestBody, headers);
-        } else {
-            requestEntity = new HttpEntity<>(headers);
-        }
+        HttpEntity<String> requestEntity = createRequestEntity(httpMethod, requestBody, headers);
 
         try {
             return restTemplate.exchange(url, httpMethod, requestEntity, String.class);
@@ -128,6 +302,122 @@ public class RestApiTaskExecutor extends AbstractTaskExecutor {
         }
     }
 
+    /**
+     * Execute HTTP request, streaming the response body into a spill buffer
+     *
+     * @param url the URL
+     * @param httpMethod the HTTP method
+     * @param requestBody the request body (optional)
+     * @param headers the HTTP headers
+     * @param streamOptions what to extract and keep from the body
+     * @return result map
+     */
+    private Map<String, Object> executeStreamingRequest(String url, HttpMethod httpMethod, String requestBody,
+                                                        HttpHeaders headers, StreamOptions streamOptions)
+            throws IOException {
+
+        HttpEntity<String> requestEntity = createRequestEntity(httpMethod, requestBody, headers);
+
+        try {
+            return restTemplate.execute(url, httpMethod, restTemplate.httpEntityCallback(requestEntity, String.class),
+                    response -> processStreamedResponse(response.getStatusCode().value(), response.getHeaders(),
+                            bufferBody(response.getBody()), streamOptions));
+        } catch (HttpStatusCodeException e) {
+            // Error bodies have already been read by the error handler
+            SpillBuffer body = blobStore.newBuffer(maxInMemoryBytes);
+            body.write(e.getResponseBodyAsByteArray());
+            HttpHeaders errorHeaders = e.getResponseHeaders() != null ? e.getResponseHeaders() : new HttpHeaders();
+            return processStreamedResponse(e.getStatusCode().value(), errorHeaders, body, streamOptions);
+        }
+    }
+
+    private HttpEntity<String> createRequestEntity(HttpMethod httpMethod, String requestBody, HttpHeaders headers) {
+        // Create request entity with body if applicable
+        if (hasBody(httpMethod, requestBody)) {
+            return new HttpEntity<>(requestBody, headers);
+        } else {
+            return new HttpEntity<>(headers);
+        }
+    }
+
+    private SpillBuffer bufferBody(InputStream input) throws IOException {
+        SpillBuffer body = blobStore.newBuffer(maxInMemoryBytes);
+        try {
+            return body.readFrom(input);
+        } catch (IOException e) {
+            body.discard();
+            throw e;
+        }
+    }
+
+    /**
+     * Create a request for the non-blocking client
+     * The response timeout is cut to the task's deadline, if it has one.
+     *
+     * @param url the URL
+     * @param httpMethod the HTTP method
+     * @param requestBody the request body (optional)
+     * @param headers the HTTP headers
+     * @return the request
+     */
+    private SimpleHttpRequest createAsyncRequest(String url, HttpMethod httpMethod, String requestBody, HttpHeaders headers) {
+        SimpleRequestBuilder builder = SimpleRequestBuilder.create(httpMethod.name()).setUri(url);
+        headers.forEach((name, values) -> {
+            if (!HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) {
+                values.forEach(value -> builder.addHeader(name, value));
+            }
+        });
+
+        if (hasBody(httpMethod, requestBody)) {
+            MediaType contentType = headers.getContentType() != null ? headers.getContentType() : MediaType.APPLICATION_JSON;
+            Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+            builder.setBody(requestBody.getBytes(charset), ContentType.parse(contentType.toString()));
+        }
+
+        Instant deadline = CancellationToken.current().getDeadline();
+        if (deadline != null) {
+            long remainingMs = Math.max(1, Duration.between(Instant.now(), deadline).toMillis());
+            // Replaces the client's default config for this request, so it is carried over
+            builder.setRequestConfig(RequestConfig.copy(defaultRequestConfig)
+                    .setResponseTimeout(Timeout.ofMilliseconds(remainingMs))
+                    .build());
+        }
+
+        return builder.build();
+    }
+
+    private boolean hasBody(HttpMethod httpMethod, String requestBody) {
+        return requestBody != null && !requestBody.isEmpty() && BODY_METHODS.contains(httpMethod);
+    }
+
+    private ResponseEntity<String> toResponseEntity(SimpleHttpResponse response) {
+        HttpHeaders headers = toHttpHeaders(response.getHeaders());
+
+        // Decoded like RestTemplate does for JSON, as UTF-8 unless the response names a charset
+        byte[] body = response.getBodyBytes();
+
+        return ResponseEntity.status(response.getCode())
+                .headers(headers)
+                .body(body != null ? new String(body, charsetOf(headers.getContentType())) : null);
+    }
+
+    private static HttpHeaders toHttpHeaders(Header[] responseHeaders) {
+        HttpHeaders headers = new HttpHeaders();
+        for (Header header : responseHeaders) {
+            headers.add(header.getName(), header.getValue());
+        }
+        return headers;
+    }
+
+    private static Charset charsetOf(MediaType contentType) {
+        return contentType != null && contentType.getCharset() != null
+                ? contentType.getCharset() : StandardCharsets.UTF_8;
+    }
+
+    private static boolean isJson(MediaType contentType) {
+        return contentType != null && contentType.includes(MediaType.APPLICATION_JSON);
+    }
+
     /**
      * Process HTTP response
      *
@@ -139,14 +429,75 @@ public class RestApiTaskExecutor extends AbstractTaskExecutor {
             throws JsonProcessingException {
 
         // Extract response details
-        int statusCode = response.getStatusCodeValue();
         String responseBody = response.getBody();
         HttpHeaders responseHeaders = response.getHeaders();
 
         // Create result map
+        Map<String, Object> result = createResult(response.getStatusCodeValue(), responseHeaders);
+        result.put("responseBody", responseBody);
+
+        // Parse JSON response if applicable
+        if (responseBody != null && !responseBody.isEmpty() && isJson(responseHeaders.getContentType())) {
+            try {
+                extractJsonToContext(responseBody, "parsedResponse", context);
+                Object parsedResponse = context.getVariable("parsedResponse");
+                result.put("parsedResponse", parsedResponse);
+            } catch (Exception e) {
+                log.warn("Failed to parse JSON response: {}", e.getMessage());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Process a streamed HTTP response
+     * Extracts the configured JSON pointers, then keeps the body inline, as a blob or not at all.
+     *
+     * @param statusCode the response status code
+     * @param responseHeaders the response headers
+     * @param body the buffered response body, owned by this method from here on
+     * @param streamOptions what to extract and keep from the body
+     * @return result map
+     */
+    private Map<String, Object> processStreamedResponse(int statusCode, HttpHeaders responseHeaders,
+                                                        SpillBuffer body, StreamOptions streamOptions)
+            throws IOException {
+
+        Map<String, Object> result = createResult(statusCode, responseHeaders);
+        String blobId = null;
+
+        try {
+            MediaType contentType = responseHeaders.getContentType();
+            if (!streamOptions.extractor().isEmpty() && body.size() > 0 && isJson(contentType)) {
+                try (JsonParser parser = getJsonCodec().createParser(body.openInputStream())) {
+                    result.putAll(streamOptions.extractor().extract(parser));
+                } catch (JsonProcessingException e) {
+                    log.warn("Failed to extract values from JSON response: {}", e.getMessage());
+                }
+            }
+
+            result.put("responseBodySize", body.size());
+            if (streamOptions.storeBody()) {
+                if (body.isSpilled()) {
+                    blobId = body.commit();
+                    result.put("responseBodyBlob", blobId);
+                } else {
+                    result.put("responseBody", body.toString(charsetOf(contentType)));
+                }
+            }
+        } finally {
+            if (blobId == null) {
+                body.discard();
+            }
+        }
+
+        return result;
+    }
+
+    private Map<String, Object> createResult(int statusCode, HttpHeaders responseHeaders) {
         Map<String, Object> result = new HashMap<>();
         result.put("statusCode", statusCode);
-        result.put("responseBody", responseBody);
 
         // Convert headers to map
         Map<String, String> headersMap = new HashMap<>();
@@ -165,19 +516,6 @@ public class RestApiTaskExecutor extends AbstractTaskExecutor {
             result.put("errorMessage", "HTTP error: " + statusCode);
         }
 
-        // Parse JSON response if applicable
-        if (responseBody != null && !responseBody.isEmpty() &&
-                responseHeaders.getContentType() != null &&
-                responseHeaders.getContentType().includes(MediaType.APPLICATION_JSON)) {
-            try {
-                extractJsonToContext(responseBody, "parsedResponse", context);
-                Object parsedResponse = context.getVariable("parsedResponse");
-                result.put("parsedResponse", parsedResponse);
-            } catch (Exception e) {
-                log.warn("Failed to parse JSON response: {}", e.getMessage());
-            }
-        }
-
         return result;
     }
 
@@ -194,4 +532,57 @@ public class RestApiTaskExecutor extends AbstractTaskExecutor {
 
         return result;
     }
+
+    private record StreamOptions(JsonPathExtractor extractor, boolean storeBody) {
+    }
+
+    private record StreamedResponse(int statusCode, HttpHeaders headers, SpillBuffer body) {
+    }
+
+    /**
+     * Writes the response body into a spill buffer as it arrives instead of collecting it in memory
+     */
+    private class SpillingResponseConsumer extends AbstractBinResponseConsumer<StreamedResponse> {
+
+        private volatile StreamedResponse response;
+
+        @Override
+        protected void start(HttpResponse httpResponse, ContentType contentType) {
+            response = new StreamedResponse(httpResponse.getCode(), toHttpHeaders(httpResponse.getHeaders()),
+                    blobStore.newBuffer(maxInMemoryBytes));
+        }
+
+        @Override
+        protected int capacityIncrement() {
+            return 64 * 1024;
+        }
+
+        @Override
+        protected void data(ByteBuffer src, boolean endOfStream) throws IOException {
+            if (src.hasArray()) {
+                response.body().write(src.array(), src.arrayOffset() + src.position(), src.remaining());
+                src.position(src.limit());
+            } else {
+                byte[] bytes = new byte[src.remaining()];
+                src.get(bytes);
+                response.body().write(bytes);
+            }
+        }
+
+        @Override
+        protected StreamedResponse buildResult() {
+            return response;
+        }
+
+        @Override
+        public void releaseResources() {
+            // The body is handed over with the result, or discarded when the exchange fails
+        }
+
+        void discardBody() {
+            if (response != null) {
+                response.body().discard();
+            }
+        }
+    }
 }
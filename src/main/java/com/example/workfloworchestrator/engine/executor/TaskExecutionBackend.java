@@ -0,0 +1,211 @@
+package com.example.workfloworchestrator.engine.executor;
+
+import com.example.workfloworchestrator.config.TaskExecutionProperties;
+import com.example.workfloworchestrator.exception.TaskExecutionException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Runs blocking task executors off the common ForkJoinPool
+ * Uses virtual threads by default and bounds concurrency per task type
+ */
+@Slf4j
+@Component
+public class TaskExecutionBackend {
+
+    private final TaskExecutionProperties properties;
+    private final ExecutorService executorService;
+    private final Map<String, Semaphore> concurrencyLimits = new ConcurrentHashMap<>();
+
+    public TaskExecutionBackend(TaskExecutionProperties properties) {
+        this.properties = properties;
+        this.executorService = createExecutorService(properties);
+        log.info("Task execution backend: {}", properties.getBackend());
+    }
+
+    /**
+     * Run a unit of task work, waiting for a free slot of its task type first
+     * Completing the returned future from outside, by cancelling it or timing it out, interrupts the
+     * work, or drops it if it has not started yet.
+     *
+     * @param taskType the task type, used to look up its concurrency limit
+     * @param work the blocking work to run
+     * @return CompletableFuture with the work result
+     */
+    public <T> CompletableFuture<T> submit(String taskType, Supplier<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        AtomicBoolean returned = new AtomicBoolean();
+
+        Future<?> worker = executorService.submit(() -> {
+            T value;
+            try {
+                value = runWithPermit(taskType, work);
+            } catch (Throwable t) {
+                returned.set(true);
+                result.completeExceptionally(t);
+                return;
+            }
+            returned.set(true);
+            result.complete(value);
+        });
+
+        result.whenComplete((value, throwable) -> {
+            if (!returned.get()) {
+                worker.cancel(true);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Start non-blocking task work once a slot of its task type is free
+     * The slot is held until the returned future completes rather than while a thread runs, so
+     * asynchronous executors count against the same per-type limit as blocking ones. A free slot
+     * starts the work on the calling thread; otherwise a backend thread waits for one. Completing the
+     * returned future from outside releases the slot and cancels the started work.
+     *
+     * @param taskType the task type, used to look up its concurrency limit
+     * @param start starts the work and returns its pending result
+     * @return CompletableFuture with the work result
+     */
+    public <T> CompletableFuture<T> submitAsync(String taskType, Supplier<CompletableFuture<T>> start) {
+        Semaphore permits = getPermits(taskType);
+        if (permits == null) {
+            return start.get();
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (permits.tryAcquire()) {
+            startWithPermit(permits, start, result);
+            return result;
+        }
+
+        AtomicBoolean acquired = new AtomicBoolean();
+
+        Future<?> waiter = executorService.submit(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                result.completeExceptionally(new TaskExecutionException(
+                        "Interrupted while waiting for a free " + taskType + " execution slot", e));
+                return;
+            }
+            acquired.set(true);
+            startWithPermit(permits, start, result);
+        });
+
+        result.whenComplete((value, throwable) -> {
+            if (!acquired.get()) {
+                waiter.cancel(true);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Get the underlying executor, for continuations that must not run on I/O or timer threads
+     *
+     * @return the backend executor
+     */
+    public Executor getExecutor() {
+        return executorService;
+    }
+
+    /**
+     * Get the number of free execution slots for a task type
+     *
+     * @param taskType the task type
+     * @return free slots, or -1 if the task type is unlimited
+     */
+    public int getAvailablePermits(String taskType) {
+        Semaphore permits = getPermits(taskType);
+        return permits != null ? permits.availablePermits() : -1;
+    }
+
+    private <T> T runWithPermit(String taskType, Supplier<T> work) {
+        Semaphore permits = getPermits(taskType);
+        if (permits == null) {
+            return work.get();
+        }
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TaskExecutionException("Interrupted while waiting for a free " + taskType + " execution slot", e);
+        }
+
+        try {
+            return work.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static <T> void startWithPermit(Semaphore permits, Supplier<CompletableFuture<T>> start,
+                                            CompletableFuture<T> result) {
+        // Runs right away if the result was completed while waiting for the permit
+        result.whenComplete((value, throwable) -> permits.release());
+        if (result.isDone()) {
+            return;
+        }
+
+        CompletableFuture<T> started;
+        try {
+            started = start.get();
+        } catch (Throwable t) {
+            result.completeExceptionally(t);
+            return;
+        }
+
+        started.whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                result.completeExceptionally(throwable);
+            } else {
+                result.complete(value);
+            }
+        });
+        result.whenComplete((value, throwable) -> started.cancel(false));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    private Semaphore getPermits(String taskType) {
+        if (taskType == null) {
+            return null;
+        }
+
+        int limit = properties.getConcurrencyLimits()
+                .getOrDefault(taskType, properties.getDefaultConcurrencyLimit());
+        if (limit <= 0) {
+            return null;
+        }
+
+        return concurrencyLimits.computeIfAbsent(taskType, type -> new Semaphore(limit, true));
+    }
+
+    private static ExecutorService createExecutorService(TaskExecutionProperties properties) {
+        if (properties.getBackend() == TaskExecutionProperties.Backend.PLATFORM) {
+            return new ThreadPoolExecutor(
+                    properties.getThreadPoolSize(),
+                    properties.getThreadPoolSize(),
+                    60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(properties.getQueueCapacity()),
+                    Thread.ofPlatform().name("workflow-exec-", 0).factory());
+        }
+
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("workflow-vt-", 0).factory());
+    }
+}
@@ -3,8 +3,10 @@ package com.example.workfloworchestrator.engine.executor;
 import com.example.workfloworchestrator.exception.TaskExecutionException;
 import com.example.workfloworchestrator.model.ExecutionContext;
 import com.example.workfloworchestrator.model.TaskDefinition;
+import com.example.workfloworchestrator.util.VariableTemplate;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Interface for all task executors
@@ -29,6 +31,31 @@ public interface TaskExecutor {
      */
     String getTaskType();
 
+    /**
+     * Whether this executor completes tasks without blocking a thread while it waits
+     *
+     * @return true if executeAsync should be preferred over execute
+     */
+    default boolean supportsAsyncExecution() {
+        return false;
+    }
+
+    /**
+     * Execute a task asynchronously
+     * The default implementation runs execute on the calling thread
+     *
+     * @param taskDefinition the task definition
+     * @param context the execution context containing input variables
+     * @return CompletableFuture with the map of output values
+     */
+    default CompletableFuture<Map<String, Object>> executeAsync(TaskDefinition taskDefinition, ExecutionContext context) {
+        try {
+            return CompletableFuture.completedFuture(execute(taskDefinition, context));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     /**
      * Helper method to get required configuration parameter
      *
@@ -60,7 +87,8 @@ public interface TaskExecutor {
 
     /**
      * Helper method to process variables in a string
-     * Replaces ${varName} with values from the context
+     * Replaces ${varName} and ${varName.path[0].field} with values from the context;
+     * see VariableTemplate for the syntax
      *
      * @param input the input string
      * @param context the execution context
@@ -71,19 +99,7 @@ public interface TaskExecutor {
             return input;
         }
 
-        String result = input;
-        Map<String, Object> variables = context.getAllVariables();
-
-        for (Map.Entry<String, Object> entry : variables.entrySet()) {
-            String placeholder = "${" + entry.getKey() + "}";
-            Object value = entry.getValue();
-
-            if (value != null && result.contains(placeholder)) {
-                result = result.replace(placeholder, value.toString());
-            }
-        }
-
-        return result;
+        return VariableTemplate.render(input, context::getVariable);
     }
 
     /**
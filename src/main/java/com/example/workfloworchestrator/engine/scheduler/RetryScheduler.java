@@ -1,24 +1,27 @@
 package com.example.workfloworchestrator.engine.scheduler;
 
 import com.example.workfloworchestrator.engine.WorkflowEngine;
+import com.example.workfloworchestrator.engine.cluster.ClusterLeaseManager;
 import com.example.workfloworchestrator.model.TaskExecution;
-import com.example.workfloworchestrator.model.TaskStatus;
+import com.example.workfloworchestrator.repository.TaskRetryCandidate;
 import com.example.workfloworchestrator.service.EventPublisherService;
 import com.example.workfloworchestrator.service.TaskExecutionService;
+import com.example.workfloworchestrator.service.WorkflowRetryBudgetService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Scheduler for handling task retries
- * Periodically checks for tasks that need to be retried and initiates their execution
+ * Retries normally fire from the {@link RetryTimer}; a periodic scan catches those the timer
+ * does not know about and arms the ones coming up
  */
 @Slf4j
 @Component
@@ -28,65 +31,40 @@ public class RetryScheduler {
     private final TaskExecutionService taskExecutionService;
     private final EventPublisherService eventPublisherService;
     private final WorkflowEngine workflowEngine;
+    private final ClusterLeaseManager clusterLeaseManager;
+    private final RetryTimer retryTimer;
+    private final WorkflowRetryBudgetService retryBudgetService;
 
-    // Map to track retry attempts for workflow executions
-    private final Map<Long, Integer> workflowRetryTracker = new HashMap<>();
+    @Value("${workflow.scheduler.retry-check-interval:60000}")
+    private long retryCheckIntervalMs = 60000;
 
     /**
-     * Check for tasks to retry every 10 seconds
+     * Safety net for the retry timer, once a minute by default
+     * Retries that are already due run right away, for instance those of a node that went down;
+     * those due before the next scan are armed on the timer so they fire on time.
      */
-    @Scheduled(fixedRateString = "${workflow.scheduler.retry-check-interval:10000}")
+    @Scheduled(fixedRateString = "${workflow.scheduler.retry-check-interval:60000}")
     @Transactional
     public void retryFailedTasks() {
         log.debug("Checking for tasks to retry");
 
-        // Find tasks that are scheduled for retry and are ready
-        List<TaskExecution> tasksToRetry = taskExecutionService.getTasksToRetry(LocalDateTime.now());
+        // Find tasks that become due before the next scan; in a cluster each node claims its own batch
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime dueBefore = now.plusNanos(retryCheckIntervalMs * 1_000_000);
+        List<TaskRetryCandidate> tasksToRetry = clusterLeaseManager.isEnabled()
+                ? clusterLeaseManager.claimTasksToRetry(dueBefore)
+                : taskExecutionService.getTasksToRetry(dueBefore);
 
         if (!tasksToRetry.isEmpty()) {
             log.info("Found {} tasks to retry", tasksToRetry.size());
 
             // Process each task
-            for (TaskExecution taskExecution : tasksToRetry) {
-                Long workflowExecutionId = taskExecution.getWorkflowExecutionId();
-                log.info("Retrying task {}, attempt {}, workflow {}",
-                        taskExecution.getId(),
-                        taskExecution.getRetryCount(),
-                        workflowExecutionId);
-
-                try {
-                    // Update status to PENDING for retry
-                    taskExecution.setStatus(TaskStatus.PENDING);
-                    taskExecution.setStartedAt(null);
-                    taskExecution.setCompletedAt(null);
-                    taskExecutionService.saveTaskExecution(taskExecution);
-
-                    // Execute the task again
-                    taskExecutionService.executeTask(taskExecution.getId());
-
-                } catch (Exception e) {
-                    log.error("Error retrying task {}", taskExecution.getId(), e);
-
-                    // Increment retry count for this workflow
-                    int retryCount = workflowRetryTracker.getOrDefault(workflowExecutionId, 0) + 1;
-                    workflowRetryTracker.put(workflowExecutionId, retryCount);
-
-                    // If we've had too many consecutive failures, attempt to restart the workflow
-                    if (retryCount >= 3) {
-                        log.warn("Multiple retry failures for workflow {}, attempting to restart workflow",
-                                workflowExecutionId);
-
-                        try {
-                            // Use the workflow engine to restart the workflow
-                            workflowEngine.executeWorkflow(workflowExecutionId);
-
-                            // Reset the retry counter
-                            workflowRetryTracker.remove(workflowExecutionId);
-
-                        } catch (Exception we) {
-                            log.error("Failed to restart workflow {}", workflowExecutionId, we);
-                        }
-                    }
+            for (TaskRetryCandidate taskExecution : tasksToRetry) {
+                if (taskExecution.nextRetryAt() != null && taskExecution.nextRetryAt().isAfter(now)) {
+                    retryTimer.schedule(taskExecution);
+                } else {
+                    retryTimer.cancel(taskExecution.id());
+                    retryTask(taskExecution);
                 }
             }
         } else {
@@ -95,12 +73,51 @@ public class RetryScheduler {
     }
 
     /**
-     * Cleanup old entries in the retry tracker
-     * Runs once per hour
+     * Retry a single task, unless another node or timer got there first
+     * Repeated failures to start retries of a workflow restart the whole workflow.
+     *
+     * @param taskExecution the task to retry
      */
-    @Scheduled(cron = "0 0 * * * ?")
-    public void cleanupRetryTracker() {
-        log.debug("Cleaning up retry tracker");
-        workflowRetryTracker.clear();
+    public void retryTask(TaskRetryCandidate taskExecution) {
+        Long workflowExecutionId = taskExecution.workflowExecutionId();
+        log.info("Retrying task {}, attempt {}, workflow {}",
+                taskExecution.id(),
+                taskExecution.retryCount(),
+                workflowExecutionId);
+
+        CompletableFuture<TaskExecution> attempt = null;
+        try {
+            // Reset status to PENDING for retry, unless another instance got there first
+            if (!taskExecutionService.resetForRetry(taskExecution.id())) {
+                log.debug("Task {} is no longer awaiting retry, skipping", taskExecution.id());
+                return;
+            }
+
+            // Execute the task again
+            attempt = taskExecutionService.executeTask(taskExecution.id());
+
+        } catch (Exception e) {
+            log.error("Error retrying task {}", taskExecution.id(), e);
+
+            // If we've had too many consecutive failures, attempt to restart the workflow
+            if (retryBudgetService.recordFailure(workflowExecutionId)) {
+                log.warn("Multiple retry failures for workflow {}, attempting to restart workflow",
+                        workflowExecutionId);
+
+                try {
+                    // Use the workflow engine to restart the workflow
+                    workflowEngine.executeWorkflow(workflowExecutionId);
+
+                    // Give the restarted workflow a fresh budget
+                    retryBudgetService.reset(workflowExecutionId);
+
+                } catch (Exception we) {
+                    log.error("Failed to restart workflow {}", workflowExecutionId, we);
+                }
+            }
+        } finally {
+            // A claimed task keeps its lease only while this attempt runs
+            clusterLeaseManager.releaseTaskWhenDone(taskExecution.id(), attempt);
+        }
     }
 }
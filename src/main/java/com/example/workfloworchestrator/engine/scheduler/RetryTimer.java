@@ -0,0 +1,122 @@
+package com.example.workfloworchestrator.engine.scheduler;
+
+import com.example.workfloworchestrator.engine.executor.TaskExecutionBackend;
+import com.example.workfloworchestrator.repository.TaskRetryCandidate;
+import com.example.workfloworchestrator.util.HashedWheelTimer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires task retries at their due time on the shared workflow timer
+ * Retries are armed when a task fails and by the retry scan for everything that becomes due
+ * before its next run, so at startup the first scan loads the upcoming retries from the database.
+ * Each task has at most one armed retry; re-arming it with a different due time replaces it.
+ */
+@Slf4j
+@Component
+public class RetryTimer {
+
+    private final HashedWheelTimer workflowTimer;
+    private final TaskExecutionBackend taskExecutionBackend;
+    private final RetryScheduler retryScheduler;
+
+    private final ConcurrentHashMap<Long, ArmedRetry> armedRetries = new ConcurrentHashMap<>();
+
+    public RetryTimer(HashedWheelTimer workflowTimer, TaskExecutionBackend taskExecutionBackend,
+                      @Lazy RetryScheduler retryScheduler) {
+        this.workflowTimer = workflowTimer;
+        this.taskExecutionBackend = taskExecutionBackend;
+        this.retryScheduler = retryScheduler;
+    }
+
+    /**
+     * Arm a retry once the current transaction commits, or right away outside a transaction
+     * Waiting for the commit keeps the retry from firing before its AWAITING_RETRY state is visible.
+     *
+     * @param candidate the task to retry
+     */
+    public void scheduleAfterCommit(TaskRetryCandidate candidate) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    schedule(candidate);
+                }
+            });
+        } else {
+            schedule(candidate);
+        }
+    }
+
+    /**
+     * Arm a retry at the candidate's due time; an already armed retry for the same due time is kept
+     *
+     * @param candidate the task to retry
+     */
+    public void schedule(TaskRetryCandidate candidate) {
+        LocalDateTime dueAt = candidate.nextRetryAt() != null ? candidate.nextRetryAt() : LocalDateTime.now();
+
+        armedRetries.compute(candidate.id(), (taskId, armed) -> {
+            if (armed != null) {
+                if (armed.dueAt().equals(dueAt) && !armed.timeout().isExpired()) {
+                    return armed;
+                }
+                armed.timeout().cancel();
+            }
+
+            long delayMs = Math.max(0, Duration.between(LocalDateTime.now(), dueAt).toMillis());
+            HashedWheelTimer.Timeout timeout = workflowTimer.newTimeout(() -> fire(candidate, dueAt), delayMs, TimeUnit.MILLISECONDS);
+            return new ArmedRetry(dueAt, timeout);
+        });
+    }
+
+    /**
+     * Disarm the retry of a task, e.g. when it is retried by other means
+     *
+     * @param taskExecutionId the task execution ID
+     */
+    public void cancel(Long taskExecutionId) {
+        ArmedRetry armed = armedRetries.remove(taskExecutionId);
+        if (armed != null) {
+            armed.timeout().cancel();
+        }
+    }
+
+    public boolean isArmed(Long taskExecutionId) {
+        return armedRetries.containsKey(taskExecutionId);
+    }
+
+    /**
+     * Get the number of retries waiting for their due time
+     *
+     * @return the armed retry count
+     */
+    public int getArmedCount() {
+        return armedRetries.size();
+    }
+
+    private void fire(TaskRetryCandidate candidate, LocalDateTime dueAt) {
+        // Only the timeout currently armed for the task may remove it
+        armedRetries.computeIfPresent(candidate.id(), (taskId, armed) -> armed.dueAt().equals(dueAt) ? null : armed);
+
+        // Runs on the timer thread, so the retry itself is handed off
+        taskExecutionBackend.getExecutor().execute(() -> {
+            try {
+                retryScheduler.retryTask(candidate);
+            } catch (Exception e) {
+                log.error("Error running timed retry of task {}", candidate.id(), e);
+            }
+        });
+    }
+
+    private record ArmedRetry(LocalDateTime dueAt, HashedWheelTimer.Timeout timeout) {
+    }
+}
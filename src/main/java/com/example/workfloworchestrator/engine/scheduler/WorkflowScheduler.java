@@ -1,10 +1,10 @@
 package com.example.workfloworchestrator.engine.scheduler;
 
 import com.example.workfloworchestrator.engine.WorkflowEngine;
-import com.example.workfloworchestrator.model.WorkflowExecution;
-import com.example.workfloworchestrator.model.WorkflowStatus;
-import com.example.workfloworchestrator.service.EventPublisherService;
+import com.example.workfloworchestrator.engine.cluster.ClusterLeaseManager;
+import com.example.workfloworchestrator.repository.WorkflowExecutionSummary;
 import com.example.workfloworchestrator.service.WorkflowExecutionService;
+import com.example.workfloworchestrator.service.WorkflowRetentionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -26,8 +26,9 @@ import java.util.List;
 public class WorkflowScheduler {
 
     private final WorkflowExecutionService workflowExecutionService;
-    private final EventPublisherService eventPublisherService;
     private final WorkflowEngine workflowEngine;
+    private final WorkflowRetentionService workflowRetentionService;
+    private final ClusterLeaseManager clusterLeaseManager;
 
     @Value("${workflow.scheduler.stuck-workflow-timeout-minutes:30}")
     private int stuckWorkflowTimeoutMinutes;
@@ -46,44 +47,47 @@ public class WorkflowScheduler {
     public void checkStuckWorkflows() {
         log.info("Checking for stuck workflows");
 
-        // Find workflows that have been running for too long
+        // Find workflows that have been running for too long; in a cluster only those whose lease has lapsed
         LocalDateTime threshold = LocalDateTime.now().minusMinutes(stuckWorkflowTimeoutMinutes);
-        List<WorkflowExecution> stuckWorkflows = workflowExecutionService.getStuckWorkflowExecutions(threshold);
+        List<WorkflowExecutionSummary> stuckWorkflows = clusterLeaseManager.isEnabled()
+                ? clusterLeaseManager.claimStuckWorkflows(threshold)
+                : workflowExecutionService.getStuckWorkflowExecutions(threshold);
 
         log.info("Found {} stuck workflows", stuckWorkflows.size());
 
         // Handle stuck workflows
-        for (WorkflowExecution execution : stuckWorkflows) {
+        for (WorkflowExecutionSummary execution : stuckWorkflows) {
             log.warn("Workflow {} is stuck in status {} since {}",
-                    execution.getId(), execution.getStatus(), execution.getStartedAt());
+                    execution.id(), execution.status(), execution.startedAt());
 
             if (stuckWorkflowAutoRetry) {
                 try {
                     // Attempt to resume the workflow using the workflow engine
-                    log.info("Attempting to resume stuck workflow {}", execution.getId());
-                    workflowEngine.executeWorkflow(execution.getId());
+                    log.info("Attempting to resume stuck workflow {}", execution.id());
+                    workflowEngine.executeWorkflow(execution.id());
                 } catch (Exception e) {
-                    log.error("Failed to resume stuck workflow {}", execution.getId(), e);
+                    log.error("Failed to resume stuck workflow {}", execution.id(), e);
 
                     // Update status to FAILED if we couldn't resume
-                    execution.setErrorMessage("Workflow execution timed out and auto-retry failed: " + e.getMessage());
-                    workflowExecutionService.updateWorkflowExecutionStatus(execution.getId(), WorkflowStatus.FAILED);
-                    eventPublisherService.publishWorkflowFailedEvent(execution);
+                    failStuckWorkflow(execution.id(), "Workflow execution timed out and auto-retry failed: " + e.getMessage());
                 }
             } else {
                 // Just mark as failed if auto-retry is disabled
-                execution.setErrorMessage("Workflow execution timed out");
-                workflowExecutionService.updateWorkflowExecutionStatus(execution.getId(), WorkflowStatus.FAILED);
-                eventPublisherService.publishWorkflowFailedEvent(execution);
+                failStuckWorkflow(execution.id(), "Workflow execution timed out");
             }
         }
     }
 
+    private void failStuckWorkflow(Long workflowExecutionId, String errorMessage) {
+        // Only the workflows being failed are loaded in full; the failed event is published with the change
+        workflowExecutionService.failWorkflowExecution(workflowExecutionId, errorMessage);
+    }
+
     /**
      * Clean up old workflow executions periodically (once a day at midnight)
+     * Deletion runs in throttled batches, each in its own transaction
      */
     @Scheduled(cron = "${workflow.scheduler.cleanup-cron:0 0 0 * * ?}")
-    @Transactional
     public void cleanupOldWorkflowExecutions() {
         log.info("Cleaning up old workflow executions");
 
@@ -91,24 +95,13 @@ public class WorkflowScheduler {
         LocalDateTime retentionThreshold = LocalDateTime.now()
                 .minus(completedWorkflowRetentionDays, ChronoUnit.DAYS);
 
-        // Find completed/failed workflows older than retention threshold
-        List<WorkflowExecution> oldWorkflows = workflowExecutionService.findCompletedWorkflowsOlderThan(retentionThreshold);
-
-        if (!oldWorkflows.isEmpty()) {
-            log.info("Found {} old workflow executions to clean up", oldWorkflows.size());
-
-            // Delete old workflows
-            for (WorkflowExecution execution : oldWorkflows) {
-                try {
-                    log.debug("Deleting old workflow execution: {}, completed at: {}",
-                            execution.getId(), execution.getCompletedAt());
-                    workflowExecutionService.deleteWorkflowExecution(execution.getId());
-                } catch (Exception e) {
-                    log.error("Error deleting workflow execution {}", execution.getId(), e);
-                }
+        try {
+            long deleted = workflowRetentionService.purgeCompletedBefore(retentionThreshold);
+            if (deleted == 0) {
+                log.debug("No old workflow executions to clean up");
             }
-        } else {
-            log.debug("No old workflow executions to clean up");
+        } catch (Exception e) {
+            log.error("Error cleaning up workflow executions completed before {}", retentionThreshold, e);
         }
     }
 
@@ -123,15 +116,15 @@ public class WorkflowScheduler {
 
         // Find workflows paused for more than 24 hours
         LocalDateTime pausedThreshold = LocalDateTime.now().minusHours(24);
-        List<WorkflowExecution> longPausedWorkflows = workflowExecutionService.findPausedWorkflowsOlderThan(pausedThreshold);
+        List<WorkflowExecutionSummary> longPausedWorkflows = workflowExecutionService.findPausedWorkflowsOlderThan(pausedThreshold);
 
         if (!longPausedWorkflows.isEmpty()) {
             log.info("Found {} workflows paused for more than 24 hours", longPausedWorkflows.size());
 
             // Log the workflows but don't take action automatically
             // This is just to bring attention to potentially forgotten workflows
-            for (WorkflowExecution execution : longPausedWorkflows) {
-                log.warn("Workflow {} has been paused since {}", execution.getId(), execution.getStartedAt());
+            for (WorkflowExecutionSummary execution : longPausedWorkflows) {
+                log.warn("Workflow {} has been paused since {}", execution.id(), execution.startedAt());
             }
         }
     }
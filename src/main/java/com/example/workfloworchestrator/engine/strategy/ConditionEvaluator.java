@@ -0,0 +1,189 @@
+package com.example.workfloworchestrator.engine.strategy;
+
+import com.example.workfloworchestrator.util.BoundedCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.expression.MapAccessor;
+import org.springframework.expression.Expression;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelNode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.ast.*;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.ReflectivePropertyAccessor;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Evaluates task conditional expressions
+ * Parsed expressions are cached per workflow definition and task, and compiled to bytecode
+ * by SpEL once they have been evaluated. Variables are looked up in the workflow variables
+ * on demand rather than copied into the evaluation context.
+ */
+@Slf4j
+@Component
+public class ConditionEvaluator {
+
+    // MapAccessor lets conditions also refer to variables without '#', e.g. "status == 'success'";
+    // the reflective default still resolves properties of values, e.g. "#name.empty"
+    private static final List<PropertyAccessor> PROPERTY_ACCESSORS =
+            List.of(new MapAccessor(), new ReflectivePropertyAccessor());
+
+    private final BoundedCache<Object, CachedCondition> cache;
+    private final SpelExpressionParser expressionParser;
+
+    public ConditionEvaluator() {
+        this(SpelCompilerMode.MIXED, 1000);
+    }
+
+    @Autowired
+    public ConditionEvaluator(@Value("${workflow.conditional.compiler-mode:MIXED}") SpelCompilerMode compilerMode,
+                              @Value("${workflow.conditional.expression-cache-size:1000}") int maxCacheSize) {
+        this.expressionParser = new SpelExpressionParser(
+                new SpelParserConfiguration(compilerMode, getClass().getClassLoader()));
+        this.cache = new BoundedCache<>(Math.max(1, maxCacheSize));
+    }
+
+    /**
+     * Evaluate a condition against workflow variables
+     * Invalid expressions and evaluation errors count as false.
+     *
+     * @param definitionId the workflow definition ID, may be null
+     * @param taskId the task definition ID, may be null
+     * @param conditionExpression the SpEL expression
+     * @param variables the workflow variables
+     * @return whether the condition is met
+     */
+    public boolean evaluate(Long definitionId, Long taskId, String conditionExpression, Map<String, String> variables) {
+        try {
+            Expression expression = getExpression(definitionId, taskId, conditionExpression);
+            Object result = expression.getValue(new VariablesEvaluationContext(variables));
+
+            // Convert result to boolean
+            if (result instanceof Boolean) {
+                return (Boolean) result;
+            } else if (result != null) {
+                return Boolean.parseBoolean(result.toString());
+            }
+
+            return false;
+        } catch (Exception e) {
+            log.error("Error evaluating condition: {}", conditionExpression, e);
+            return false;
+        }
+    }
+
+    /**
+     * Determine which workflow variables a condition reads
+     * Only plain variable references (#name, or name against the root) are understood;
+     * anything that can read variables dynamically makes the result unknown.
+     *
+     * @param conditionExpression the SpEL expression
+     * @return the referenced variable names, or null if they cannot be determined
+     */
+    public Set<String> referencedVariables(String conditionExpression) {
+        try {
+            Expression expression = expressionParser.parseExpression(conditionExpression);
+            if (!(expression instanceof SpelExpression spelExpression)) {
+                return null;
+            }
+            Set<String> variables = new HashSet<>();
+            return collectVariables(spelExpression.getAST(), true, variables) ? variables : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the number of cached expressions
+     *
+     * @return the cache size
+     */
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    /**
+     * Drop all cached expressions
+     */
+    public void clearCache() {
+        cache.clear();
+    }
+
+    private Expression getExpression(Long definitionId, Long taskId, String conditionExpression) {
+        Object key = definitionId != null && taskId != null
+                ? new ConditionKey(definitionId, taskId)
+                : conditionExpression;
+
+        CachedCondition cached = cache.get(key);
+        // The expression text is checked too, since a definition can be edited in place
+        if (cached != null && cached.source().equals(conditionExpression)) {
+            return cached.expression();
+        }
+
+        Expression expression = expressionParser.parseExpression(conditionExpression);
+        cache.put(key, new CachedCondition(conditionExpression, expression));
+        return expression;
+    }
+
+    private static boolean collectVariables(SpelNode node, boolean rootRelative, Set<String> variables) {
+        if (node instanceof VariableReference) {
+            String name = node.toStringAST().substring(1);
+            if ("root".equals(name) || "this".equals(name)) {
+                return false;
+            }
+            variables.add(name);
+        } else if (node instanceof PropertyOrFieldReference property) {
+            if (rootRelative) {
+                variables.add(property.getName());
+            }
+        } else if (node instanceof Selection || node instanceof Projection || node instanceof FunctionReference
+                || (rootRelative && (node instanceof MethodReference || node instanceof Indexer))) {
+            // These can reach any variable, or change what unqualified names refer to
+            return false;
+        }
+
+        for (int i = 0; i < node.getChildCount(); i++) {
+            // In a.b.c only the first element is evaluated against the root
+            boolean childRootRelative = !(node instanceof CompoundExpression) || i == 0;
+            if (!collectVariables(node.getChild(i), childRootRelative, variables)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record ConditionKey(Long definitionId, Long taskId) {
+    }
+
+    private record CachedCondition(String source, Expression expression) {
+    }
+
+    /**
+     * Evaluation context that resolves #variables straight from the variables map
+     */
+    private static final class VariablesEvaluationContext extends StandardEvaluationContext {
+
+        private final Map<String, String> variables;
+
+        private VariablesEvaluationContext(Map<String, String> variables) {
+            super(variables);
+            this.variables = variables != null ? variables : Map.of();
+            setPropertyAccessors(PROPERTY_ACCESSORS);
+        }
+
+        @Override
+        public Object lookupVariable(String name) {
+            Object value = variables.get(name);
+            return value != null ? value : super.lookupVariable(name);
+        }
+    }
+}
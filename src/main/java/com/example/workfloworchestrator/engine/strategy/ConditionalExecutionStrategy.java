@@ -1,5 +1,7 @@
 package com.example.workfloworchestrator.engine.strategy;
 
+import com.example.workfloworchestrator.engine.cancellation.CancellationRegistry;
+import com.example.workfloworchestrator.engine.cancellation.CancellationToken;
 import com.example.workfloworchestrator.exception.TaskExecutionException;
 import com.example.workfloworchestrator.exception.WorkflowException;
 import com.example.workfloworchestrator.model.*;
@@ -7,10 +9,6 @@ import com.example.workfloworchestrator.service.TaskExecutionService;
 import com.example.workfloworchestrator.service.WorkflowExecutionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.expression.Expression;
-import org.springframework.expression.ExpressionParser;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
-import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -29,8 +27,9 @@ public class ConditionalExecutionStrategy implements ExecutionStrategy {
     private final TaskExecutionService taskExecutionService;
     private final WorkflowExecutionService workflowExecutionService;
     private final SequentialExecutionStrategy sequentialStrategy;
-
-    private final ExpressionParser expressionParser = new SpelExpressionParser();
+    private final ConditionEvaluator conditionEvaluator;
+    private final WorkflowPlanCache workflowPlanCache;
+    private final CancellationRegistry cancellationRegistry;
 
     @Override
     @Transactional
@@ -38,18 +37,17 @@ public class ConditionalExecutionStrategy implements ExecutionStrategy {
         CompletableFuture<WorkflowStatus> resultFuture = new CompletableFuture<>();
 
         try {
-            WorkflowDefinition definition = workflowExecution.getWorkflowDefinition();
-            List<TaskDefinition> allTasks = definition.getTasks();
+            WorkflowPlan plan = workflowPlanCache.getPlan(workflowExecution.getWorkflowDefinition());
 
-            // Find starting task(s)
-            List<TaskDefinition> startTasks = findStartTasks(allTasks);
+            // Start tasks are those with the lowest execution order
+            List<TaskDefinition> startTasks = plan.getStartTasks();
 
             if (startTasks.isEmpty()) {
                 throw new WorkflowException("No start tasks found in workflow");
             }
 
             // Execute the start tasks
-            executeConditionalPath(workflowExecution, startTasks, allTasks, resultFuture);
+            executeConditionalPath(workflowExecution, startTasks, new RoutingState(plan, cancellationRegistry.tokenFor(workflowExecution.getId())), resultFuture);
 
         } catch (Exception e) {
             log.error("Error in conditional execution strategy", e);
@@ -66,30 +64,9 @@ public class ConditionalExecutionStrategy implements ExecutionStrategy {
         return sequentialStrategy.executeSubset(workflowExecution, taskIds);
     }
 
-    private List<TaskDefinition> findStartTasks(List<TaskDefinition> allTasks) {
-        // Start tasks are those with the lowest execution order
-        if (allTasks.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        // Find the minimum execution order
-        int minOrder = allTasks.stream()
-                .map(task -> task.getExecutionOrder() != null ? task.getExecutionOrder() : 0)
-                .min(Integer::compareTo)
-                .orElse(0);
-
-        // Return all tasks with that order
-        return allTasks.stream()
-                .filter(task -> {
-                    int order = task.getExecutionOrder() != null ? task.getExecutionOrder() : 0;
-                    return order == minOrder;
-                })
-                .toList();
-    }
-
     private void executeConditionalPath(WorkflowExecution workflowExecution,
                                         List<TaskDefinition> currentTasks,
-                                        List<TaskDefinition> allTasks,
+                                        RoutingState routing,
                                         CompletableFuture<WorkflowStatus> resultFuture) {
 
         if (currentTasks.isEmpty()) {
@@ -99,19 +76,25 @@ public class ConditionalExecutionStrategy implements ExecutionStrategy {
         }
 
         // Execute current tasks sequentially
-        executeTaskSequence(workflowExecution, currentTasks, 0, allTasks, resultFuture);
+        executeTaskSequence(workflowExecution, currentTasks, 0, routing, resultFuture);
     }
 
     private void executeTaskSequence(WorkflowExecution workflowExecution,
                                      List<TaskDefinition> tasks,
                                      int index,
-                                     List<TaskDefinition> allTasks,
+                                     RoutingState routing,
                                      CompletableFuture<WorkflowStatus> resultFuture) {
 
+        if (routing.cancellation().isCancelled()) {
+            // The workflow was cancelled or paused, so no further task is started
+            resultFuture.complete(routing.cancellation().getCancelledAs());
+            return;
+        }
+
         if (index >= tasks.size()) {
             // All tasks completed, determine next tasks based on conditions
-            List<TaskDefinition> nextTasks = determineNextTasks(workflowExecution, tasks, allTasks);
-            executeConditionalPath(workflowExecution, nextTasks, allTasks, resultFuture);
+            List<TaskDefinition> nextTasks = determineNextTasks(workflowExecution, tasks, routing);
+            executeConditionalPath(workflowExecution, nextTasks, routing, resultFuture);
             return;
         }
 
@@ -119,7 +102,7 @@ public class ConditionalExecutionStrategy implements ExecutionStrategy {
         TaskDefinition taskDefinition = tasks.get(index);
 
         // Prepare inputs from workflow variables
-        Map<String, String> inputs = new HashMap<>(workflowExecution.getVariables());
+        Map<String, String> inputs = workflowExecution.snapshotVariables();
 
         // Create task execution
         TaskExecution taskExecution = taskExecutionService.createTaskExecution(
@@ -144,32 +127,37 @@ public class ConditionalExecutionStrategy implements ExecutionStrategy {
 
         taskFuture.whenComplete((completedTask, throwable) -> {
             try {
+                if (routing.cancellation().isCancelled()) {
+                    // The task was aborted along with the workflow rather than failing on its own
+                    resultFuture.complete(routing.cancellation().getCancelledAs());
+                    return;
+                }
+
                 if (throwable != null) {
-                    handleTaskFailure(workflowExecution, taskExecution, throwable, tasks, index, allTasks, resultFuture);
+                    handleTaskFailure(workflowExecution, taskExecution, throwable, tasks, index, routing, resultFuture);
                     return;
                 }
 
                 // Check task status
                 if (completedTask.getStatus() == TaskStatus.COMPLETED) {
-                    // Update workflow variables with task outputs
-                    Map<String, String> variables = workflowExecution.getVariables();
-                    variables.putAll(completedTask.getOutputs());
-                    workflowExecution.setVariables(variables);
-                    workflowExecutionService.save(workflowExecution);
+                    // Update workflow variables with task outputs, persisting only the changed keys
+                    Map<String, String> changedVariables = workflowExecution.mergeVariables(completedTask.getOutputs());
+                    workflowExecutionService.saveVariableChanges(workflowExecution, changedVariables);
+                    routing.variablesChanged(changedVariables.keySet());
 
                     // Continue with next task in the sequence
-                    executeTaskSequence(workflowExecution, tasks, index + 1, allTasks, resultFuture);
+                    executeTaskSequence(workflowExecution, tasks, index + 1, routing, resultFuture);
                 } else if (completedTask.getStatus() == TaskStatus.FAILED) {
                     handleTaskFailure(workflowExecution, completedTask,
                             new TaskExecutionException(completedTask.getErrorMessage()),
-                            tasks, index, allTasks, resultFuture);
+                            tasks, index, routing, resultFuture);
                 } else if (completedTask.getStatus() == TaskStatus.AWAITING_RETRY) {
                     // Task will be retried later, so we wait
                     resultFuture.complete(WorkflowStatus.RUNNING);
                 } else {
                     // Other statuses like SKIPPED, CANCELLED, etc.
                     // Just continue with next task
-                    executeTaskSequence(workflowExecution, tasks, index + 1, allTasks, resultFuture);
+                    executeTaskSequence(workflowExecution, tasks, index + 1, routing, resultFuture);
                 }
             } catch (Exception e) {
                 log.error("Error processing task completion", e);
@@ -183,7 +171,7 @@ public class ConditionalExecutionStrategy implements ExecutionStrategy {
                                    Throwable throwable,
                                    List<TaskDefinition> currentTasks,
                                    int currentIndex,
-                                   List<TaskDefinition> allTasks,
+                                   RoutingState routing,
                                    CompletableFuture<WorkflowStatus> resultFuture) {
 
         log.error("Task execution failed", throwable);
@@ -194,18 +182,16 @@ public class ConditionalExecutionStrategy implements ExecutionStrategy {
 
         if (nextTaskOnFailure != null) {
             // Find the next task on failure
-            Optional<TaskDefinition> nextTask = allTasks.stream()
-                    .filter(t -> t.getId().equals(nextTaskOnFailure))
-                    .findFirst();
+            TaskDefinition nextTask = routing.plan().getTask(nextTaskOnFailure);
 
-            if (nextTask.isPresent()) {
+            if (nextTask != null) {
                 // Update error message
                 workflowExecution.setErrorMessage("Task failed: " +
                         (throwable.getMessage() != null ? throwable.getMessage() : "Unknown error"));
                 workflowExecutionService.save(workflowExecution);
 
                 // Continue with the failure path
-                executeConditionalPath(workflowExecution, List.of(nextTask.get()), allTasks, resultFuture);
+                executeConditionalPath(workflowExecution, List.of(nextTask), routing, resultFuture);
                 return;
             }
         }
@@ -220,7 +206,7 @@ public class ConditionalExecutionStrategy implements ExecutionStrategy {
 
     private List<TaskDefinition> determineNextTasks(WorkflowExecution workflowExecution,
                                                     List<TaskDefinition> completedTasks,
-                                                    List<TaskDefinition> allTasks) {
+                                                    RoutingState routing) {
 
         List<TaskDefinition> nextTasks = new ArrayList<>();
 
@@ -229,33 +215,31 @@ public class ConditionalExecutionStrategy implements ExecutionStrategy {
             Long nextTaskId = completedTask.getNextTaskOnSuccess();
 
             if (nextTaskId != null) {
-                // Find the next task
-                allTasks.stream()
-                        .filter(t -> t.getId().equals(nextTaskId))
-                        .findFirst()
-                        .ifPresent(nextTasks::add);
+                TaskDefinition nextTask = routing.plan().getTask(nextTaskId);
+                if (nextTask != null) {
+                    nextTasks.add(nextTask);
+                }
             }
         }
 
-        // If no explicit next tasks, evaluate conditional expressions
+        // If no explicit next tasks, evaluate the conditions that the latest variable changes can affect
         if (nextTasks.isEmpty()) {
             // Get all variables including outputs from completed tasks
-            Map<String, String> currentVariables = new HashMap<>(workflowExecution.getVariables());
+            Map<String, String> currentVariables = workflowExecution.snapshotVariables();
+            Long definitionId = workflowExecution.getWorkflowDefinition().getId();
+            ConditionalRoutingIndex index = routing.plan().getRoutingIndex();
+            BitSet candidates = index.candidates(routing.takeChangedVariables());
 
-            for (TaskDefinition task : allTasks) {
-                String condition = task.getConditionalExpression();
+            for (int position = candidates.nextSetBit(0); position >= 0; position = candidates.nextSetBit(position + 1)) {
+                TaskDefinition task = routing.plan().getTask(index.taskIdAt(position));
 
                 // Skip tasks already executed
-                if (completedTasks.contains(task)) {
+                if (task == null || completedTasks.contains(task)) {
                     continue;
                 }
 
-                // Skip tasks without conditions
-                if (condition == null || condition.isEmpty()) {
-                    continue;
-                }
-
-                boolean conditionMet = evaluateCondition(condition, currentVariables);
+                boolean conditionMet = conditionEvaluator.evaluate(
+                        definitionId, task.getId(), index.conditionAt(position), currentVariables);
 
                 if (conditionMet) {
                     nextTasks.add(task);
@@ -266,30 +250,40 @@ public class ConditionalExecutionStrategy implements ExecutionStrategy {
         return nextTasks;
     }
 
-    private boolean evaluateCondition(String conditionExpression, Map<String, String> variables) {
-        try {
-            StandardEvaluationContext context = new StandardEvaluationContext();
+    /**
+     * Routing state of one workflow run
+     */
+    private static final class RoutingState {
 
-            // Add variables to context
-            for (Map.Entry<String, String> entry : variables.entrySet()) {
-                context.setVariable(entry.getKey(), entry.getValue());
-            }
+        private final WorkflowPlan plan;
+        private final CancellationToken cancellation;
+
+        // Variables written since conditions were last evaluated; null before the first evaluation
+        private Set<String> changedVariables;
+
+        private RoutingState(WorkflowPlan plan, CancellationToken cancellation) {
+            this.plan = plan;
+            this.cancellation = cancellation;
+        }
+
+        WorkflowPlan plan() {
+            return plan;
+        }
 
-            // Parse and evaluate the expression
-            Expression expression = expressionParser.parseExpression(conditionExpression);
-            Object result = expression.getValue(context);
+        CancellationToken cancellation() {
+            return cancellation;
+        }
 
-            // Convert result to boolean
-            if (result instanceof Boolean) {
-                return (Boolean) result;
-            } else if (result != null) {
-                return Boolean.parseBoolean(result.toString());
+        void variablesChanged(Collection<String> variables) {
+            if (changedVariables != null) {
+                changedVariables.addAll(variables);
             }
+        }
 
-            return false;
-        } catch (Exception e) {
-            log.error("Error evaluating condition: {}", conditionExpression, e);
-            return false;
+        Set<String> takeChangedVariables() {
+            Set<String> changed = changedVariables;
+            changedVariables = new HashSet<>();
+            return changed;
         }
     }
 }
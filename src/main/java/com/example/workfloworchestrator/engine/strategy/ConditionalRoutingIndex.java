@@ -0,0 +1,100 @@
+package com.example.workfloworchestrator.engine.strategy;
+
+import com.example.workfloworchestrator.model.TaskDefinition;
+
+import java.util.*;
+
+/**
+ * Routing index for conditional workflows, built once per workflow definition
+ * Records the conditional tasks in definition order and, for each workflow variable,
+ * which of their conditions read it, so a routing step only re-evaluates conditions
+ * that the variables written since the previous step can affect.
+ * Only task ids are stored, so an index can be shared between executions.
+ */
+final class ConditionalRoutingIndex {
+
+    private final List<Long> taskIds;
+    private final List<String> conditions;
+    private final Map<String, int[]> positionsByVariable;
+    private final BitSet alwaysEvaluated;
+
+    private ConditionalRoutingIndex(List<Long> taskIds, List<String> conditions,
+                                    Map<String, int[]> positionsByVariable, BitSet alwaysEvaluated) {
+        this.taskIds = taskIds;
+        this.conditions = conditions;
+        this.positionsByVariable = positionsByVariable;
+        this.alwaysEvaluated = alwaysEvaluated;
+    }
+
+    /**
+     * Build the index for the tasks of a workflow definition
+     *
+     * @param tasks the task definitions
+     * @param conditionEvaluator used to find the variables each condition reads
+     * @return the routing index
+     */
+    static ConditionalRoutingIndex build(List<TaskDefinition> tasks, ConditionEvaluator conditionEvaluator) {
+        List<Long> taskIds = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        Map<String, List<Integer>> positions = new HashMap<>();
+        BitSet alwaysEvaluated = new BitSet();
+
+        for (TaskDefinition task : tasks) {
+            String condition = task.getConditionalExpression();
+            if (condition == null || condition.isEmpty()) {
+                continue;
+            }
+
+            int position = taskIds.size();
+            taskIds.add(task.getId());
+            conditions.add(condition);
+
+            Set<String> variables = conditionEvaluator.referencedVariables(condition);
+            if (variables == null || variables.isEmpty()) {
+                // Unknown or constant dependencies: keep evaluating on every step as before
+                alwaysEvaluated.set(position);
+            } else {
+                variables.forEach(variable -> positions.computeIfAbsent(variable, key -> new ArrayList<>()).add(position));
+            }
+        }
+
+        Map<String, int[]> positionsByVariable = new HashMap<>();
+        positions.forEach((variable, list) ->
+                positionsByVariable.put(variable, list.stream().mapToInt(Integer::intValue).toArray()));
+
+        return new ConditionalRoutingIndex(List.copyOf(taskIds), List.copyOf(conditions), positionsByVariable, alwaysEvaluated);
+    }
+
+    /**
+     * Get the positions of conditions to evaluate after the given variables changed
+     *
+     * @param changedVariables the variables written since the last routing step, or null for all conditions
+     * @return the positions, in definition order
+     */
+    BitSet candidates(Collection<String> changedVariables) {
+        BitSet candidates = new BitSet(taskIds.size());
+        if (changedVariables == null) {
+            candidates.set(0, taskIds.size());
+            return candidates;
+        }
+
+        candidates.or(alwaysEvaluated);
+        for (String variable : changedVariables) {
+            int[] positions = positionsByVariable.get(variable);
+            if (positions != null) {
+                for (int position : positions) {
+                    candidates.set(position);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    Long taskIdAt(int position) {
+        return taskIds.get(position);
+    }
+
+    String conditionAt(int position) {
+        return conditions.get(position);
+    }
+}
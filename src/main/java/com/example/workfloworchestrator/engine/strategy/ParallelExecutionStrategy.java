@@ -1,22 +1,27 @@
 package com.example.workfloworchestrator.engine.strategy;
 
+import com.example.workfloworchestrator.engine.cancellation.CancellationRegistry;
+import com.example.workfloworchestrator.engine.cancellation.CancellationToken;
 import com.example.workfloworchestrator.exception.TaskExecutionException;
 import com.example.workfloworchestrator.model.*;
 import com.example.workfloworchestrator.service.TaskExecutionService;
 import com.example.workfloworchestrator.service.WorkflowExecutionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
  * Parallel execution strategy
- * Executes independent tasks in parallel
+ * Executes independent tasks in parallel, either in execution order waves or,
+ * when dependency-driven mode is enabled, as soon as each task's own dependencies complete
  */
 @Slf4j
 @Component
@@ -25,6 +30,11 @@ public class ParallelExecutionStrategy implements ExecutionStrategy {
 
     private final TaskExecutionService taskExecutionService;
     private final WorkflowExecutionService workflowExecutionService;
+    private final WorkflowPlanCache workflowPlanCache;
+    private final CancellationRegistry cancellationRegistry;
+
+    @Value("${workflow.execution.parallel.dependency-driven:false}")
+    private boolean dependencyDriven;
 
     @Override
     @Transactional
@@ -32,14 +42,20 @@ public class ParallelExecutionStrategy implements ExecutionStrategy {
         CompletableFuture<WorkflowStatus> resultFuture = new CompletableFuture<>();
 
         try {
-            WorkflowDefinition definition = workflowExecution.getWorkflowDefinition();
-            List<TaskDefinition> taskDefinitions = definition.getTasks();
+            WorkflowPlan plan = workflowPlanCache.getPlan(workflowExecution.getWorkflowDefinition());
+            CancellationToken cancellation = cancellationRegistry.tokenFor(workflowExecution.getId());
 
-            // Group tasks by execution order
-            Map<Integer, List<TaskDefinition>> tasksByOrder = groupTasksByExecutionOrder(taskDefinitions);
+            if (isDependencyDriven(plan.getDependencyGraph(), plan.requiresUserReview())) {
+                // Start each task as soon as its own dependencies complete
+                executeDependencyGraph(workflowExecution, plan.getDependencyGraph(), cancellation, resultFuture);
+                return resultFuture;
+            }
+
+            // Tasks grouped by execution order
+            Map<Integer, List<TaskDefinition>> tasksByOrder = plan.copyWaves();
 
             // Execute groups in sequence, but tasks within groups in parallel
-            executeTaskGroups(workflowExecution, tasksByOrder, resultFuture);
+            executeTaskGroups(workflowExecution, tasksByOrder, cancellation, resultFuture);
 
         } catch (Exception e) {
             log.error("Error in parallel execution strategy", e);
@@ -55,10 +71,10 @@ public class ParallelExecutionStrategy implements ExecutionStrategy {
         CompletableFuture<WorkflowStatus> resultFuture = new CompletableFuture<>();
 
         try {
-            WorkflowDefinition definition = workflowExecution.getWorkflowDefinition();
+            WorkflowPlan plan = workflowPlanCache.getPlan(workflowExecution.getWorkflowDefinition());
 
             // Filter tasks based on provided IDs
-            List<TaskDefinition> taskDefinitions = definition.getTasks().stream()
+            List<TaskDefinition> taskDefinitions = plan.getTasks().stream()
                     .filter(task -> taskIds.contains(task.getId()))
                     .collect(Collectors.toList());
 
@@ -67,11 +83,21 @@ public class ParallelExecutionStrategy implements ExecutionStrategy {
                 return resultFuture;
             }
 
+            // Dependencies outside the subset are treated as already satisfied
+            WorkflowPlan.DependencyGraph dependencyGraph = workflowPlanCache.dependencyGraph(taskDefinitions);
+            boolean requiresUserReview = taskDefinitions.stream().anyMatch(TaskDefinition::isRequireUserReview);
+            CancellationToken cancellation = cancellationRegistry.tokenFor(workflowExecution.getId());
+
+            if (isDependencyDriven(dependencyGraph, requiresUserReview)) {
+                executeDependencyGraph(workflowExecution, dependencyGraph, cancellation, resultFuture);
+                return resultFuture;
+            }
+
             // Group tasks by execution order
-            Map<Integer, List<TaskDefinition>> tasksByOrder = groupTasksByExecutionOrder(taskDefinitions);
+            Map<Integer, List<TaskDefinition>> tasksByOrder = new TreeMap<>(WorkflowPlan.groupByExecutionOrder(taskDefinitions));
 
             // Execute groups in sequence, but tasks within groups in parallel
-            executeTaskGroups(workflowExecution, tasksByOrder, resultFuture);
+            executeTaskGroups(workflowExecution, tasksByOrder, cancellation, resultFuture);
 
         } catch (Exception e) {
             log.error("Error in parallel subset execution", e);
@@ -81,25 +107,17 @@ public class ParallelExecutionStrategy implements ExecutionStrategy {
         return resultFuture;
     }
 
-    private Map<Integer, List<TaskDefinition>> groupTasksByExecutionOrder(List<TaskDefinition> taskDefinitions) {
-        Map<Integer, List<TaskDefinition>> tasksByOrder = new TreeMap<>();
-
-        for (TaskDefinition task : taskDefinitions) {
-            Integer order = task.getExecutionOrder();
-            if (order == null) {
-                order = 0;
-            }
-
-            tasksByOrder.computeIfAbsent(order, k -> new ArrayList<>()).add(task);
-        }
-
-        return tasksByOrder;
-    }
-
     private void executeTaskGroups(WorkflowExecution workflowExecution,
                                    Map<Integer, List<TaskDefinition>> tasksByOrder,
+                                   CancellationToken cancellation,
                                    CompletableFuture<WorkflowStatus> resultFuture) {
 
+        if (cancellation.isCancelled()) {
+            // The workflow was cancelled or paused, so no further group is started
+            resultFuture.complete(cancellation.getCancelledAs());
+            return;
+        }
+
         if (tasksByOrder.isEmpty()) {
             resultFuture.complete(WorkflowStatus.COMPLETED);
             return;
@@ -122,14 +140,18 @@ public class ParallelExecutionStrategy implements ExecutionStrategy {
         if (requiresUserReview) {
             // Cannot execute in parallel if user review is required
             log.warn("Tasks requiring user review found in parallel group. Switching to sequential execution for this group.");
-            executeTasksSequentially(workflowExecution, currentGroup, 0, tasksByOrder, resultFuture);
+            executeTasksSequentially(workflowExecution, currentGroup, 0, tasksByOrder, cancellation, resultFuture);
             return;
         }
 
         for (TaskDefinition taskDefinition : currentGroup) {
+            if (cancellation.isCancelled()) {
+                // Stop launching the rest of the group; the tasks already started are being aborted
+                break;
+            }
+
             // Prepare inputs from workflow variables and collected outputs
-            Map<String, String> inputs = new HashMap<>(workflowExecution.getVariables());
-            inputs.putAll(outputCollector);
+            Map<String, String> inputs = workflowExecution.snapshotVariables().plusAll(outputCollector);
 
             // Create task execution
             TaskExecution taskExecution = taskExecutionService.createTaskExecution(
@@ -149,6 +171,11 @@ public class ParallelExecutionStrategy implements ExecutionStrategy {
         // When all tasks are complete
         allTasksFuture.whenComplete((ignored, throwable) -> {
             try {
+                if (cancellation.isCancelled()) {
+                    resultFuture.complete(cancellation.getCancelledAs());
+                    return;
+                }
+
                 if (throwable != null) {
                     log.error("Error executing task group", throwable);
                     resultFuture.complete(WorkflowStatus.FAILED);
@@ -179,30 +206,12 @@ public class ParallelExecutionStrategy implements ExecutionStrategy {
                 // Handle task failures
                 if (anyFailed) {
                     // Check if we need to continue with specific error paths
-                    boolean continueOnError = false;
+                    boolean continueOnError = completedTasks.stream()
+                            .anyMatch(task -> task.getStatus() == TaskStatus.FAILED &&
+                                    task.getTaskDefinition().getNextTaskOnFailure() != null);
 
                     // Find tasks with next-on-failure paths
-                    List<TaskDefinition> errorHandlerTasks = new ArrayList<>();
-
-                    // Find tasks with next-on-failure paths
-                    for (TaskExecution task : completedTasks) {
-                        if (task.getStatus() == TaskStatus.FAILED &&
-                                task.getTaskDefinition().getNextTaskOnFailure() != null) {
-
-                            continueOnError = true;
-
-                            // Find the error handler task
-                            Long nextTaskId = task.getTaskDefinition().getNextTaskOnFailure();
-                            TaskDefinition errorHandlerTask = workflowExecution.getWorkflowDefinition().getTasks().stream()
-                                    .filter(t -> t.getId().equals(nextTaskId))
-                                    .findFirst()
-                                    .orElse(null);
-
-                            if (errorHandlerTask != null) {
-                                errorHandlerTasks.add(errorHandlerTask);
-                            }
-                        }
-                    }
+                    List<TaskDefinition> errorHandlerTasks = findErrorHandlerTasks(workflowExecution, completedTasks);
 
                     if (!errorHandlerTasks.isEmpty()) {
                         // Create a new map with all error handler tasks
@@ -210,7 +219,7 @@ public class ParallelExecutionStrategy implements ExecutionStrategy {
                         errorPath.put(0, errorHandlerTasks);
 
                         // Execute the error paths
-                        executeTaskGroups(workflowExecution, errorPath, resultFuture);
+                        executeTaskGroups(workflowExecution, errorPath, cancellation, resultFuture);
                         return;
                     }
 
@@ -223,14 +232,12 @@ public class ParallelExecutionStrategy implements ExecutionStrategy {
                     }
                 }
 
-                // Update workflow variables with collected outputs
-                Map<String, String> variables = workflowExecution.getVariables();
-                variables.putAll(outputCollector);
-                workflowExecution.setVariables(variables);
-                workflowExecutionService.save(workflowExecution);
+                // Update workflow variables with collected outputs, persisting only the changed keys
+                Map<String, String> changedVariables = workflowExecution.mergeVariables(outputCollector);
+                workflowExecutionService.saveVariableChanges(workflowExecution, changedVariables);
 
                 // Continue with next group of tasks
-                executeTaskGroups(workflowExecution, tasksByOrder, resultFuture);
+                executeTaskGroups(workflowExecution, tasksByOrder, cancellation, resultFuture);
 
             } catch (Exception e) {
                 log.error("Error processing task group completion", e);
@@ -239,16 +246,179 @@ public class ParallelExecutionStrategy implements ExecutionStrategy {
         });
     }
 
+    private List<TaskDefinition> findErrorHandlerTasks(WorkflowExecution workflowExecution,
+                                                       List<TaskExecution> completedTasks) {
+        List<TaskDefinition> errorHandlerTasks = new ArrayList<>();
+
+        for (TaskExecution task : completedTasks) {
+            if (task.getStatus() == TaskStatus.FAILED &&
+                    task.getTaskDefinition().getNextTaskOnFailure() != null) {
+
+                // Find the error handler task
+                TaskDefinition errorHandlerTask = workflowPlanCache.getPlan(workflowExecution.getWorkflowDefinition())
+                        .getTask(task.getTaskDefinition().getNextTaskOnFailure());
+                if (errorHandlerTask != null) {
+                    errorHandlerTasks.add(errorHandlerTask);
+                }
+            }
+        }
+
+        return errorHandlerTasks;
+    }
+
+    /**
+     * Dependency-driven mode only applies when enabled, when at least one task declares
+     * dependencies, and when no task needs a user review (which requires sequential handling)
+     */
+    private boolean isDependencyDriven(WorkflowPlan.DependencyGraph dependencyGraph, boolean requiresUserReview) {
+        if (!dependencyDriven || !dependencyGraph.hasDependencies()) {
+            return false;
+        }
+
+        if (requiresUserReview) {
+            log.warn("Tasks requiring user review found. Falling back to execution order groups.");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Execute tasks as a dependency graph. Each task is chained onto the futures of
+     * its own predecessors, so a slow task only delays the tasks that depend on it.
+     */
+    private void executeDependencyGraph(WorkflowExecution workflowExecution,
+                                        WorkflowPlan.DependencyGraph dependencyGraph,
+                                        CancellationToken cancellation,
+                                        CompletableFuture<WorkflowStatus> resultFuture) {
+
+        if (dependencyGraph.isCyclic()) {
+            log.error("Cyclic task dependency detected at task {}", dependencyGraph.getCycleAt().getId());
+            workflowExecution.setErrorMessage("Cyclic task dependencies detected in parallel execution");
+            workflowExecutionService.save(workflowExecution);
+            resultFuture.complete(WorkflowStatus.FAILED);
+            return;
+        }
+
+        Map<Long, CompletableFuture<TaskExecution>> taskFutures = new LinkedHashMap<>();
+        AtomicBoolean failed = new AtomicBoolean(false);
+
+        for (TaskDefinition taskDefinition : dependencyGraph.getOrder()) {
+            List<CompletableFuture<TaskExecution>> predecessors = dependencyGraph.getPredecessors(taskDefinition.getId()).stream()
+                    .map(taskFutures::get)
+                    .toList();
+
+            CompletableFuture<TaskExecution> future = CompletableFuture
+                    .allOf(predecessors.toArray(new CompletableFuture<?>[0]))
+                    .thenCompose(ignored -> startDependentTask(workflowExecution, taskDefinition, predecessors, failed, cancellation));
+
+            taskFutures.put(taskDefinition.getId(), future);
+        }
+
+        CompletableFuture.allOf(taskFutures.values().toArray(new CompletableFuture<?>[0]))
+                .whenComplete((ignored, throwable) -> {
+                    try {
+                        if (cancellation.isCancelled()) {
+                            resultFuture.complete(cancellation.getCancelledAs());
+                            return;
+                        }
+
+                        if (throwable != null) {
+                            log.error("Error executing task graph", throwable);
+                            resultFuture.complete(WorkflowStatus.FAILED);
+                            return;
+                        }
+
+                        // Tasks that were never started (blocked by a failed or pending dependency) yield null
+                        List<TaskExecution> completedTasks = taskFutures.values().stream()
+                                .map(CompletableFuture::join)
+                                .filter(Objects::nonNull)
+                                .toList();
+
+                        if (completedTasks.stream().anyMatch(task -> task.getStatus() == TaskStatus.FAILED)) {
+                            List<TaskDefinition> errorHandlerTasks = findErrorHandlerTasks(workflowExecution, completedTasks);
+
+                            if (!errorHandlerTasks.isEmpty()) {
+                                Map<Integer, List<TaskDefinition>> errorPath = new HashMap<>();
+                                errorPath.put(0, errorHandlerTasks);
+                                executeTaskGroups(workflowExecution, errorPath, cancellation, resultFuture);
+                                return;
+                            }
+
+                            workflowExecution.setErrorMessage("One or more tasks failed in parallel execution");
+                            workflowExecutionService.save(workflowExecution);
+                            resultFuture.complete(WorkflowStatus.FAILED);
+                        } else if (completedTasks.stream().anyMatch(task -> task.getStatus() == TaskStatus.AWAITING_RETRY)) {
+                            // Dependents of a retrying task were not started, so we wait
+                            resultFuture.complete(WorkflowStatus.RUNNING);
+                        } else {
+                            resultFuture.complete(WorkflowStatus.COMPLETED);
+                        }
+                    } catch (Exception e) {
+                        log.error("Error processing task graph completion", e);
+                        resultFuture.complete(WorkflowStatus.FAILED);
+                    }
+                });
+    }
+
+    private CompletableFuture<TaskExecution> startDependentTask(WorkflowExecution workflowExecution,
+                                                                TaskDefinition taskDefinition,
+                                                                List<CompletableFuture<TaskExecution>> predecessors,
+                                                                AtomicBoolean failed,
+                                                                CancellationToken cancellation) {
+
+        // Do not launch new work after a failure or cancellation, or when a predecessor did not complete successfully
+        boolean predecessorsSatisfied = predecessors.stream()
+                .map(CompletableFuture::join)
+                .allMatch(task -> task != null &&
+                        (task.getStatus() == TaskStatus.COMPLETED || task.getStatus() == TaskStatus.SKIPPED));
+
+        if (failed.get() || cancellation.isCancelled() || !predecessorsSatisfied) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Prepare inputs from the workflow variables visible at launch time
+        Map<String, String> inputs = workflowExecution.snapshotVariables();
+
+        TaskExecution taskExecution = taskExecutionService.createTaskExecution(
+                workflowExecution, taskDefinition, inputs);
+
+        return taskExecutionService.executeTask(taskExecution.getId())
+                .thenApply(completedTask -> {
+                    if (completedTask.getStatus() == TaskStatus.COMPLETED) {
+                        // Publish outputs before dependents start
+                        synchronized (workflowExecution) {
+                            Map<String, String> changedVariables = workflowExecution.mergeVariables(completedTask.getOutputs());
+                            workflowExecutionService.saveVariableChanges(workflowExecution, changedVariables);
+                        }
+                    } else if (completedTask.getStatus() == TaskStatus.FAILED) {
+                        failed.set(true);
+                    }
+                    return completedTask;
+                })
+                .whenComplete((completedTask, throwable) -> {
+                    if (throwable != null) {
+                        failed.set(true);
+                    }
+                });
+    }
+
     // Fallback to sequential execution for groups with user review tasks
     private void executeTasksSequentially(WorkflowExecution workflowExecution,
                                           List<TaskDefinition> tasks,
                                           int taskIndex,
                                           Map<Integer, List<TaskDefinition>> remainingGroups,
+                                          CancellationToken cancellation,
                                           CompletableFuture<WorkflowStatus> resultFuture) {
 
+        if (cancellation.isCancelled()) {
+            resultFuture.complete(cancellation.getCancelledAs());
+            return;
+        }
+
         if (taskIndex >= tasks.size()) {
             // All tasks in this group completed, continue with next group
-            executeTaskGroups(workflowExecution, remainingGroups, resultFuture);
+            executeTaskGroups(workflowExecution, remainingGroups, cancellation, resultFuture);
             return;
         }
 
@@ -256,7 +426,7 @@ public class ParallelExecutionStrategy implements ExecutionStrategy {
         TaskDefinition taskDefinition = tasks.get(taskIndex);
 
         // Prepare inputs from workflow variables
-        Map<String, String> inputs = new HashMap<>(workflowExecution.getVariables());
+        Map<String, String> inputs = workflowExecution.snapshotVariables();
 
         // Create task execution
         TaskExecution taskExecution = taskExecutionService.createTaskExecution(
@@ -281,6 +451,12 @@ public class ParallelExecutionStrategy implements ExecutionStrategy {
 
         taskFuture.whenComplete((completedTask, throwable) -> {
             try {
+                if (cancellation.isCancelled()) {
+                    // The task was aborted along with the workflow rather than failing on its own
+                    resultFuture.complete(cancellation.getCancelledAs());
+                    return;
+                }
+
                 if (throwable != null) {
                     log.error("Task execution failed", throwable);
                     resultFuture.complete(WorkflowStatus.FAILED);
@@ -289,24 +465,20 @@ public class ParallelExecutionStrategy implements ExecutionStrategy {
 
                 // Check task status
                 if (completedTask.getStatus() == TaskStatus.COMPLETED) {
-                    // Update workflow variables with task outputs
-                    Map<String, String> variables = workflowExecution.getVariables();
-                    variables.putAll(completedTask.getOutputs());
-                    workflowExecution.setVariables(variables);
-                    workflowExecutionService.save(workflowExecution);
+                    // Update workflow variables with task outputs, persisting only the changed keys
+                    Map<String, String> changedVariables = workflowExecution.mergeVariables(completedTask.getOutputs());
+                    workflowExecutionService.saveVariableChanges(workflowExecution, changedVariables);
 
                     // Move to next task
-                    executeTasksSequentially(workflowExecution, tasks, taskIndex + 1, remainingGroups, resultFuture);
+                    executeTasksSequentially(workflowExecution, tasks, taskIndex + 1, remainingGroups, cancellation, resultFuture);
                 } else if (completedTask.getStatus() == TaskStatus.FAILED) {
                     // Check if there's a next task on failure
                     Long nextTaskOnFailure = taskDefinition.getNextTaskOnFailure();
 
                     if (nextTaskOnFailure != null) {
                         // Find the error handler task
-                        TaskDefinition errorHandlerTask = workflowExecution.getWorkflowDefinition().getTasks().stream()
-                                .filter(t -> t.getId().equals(nextTaskOnFailure))
-                                .findFirst()
-                                .orElse(null);
+                        TaskDefinition errorHandlerTask = workflowPlanCache.getPlan(workflowExecution.getWorkflowDefinition())
+                                .getTask(nextTaskOnFailure);
 
                         if (errorHandlerTask != null) {
                             // Create a new map with just this error handler task
@@ -314,7 +486,7 @@ public class ParallelExecutionStrategy implements ExecutionStrategy {
                             errorPath.put(0, List.of(errorHandlerTask));
 
                             // Execute the error path
-                            executeTaskGroups(workflowExecution, errorPath, resultFuture);
+                            executeTaskGroups(workflowExecution, errorPath, cancellation, resultFuture);
                             return;
                         }
                     }
@@ -327,7 +499,7 @@ public class ParallelExecutionStrategy implements ExecutionStrategy {
                 } else {
                     // Other statuses like SKIPPED, CANCELLED, etc.
                     // Just continue with next task
-                    executeTasksSequentially(workflowExecution, tasks, taskIndex + 1, remainingGroups, resultFuture);
+                    executeTasksSequentially(workflowExecution, tasks, taskIndex + 1, remainingGroups, cancellation, resultFuture);
                 }
             } catch (Exception e) {
                 log.error("Error processing task completion", e);
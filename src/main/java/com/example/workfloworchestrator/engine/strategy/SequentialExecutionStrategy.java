@@ -1,5 +1,7 @@
 package com.example.workfloworchestrator.engine.strategy;
 
+import com.example.workfloworchestrator.engine.cancellation.CancellationRegistry;
+import com.example.workfloworchestrator.engine.cancellation.CancellationToken;
 import com.example.workfloworchestrator.exception.TaskExecutionException;
 import com.example.workfloworchestrator.exception.WorkflowException;
 import com.example.workfloworchestrator.model.*;
@@ -10,7 +12,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -26,6 +27,8 @@ public class SequentialExecutionStrategy implements ExecutionStrategy {
 
     private final TaskExecutionService taskExecutionService;
     private final WorkflowExecutionService workflowExecutionService;
+    private final WorkflowPlanCache workflowPlanCache;
+    private final CancellationRegistry cancellationRegistry;
 
     @Override
     @Transactional
@@ -33,14 +36,15 @@ public class SequentialExecutionStrategy implements ExecutionStrategy {
         CompletableFuture<WorkflowStatus> resultFuture = new CompletableFuture<>();
 
         try {
-            WorkflowDefinition definition = workflowExecution.getWorkflowDefinition();
-            List<TaskDefinition> taskDefinitions = definition.getTasks();
+            WorkflowPlan plan = workflowPlanCache.getPlan(workflowExecution.getWorkflowDefinition());
+            List<TaskDefinition> taskDefinitions = plan.getTasks();
 
             // Start from current task index (for resume/retry scenarios)
             int currentTaskIndex = workflowExecution.getCurrentTaskIndex() != null ?
                     workflowExecution.getCurrentTaskIndex() : 0;
 
-            executeTasksSequentially(workflowExecution, taskDefinitions, currentTaskIndex, resultFuture);
+            executeTasksSequentially(workflowExecution, taskDefinitions, currentTaskIndex,
+                    cancellationRegistry.tokenFor(workflowExecution.getId()), resultFuture);
 
         } catch (Exception e) {
             log.error("Error in sequential execution strategy", e);
@@ -56,10 +60,10 @@ public class SequentialExecutionStrategy implements ExecutionStrategy {
         CompletableFuture<WorkflowStatus> resultFuture = new CompletableFuture<>();
 
         try {
-            WorkflowDefinition definition = workflowExecution.getWorkflowDefinition();
+            WorkflowPlan plan = workflowPlanCache.getPlan(workflowExecution.getWorkflowDefinition());
 
             // Filter tasks based on provided IDs and maintain order
-            List<TaskDefinition> taskDefinitions = definition.getTasks().stream()
+            List<TaskDefinition> taskDefinitions = plan.getTasks().stream()
                     .filter(task -> taskIds.contains(task.getId()))
                     .sorted((task1, task2) -> task1.getExecutionOrder() - task2.getExecutionOrder())
                     .toList();
@@ -69,7 +73,8 @@ public class SequentialExecutionStrategy implements ExecutionStrategy {
                 return resultFuture;
             }
 
-            executeTasksSequentially(workflowExecution, taskDefinitions, 0, resultFuture);
+            executeTasksSequentially(workflowExecution, taskDefinitions, 0,
+                    cancellationRegistry.tokenFor(workflowExecution.getId()), resultFuture);
 
         } catch (Exception e) {
             log.error("Error in sequential subset execution", e);
@@ -82,8 +87,15 @@ public class SequentialExecutionStrategy implements ExecutionStrategy {
     private void executeTasksSequentially(WorkflowExecution workflowExecution,
                                           List<TaskDefinition> taskDefinitions,
                                           int startIndex,
+                                          CancellationToken cancellation,
                                           CompletableFuture<WorkflowStatus> resultFuture) {
 
+        if (cancellation.isCancelled()) {
+            // The workflow was cancelled or paused, so no further task is started
+            resultFuture.complete(cancellation.getCancelledAs());
+            return;
+        }
+
         if (startIndex >= taskDefinitions.size()) {
             // All tasks completed
             resultFuture.complete(WorkflowStatus.COMPLETED);
@@ -94,15 +106,14 @@ public class SequentialExecutionStrategy implements ExecutionStrategy {
         TaskDefinition taskDefinition = taskDefinitions.get(startIndex);
 
         // Prepare inputs from workflow variables
-        Map<String, String> inputs = new HashMap<>(workflowExecution.getVariables());
+        Map<String, String> inputs = workflowExecution.snapshotVariables();
 
         // Create task execution
         TaskExecution taskExecution = taskExecutionService.createTaskExecution(
                 workflowExecution, taskDefinition, inputs);
 
         // Update workflow's current task index
-        workflowExecution.setCurrentTaskIndex(startIndex);
-        workflowExecutionService.save(workflowExecution);
+        workflowExecutionService.updateCurrentTaskIndex(workflowExecution, startIndex);
 
         // Check if task requires user review
         if (taskDefinition.isRequireUserReview()) {
@@ -123,31 +134,35 @@ public class SequentialExecutionStrategy implements ExecutionStrategy {
 
         taskFuture.whenComplete((completedTask, throwable) -> {
             try {
+                if (cancellation.isCancelled()) {
+                    // The task was aborted along with the workflow rather than failing on its own
+                    resultFuture.complete(cancellation.getCancelledAs());
+                    return;
+                }
+
                 if (throwable != null) {
-                    handleTaskFailure(workflowExecution, taskExecution, throwable, resultFuture);
+                    handleTaskFailure(workflowExecution, taskExecution, throwable, cancellation, resultFuture);
                     return;
                 }
 
                 // Check task status
                 if (completedTask.getStatus() == TaskStatus.COMPLETED) {
-                    // Update workflow variables with task outputs
-                    Map<String, String> variables = workflowExecution.getVariables();
-                    variables.putAll(completedTask.getOutputs());
-                    workflowExecution.setVariables(variables);
-                    workflowExecutionService.save(workflowExecution);
+                    // Update workflow variables with task outputs, persisting only the changed keys
+                    Map<String, String> changedVariables = workflowExecution.mergeVariables(completedTask.getOutputs());
+                    workflowExecutionService.saveVariableChanges(workflowExecution, changedVariables);
 
                     // Move to next task
-                    executeTasksSequentially(workflowExecution, taskDefinitions, startIndex + 1, resultFuture);
+                    executeTasksSequentially(workflowExecution, taskDefinitions, startIndex + 1, cancellation, resultFuture);
                 } else if (completedTask.getStatus() == TaskStatus.FAILED) {
                     handleTaskFailure(workflowExecution, completedTask,
-                            new TaskExecutionException(completedTask.getErrorMessage()), resultFuture);
+                            new TaskExecutionException(completedTask.getErrorMessage()), cancellation, resultFuture);
                 } else if (completedTask.getStatus() == TaskStatus.AWAITING_RETRY) {
                     // Task will be retried later, so we wait
                     resultFuture.complete(WorkflowStatus.RUNNING);
                 } else {
                     // Other statuses like SKIPPED, CANCELLED, etc.
                     // Just continue with next task
-                    executeTasksSequentially(workflowExecution, taskDefinitions, startIndex + 1, resultFuture);
+                    executeTasksSequentially(workflowExecution, taskDefinitions, startIndex + 1, cancellation, resultFuture);
                 }
             } catch (Exception e) {
                 log.error("Error processing task completion", e);
@@ -159,6 +174,7 @@ public class SequentialExecutionStrategy implements ExecutionStrategy {
     private void handleTaskFailure(WorkflowExecution workflowExecution,
                                    TaskExecution taskExecution,
                                    Throwable throwable,
+                                   CancellationToken cancellation,
                                    CompletableFuture<WorkflowStatus> resultFuture) {
 
         log.error("Task execution failed", throwable);
@@ -169,20 +185,18 @@ public class SequentialExecutionStrategy implements ExecutionStrategy {
 
         if (nextTaskOnFailure != null) {
             // Find the index of the next task on failure
-            WorkflowDefinition definition = workflowExecution.getWorkflowDefinition();
-            List<TaskDefinition> taskDefinitions = definition.getTasks();
-
-            for (int i = 0; i < taskDefinitions.size(); i++) {
-                if (taskDefinitions.get(i).getId().equals(nextTaskOnFailure)) {
-                    // Update error message
-                    workflowExecution.setErrorMessage("Task failed: " +
-                            (throwable.getMessage() != null ? throwable.getMessage() : "Unknown error"));
-                    workflowExecutionService.save(workflowExecution);
-
-                    // Continue with the next task on failure
-                    executeTasksSequentially(workflowExecution, taskDefinitions, i, resultFuture);
-                    return;
-                }
+            WorkflowPlan plan = workflowPlanCache.getPlan(workflowExecution.getWorkflowDefinition());
+            int nextIndex = plan.indexOf(nextTaskOnFailure);
+
+            if (nextIndex >= 0) {
+                // Update error message
+                workflowExecution.setErrorMessage("Task failed: " +
+                        (throwable.getMessage() != null ? throwable.getMessage() : "Unknown error"));
+                workflowExecutionService.save(workflowExecution);
+
+                // Continue with the next task on failure
+                executeTasksSequentially(workflowExecution, plan.getTasks(), nextIndex, cancellation, resultFuture);
+                return;
             }
         }
 
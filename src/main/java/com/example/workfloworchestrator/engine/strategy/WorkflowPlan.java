@@ -0,0 +1,275 @@
+package com.example.workfloworchestrator.engine.strategy;
+
+import com.example.workfloworchestrator.model.TaskDefinition;
+import com.example.workfloworchestrator.model.WorkflowDefinition;
+import com.example.workfloworchestrator.util.TaskDependencyUtil;
+
+import java.util.*;
+
+/**
+ * Immutable execution plan compiled from one version of a workflow definition
+ * Holds everything the strategies used to derive from the task list on every run:
+ * the tasks in definition order with an id lookup, the execution order waves,
+ * the start tasks, the dependency graph and the conditional routing index.
+ *
+ * The task definitions are fully initialized when the plan is compiled and are shared
+ * by all executions of the version, so they must be treated as read-only.
+ */
+public final class WorkflowPlan {
+
+    private final Long definitionId;
+    private final String version;
+    private final TaskDefinition[] tasks;
+    private final List<TaskDefinition> taskList;
+    private final Map<Long, Integer> indexById;
+    private final NavigableMap<Integer, List<TaskDefinition>> waves;
+    private final List<TaskDefinition> startTasks;
+    private final boolean requiresUserReview;
+    private final DependencyGraph dependencyGraph;
+    private final ConditionalRoutingIndex routingIndex;
+
+    private WorkflowPlan(WorkflowDefinition definition, TaskDefinition[] tasks,
+                         TaskDependencyUtil taskDependencyUtil, ConditionEvaluator conditionEvaluator) {
+        this.definitionId = definition.getId();
+        this.version = definition.getVersion();
+        this.tasks = tasks;
+        this.taskList = Collections.unmodifiableList(Arrays.asList(tasks));
+
+        Map<Long, Integer> index = new HashMap<>();
+        for (int i = 0; i < tasks.length; i++) {
+            if (tasks[i].getId() != null) {
+                index.putIfAbsent(tasks[i].getId(), i);
+            }
+        }
+        this.indexById = Collections.unmodifiableMap(index);
+
+        this.waves = groupByExecutionOrder(taskList);
+        this.startTasks = waves.isEmpty() ? List.of() : waves.firstEntry().getValue();
+        this.requiresUserReview = taskList.stream().anyMatch(TaskDefinition::isRequireUserReview);
+        this.dependencyGraph = DependencyGraph.of(taskList, taskDependencyUtil);
+        this.routingIndex = ConditionalRoutingIndex.build(taskList, conditionEvaluator);
+    }
+
+    /**
+     * Compile a plan from a workflow definition
+     *
+     * @param definition the workflow definition
+     * @param taskDependencyUtil used to order tasks by dependency
+     * @param conditionEvaluator used to analyse task conditions
+     * @return the plan
+     */
+    static WorkflowPlan compile(WorkflowDefinition definition, TaskDependencyUtil taskDependencyUtil,
+                                ConditionEvaluator conditionEvaluator) {
+        List<TaskDefinition> definitionTasks = definition.getTasks() != null ? definition.getTasks() : List.of();
+        TaskDefinition[] tasks = definitionTasks.toArray(new TaskDefinition[0]);
+
+        // Load lazy collections now, since the tasks outlive the session that loaded them
+        for (TaskDefinition task : tasks) {
+            if (task.getConfiguration() != null) {
+                task.getConfiguration().size();
+            }
+            if (task.getDependsOn() != null) {
+                task.getDependsOn().size();
+            }
+        }
+
+        return new WorkflowPlan(definition, tasks, taskDependencyUtil, conditionEvaluator);
+    }
+
+    public Long getDefinitionId() {
+        return definitionId;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the tasks in definition order
+     *
+     * @return an unmodifiable list of the tasks
+     */
+    public List<TaskDefinition> getTasks() {
+        return taskList;
+    }
+
+    public int size() {
+        return tasks.length;
+    }
+
+    public TaskDefinition getTask(int index) {
+        return tasks[index];
+    }
+
+    /**
+     * Find a task by ID
+     *
+     * @param taskId the task definition ID
+     * @return the task, or null if the plan has no such task
+     */
+    public TaskDefinition getTask(Long taskId) {
+        int index = indexOf(taskId);
+        return index >= 0 ? tasks[index] : null;
+    }
+
+    /**
+     * Get the position of a task in definition order
+     *
+     * @param taskId the task definition ID
+     * @return the index, or -1 if the plan has no such task
+     */
+    public int indexOf(Long taskId) {
+        Integer index = taskId != null ? indexById.get(taskId) : null;
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Get a fresh copy of the tasks grouped by execution order, lowest order first
+     * The map can be consumed by the caller; the groups themselves are shared and unmodifiable.
+     *
+     * @return the waves
+     */
+    public NavigableMap<Integer, List<TaskDefinition>> copyWaves() {
+        return new TreeMap<>(waves);
+    }
+
+    /**
+     * Get the tasks with the lowest execution order
+     *
+     * @return the start tasks
+     */
+    public List<TaskDefinition> getStartTasks() {
+        return startTasks;
+    }
+
+    public boolean requiresUserReview() {
+        return requiresUserReview;
+    }
+
+    public DependencyGraph getDependencyGraph() {
+        return dependencyGraph;
+    }
+
+    ConditionalRoutingIndex getRoutingIndex() {
+        return routingIndex;
+    }
+
+    /**
+     * Group tasks by execution order, treating a missing order as 0
+     *
+     * @param tasks the tasks
+     * @return unmodifiable groups keyed by ascending execution order
+     */
+    static NavigableMap<Integer, List<TaskDefinition>> groupByExecutionOrder(List<TaskDefinition> tasks) {
+        TreeMap<Integer, List<TaskDefinition>> groups = new TreeMap<>();
+
+        for (TaskDefinition task : tasks) {
+            int order = task.getExecutionOrder() != null ? task.getExecutionOrder() : 0;
+            groups.computeIfAbsent(order, key -> new ArrayList<>()).add(task);
+        }
+
+        groups.replaceAll((order, group) -> Collections.unmodifiableList(group));
+        return Collections.unmodifiableNavigableMap(groups);
+    }
+
+    /**
+     * Dependency edges between a set of tasks, in topological order
+     * Dependencies on tasks outside the set are treated as already satisfied.
+     */
+    public static final class DependencyGraph {
+
+        private final List<TaskDefinition> order;
+        private final Map<Long, List<Long>> predecessors;
+        private final TaskDefinition cycleAt;
+        private final boolean hasDependencies;
+
+        private DependencyGraph(List<TaskDefinition> order, Map<Long, List<Long>> predecessors,
+                                TaskDefinition cycleAt, boolean hasDependencies) {
+            this.order = order;
+            this.predecessors = predecessors;
+            this.cycleAt = cycleAt;
+            this.hasDependencies = hasDependencies;
+        }
+
+        /**
+         * Build the dependency graph of a set of tasks
+         *
+         * @param tasks the tasks
+         * @param taskDependencyUtil used for the topological sort
+         * @return the graph
+         */
+        public static DependencyGraph of(List<TaskDefinition> tasks, TaskDependencyUtil taskDependencyUtil) {
+            boolean hasDependencies = tasks.stream().anyMatch(TaskDefinition::hasDependencies);
+            if (!hasDependencies) {
+                return new DependencyGraph(List.copyOf(tasks), Map.of(), null, false);
+            }
+
+            Set<Long> taskIds = new HashSet<>();
+            for (TaskDefinition task : tasks) {
+                taskIds.add(task.getId());
+            }
+
+            Map<Long, List<Long>> predecessors = new HashMap<>();
+            for (TaskDefinition task : tasks) {
+                if (task.hasDependencies()) {
+                    predecessors.put(task.getId(), task.getDependsOn().stream()
+                            .filter(taskIds::contains)
+                            .distinct()
+                            .toList());
+                }
+            }
+
+            List<TaskDefinition> order = taskDependencyUtil.sortTasksByDependency(tasks);
+
+            // A topological order lists every dependency before its dependents; a cyclic graph comes back
+            // in its original order, which breaks this at the first task on or behind the cycle
+            Set<Long> seen = new HashSet<>();
+            TaskDefinition cycleAt = null;
+            for (TaskDefinition task : order) {
+                if (!seen.containsAll(predecessors.getOrDefault(task.getId(), List.of()))) {
+                    cycleAt = task;
+                    break;
+                }
+                seen.add(task.getId());
+            }
+
+            return new DependencyGraph(List.copyOf(order), Collections.unmodifiableMap(predecessors), cycleAt, true);
+        }
+
+        /**
+         * Get the tasks in topological order
+         *
+         * @return the ordered tasks
+         */
+        public List<TaskDefinition> getOrder() {
+            return order;
+        }
+
+        /**
+         * Get the in-scope dependencies of a task
+         *
+         * @param taskId the task definition ID
+         * @return the IDs of the tasks it waits for
+         */
+        public List<Long> getPredecessors(Long taskId) {
+            return predecessors.getOrDefault(taskId, List.of());
+        }
+
+        public boolean hasDependencies() {
+            return hasDependencies;
+        }
+
+        public boolean isCyclic() {
+            return cycleAt != null;
+        }
+
+        /**
+         * Get a task on a dependency cycle
+         *
+         * @return the task, or null if the graph is acyclic
+         */
+        public TaskDefinition getCycleAt() {
+            return cycleAt;
+        }
+    }
+}
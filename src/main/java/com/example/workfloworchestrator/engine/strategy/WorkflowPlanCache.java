@@ -0,0 +1,93 @@
+package com.example.workfloworchestrator.engine.strategy;
+
+import com.example.workfloworchestrator.model.TaskDefinition;
+import com.example.workfloworchestrator.model.WorkflowDefinition;
+import com.example.workfloworchestrator.util.BoundedCache;
+import com.example.workfloworchestrator.util.TaskDependencyUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Bounded LRU cache of compiled workflow plans, keyed by definition ID and version
+ * A versioned definition never changes (updates create a new version), so a cached plan
+ * stays valid until its definition is deleted. Definitions without an ID or version are
+ * compiled on every call.
+ */
+@Slf4j
+@Component
+public class WorkflowPlanCache {
+
+    private final TaskDependencyUtil taskDependencyUtil;
+    private final ConditionEvaluator conditionEvaluator;
+    private final BoundedCache<PlanKey, WorkflowPlan> plans;
+
+    public WorkflowPlanCache(TaskDependencyUtil taskDependencyUtil, ConditionEvaluator conditionEvaluator) {
+        this(taskDependencyUtil, conditionEvaluator, 256);
+    }
+
+    @Autowired
+    public WorkflowPlanCache(TaskDependencyUtil taskDependencyUtil, ConditionEvaluator conditionEvaluator,
+                             @Value("${workflow.plan.cache-size:256}") int maxSize) {
+        this.taskDependencyUtil = taskDependencyUtil;
+        this.conditionEvaluator = conditionEvaluator;
+        this.plans = new BoundedCache<>(Math.max(1, maxSize));
+    }
+
+    /**
+     * Get the plan for a workflow definition, compiling it on first use
+     *
+     * @param definition the workflow definition
+     * @return the plan
+     */
+    public WorkflowPlan getPlan(WorkflowDefinition definition) {
+        if (definition.getId() == null || definition.getVersion() == null) {
+            return compile(definition);
+        }
+
+        PlanKey key = new PlanKey(definition.getId(), definition.getVersion());
+        WorkflowPlan plan = plans.get(key);
+        if (plan != null) {
+            return plan;
+        }
+
+        // Compiled outside the cache's lock; a concurrent compile of the same version just loses the race
+        WorkflowPlan compiled = compile(definition);
+        WorkflowPlan cached = plans.putIfAbsent(key, compiled);
+        return cached != null ? cached : compiled;
+    }
+
+    /**
+     * Build the dependency graph for a subset of a plan's tasks
+     *
+     * @param tasks the tasks
+     * @return the dependency graph
+     */
+    public WorkflowPlan.DependencyGraph dependencyGraph(List<TaskDefinition> tasks) {
+        return WorkflowPlan.DependencyGraph.of(tasks, taskDependencyUtil);
+    }
+
+    /**
+     * Drop all cached plans of a workflow definition
+     *
+     * @param definitionId the workflow definition ID
+     */
+    public void invalidate(Long definitionId) {
+        plans.removeIf(key -> key.definitionId().equals(definitionId));
+    }
+
+    public int size() {
+        return plans.size();
+    }
+
+    private WorkflowPlan compile(WorkflowDefinition definition) {
+        log.debug("Compiling workflow plan for definition {} version {}", definition.getId(), definition.getVersion());
+        return WorkflowPlan.compile(definition, taskDependencyUtil, conditionEvaluator);
+    }
+
+    private record PlanKey(Long definitionId, String version) {
+    }
+}
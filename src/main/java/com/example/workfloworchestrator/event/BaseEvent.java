@@ -1,11 +1,11 @@
 package com.example.workfloworchestrator.event;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
 
 /**
  * Base event class for all workflow orchestrator events
@@ -26,6 +26,7 @@ public abstract class BaseEvent {
     /**
      * Event source (the component that published the event)
      */
+    @JsonIgnore
     private Object source;
 
     /**
@@ -34,9 +35,9 @@ public abstract class BaseEvent {
     private String errorMessage;
 
     /**
-     * Additional event properties
+     * Additional event properties, allocated with the first one
      */
-    private Map<String, String> properties = new HashMap<>();
+    private Map<String, String> properties;
 
     /**
      * Constructor
@@ -44,8 +45,8 @@ public abstract class BaseEvent {
      * @param source the event source
      */
     public BaseEvent(Object source) {
-        this.eventId = UUID.randomUUID().toString();
-        this.timestamp = LocalDateTime.now();
+        this.eventId = EventStamps.nextId();
+        this.timestamp = EventStamps.now();
         this.source = source;
     }
 
@@ -57,6 +58,9 @@ public abstract class BaseEvent {
      */
     public void addProperty(String key, String value) {
         if (key != null && value != null) {
+            if (properties == null) {
+                properties = new HashMap<>();
+            }
             properties.put(key, value);
         }
     }
@@ -68,7 +72,11 @@ public abstract class BaseEvent {
      * @return property value or null if not found
      */
     public String getProperty(String key) {
-        return properties.get(key);
+        return properties != null ? properties.get(key) : null;
+    }
+
+    public Map<String, String> getProperties() {
+        return properties != null ? properties : Map.of();
     }
 
     /**
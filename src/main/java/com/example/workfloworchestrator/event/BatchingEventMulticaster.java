@@ -0,0 +1,297 @@
+package com.example.workfloworchestrator.event;
+
+import com.example.workfloworchestrator.util.RingBuffer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.event.SimpleApplicationEventMulticaster;
+import org.springframework.core.ResolvableType;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+/**
+ * Event multicaster that hands workflow events to listeners on a single dispatcher thread
+ * Publishing a BaseEvent only puts it into a bounded lock-free ring buffer; the dispatcher
+ * drains the ring in batches and delivers each event to its listeners, then the batch as an
+ * EventBatch. Other application events, such as Spring's own, are delivered synchronously.
+ *
+ * When the ring is full the backpressure policy decides:
+ * BLOCK        - the publisher waits for a free slot
+ * DROP_OLDEST  - the oldest queued event is dropped to make room
+ * SAMPLE       - once the ring is half full only every sample-rate-th event is queued,
+ *                and events that find it full are dropped
+ *
+ * The dispatcher thread runs from {@link #start()} until {@link #close()}; outside that window
+ * workflow events are delivered synchronously too.
+ *
+ * Listener failures are logged and never reach the publisher. Which event classes have
+ * listeners is resolved once per class and kept until the set of listeners changes, so
+ * publishers can skip building events nobody receives.
+ */
+@Slf4j
+public final class BatchingEventMulticaster extends SimpleApplicationEventMulticaster
+        implements EventSubscriptions, AutoCloseable {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    public enum Backpressure {
+        BLOCK,
+        DROP_OLDEST,
+        SAMPLE
+    }
+
+    private final RingBuffer<QueuedEvent> buffer;
+    private final Backpressure backpressure;
+    private final int sampleRate;
+    private final int batchSize;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile Thread dispatcher;
+
+    private final AtomicBoolean dispatcherIdle = new AtomicBoolean();
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private final LongAdder publishedEvents = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();
+    private final LongAdder deliveredBatches = new LongAdder();
+    private final Map<Class<?>, Boolean> subscriptions = new ConcurrentHashMap<>();
+    private volatile int listenerVersion;
+    private volatile boolean running;
+
+    public BatchingEventMulticaster(int bufferSize, Backpressure backpressure, int sampleRate, int batchSize) {
+        this.buffer = new RingBuffer<>(bufferSize);
+        this.backpressure = backpressure;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.batchSize = Math.max(1, batchSize);
+
+        setErrorHandler(t -> log.error("Event listener failed", t));
+    }
+
+    /**
+     * Start the dispatcher thread; later calls have no effect
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+
+        Thread thread = new Thread(this::dispatchLoop, "event-dispatcher");
+        thread.setDaemon(true);
+        dispatcher = thread;
+        running = true;
+        thread.start();
+    }
+
+    @Override
+    public void multicastEvent(ApplicationEvent event, @Nullable ResolvableType eventType) {
+        if (running && event instanceof PayloadApplicationEvent<?> payloadEvent
+                && payloadEvent.getPayload() instanceof BaseEvent payload) {
+            enqueue(new QueuedEvent(event, eventType, payload));
+        } else {
+            super.multicastEvent(event, eventType);
+        }
+    }
+
+    @Override
+    public boolean hasListeners(Class<? extends BaseEvent> eventClass) {
+        Boolean subscribed = subscriptions.get(eventClass);
+        if (subscribed == null) {
+            int version = listenerVersion;
+            subscribed = resolveListeners(eventClass) || resolveListeners(EventBatch.class);
+            subscriptions.put(eventClass, subscribed);
+            if (version != listenerVersion) {
+                // Listeners changed while resolving, so the answer may already be stale
+                subscriptions.remove(eventClass);
+            }
+        }
+        return subscribed;
+    }
+
+    @Override
+    public void addApplicationListener(ApplicationListener<?> listener) {
+        super.addApplicationListener(listener);
+        listenersChanged();
+    }
+
+    @Override
+    public void addApplicationListenerBean(String listenerBeanName) {
+        super.addApplicationListenerBean(listenerBeanName);
+        listenersChanged();
+    }
+
+    @Override
+    public void removeApplicationListener(ApplicationListener<?> listener) {
+        super.removeApplicationListener(listener);
+        listenersChanged();
+    }
+
+    @Override
+    public void removeApplicationListenerBean(String listenerBeanName) {
+        super.removeApplicationListenerBean(listenerBeanName);
+        listenersChanged();
+    }
+
+    @Override
+    public void removeApplicationListeners(Predicate<ApplicationListener<?>> predicate) {
+        super.removeApplicationListeners(predicate);
+        listenersChanged();
+    }
+
+    @Override
+    public void removeApplicationListenerBeans(Predicate<String> predicate) {
+        super.removeApplicationListenerBeans(predicate);
+        listenersChanged();
+    }
+
+    @Override
+    public void removeAllListeners() {
+        super.removeAllListeners();
+        listenersChanged();
+    }
+
+    /**
+     * Stop the dispatcher after it has delivered the queued events
+     * Events published afterwards are delivered synchronously.
+     */
+    @Override
+    public void close() {
+        running = false;
+        Thread thread = dispatcher;
+        if (thread == null) {
+            return;
+        }
+
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getQueuedCount() {
+        return buffer.size();
+    }
+
+    public long getPublishedCount() {
+        return publishedEvents.sum();
+    }
+
+    public long getDroppedCount() {
+        return droppedEvents.sum();
+    }
+
+    public long getBatchCount() {
+        return deliveredBatches.sum();
+    }
+
+    private void listenersChanged() {
+        listenerVersion++;
+        subscriptions.clear();
+    }
+
+    private boolean resolveListeners(Class<?> eventClass) {
+        // Published objects arrive wrapped, so ask for the listeners of the wrapper type
+        ResolvableType eventType = ResolvableType.forClassWithGenerics(PayloadApplicationEvent.class, eventClass);
+        return !getApplicationListeners(new PayloadApplicationEvent<>(this, new Object()), eventType).isEmpty();
+    }
+
+    private void enqueue(QueuedEvent event) {
+        publishedEvents.increment();
+
+        if (!offer(event)) {
+            droppedEvents.increment();
+            return;
+        }
+
+        if (dispatcherIdle.get()) {
+            LockSupport.unpark(dispatcher);
+        }
+    }
+
+    private boolean offer(QueuedEvent event) {
+        switch (backpressure) {
+            case DROP_OLDEST -> {
+                while (!buffer.offer(event)) {
+                    if (buffer.poll() != null) {
+                        droppedEvents.increment();
+                    }
+                }
+                return true;
+            }
+            case SAMPLE -> {
+                if (buffer.size() >= buffer.capacity() / 2 && sampleCounter.incrementAndGet() % sampleRate != 0) {
+                    return false;
+                }
+                return buffer.offer(event);
+            }
+            default -> {
+                while (!buffer.offer(event)) {
+                    if (Thread.currentThread() == dispatcher || !running) {
+                        // A listener publishing into a full ring would wait for itself
+                        deliver(event);
+                        return true;
+                    }
+                    LockSupport.unpark(dispatcher);
+                    LockSupport.parkNanos(this, BLOCKED_PARK_NANOS);
+                }
+                return true;
+            }
+        }
+    }
+
+    private void dispatchLoop() {
+        List<QueuedEvent> batch = new ArrayList<>(batchSize);
+
+        while (running || !buffer.isEmpty()) {
+            if (buffer.drainTo(batch, batchSize) == 0) {
+                idle();
+                continue;
+            }
+
+            List<BaseEvent> payloads = new ArrayList<>(batch.size());
+            for (QueuedEvent event : batch) {
+                deliver(event);
+                payloads.add(event.payload());
+            }
+            batch.clear();
+
+            try {
+                super.multicastEvent(new PayloadApplicationEvent<>(this, new EventBatch(payloads)), null);
+            } catch (Exception e) {
+                log.error("Failed to deliver event batch", e);
+            }
+            deliveredBatches.increment();
+        }
+    }
+
+    private void idle() {
+        dispatcherIdle.set(true);
+        // Publishers check the flag after queuing, so an event queued before it was set is seen here
+        if (running && buffer.isEmpty()) {
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+        dispatcherIdle.set(false);
+    }
+
+    private void deliver(QueuedEvent event) {
+        try {
+            super.multicastEvent(event.event(), event.eventType());
+        } catch (Exception e) {
+            log.error("Failed to deliver event {}", event.payload().getEventTypeString(), e);
+        }
+    }
+
+    private record QueuedEvent(ApplicationEvent event, ResolvableType eventType, BaseEvent payload) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.workfloworchestrator.event;
+
+import java.util.List;
+
+/**
+ * Events delivered together by the event pipeline, in publication order
+ * Listeners that write to external systems can take a whole batch at once with
+ * an @EventListener method for this type; each event is also delivered on its own.
+ *
+ * @param events the events of the batch
+ */
+public record EventBatch(List<BaseEvent> events) {
+}
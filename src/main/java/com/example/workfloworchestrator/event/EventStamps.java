@@ -0,0 +1,54 @@
+package com.example.workfloworchestrator.event;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cheap IDs and timestamps for events
+ * IDs are a random per-process prefix plus a sequence number, so they are unique without
+ * the SecureRandom call behind a random UUID and increase in publication order. Timestamps
+ * have millisecond resolution and are converted to local time at most once per millisecond.
+ */
+public final class EventStamps {
+
+    private static final String PREFIX = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE) + "-";
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private static volatile Stamp lastStamp = new Stamp(Long.MIN_VALUE, null);
+
+    private EventStamps() {
+    }
+
+    /**
+     * Get the next event ID
+     *
+     * @return an ID unique to this process run, greater in sequence than the previous one
+     */
+    public static String nextId() {
+        return PREFIX + SEQUENCE.incrementAndGet();
+    }
+
+    /**
+     * Get the current local time, truncated to the millisecond
+     *
+     * @return the current time
+     */
+    public static LocalDateTime now() {
+        long millis = System.currentTimeMillis();
+        Stamp stamp = lastStamp;
+        if (stamp.millis() == millis) {
+            return stamp.time();
+        }
+
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE);
+        lastStamp = new Stamp(millis, time);
+        return time;
+    }
+
+    private record Stamp(long millis, LocalDateTime time) {
+    }
+}
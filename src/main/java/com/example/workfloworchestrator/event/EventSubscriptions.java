@@ -0,0 +1,15 @@
+package com.example.workfloworchestrator.event;
+
+/**
+ * Tells publishers whether an event would reach anyone before they build it
+ */
+public interface EventSubscriptions {
+
+    /**
+     * Check whether any listener receives events of a type
+     *
+     * @param eventClass the event class
+     * @return true if a listener for the class, or for event batches, is registered
+     */
+    boolean hasListeners(Class<? extends BaseEvent> eventClass);
+}
@@ -0,0 +1,58 @@
+package com.example.workfloworchestrator.event.outbox;
+
+import com.example.workfloworchestrator.messaging.RabbitMQSender;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.util.List;
+
+/**
+ * Publishes event batches as one persistent JSON array message to a RabbitMQ exchange
+ * A batch counts as delivered once the broker has confirmed it. Compressed batches carry
+ * content encoding gzip, so consumers know to inflate them.
+ */
+public class AmqpEventSender implements EventSender {
+
+    public static final String DESTINATION = "amqp";
+
+    private final RabbitMQSender rabbitMQSender;
+    private final String exchange;
+    private final String routingKey;
+    private final int concurrency;
+    private final int compressMinBytes;
+
+    public AmqpEventSender(RabbitMQSender rabbitMQSender, String exchange, String routingKey,
+                           int concurrency, int compressMinBytes) {
+        this.rabbitMQSender = rabbitMQSender;
+        this.exchange = exchange;
+        this.routingKey = routingKey;
+        this.concurrency = concurrency;
+        this.compressMinBytes = compressMinBytes;
+    }
+
+    @Override
+    public String getDestination() {
+        return DESTINATION;
+    }
+
+    @Override
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    @Override
+    public void send(List<String> payloads) {
+        EventBatchBody body = EventBatchBody.encode(payloads, compressMinBytes);
+
+        MessageProperties messageProperties = new MessageProperties();
+        messageProperties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        messageProperties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        messageProperties.setHeader("x-event-count", payloads.size());
+        if (body.compressed()) {
+            messageProperties.setContentEncoding("gzip");
+        }
+
+        rabbitMQSender.sendDirect(exchange, routingKey, new Message(body.bytes(), messageProperties));
+    }
+}
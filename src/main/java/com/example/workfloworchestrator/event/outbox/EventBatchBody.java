@@ -0,0 +1,40 @@
+package com.example.workfloworchestrator.event.outbox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A batch of events encoded as one JSON array, gzip-compressed once it is large enough
+ * The payloads are already JSON, so they are joined as they are instead of being parsed again.
+ */
+record EventBatchBody(byte[] bytes, boolean compressed) {
+
+    static EventBatchBody encode(List<String> payloads, int compressMinBytes) {
+        StringBuilder json = new StringBuilder(payloads.stream().mapToInt(String::length).sum() + payloads.size() + 1);
+        json.append('[');
+        for (int i = 0; i < payloads.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(payloads.get(i));
+        }
+        json.append(']');
+
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < compressMinBytes) {
+            return new EventBatchBody(bytes, false);
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new EventBatchBody(compressed.toByteArray(), true);
+    }
+}
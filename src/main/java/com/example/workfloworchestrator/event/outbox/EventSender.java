@@ -0,0 +1,31 @@
+package com.example.workfloworchestrator.event.outbox;
+
+import java.util.List;
+
+/**
+ * Delivers batches of outbox events to one external destination
+ */
+public interface EventSender {
+
+    /**
+     * Get the name outbox rows for this sender are stored under
+     *
+     * @return the destination name
+     */
+    String getDestination();
+
+    /**
+     * Get how many batches may be in flight to this destination at once
+     *
+     * @return the concurrency limit
+     */
+    int getConcurrency();
+
+    /**
+     * Deliver a batch, returning only once the destination has accepted it
+     *
+     * @param payloads the events as JSON, oldest first
+     * @throws Exception if the destination did not accept the batch
+     */
+    void send(List<String> payloads) throws Exception;
+}
@@ -0,0 +1,69 @@
+package com.example.workfloworchestrator.event.outbox;
+
+import com.example.workfloworchestrator.event.BaseEvent;
+import com.example.workfloworchestrator.repository.EventOutboxRepository;
+import com.example.workfloworchestrator.util.JsonCodec;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Records events for delivery to external systems through the event outbox
+ * Each event is written once per destination in the caller's transaction, so it is sent if and
+ * only if the state change that raised it commits. The OutboxRelay delivers the rows later,
+ * which keeps the downstream systems' latency out of workflow transitions.
+ */
+@Slf4j
+public class ExternalEventPublisher {
+
+    private final List<EventSender> senders;
+    private final List<String> destinations;
+    private final EventOutboxRepository outboxRepository;
+    private final JsonCodec jsonCodec;
+
+    public ExternalEventPublisher(List<EventSender> senders, EventOutboxRepository outboxRepository, JsonCodec jsonCodec) {
+        this.senders = List.copyOf(senders);
+        this.destinations = senders.stream().map(EventSender::getDestination).toList();
+        this.outboxRepository = outboxRepository;
+        this.jsonCodec = jsonCodec;
+
+        if (destinations.isEmpty()) {
+            log.info("External event publishing disabled");
+        } else {
+            log.info("External event publishing enabled, destinations: {}", destinations);
+        }
+    }
+
+    public boolean isEnabled() {
+        return !destinations.isEmpty();
+    }
+
+    /**
+     * Publish an event to external systems
+     * Meant to be called in the transaction of the state change; a failure to write the outbox
+     * is thrown, so that the state change does not commit without its event. Called outside a
+     * transaction, the row is written on its own and the caller decides what a failure means.
+     *
+     * @param event the event
+     */
+    public void publishEvent(BaseEvent event) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        String payload;
+        try {
+            payload = jsonCodec.write(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize event " + event.getEventId(), e);
+        }
+
+        outboxRepository.append(destinations, event.getEventId(), event.getEventTypeString(), payload, LocalDateTime.now());
+    }
+
+    public List<EventSender> getSenders() {
+        return senders;
+    }
+}
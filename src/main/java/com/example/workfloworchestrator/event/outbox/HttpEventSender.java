@@ -0,0 +1,53 @@
+package com.example.workfloworchestrator.event.outbox;
+
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+/**
+ * Posts event batches as a JSON array to an HTTP endpoint
+ * Any 2xx response acknowledges the batch; other statuses and I/O errors fail it.
+ */
+public class HttpEventSender implements EventSender {
+
+    public static final String DESTINATION = "http";
+
+    private final RestTemplate restTemplate;
+    private final String endpoint;
+    private final int concurrency;
+    private final int compressMinBytes;
+
+    public HttpEventSender(RestTemplate restTemplate, String endpoint, int concurrency, int compressMinBytes) {
+        this.restTemplate = restTemplate;
+        this.endpoint = endpoint;
+        this.concurrency = concurrency;
+        this.compressMinBytes = compressMinBytes;
+    }
+
+    @Override
+    public String getDestination() {
+        return DESTINATION;
+    }
+
+    @Override
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    @Override
+    public void send(List<String> payloads) {
+        EventBatchBody body = EventBatchBody.encode(payloads, compressMinBytes);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (body.compressed()) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        restTemplate.exchange(endpoint, HttpMethod.POST, new HttpEntity<>(body.bytes(), headers), Void.class);
+    }
+}
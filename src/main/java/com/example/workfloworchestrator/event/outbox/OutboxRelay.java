@@ -0,0 +1,198 @@
+package com.example.workfloworchestrator.event.outbox;
+
+import com.example.workfloworchestrator.config.OutboxProperties;
+import com.example.workfloworchestrator.repository.EventOutboxRepository;
+import com.example.workfloworchestrator.repository.EventOutboxRepository.FailedAttempt;
+import com.example.workfloworchestrator.repository.EventOutboxRepository.OutboxEntry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers outbox events to their destinations in batches
+ * Each destination has its own workers, up to the sender's concurrency limit. A poll starts one
+ * worker per destination; a worker that claims a full batch starts another, so the number of
+ * workers follows the backlog. Workers claim a batch in a short transaction, send it outside of
+ * any transaction and delete it once the destination has accepted it.
+ *
+ * A failed batch is retried with exponential backoff and parked as DEAD after the maximum number
+ * of attempts. Delivery is at-least-once and batches of one destination may arrive out of order,
+ * so consumers should deduplicate by eventId. Metrics, tagged by destination:
+ *
+ * workflow.events.outbox.delivered  - events accepted by the destination
+ * workflow.events.outbox.failed     - events whose delivery attempt failed
+ * workflow.events.outbox.dead       - events parked after their last attempt
+ */
+@Slf4j
+public class OutboxRelay implements AutoCloseable {
+
+    private final EventOutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxProperties properties;
+    private final List<DestinationRelay> destinations;
+    private final ExecutorService workers;
+    private volatile boolean running = true;
+
+    public OutboxRelay(List<EventSender> senders, EventOutboxRepository outboxRepository,
+                       PlatformTransactionManager transactionManager, OutboxProperties properties,
+                       MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.destinations = senders.stream().map(sender -> new DestinationRelay(sender, meterRegistry)).toList();
+        this.workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("outbox-relay-", 0).factory());
+    }
+
+    /**
+     * Start delivering due events to every destination that has no worker running
+     */
+    @Scheduled(fixedDelayString = "${workflow.events.outbox.poll-interval-ms:1000}")
+    public void poll() {
+        for (DestinationRelay destination : destinations) {
+            destination.startWorker();
+        }
+    }
+
+    /**
+     * Stop starting workers and wait briefly for running batches
+     * Batches cut short stay claimed until the claim timeout and are then delivered again.
+     */
+    @Override
+    public void close() {
+        running = false;
+        workers.shutdown();
+        try {
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long backoffMillis(int attempts) {
+        long initial = properties.getInitialBackoff().toMillis();
+        long max = properties.getMaxBackoff().toMillis();
+        int shift = Math.min(Math.max(attempts - 1, 0), 30);
+        return Math.min(initial << shift, max);
+    }
+
+    private class DestinationRelay {
+
+        private final EventSender sender;
+        private final AtomicInteger activeWorkers = new AtomicInteger();
+        private final Counter delivered;
+        private final Counter failed;
+        private final Counter dead;
+
+        DestinationRelay(EventSender sender, MeterRegistry meterRegistry) {
+            this.sender = sender;
+            this.delivered = meterRegistry.counter("workflow.events.outbox.delivered", "destination", sender.getDestination());
+            this.failed = meterRegistry.counter("workflow.events.outbox.failed", "destination", sender.getDestination());
+            this.dead = meterRegistry.counter("workflow.events.outbox.dead", "destination", sender.getDestination());
+        }
+
+        void startWorker() {
+            int active;
+            do {
+                active = activeWorkers.get();
+                if (!running || active >= Math.max(1, sender.getConcurrency())) {
+                    return;
+                }
+            } while (!activeWorkers.compareAndSet(active, active + 1));
+
+            try {
+                workers.execute(this::work);
+            } catch (RuntimeException e) {
+                // Rejected while shutting down
+                activeWorkers.decrementAndGet();
+            }
+        }
+
+        private void work() {
+            try {
+                while (running) {
+                    List<OutboxEntry> batch = claim();
+                    if (batch.isEmpty()) {
+                        return;
+                    }
+                    if (batch.size() == properties.getBatchSize()) {
+                        // Probably more backlog than this worker can drain alone
+                        startWorker();
+                    }
+                    deliver(batch);
+                }
+            } catch (Exception e) {
+                log.warn("Outbox relay for {} stopped, it restarts with the next poll", sender.getDestination(), e);
+            } finally {
+                activeWorkers.decrementAndGet();
+            }
+        }
+
+        private List<OutboxEntry> claim() {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime hiddenUntil = now.plus(properties.getClaimTimeout());
+            List<OutboxEntry> batch = transactionTemplate.execute(status ->
+                    outboxRepository.claim(sender.getDestination(), now, hiddenUntil, properties.getBatchSize()));
+            return batch != null ? batch : List.of();
+        }
+
+        private void deliver(List<OutboxEntry> batch) {
+            List<String> payloads = new ArrayList<>(batch.size());
+            List<Long> ids = new ArrayList<>(batch.size());
+            for (OutboxEntry entry : batch) {
+                payloads.add(entry.payload());
+                ids.add(entry.id());
+            }
+
+            try {
+                sender.send(payloads);
+            } catch (Exception e) {
+                recordFailure(batch, e);
+                return;
+            }
+
+            // A failure from here on leaves the rows claimed, so they are sent again after the claim timeout
+            outboxRepository.delete(ids);
+            delivered.increment(batch.size());
+        }
+
+        private void recordFailure(List<OutboxEntry> batch, Exception error) {
+            LocalDateTime now = LocalDateTime.now();
+            List<FailedAttempt> failures = new ArrayList<>(batch.size());
+            int parked = 0;
+
+            for (OutboxEntry entry : batch) {
+                int attempts = entry.attempts() + 1;
+                if (attempts >= properties.getMaxAttempts()) {
+                    failures.add(new FailedAttempt(entry.id(), attempts, now, EventOutboxRepository.STATUS_DEAD));
+                    parked++;
+                } else {
+                    LocalDateTime nextAttemptAt = now.plus(Duration.ofMillis(backoffMillis(attempts)));
+                    failures.add(new FailedAttempt(entry.id(), attempts, nextAttemptAt, EventOutboxRepository.STATUS_PENDING));
+                }
+            }
+
+            outboxRepository.recordFailures(failures, error.toString());
+            failed.increment(batch.size());
+            dead.increment(parked);
+
+            if (parked > 0) {
+                log.error("Parked {} events for {} after {} attempts", parked, sender.getDestination(),
+                        properties.getMaxAttempts(), error);
+            } else {
+                log.warn("Could not deliver {} events to {}: {}", batch.size(), sender.getDestination(), error.toString());
+            }
+        }
+    }
+}
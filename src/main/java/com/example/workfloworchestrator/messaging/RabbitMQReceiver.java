@@ -27,7 +27,7 @@ public class RabbitMQReceiver {
      */
     @RabbitListener(queues = RabbitMQConfig.WORKFLOW_RESULT_QUEUE)
     public void receiveTaskResult(TaskMessage resultMessage) {
-        log.info("Received task result message from queue: {}, taskType: {}, correlationId: {}, success: {}",
+        log.debug("Received task result message from queue: {}, taskType: {}, correlationId: {}, success: {}",
                 RabbitMQConfig.WORKFLOW_RESULT_QUEUE,
                 resultMessage.getTaskType(),
                 resultMessage.getCorrelationId(),
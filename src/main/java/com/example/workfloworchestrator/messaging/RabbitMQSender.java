@@ -1,56 +1,170 @@
 package com.example.workfloworchestrator.messaging;
 
 import com.example.workfloworchestrator.config.RabbitMQConfig;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.BatchingRabbitTemplate;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Component for sending messages to RabbitMQ
+ * With publisher confirms enabled on the connection factory, each send is correlated with
+ * the broker's confirm: the async methods return a future that completes once the broker has
+ * taken the message and fails if it was nacked, returned as unroutable or not confirmed in time.
+ * They do not wait for the confirm, so a wave of sends is pipelined over the cached channels.
+ * The blocking methods wait for the confirm of their one message.
+ *
+ * With workflow.messaging.rabbitmq.batching.enabled, task messages sent through
+ * sendTaskMessage(Async) are collected into batch messages instead (consumers must de-batch
+ * them, as Spring listener containers do). Batches are confirmed as a whole, so the futures of
+ * batched task messages complete on hand-off; a lost batch surfaces as tasks that never report
+ * back. Every other message is sent on its own and confirmed individually.
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class RabbitMQSender {
 
     private final RabbitTemplate rabbitTemplate;
+    private final BatchingRabbitTemplate batchingRabbitTemplate;
+    private final long confirmTimeoutMs;
+    private final AtomicLong correlationSequence = new AtomicLong();
+
+    @Autowired
+    public RabbitMQSender(RabbitTemplate rabbitTemplate, ObjectProvider<BatchingRabbitTemplate> batchingRabbitTemplate,
+                          @Value("${workflow.messaging.rabbitmq.confirm-timeout-ms:10000}") long confirmTimeoutMs) {
+        this(rabbitTemplate, batchingRabbitTemplate.getIfAvailable(), confirmTimeoutMs);
+    }
+
+    RabbitMQSender(RabbitTemplate rabbitTemplate, BatchingRabbitTemplate batchingRabbitTemplate, long confirmTimeoutMs) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.batchingRabbitTemplate = batchingRabbitTemplate;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
 
     /**
      * Send a task message to the default task queue
      */
     public void sendTaskMessage(TaskMessage message) {
-        log.info("Sending task message to queue: {}, taskType: {}, correlationId: {}",
+        await(sendTaskMessageAsync(message));
+    }
+
+    /**
+     * Send a task message to the default task queue without waiting for the broker
+     *
+     * @return a future completed once the broker has confirmed the message, or once it has
+     *         been handed to the current batch when batching is enabled
+     */
+    public CompletableFuture<Void> sendTaskMessageAsync(TaskMessage message) {
+        log.debug("Sending task message to queue: {}, taskType: {}, correlationId: {}",
                 RabbitMQConfig.TASK_QUEUE, message.getTaskType(), message.getCorrelationId());
 
-        rabbitTemplate.convertAndSend(
-                RabbitMQConfig.TASK_EXCHANGE,
-                RabbitMQConfig.TASK_ROUTING_KEY,
-                message);
+        if (batchingRabbitTemplate != null) {
+            try {
+                batchingRabbitTemplate.convertAndSend(RabbitMQConfig.TASK_EXCHANGE, RabbitMQConfig.TASK_ROUTING_KEY, message);
+                return CompletableFuture.completedFuture(null);
+            } catch (AmqpException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return send(rabbitTemplate, RabbitMQConfig.TASK_EXCHANGE, RabbitMQConfig.TASK_ROUTING_KEY, message);
     }
 
     /**
      * Send a task result message to the default result queue
      */
     public void sendTaskResultMessage(TaskMessage resultMessage) {
-        log.info("Sending task result message to queue: {}, taskType: {}, correlationId: {}, success: {}",
+        log.debug("Sending task result message to queue: {}, taskType: {}, correlationId: {}, success: {}",
                 RabbitMQConfig.WORKFLOW_RESULT_QUEUE,
                 resultMessage.getTaskType(),
                 resultMessage.getCorrelationId(),
                 resultMessage.isSuccess());
 
-        rabbitTemplate.convertAndSend(
-                RabbitMQConfig.WORKFLOW_RESULT_EXCHANGE,
-                RabbitMQConfig.WORKFLOW_RESULT_ROUTING_KEY,
-                resultMessage);
+        // Results are sent on their own, so that the workflow waiting for them is not held up by a batch
+        sendDirect(RabbitMQConfig.WORKFLOW_RESULT_EXCHANGE, RabbitMQConfig.WORKFLOW_RESULT_ROUTING_KEY, resultMessage);
     }
 
     /**
      * Send a message to a specific exchange and routing key
      */
     public void sendMessage(String exchange, String routingKey, Object message) {
-        log.info("Sending message to exchange: {}, routingKey: {}", exchange, routingKey);
+        await(sendMessageAsync(exchange, routingKey, message));
+    }
+
+    /**
+     * Send a message to a specific exchange and routing key without waiting for the broker
+     *
+     * @return a future completed once the broker has confirmed the message
+     */
+    public CompletableFuture<Void> sendMessageAsync(String exchange, String routingKey, Object message) {
+        log.debug("Sending message to exchange: {}, routingKey: {}", exchange, routingKey);
+
+        return send(rabbitTemplate, exchange, routingKey, message);
+    }
+
+    /**
+     * Send a message on its own and wait for the broker to confirm it
+     */
+    public void sendDirect(String exchange, String routingKey, Object message) {
+        await(send(rabbitTemplate, exchange, routingKey, message));
+    }
+
+    private CompletableFuture<Void> send(RabbitTemplate template, String exchange, String routingKey, Object message) {
+        CorrelationData correlation = new CorrelationData(Long.toString(correlationSequence.incrementAndGet()));
+        try {
+            template.convertAndSend(exchange, routingKey, message, correlation);
+        } catch (AmqpException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        if (!template.getConnectionFactory().isPublisherConfirms()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return correlation.getFuture()
+                .orTimeout(confirmTimeoutMs, TimeUnit.MILLISECONDS)
+                .thenApply(confirm -> {
+                    ReturnedMessage returned = correlation.getReturned();
+                    if (returned != null) {
+                        throw new AmqpException("Message to " + exchange + "/" + routingKey
+                                + " was returned: " + returned.getReplyText());
+                    }
+                    if (!confirm.isAck()) {
+                        throw new AmqpException("Message to " + exchange + "/" + routingKey
+                                + " was not confirmed: " + confirm.getReason());
+                    }
+                    return null;
+                });
+    }
 
-        rabbitTemplate.convertAndSend(exchange, routingKey, message);
+    private static void await(CompletableFuture<Void> confirmed) {
+        try {
+            confirmed.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException("Interrupted while waiting for a publisher confirm", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof AmqpException amqpException) {
+                throw amqpException;
+            }
+            if (cause instanceof TimeoutException) {
+                throw new AmqpException("No publisher confirm received in time", cause);
+            }
+            throw new AmqpException(cause);
+        }
     }
 }
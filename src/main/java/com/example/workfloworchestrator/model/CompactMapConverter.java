@@ -0,0 +1,26 @@
+package com.example.workfloworchestrator.model;
+
+import com.example.workfloworchestrator.util.CompactMapCodec;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores a string map as a single compact binary column
+ */
+@Converter
+public class CompactMapConverter implements AttributeConverter<Map<String, String>, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(Map<String, String> attribute) {
+        return CompactMapCodec.encode(attribute);
+    }
+
+    @Override
+    public Map<String, String> convertToEntityAttribute(byte[] dbData) {
+        Map<String, String> map = CompactMapCodec.decode(dbData);
+        return map != null ? new HashMap<>(map) : null;
+    }
+}
@@ -1,22 +1,47 @@
 package com.example.workfloworchestrator.model;
 
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
+import com.example.workfloworchestrator.util.PersistentHashMap;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
-import java.util.HashMap;
 import java.util.Map;
 
-@Data
-@Builder
+/**
+ * Variables visible to a task executor
+ * Backed by a persistent map, so creating a context from task inputs and handing the
+ * variables out does not copy them; setting a variable creates a new version internally.
+ */
+@EqualsAndHashCode
+@ToString
 @NoArgsConstructor
-@AllArgsConstructor
 public class ExecutionContext {
-    private Map<String, Object> variables = new HashMap<>();
+    private PersistentHashMap<String, Object> variables = PersistentHashMap.empty();
+
+    public ExecutionContext(Map<String, ?> variables) {
+        this.variables = PersistentHashMap.copyOf(variables);
+    }
+
+    /**
+     * Create a context over the given variables, sharing them when they are already persistent
+     *
+     * @param variables the variables
+     * @return the execution context
+     */
+    public static ExecutionContext of(Map<String, ?> variables) {
+        return new ExecutionContext(variables);
+    }
+
+    public Map<String, Object> getVariables() {
+        return variables;
+    }
+
+    public void setVariables(Map<String, ?> variables) {
+        this.variables = PersistentHashMap.copyOf(variables);
+    }
 
     public void setVariable(String key, Object value) {
-        variables.put(key, value);
+        variables = variables.plus(key, value);
     }
 
     public Object getVariable(String key) {
@@ -36,14 +61,19 @@ public class ExecutionContext {
     }
 
     public void removeVariable(String key) {
-        variables.remove(key);
+        variables = variables.minus(key);
     }
 
     public void clearVariables() {
-        variables.clear();
+        variables = PersistentHashMap.empty();
     }
 
+    /**
+     * Get an immutable snapshot of all variables; later changes to this context do not affect it
+     *
+     * @return the variables
+     */
     public Map<String, Object> getAllVariables() {
-        return new HashMap<>(variables);
+        return variables;
     }
 }
@@ -0,0 +1,9 @@
+package com.example.workfloworchestrator.model;
+
+/**
+ * How task execution inputs and outputs are stored
+ */
+public enum StorageFormat {
+    ROWS,     // One row per key in task_execution_inputs / task_execution_outputs
+    COMPACT   // Single compressed binary column per map on task_executions
+}
@@ -1,5 +1,6 @@
 package com.example.workfloworchestrator.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -12,6 +13,8 @@ import java.util.Map;
 
 /**
  * Entity representing a single task execution within a workflow
+ * Inputs and outputs are stored either as one row per key (ROWS) or as a single
+ * compressed column per map (COMPACT), depending on the storage format of the row.
  */
 @Entity
 @Data
@@ -46,6 +49,11 @@ public class TaskExecution {
     @Enumerated(EnumType.STRING)
     private ExecutionMode executionMode;
 
+    @Column(name = "storage_format", nullable = false)
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private StorageFormat storageFormat = StorageFormat.ROWS;
+
     @ElementCollection
     @CollectionTable(name = "task_execution_inputs",
             joinColumns = @JoinColumn(name = "task_execution_id"))
@@ -60,6 +68,16 @@ public class TaskExecution {
     @Column(name = "output_value")
     private Map<String, String> outputs = new HashMap<>();
 
+    @JsonIgnore
+    @Convert(converter = CompactMapConverter.class)
+    @Column(name = "inputs_blob")
+    private Map<String, String> compactInputs;
+
+    @JsonIgnore
+    @Convert(converter = CompactMapConverter.class)
+    @Column(name = "outputs_blob")
+    private Map<String, String> compactOutputs;
+
     @Column(name = "error_message")
     private String errorMessage;
 
@@ -68,4 +86,72 @@ public class TaskExecution {
 
     @Column(name = "next_retry_at")
     private LocalDateTime nextRetryAt;
+
+    public Map<String, String> getInputs() {
+        if (storageFormat == StorageFormat.COMPACT) {
+            if (compactInputs == null) {
+                compactInputs = new HashMap<>();
+            }
+            return compactInputs;
+        }
+        return inputs;
+    }
+
+    public void setInputs(Map<String, String> inputs) {
+        if (storageFormat == StorageFormat.COMPACT) {
+            // Inputs are never modified in place, so an immutable snapshot can be kept as it is
+            this.compactInputs = inputs != null ? inputs : new HashMap<>();
+        } else {
+            this.inputs = inputs;
+        }
+    }
+
+    public Map<String, String> getOutputs() {
+        if (storageFormat == StorageFormat.COMPACT) {
+            if (compactOutputs == null) {
+                compactOutputs = new HashMap<>();
+            }
+            return compactOutputs;
+        }
+        return outputs;
+    }
+
+    public void setOutputs(Map<String, String> outputs) {
+        if (storageFormat == StorageFormat.COMPACT) {
+            this.compactOutputs = outputs != null ? new HashMap<>(outputs) : new HashMap<>();
+        } else {
+            this.outputs = outputs;
+        }
+    }
+
+    /**
+     * Change the storage format, moving any inputs and outputs already set to the new representation
+     *
+     * @param storageFormat the storage format
+     */
+    public void setStorageFormat(StorageFormat storageFormat) {
+        StorageFormat target = storageFormat != null ? storageFormat : StorageFormat.ROWS;
+        if (target == getStorageFormat()) {
+            return;
+        }
+
+        Map<String, String> currentInputs = getInputs();
+        Map<String, String> currentOutputs = getOutputs();
+
+        if (target == StorageFormat.COMPACT) {
+            this.inputs = new HashMap<>();
+            this.outputs = new HashMap<>();
+        } else {
+            this.compactInputs = null;
+            this.compactOutputs = null;
+        }
+
+        this.storageFormat = target;
+        setInputs(currentInputs != null ? new HashMap<>(currentInputs) : new HashMap<>());
+        setOutputs(currentOutputs != null ? new HashMap<>(currentOutputs) : new HashMap<>());
+    }
+
+    public StorageFormat getStorageFormat() {
+        return storageFormat != null ? storageFormat : StorageFormat.ROWS;
+    }
 }
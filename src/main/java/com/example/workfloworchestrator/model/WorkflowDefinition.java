@@ -53,6 +53,10 @@ public class WorkflowDefinition {
     @Enumerated(EnumType.STRING)
     private ExecutionStrategyType strategyType = ExecutionStrategyType.SEQUENTIAL;
 
+    // Time limit of an execution from its start; no limit when null
+    @Column(name = "timeout_seconds")
+    private Integer timeoutSeconds;
+
     public enum ExecutionStrategyType {
         SEQUENTIAL,
         PARALLEL,
@@ -1,16 +1,26 @@
 package com.example.workfloworchestrator.model;
 
+import com.example.workfloworchestrator.util.PersistentHashMap;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @Entity
 @Data
@@ -51,6 +61,13 @@ public class WorkflowExecution {
     @Column(name = "variable_value")
     private Map<String, String> variables = new HashMap<>();
 
+    // Immutable copy of variables, kept in step by mergeVariables and dropped by any other write
+    @Transient
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private PersistentHashMap<String, String> variableSnapshot;
+
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name = "workflow_execution_id")
     private List<TaskExecution> taskExecutions = new ArrayList<>();
@@ -64,4 +81,161 @@ public class WorkflowExecution {
 
     @Column(name = "retry_count")
     private Integer retryCount = 0;
+
+    /**
+     * Merge updates into the workflow variables
+     *
+     * @param updates the variables to merge
+     * @return the entries that were added or changed
+     */
+    public synchronized Map<String, String> mergeVariables(Map<String, String> updates) {
+        Map<String, String> changed = new LinkedHashMap<>();
+        if (updates == null || updates.isEmpty()) {
+            return changed;
+        }
+
+        for (Map.Entry<String, String> entry : updates.entrySet()) {
+            String key = entry.getKey();
+            if (!variables.containsKey(key) || !Objects.equals(variables.get(key), entry.getValue())) {
+                variables.put(key, entry.getValue());
+                changed.put(key, entry.getValue());
+            }
+        }
+
+        if (variableSnapshot != null && !changed.isEmpty()) {
+            variableSnapshot = variableSnapshot.plusAll(changed);
+        }
+
+        return changed;
+    }
+
+    /**
+     * Get an immutable snapshot of the workflow variables, e.g. as task inputs
+     * Between changes made through mergeVariables the same snapshot is returned, so this is O(1)
+     *
+     * @return the variables snapshot
+     */
+    public synchronized PersistentHashMap<String, String> snapshotVariables() {
+        if (variableSnapshot == null) {
+            variableSnapshot = PersistentHashMap.copyOf(variables);
+        }
+        return variableSnapshot;
+    }
+
+    /**
+     * Get the workflow variables
+     * Writes through the returned map drop the variables snapshot, so the next snapshot sees them.
+     *
+     * @return the variables
+     */
+    public Map<String, String> getVariables() {
+        return new TrackedVariables();
+    }
+
+    /**
+     * Replace the workflow variables
+     * A map returned by getVariables is copied rather than stored, so executions never share
+     * or wrap their own backing map.
+     *
+     * @param variables the variables
+     */
+    public synchronized void setVariables(Map<String, String> variables) {
+        this.variables = variables instanceof TrackedVariables ? new HashMap<>(variables) : variables;
+        this.variableSnapshot = null;
+    }
+
+    /**
+     * Live view of the variables that drops the snapshot on every write
+     * Each write and the drop happen under the execution's lock, so snapshotVariables cannot cache
+     * the map from before the write. The key set and values views write through entrySet, so they
+     * are covered too.
+     */
+    private final class TrackedVariables extends AbstractMap<String, String> {
+
+        @Override
+        public int size() {
+            return variables.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return variables.containsKey(key);
+        }
+
+        @Override
+        public String get(Object key) {
+            return variables.get(key);
+        }
+
+        @Override
+        public String put(String key, String value) {
+            synchronized (WorkflowExecution.this) {
+                String previous = variables.put(key, value);
+                variableSnapshot = null;
+                return previous;
+            }
+        }
+
+        @Override
+        public String remove(Object key) {
+            synchronized (WorkflowExecution.this) {
+                String previous = variables.remove(key);
+                variableSnapshot = null;
+                return previous;
+            }
+        }
+
+        @Override
+        public void clear() {
+            synchronized (WorkflowExecution.this) {
+                variables.clear();
+                variableSnapshot = null;
+            }
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return variables.size();
+                }
+
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    Iterator<Entry<String, String>> entries = variables.entrySet().iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return entries.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            Entry<String, String> entry = entries.next();
+                            return new SimpleEntry<>(entry) {
+                                @Override
+                                public String setValue(String value) {
+                                    super.setValue(value);
+                                    synchronized (WorkflowExecution.this) {
+                                        String previous = entry.setValue(value);
+                                        variableSnapshot = null;
+                                        return previous;
+                                    }
+                                }
+                            };
+                        }
+
+                        @Override
+                        public void remove() {
+                            synchronized (WorkflowExecution.this) {
+                                entries.remove();
+                                variableSnapshot = null;
+                            }
+                        }
+                    };
+                }
+            };
+        }
+    }
 }
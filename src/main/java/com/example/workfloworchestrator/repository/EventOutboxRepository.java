@@ -0,0 +1,155 @@
+package com.example.workfloworchestrator.repository;
+
+import com.example.workfloworchestrator.repository.ExecutionLeaseRepository.Dialect;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JDBC access to the event outbox
+ * Appends run in the caller's transaction, so an event row commits or rolls back with the
+ * state change that raised it. Claims lock due rows with SKIP LOCKED like execution leases do,
+ * and hide them from other relays by pushing next_attempt_at past the time a delivery may take;
+ * a claim must be called in a transaction. Rows a relay claimed but never acknowledged become
+ * due again once that time has passed, which makes delivery at-least-once.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class EventOutboxRepository {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_DEAD = "DEAD";
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Dialect dialect;
+
+    /**
+     * Add an event for each destination
+     *
+     * @param destinations the destinations to deliver to
+     * @param eventId the event ID
+     * @param eventType the event type
+     * @param payload the event as JSON
+     * @param now the current time, when the rows become due
+     */
+    public void append(Collection<String> destinations, String eventId, String eventType, String payload,
+                       LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        List<Object[]> rows = new ArrayList<>(destinations.size());
+        for (String destination : destinations) {
+            rows.add(new Object[]{destination, eventId, eventType, payload, STATUS_PENDING, timestamp, timestamp});
+        }
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO event_outbox (destination, event_id, event_type, payload, status, attempts, next_attempt_at, created_at) " +
+                        "VALUES (?, ?, ?, ?, ?, 0, ?, ?)",
+                rows);
+    }
+
+    /**
+     * Claim the oldest due events of a destination
+     *
+     * @param destination the destination
+     * @param now the current time
+     * @param hiddenUntil when the rows become due again if they are not acknowledged
+     * @param limit the maximum number of rows to claim
+     * @return the claimed events, oldest first
+     */
+    public List<OutboxEntry> claim(String destination, LocalDateTime now, LocalDateTime hiddenUntil, int limit) {
+        String sql = dialect().selectForClaim(
+                "id, event_id, payload, attempts", "event_outbox",
+                "destination = ? AND status = ? AND next_attempt_at <= ?", "id");
+
+        List<OutboxEntry> claimed = jdbcTemplate.query(sql,
+                (rs, rowNum) -> new OutboxEntry(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getInt(4)),
+                dialect().claimArgs(limit, destination, STATUS_PENDING, Timestamp.valueOf(now)));
+
+        if (!claimed.isEmpty()) {
+            List<Object> args = new ArrayList<>();
+            args.add(Timestamp.valueOf(hiddenUntil));
+            claimed.forEach(entry -> args.add(entry.id()));
+            jdbcTemplate.update("UPDATE event_outbox SET next_attempt_at = ? WHERE id IN (" +
+                    placeholders(claimed.size()) + ")", args.toArray());
+        }
+        return claimed;
+    }
+
+    /**
+     * Remove delivered events
+     */
+    public void delete(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM event_outbox WHERE id IN (" + placeholders(ids.size()) + ")", ids.toArray());
+    }
+
+    /**
+     * Record failed delivery attempts
+     *
+     * @param failures the events with their new attempt count, next attempt time and status
+     * @param error the delivery error
+     */
+    public void recordFailures(List<FailedAttempt> failures, String error) {
+        String lastError = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        List<Object[]> rows = new ArrayList<>(failures.size());
+        for (FailedAttempt failure : failures) {
+            rows.add(new Object[]{failure.attempts(), Timestamp.valueOf(failure.nextAttemptAt()), failure.status(),
+                    lastError, failure.id()});
+        }
+
+        jdbcTemplate.batchUpdate(
+                "UPDATE event_outbox SET attempts = ?, next_attempt_at = ?, status = ?, last_error = ? WHERE id = ?",
+                rows);
+    }
+
+    /**
+     * Count the events still to be delivered to a destination
+     */
+    public long countPending(String destination) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM event_outbox WHERE destination = ? AND status = ?",
+                Long.class, destination, STATUS_PENDING);
+        return count != null ? count : 0;
+    }
+
+    private Dialect dialect() {
+        Dialect current = dialect;
+        if (current == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            current = Dialect.of(product);
+            dialect = current;
+            log.debug("Using {} outbox claiming for database {}", current, product);
+        }
+        return current;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * An event claimed for delivery
+     */
+    public record OutboxEntry(long id, String eventId, String payload, int attempts) {
+    }
+
+    /**
+     * The outcome of a failed delivery for one event
+     */
+    public record FailedAttempt(long id, int attempts, LocalDateTime nextAttemptAt, String status) {
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.workfloworchestrator.repository;
+
+import com.example.workfloworchestrator.model.TaskStatus;
+import com.example.workfloworchestrator.model.WorkflowStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * JDBC access to the lease columns of workflow and task executions
+ * Claims lock candidate rows with SKIP LOCKED (READPAST on SQL Server), so concurrent nodes
+ * each get a disjoint batch instead of queueing behind each other, and then stamp them with
+ * the claiming node and an expiry. Claim methods must be called in a transaction.
+ *
+ * The lease columns are deliberately not mapped on the entities: a JPA save rewrites every
+ * mapped column and would overwrite a lease renewed in the meantime.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class ExecutionLeaseRepository {
+
+    private static final String LEASE_FREE = "(lease_expires_at IS NULL OR lease_expires_at < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Dialect dialect;
+
+    /**
+     * Claim task executions that are due for retry and not leased by a live node
+     *
+     * @param owner the claiming node
+     * @param dueBefore the latest retry time to claim
+     * @param now the current time
+     * @param leaseUntil the lease expiry to set
+     * @param limit the maximum number of rows to claim
+     * @return the claimed tasks, earliest due first
+     */
+    public List<TaskRetryCandidate> claimTasksToRetry(String owner, LocalDateTime dueBefore, LocalDateTime now,
+                                                      LocalDateTime leaseUntil, int limit) {
+        String sql = dialect().selectForClaim(
+                "id, workflow_execution_id, retry_count, next_retry_at", "task_executions",
+                "status = ? AND next_retry_at <= ? AND " + LEASE_FREE, "next_retry_at");
+
+        List<TaskRetryCandidate> claimed = jdbcTemplate.query(sql,
+                (rs, rowNum) -> new TaskRetryCandidate(
+                        rs.getLong(1),
+                        rs.getLong(2),
+                        (Integer) rs.getObject(3),
+                        toLocalDateTime(rs.getTimestamp(4))),
+                dialect().claimArgs(limit, TaskStatus.AWAITING_RETRY.name(), Timestamp.valueOf(dueBefore), Timestamp.valueOf(now)));
+
+        stamp("task_executions", claimed.stream().map(TaskRetryCandidate::id).toList(), owner, leaseUntil);
+        return claimed;
+    }
+
+    /**
+     * Claim running workflow executions started before a threshold whose lease has lapsed
+     *
+     * @param owner the claiming node
+     * @param startedBefore the stuck threshold
+     * @param now the current time
+     * @param leaseUntil the lease expiry to set
+     * @param limit the maximum number of rows to claim
+     * @return the claimed workflow executions
+     */
+    public List<WorkflowExecutionSummary> claimStuckWorkflows(String owner, LocalDateTime startedBefore, LocalDateTime now,
+                                                              LocalDateTime leaseUntil, int limit) {
+        String sql = dialect().selectForClaim(
+                "id, correlation_id, status, started_at, completed_at", "workflow_executions",
+                "status = ? AND started_at < ? AND " + LEASE_FREE, "started_at");
+
+        List<WorkflowExecutionSummary> claimed = jdbcTemplate.query(sql,
+                (rs, rowNum) -> new WorkflowExecutionSummary(
+                        rs.getLong(1),
+                        rs.getString(2),
+                        WorkflowStatus.valueOf(rs.getString(3)),
+                        toLocalDateTime(rs.getTimestamp(4)),
+                        toLocalDateTime(rs.getTimestamp(5))),
+                dialect().claimArgs(limit, WorkflowStatus.RUNNING.name(), Timestamp.valueOf(startedBefore), Timestamp.valueOf(now)));
+
+        stamp("workflow_executions", claimed.stream().map(WorkflowExecutionSummary::id).toList(), owner, leaseUntil);
+        return claimed;
+    }
+
+    /**
+     * Take or extend the lease of a single workflow execution
+     * Succeeds if the row is unclaimed, already held by the owner, or its lease has lapsed.
+     *
+     * @return true if the owner now holds the lease
+     */
+    public boolean acquireWorkflow(Long id, String owner, LocalDateTime now, LocalDateTime leaseUntil) {
+        return jdbcTemplate.update(
+                "UPDATE workflow_executions SET lease_owner = ?, lease_expires_at = ? " +
+                        "WHERE id = ? AND (lease_owner IS NULL OR lease_owner = ? OR lease_expires_at < ?)",
+                owner, Timestamp.valueOf(leaseUntil), id, owner, Timestamp.valueOf(now)) > 0;
+    }
+
+    /**
+     * Give up the lease of a workflow execution held by the owner
+     */
+    public void releaseWorkflow(Long id, String owner) {
+        jdbcTemplate.update(
+                "UPDATE workflow_executions SET lease_owner = NULL, lease_expires_at = NULL WHERE id = ? AND lease_owner = ?",
+                id, owner);
+    }
+
+    /**
+     * Give up the lease of a task execution held by the owner
+     */
+    public void releaseTask(Long id, String owner) {
+        jdbcTemplate.update(
+                "UPDATE task_executions SET lease_owner = NULL, lease_expires_at = NULL WHERE id = ? AND lease_owner = ?",
+                id, owner);
+    }
+
+    /**
+     * Find the workflows the owner holds that have since been cancelled or paused, possibly through another node
+     *
+     * @return the stopped workflows with their current status
+     */
+    public List<WorkflowExecutionSummary> findStoppedWorkflows(String owner) {
+        return jdbcTemplate.query(
+                "SELECT id, correlation_id, status, started_at, completed_at FROM workflow_executions " +
+                        "WHERE lease_owner = ? AND status IN (?, ?)",
+                (rs, rowNum) -> new WorkflowExecutionSummary(
+                        rs.getLong(1),
+                        rs.getString(2),
+                        WorkflowStatus.valueOf(rs.getString(3)),
+                        toLocalDateTime(rs.getTimestamp(4)),
+                        toLocalDateTime(rs.getTimestamp(5))),
+                owner, WorkflowStatus.CANCELLED.name(), WorkflowStatus.PAUSED.name());
+    }
+
+    /**
+     * Extend every lease the owner holds on rows that are still being worked on
+     *
+     * @return the number of leases renewed
+     */
+    public int renewLeases(String owner, LocalDateTime leaseUntil) {
+        Timestamp until = Timestamp.valueOf(leaseUntil);
+        int workflows = jdbcTemplate.update(
+                "UPDATE workflow_executions SET lease_expires_at = ? WHERE lease_owner = ? AND status IN (?, ?)",
+                until, owner, WorkflowStatus.CREATED.name(), WorkflowStatus.RUNNING.name());
+        int tasks = jdbcTemplate.update(
+                "UPDATE task_executions SET lease_expires_at = ? WHERE lease_owner = ? AND status IN (?, ?)",
+                until, owner, TaskStatus.PENDING.name(), TaskStatus.RUNNING.name());
+        return workflows + tasks;
+    }
+
+    private void stamp(String table, List<Long> ids, String owner, LocalDateTime leaseUntil) {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        List<Object> args = new ArrayList<>();
+        args.add(owner);
+        args.add(Timestamp.valueOf(leaseUntil));
+        args.addAll(ids);
+        jdbcTemplate.update("UPDATE " + table + " SET lease_owner = ?, lease_expires_at = ? WHERE id IN (" +
+                String.join(", ", Collections.nCopies(ids.size(), "?")) + ")", args.toArray());
+    }
+
+    private Dialect dialect() {
+        Dialect current = dialect;
+        if (current == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            current = Dialect.of(product);
+            dialect = current;
+            log.debug("Using {} row claiming for database {}", current, product);
+        }
+        return current;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    /**
+     * Row locking syntax for claim queries
+     * PostgreSQL, H2 and MySQL accept LIMIT ... FOR UPDATE SKIP LOCKED; SQL Server uses table hints.
+     */
+    enum Dialect {
+        SKIP_LOCKED,
+        SQL_SERVER;
+
+        static Dialect of(String databaseProductName) {
+            return databaseProductName != null && databaseProductName.toLowerCase(Locale.ROOT).contains("sql server")
+                    ? SQL_SERVER : SKIP_LOCKED;
+        }
+
+        String selectForClaim(String columns, String table, String where, String orderBy) {
+            if (this == SQL_SERVER) {
+                return "SELECT TOP (?) " + columns + " FROM " + table + " WITH (UPDLOCK, READPAST, ROWLOCK) " +
+                        "WHERE " + where + " ORDER BY " + orderBy;
+            }
+            return "SELECT " + columns + " FROM " + table + " WHERE " + where +
+                    " ORDER BY " + orderBy + " LIMIT ? FOR UPDATE SKIP LOCKED";
+        }
+
+        Object[] claimArgs(int limit, Object... whereArgs) {
+            Object[] args = new Object[whereArgs.length + 1];
+            if (this == SQL_SERVER) {
+                args[0] = limit;
+                System.arraycopy(whereArgs, 0, args, 1, whereArgs.length);
+            } else {
+                System.arraycopy(whereArgs, 0, args, 0, whereArgs.length);
+                args[whereArgs.length] = limit;
+            }
+            return args;
+        }
+    }
+}
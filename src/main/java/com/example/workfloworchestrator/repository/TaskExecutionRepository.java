@@ -2,11 +2,14 @@ package com.example.workfloworchestrator.repository;
 
 import com.example.workfloworchestrator.model.TaskExecution;
 import com.example.workfloworchestrator.model.TaskStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,8 +17,30 @@ public interface TaskExecutionRepository extends JpaRepository<TaskExecution, Lo
 
     List<TaskExecution> findByWorkflowExecutionIdOrderByTaskDefinitionExecutionOrderAsc(Long workflowExecutionId);
 
-    @Query("SELECT te FROM TaskExecution te WHERE te.status = :status AND te.nextRetryAt <= :now")
-    List<TaskExecution> findTasksToRetry(TaskStatus status, LocalDateTime now);
+    @Query("SELECT new com.example.workfloworchestrator.repository.TaskRetryCandidate(te.id, te.workflowExecutionId, te.retryCount, te.nextRetryAt) " +
+           "FROM TaskExecution te WHERE te.status = :status AND te.nextRetryAt <= :dueBefore ORDER BY te.nextRetryAt")
+    List<TaskRetryCandidate> findTasksToRetry(TaskStatus status, LocalDateTime dueBefore, Pageable pageable);
+
+    /**
+     * Move a task execution to a new status if it is still in the expected one
+     * Start and completion times are cleared, as for a fresh attempt
+     *
+     * @return 1 if the row was updated, 0 if its status had already changed
+     */
+    @Modifying
+    @Query("UPDATE TaskExecution te SET te.status = :newStatus, te.startedAt = NULL, te.completedAt = NULL " +
+           "WHERE te.id = :id AND te.status = :expectedStatus")
+    int resetStatusIfCurrent(Long id, TaskStatus expectedStatus, TaskStatus newStatus);
+
+    /**
+     * Cancel the tasks of a workflow that are still in one of the given statuses
+     *
+     * @return the number of tasks cancelled
+     */
+    @Modifying
+    @Query("UPDATE TaskExecution te SET te.status = :cancelled, te.completedAt = :now " +
+           "WHERE te.workflowExecutionId = :workflowExecutionId AND te.status IN :statuses")
+    int cancelTasks(Long workflowExecutionId, Collection<TaskStatus> statuses, TaskStatus cancelled, LocalDateTime now);
 
     List<TaskExecution> findByStatus(TaskStatus status);
 }
@@ -0,0 +1,190 @@
+package com.example.workfloworchestrator.repository;
+
+import com.example.workfloworchestrator.model.StorageFormat;
+import com.example.workfloworchestrator.model.TaskExecution;
+import com.example.workfloworchestrator.model.TaskStatus;
+import com.example.workfloworchestrator.util.CompactMapCodec;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * JDBC writer for task execution state transitions
+ * Updates only the scalar state columns in a single batch, and rewrites outputs
+ * only for snapshots that carry them; inputs are never touched
+ * Compact outputs are written as a single column update instead of a row rewrite
+ */
+@Repository
+@RequiredArgsConstructor
+public class TaskExecutionStateWriter {
+
+    private static final String UPDATE_STATE_SQL =
+            "UPDATE task_executions SET status = ?, started_at = ?, completed_at = ?, error_message = ?, " +
+            "retry_count = ?, next_retry_at = ? WHERE id = ?";
+
+    private static final String DELETE_OUTPUTS_SQL =
+            "DELETE FROM task_execution_outputs WHERE task_execution_id = ?";
+
+    private static final String INSERT_OUTPUT_SQL =
+            "INSERT INTO task_execution_outputs (task_execution_id, output_key, output_value) VALUES (?, ?, ?)";
+
+    private static final String UPDATE_COMPACT_OUTPUTS_SQL =
+            "UPDATE task_executions SET outputs_blob = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Write a batch of state snapshots
+     *
+     * @param snapshots the snapshots to write, at most one per task execution
+     * @return the snapshots whose row was not found (e.g. the insert is not yet committed)
+     */
+    public List<StateSnapshot> writeStates(List<StateSnapshot> snapshots) {
+        if (snapshots.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        int[] updateCounts = jdbcTemplate.batchUpdate(UPDATE_STATE_SQL, snapshots, snapshots.size(), (ps, snapshot) -> {
+            ps.setString(1, snapshot.status().name());
+            ps.setObject(2, toTimestamp(snapshot.startedAt()), Types.TIMESTAMP);
+            ps.setObject(3, toTimestamp(snapshot.completedAt()), Types.TIMESTAMP);
+            ps.setString(4, snapshot.errorMessage());
+            ps.setObject(5, snapshot.retryCount(), Types.INTEGER);
+            ps.setObject(6, toTimestamp(snapshot.nextRetryAt()), Types.TIMESTAMP);
+            ps.setLong(7, snapshot.id());
+        })[0];
+
+        List<StateSnapshot> missing = new ArrayList<>();
+        List<StateSnapshot> withOutputs = new ArrayList<>();
+        List<StateSnapshot> withCompactOutputs = new ArrayList<>();
+
+        for (int i = 0; i < snapshots.size(); i++) {
+            StateSnapshot snapshot = snapshots.get(i);
+            // Some drivers report SUCCESS_NO_INFO (-2) for batched statements, which counts as found
+            if (updateCounts[i] == 0) {
+                missing.add(snapshot);
+            } else if (snapshot.outputs() != null) {
+                if (snapshot.storageFormat() == StorageFormat.COMPACT) {
+                    withCompactOutputs.add(snapshot);
+                } else {
+                    withOutputs.add(snapshot);
+                }
+            }
+        }
+
+        writeOutputs(withOutputs);
+        writeCompactOutputs(withCompactOutputs);
+        return missing;
+    }
+
+    private void writeOutputs(List<StateSnapshot> snapshots) {
+        if (snapshots.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(DELETE_OUTPUTS_SQL, snapshots, snapshots.size(),
+                (ps, snapshot) -> ps.setLong(1, snapshot.id()));
+
+        List<Object[]> rows = new ArrayList<>();
+        for (StateSnapshot snapshot : snapshots) {
+            for (Map.Entry<String, String> output : snapshot.outputs().entrySet()) {
+                rows.add(new Object[]{snapshot.id(), output.getKey(), output.getValue()});
+            }
+        }
+
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_OUTPUT_SQL, rows,
+                    new int[]{Types.BIGINT, Types.VARCHAR, Types.VARCHAR});
+        }
+    }
+
+    private void writeCompactOutputs(List<StateSnapshot> snapshots) {
+        if (snapshots.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(UPDATE_COMPACT_OUTPUTS_SQL, snapshots, snapshots.size(), (ps, snapshot) -> {
+            ps.setBytes(1, CompactMapCodec.encode(snapshot.outputs()));
+            ps.setLong(2, snapshot.id());
+        });
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime dateTime) {
+        return dateTime != null ? Timestamp.valueOf(dateTime) : null;
+    }
+
+    /**
+     * Immutable copy of the mutable state of a task execution
+     *
+     * @param outputs the outputs to write, or null to leave stored outputs untouched
+     */
+    public record StateSnapshot(Long id,
+                                TaskStatus status,
+                                LocalDateTime startedAt,
+                                LocalDateTime completedAt,
+                                String errorMessage,
+                                Integer retryCount,
+                                LocalDateTime nextRetryAt,
+                                StorageFormat storageFormat,
+                                Map<String, String> outputs) {
+
+        /**
+         * Capture the state of a task execution
+         *
+         * @param taskExecution the task execution
+         * @param includeOutputs whether the outputs changed and must be written
+         * @return the snapshot
+         */
+        public static StateSnapshot of(TaskExecution taskExecution, boolean includeOutputs) {
+            return new StateSnapshot(
+                    taskExecution.getId(),
+                    taskExecution.getStatus(),
+                    taskExecution.getStartedAt(),
+                    taskExecution.getCompletedAt(),
+                    taskExecution.getErrorMessage(),
+                    taskExecution.getRetryCount(),
+                    taskExecution.getNextRetryAt(),
+                    taskExecution.getStorageFormat(),
+                    includeOutputs && taskExecution.getOutputs() != null
+                            ? Map.copyOf(withoutNullValues(taskExecution.getOutputs())) : null);
+        }
+
+        /**
+         * Keep outputs from an older snapshot when this one does not carry any
+         */
+        public StateSnapshot coalesce(StateSnapshot older) {
+            if (outputs != null || older == null || older.outputs() == null) {
+                return this;
+            }
+            return new StateSnapshot(id, status, startedAt, completedAt, errorMessage,
+                    retryCount, nextRetryAt, older.storageFormat(), older.outputs());
+        }
+
+        /**
+         * Apply this snapshot to a task execution loaded from the database
+         */
+        public void applyTo(TaskExecution taskExecution) {
+            taskExecution.setStatus(status);
+            taskExecution.setStartedAt(startedAt);
+            taskExecution.setCompletedAt(completedAt);
+            taskExecution.setErrorMessage(errorMessage);
+            taskExecution.setRetryCount(retryCount);
+            taskExecution.setNextRetryAt(nextRetryAt);
+            if (outputs != null) {
+                taskExecution.setOutputs(new HashMap<>(outputs));
+            }
+        }
+
+        private static Map<String, String> withoutNullValues(Map<String, String> map) {
+            // Map.copyOf rejects null values; a null output is stored the same as an absent one
+            Map<String, String> copy = new HashMap<>(map);
+            copy.values().removeIf(Objects::isNull);
+            return copy;
+        }
+    }
+}
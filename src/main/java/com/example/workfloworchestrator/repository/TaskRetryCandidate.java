@@ -0,0 +1,11 @@
+package com.example.workfloworchestrator.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of a task execution that is due for retry
+ * Carries only what the retry scan needs, so the scan does not load task definitions,
+ * inputs or outputs for every due row
+ */
+public record TaskRetryCandidate(Long id, Long workflowExecutionId, Integer retryCount, LocalDateTime nextRetryAt) {
+}
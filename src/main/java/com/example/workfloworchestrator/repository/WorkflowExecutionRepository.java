@@ -3,6 +3,7 @@ package com.example.workfloworchestrator.repository;
 import com.example.workfloworchestrator.model.WorkflowExecution;
 import com.example.workfloworchestrator.model.WorkflowStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -19,8 +20,16 @@ public interface WorkflowExecutionRepository extends JpaRepository<WorkflowExecu
 
     List<WorkflowExecution> findByWorkflowDefinitionId(Long workflowDefinitionId);
 
-    @Query("SELECT we FROM WorkflowExecution we WHERE we.status = :status AND we.startedAt < :before")
-    List<WorkflowExecution> findStuckExecutions(WorkflowStatus status, LocalDateTime before);
+    @Query("SELECT new com.example.workfloworchestrator.repository.WorkflowExecutionSummary(" +
+           "we.id, we.correlationId, we.status, we.startedAt, we.completedAt) " +
+           "FROM WorkflowExecution we WHERE we.status = :status AND we.startedAt < :before")
+    List<WorkflowExecutionSummary> findSummariesStartedBefore(WorkflowStatus status, LocalDateTime before);
 
     List<WorkflowExecution> findByStatusIn(List<WorkflowStatus> workflowStatuses);
+
+    List<WorkflowExecution> findByStatusInAndCompletedAtBefore(List<WorkflowStatus> workflowStatuses, LocalDateTime before);
+
+    @Modifying
+    @Query("UPDATE WorkflowExecution we SET we.currentTaskIndex = :currentTaskIndex WHERE we.id = :id")
+    int updateCurrentTaskIndex(Long id, Integer currentTaskIndex);
 }
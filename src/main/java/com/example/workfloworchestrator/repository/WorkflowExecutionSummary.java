@@ -0,0 +1,16 @@
+package com.example.workfloworchestrator.repository;
+
+import com.example.workfloworchestrator.model.WorkflowStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of the scalar state of a workflow execution, used by the scheduler scans
+ * instead of loading the definition, variables, task executions and review points
+ */
+public record WorkflowExecutionSummary(Long id,
+                                       String correlationId,
+                                       WorkflowStatus status,
+                                       LocalDateTime startedAt,
+                                       LocalDateTime completedAt) {
+}
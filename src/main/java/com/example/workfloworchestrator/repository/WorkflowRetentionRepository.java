@@ -0,0 +1,109 @@
+package com.example.workfloworchestrator.repository;
+
+import com.example.workfloworchestrator.model.WorkflowStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JDBC access for the workflow execution retention job
+ * Selects expired executions in keyset order and deletes them together with their child rows
+ * in a fixed number of bulk statements per batch, instead of loading and cascading entity by entity
+ */
+@Repository
+@RequiredArgsConstructor
+public class WorkflowRetentionRepository {
+
+    private static final List<WorkflowStatus> TERMINAL_STATUSES =
+            List.of(WorkflowStatus.COMPLETED, WorkflowStatus.FAILED, WorkflowStatus.CANCELLED);
+
+    private static final String EXPIRED_PREDICATE =
+            "status IN (?, ?, ?) AND completed_at < ?";
+
+    private static final String SELECT_EXPIRED_IDS_SQL =
+            "SELECT id FROM workflow_executions WHERE " + EXPIRED_PREDICATE + " AND id > ? ORDER BY id LIMIT ?";
+
+    private static final String TASK_EXECUTION_IDS_SQL =
+            "SELECT id FROM task_executions WHERE workflow_execution_id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Find the next batch of expired workflow execution IDs
+     *
+     * @param completedBefore the retention threshold
+     * @param afterId only IDs greater than this are returned (0 for the first batch)
+     * @param limit the maximum number of IDs
+     * @return the IDs in ascending order
+     */
+    public List<Long> findExpiredIds(LocalDateTime completedBefore, long afterId, int limit) {
+        List<Object> args = expiredArgs(completedBefore);
+        args.add(afterId);
+        args.add(limit);
+        return jdbcTemplate.queryForList(SELECT_EXPIRED_IDS_SQL, Long.class, args.toArray());
+    }
+
+    /**
+     * Delete a batch of workflow executions and all their child rows
+     * The executions are re-checked and locked first, so one that left its terminal state
+     * since it was selected is kept. Must be called in a transaction.
+     *
+     * @param ids the workflow execution IDs
+     * @param completedBefore the retention threshold the IDs were selected with
+     * @return the number of rows deleted
+     */
+    public DeletedRows deleteExpired(List<Long> ids, LocalDateTime completedBefore) {
+        if (ids.isEmpty()) {
+            return DeletedRows.NONE;
+        }
+
+        List<Object> lockArgs = expiredArgs(completedBefore);
+        lockArgs.addAll(ids);
+        List<Long> expiredIds = jdbcTemplate.queryForList(
+                "SELECT id FROM workflow_executions WHERE " + EXPIRED_PREDICATE +
+                        " AND id IN (" + placeholders(ids.size()) + ") FOR UPDATE",
+                Long.class, lockArgs.toArray());
+
+        if (expiredIds.isEmpty()) {
+            return DeletedRows.NONE;
+        }
+
+        String in = placeholders(expiredIds.size());
+        String taskExecutionIds = String.format(TASK_EXECUTION_IDS_SQL, in);
+        Object[] args = expiredIds.toArray();
+
+        jdbcTemplate.update("DELETE FROM task_execution_inputs WHERE task_execution_id IN (" + taskExecutionIds + ")", args);
+        jdbcTemplate.update("DELETE FROM task_execution_outputs WHERE task_execution_id IN (" + taskExecutionIds + ")", args);
+        jdbcTemplate.update("DELETE FROM user_review_points WHERE workflow_execution_id IN (" + in + ")", args);
+        int taskExecutions = jdbcTemplate.update("DELETE FROM task_executions WHERE workflow_execution_id IN (" + in + ")", args);
+        jdbcTemplate.update("DELETE FROM workflow_execution_variables WHERE workflow_execution_id IN (" + in + ")", args);
+        int workflowExecutions = jdbcTemplate.update("DELETE FROM workflow_executions WHERE id IN (" + in + ")", args);
+
+        return new DeletedRows(workflowExecutions, taskExecutions);
+    }
+
+    private static List<Object> expiredArgs(LocalDateTime completedBefore) {
+        List<Object> args = new ArrayList<>();
+        TERMINAL_STATUSES.forEach(status -> args.add(status.name()));
+        args.add(Timestamp.valueOf(completedBefore));
+        return args;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * Rows removed by one retention batch
+     */
+    public record DeletedRows(int workflowExecutions, int taskExecutions) {
+
+        public static final DeletedRows NONE = new DeletedRows(0, 0);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.workfloworchestrator.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * JDBC access to the persisted per-workflow retry budgets
+ * Failures are counted with a single UPDATE, so increments from several nodes add up instead of
+ * overwriting each other. Counting runs in its own transaction: a failed insert aborts the
+ * transaction on PostgreSQL, and must not take the caller's transaction down with it.
+ */
+@Repository
+@RequiredArgsConstructor
+public class WorkflowRetryBudgetRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Count one more failure against an existing budget
+     * A budget whose last failure is older than expiredBefore starts over at one failure.
+     *
+     * @param workflowExecutionId the workflow execution ID
+     * @param now the time of the failure
+     * @param expiredBefore the expiry threshold
+     * @return the failure count including this failure, 0 if the workflow has no budget yet
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int incrementFailures(Long workflowExecutionId, LocalDateTime now, LocalDateTime expiredBefore) {
+        int updated = jdbcTemplate.update(
+                "UPDATE workflow_retry_budgets " +
+                        "SET failure_count = CASE WHEN updated_at < ? THEN 1 ELSE failure_count + 1 END, updated_at = ? " +
+                        "WHERE workflow_execution_id = ?",
+                Timestamp.valueOf(expiredBefore), Timestamp.valueOf(now), workflowExecutionId);
+        if (updated == 0) {
+            return 0;
+        }
+
+        // The row stays locked by the update until commit, so this reads our own increment
+        Integer failures = jdbcTemplate.queryForObject(
+                "SELECT failure_count FROM workflow_retry_budgets WHERE workflow_execution_id = ?",
+                Integer.class, workflowExecutionId);
+        return failures != null ? failures : 0;
+    }
+
+    /**
+     * Create the budget of a workflow execution with its first failure
+     *
+     * @param workflowExecutionId the workflow execution ID
+     * @param now the time of the failure
+     * @throws org.springframework.dao.DuplicateKeyException if another node created it first
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void insertFirstFailure(Long workflowExecutionId, LocalDateTime now) {
+        jdbcTemplate.update(
+                "INSERT INTO workflow_retry_budgets (workflow_execution_id, failure_count, updated_at) VALUES (?, 1, ?)",
+                workflowExecutionId, Timestamp.valueOf(now));
+    }
+
+    public void delete(Long workflowExecutionId) {
+        jdbcTemplate.update("DELETE FROM workflow_retry_budgets WHERE workflow_execution_id = ?", workflowExecutionId);
+    }
+
+    /**
+     * Delete budgets whose last failure is older than a threshold
+     *
+     * @param updatedBefore the expiry threshold
+     * @return the number of budgets deleted
+     */
+    public int deleteUpdatedBefore(LocalDateTime updatedBefore) {
+        return jdbcTemplate.update("DELETE FROM workflow_retry_budgets WHERE updated_at < ?", Timestamp.valueOf(updatedBefore));
+    }
+}
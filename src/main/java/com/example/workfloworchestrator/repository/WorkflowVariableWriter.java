@@ -0,0 +1,77 @@
+package com.example.workfloworchestrator.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC writer for workflow execution variables
+ * Writes only the keys that changed instead of rewriting the whole variables collection
+ */
+@Repository
+@RequiredArgsConstructor
+public class WorkflowVariableWriter {
+
+    private static final String UPDATE_VARIABLE_SQL =
+            "UPDATE workflow_execution_variables SET variable_value = ? " +
+            "WHERE workflow_execution_id = ? AND variable_key = ?";
+
+    private static final String INSERT_VARIABLE_SQL =
+            "INSERT INTO workflow_execution_variables (workflow_execution_id, variable_key, variable_value) " +
+            "VALUES (?, ?, ?)";
+
+    private static final String DELETE_VARIABLE_SQL =
+            "DELETE FROM workflow_execution_variables WHERE workflow_execution_id = ? AND variable_key = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Write changed variables of a workflow execution
+     * Existing keys are updated, missing keys are inserted and null values are deleted
+     *
+     * @param workflowExecutionId the workflow execution ID
+     * @param changedVariables the new or changed variables
+     */
+    public void writeVariables(Long workflowExecutionId, Map<String, String> changedVariables) {
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+
+        for (Map.Entry<String, String> entry : changedVariables.entrySet()) {
+            if (entry.getValue() == null) {
+                deletes.add(new Object[]{workflowExecutionId, entry.getKey()});
+            } else {
+                updates.add(new Object[]{entry.getValue(), workflowExecutionId, entry.getKey()});
+            }
+        }
+
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_VARIABLE_SQL, deletes, new int[]{Types.BIGINT, Types.VARCHAR});
+        }
+
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        int[] updateCounts = jdbcTemplate.batchUpdate(UPDATE_VARIABLE_SQL, updates,
+                new int[]{Types.VARCHAR, Types.BIGINT, Types.VARCHAR});
+
+        // Keys that did not exist yet become inserts
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < updates.size(); i++) {
+            if (updateCounts[i] == 0) {
+                Object[] update = updates.get(i);
+                inserts.add(new Object[]{update[1], update[2], update[0]});
+            }
+        }
+
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_VARIABLE_SQL, inserts,
+                    new int[]{Types.BIGINT, Types.VARCHAR, Types.VARCHAR});
+        }
+    }
+}
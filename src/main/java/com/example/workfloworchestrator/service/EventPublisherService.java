@@ -1,20 +1,26 @@
 package com.example.workfloworchestrator.service;
 
 import com.example.workfloworchestrator.event.*;
+import com.example.workfloworchestrator.event.outbox.ExternalEventPublisher;
 import com.example.workfloworchestrator.model.TaskExecution;
 import com.example.workfloworchestrator.model.UserReviewPoint;
 import com.example.workfloworchestrator.model.WorkflowExecution;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.Level;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-
-import java.time.LocalDateTime;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * Service for publishing workflow and task related events
  * Can be used for monitoring, auditing, and integration with external systems
+ *
+ * Events of a type no listener or external destination receives are not built at all, and
+ * log arguments are only evaluated when the configured log level is enabled, so transitions
+ * nobody observes cost a few flag checks.
  */
 @Slf4j
 @Service
@@ -22,6 +28,8 @@ import java.time.LocalDateTime;
 public class EventPublisherService {
 
     private final ApplicationEventPublisher eventPublisher;
+    private final EventSubscriptions eventSubscriptions;
+    private final ExternalEventPublisher externalEventPublisher;
 
     @Value("${workflow.events.enabled:true}")
     private boolean eventsEnabled;
@@ -29,22 +37,38 @@ public class EventPublisherService {
     @Value("${workflow.events.log-level:INFO}")
     private String logLevel;
 
+    private Level eventLogLevel = Level.INFO;
+
+    @PostConstruct
+    void resolveLogLevel() {
+        try {
+            eventLogLevel = Level.valueOf(logLevel.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown event log level {}, using INFO", logLevel);
+            eventLogLevel = Level.INFO;
+        }
+    }
+
     /**
      * Publish a workflow created event
      */
     public void publishWorkflowCreatedEvent(WorkflowExecution workflowExecution) {
         if (!eventsEnabled) return;
 
-        logEvent("Workflow created: {}, definition: {}, version: {}",
-                workflowExecution.getId(),
-                workflowExecution.getWorkflowDefinition().getName(),
-                workflowExecution.getWorkflowDefinition().getVersion());
+        if (isLogEnabled()) {
+            logEvent("Workflow created: {}, definition: {}, version: {}",
+                    workflowExecution.getId(),
+                    workflowExecution.getWorkflowDefinition().getName(),
+                    workflowExecution.getWorkflowDefinition().getVersion());
+        }
+
+        if (!hasSubscribers(WorkflowEvent.class)) return;
 
         WorkflowEvent event = createWorkflowEvent(
                 workflowExecution,
                 WorkflowEventType.CREATED);
 
-        eventPublisher.publishEvent(event);
+        publish(event);
     }
 
     /**
@@ -53,13 +77,17 @@ public class EventPublisherService {
     public void publishWorkflowStartedEvent(WorkflowExecution workflowExecution) {
         if (!eventsEnabled) return;
 
-        logEvent("Workflow started: {}", workflowExecution.getId());
+        if (isLogEnabled()) {
+            logEvent("Workflow started: {}", workflowExecution.getId());
+        }
+
+        if (!hasSubscribers(WorkflowEvent.class)) return;
 
         WorkflowEvent event = createWorkflowEvent(
                 workflowExecution,
                 WorkflowEventType.STARTED);
 
-        eventPublisher.publishEvent(event);
+        publish(event);
     }
 
     /**
@@ -68,13 +96,17 @@ public class EventPublisherService {
     public void publishWorkflowCompletedEvent(WorkflowExecution workflowExecution) {
         if (!eventsEnabled) return;
 
-        logEvent("Workflow completed: {}", workflowExecution.getId());
+        if (isLogEnabled()) {
+            logEvent("Workflow completed: {}", workflowExecution.getId());
+        }
+
+        if (!hasSubscribers(WorkflowEvent.class)) return;
 
         WorkflowEvent event = createWorkflowEvent(
                 workflowExecution,
                 WorkflowEventType.COMPLETED);
 
-        eventPublisher.publishEvent(event);
+        publish(event);
     }
 
     /**
@@ -83,9 +115,13 @@ public class EventPublisherService {
     public void publishWorkflowFailedEvent(WorkflowExecution workflowExecution) {
         if (!eventsEnabled) return;
 
-        logEvent("Workflow failed: {}, error: {}",
-                workflowExecution.getId(),
-                workflowExecution.getErrorMessage());
+        if (isLogEnabled()) {
+            logEvent("Workflow failed: {}, error: {}",
+                    workflowExecution.getId(),
+                    workflowExecution.getErrorMessage());
+        }
+
+        if (!hasSubscribers(WorkflowEvent.class)) return;
 
         WorkflowEvent event = createWorkflowEvent(
                 workflowExecution,
@@ -93,7 +129,7 @@ public class EventPublisherService {
 
         event.setErrorMessage(workflowExecution.getErrorMessage());
 
-        eventPublisher.publishEvent(event);
+        publish(event);
     }
 
     /**
@@ -102,9 +138,13 @@ public class EventPublisherService {
     public void publishWorkflowStatusChangedEvent(WorkflowExecution workflowExecution) {
         if (!eventsEnabled) return;
 
-        logEvent("Workflow status changed: {}, status: {}",
-                workflowExecution.getId(),
-                workflowExecution.getStatus());
+        if (isLogEnabled()) {
+            logEvent("Workflow status changed: {}, status: {}",
+                    workflowExecution.getId(),
+                    workflowExecution.getStatus());
+        }
+
+        if (!hasSubscribers(WorkflowEvent.class)) return;
 
         WorkflowEvent event = createWorkflowEvent(
                 workflowExecution,
@@ -112,7 +152,7 @@ public class EventPublisherService {
 
         event.addProperty("status", workflowExecution.getStatus().name());
 
-        eventPublisher.publishEvent(event);
+        publish(event);
     }
 
     /**
@@ -121,13 +161,17 @@ public class EventPublisherService {
     public void publishWorkflowPausedEvent(WorkflowExecution workflowExecution) {
         if (!eventsEnabled) return;
 
-        logEvent("Workflow paused: {}", workflowExecution.getId());
+        if (isLogEnabled()) {
+            logEvent("Workflow paused: {}", workflowExecution.getId());
+        }
+
+        if (!hasSubscribers(WorkflowEvent.class)) return;
 
         WorkflowEvent event = createWorkflowEvent(
                 workflowExecution,
                 WorkflowEventType.PAUSED);
 
-        eventPublisher.publishEvent(event);
+        publish(event);
     }
 
     /**
@@ -136,13 +180,17 @@ public class EventPublisherService {
     public void publishWorkflowResumedEvent(WorkflowExecution workflowExecution) {
         if (!eventsEnabled) return;
 
-        logEvent("Workflow resumed: {}", workflowExecution.getId());
+        if (isLogEnabled()) {
+            logEvent("Workflow resumed: {}", workflowExecution.getId());
+        }
+
+        if (!hasSubscribers(WorkflowEvent.class)) return;
 
         WorkflowEvent event = createWorkflowEvent(
                 workflowExecution,
                 WorkflowEventType.RESUMED);
 
-        eventPublisher.publishEvent(event);
+        publish(event);
     }
 
     /**
@@ -151,13 +199,17 @@ public class EventPublisherService {
     public void publishWorkflowCancelledEvent(WorkflowExecution workflowExecution) {
         if (!eventsEnabled) return;
 
-        logEvent("Workflow cancelled: {}", workflowExecution.getId());
+        if (isLogEnabled()) {
+            logEvent("Workflow cancelled: {}", workflowExecution.getId());
+        }
+
+        if (!hasSubscribers(WorkflowEvent.class)) return;
 
         WorkflowEvent event = createWorkflowEvent(
                 workflowExecution,
                 WorkflowEventType.CANCELLED);
 
-        eventPublisher.publishEvent(event);
+        publish(event);
     }
 
     /**
@@ -166,9 +218,13 @@ public class EventPublisherService {
     public void publishWorkflowRetryEvent(WorkflowExecution workflowExecution) {
         if (!eventsEnabled) return;
 
-        logEvent("Workflow retry: {}, attempt: {}",
-                workflowExecution.getId(),
-                workflowExecution.getRetryCount());
+        if (isLogEnabled()) {
+            logEvent("Workflow retry: {}, attempt: {}",
+                    workflowExecution.getId(),
+                    workflowExecution.getRetryCount());
+        }
+
+        if (!hasSubscribers(WorkflowEvent.class)) return;
 
         WorkflowEvent event = createWorkflowEvent(
                 workflowExecution,
@@ -176,7 +232,7 @@ public class EventPublisherService {
 
         event.addProperty("retryCount", workflowExecution.getRetryCount().toString());
 
-        eventPublisher.publishEvent(event);
+        publish(event);
     }
 
     /**
@@ -185,17 +241,21 @@ public class EventPublisherService {
     public void publishTaskCreatedEvent(WorkflowExecution workflowExecution, TaskExecution taskExecution) {
         if (!eventsEnabled) return;
 
-        logEvent("Task created: {}, workflow: {}, type: {}",
-                taskExecution.getId(),
-                workflowExecution.getId(),
-                taskExecution.getTaskDefinition().getType());
+        if (isLogEnabled()) {
+            logEvent("Task created: {}, workflow: {}, type: {}",
+                    taskExecution.getId(),
+                    workflowExecution.getId(),
+                    taskExecution.getTaskDefinition().getType());
+        }
+
+        if (!hasSubscribers(TaskEvent.class)) return;
 
         TaskEvent event = createTaskEvent(
                 workflowExecution,
                 taskExecution,
                 TaskEventType.CREATED);
 
-        eventPublisher.publishEvent(event);
+        publish(event);
     }
 
     /**
@@ -204,16 +264,20 @@ public class EventPublisherService {
     public void publishTaskStartedEvent(TaskExecution taskExecution) {
         if (!eventsEnabled) return;
 
-        logEvent("Task started: {}, type: {}",
-                taskExecution.getId(),
-                taskExecution.getTaskDefinition().getType());
+        if (isLogEnabled()) {
+            logEvent("Task started: {}, type: {}",
+                    taskExecution.getId(),
+                    taskExecution.getTaskDefinition().getType());
+        }
+
+        if (!hasSubscribers(TaskEvent.class)) return;
 
         TaskEvent event = createTaskEvent(
                 taskExecution.getWorkflowExecutionId(),
                 taskExecution,
                 TaskEventType.STARTED);
 
-        eventPublisher.publishEvent(event);
+        publish(event);
     }
 
     /**
@@ -222,9 +286,13 @@ public class EventPublisherService {
     public void publishTaskCompletedEvent(TaskExecution taskExecution) {
         if (!eventsEnabled) return;
 
-        logEvent("Task completed: {}, type: {}",
-                taskExecution.getId(),
-                taskExecution.getTaskDefinition().getType());
+        if (isLogEnabled()) {
+            logEvent("Task completed: {}, type: {}",
+                    taskExecution.getId(),
+                    taskExecution.getTaskDefinition().getType());
+        }
+
+        if (!hasSubscribers(TaskEvent.class)) return;
 
         TaskEvent event = createTaskEvent(
                 taskExecution.getWorkflowExecutionId(),
@@ -236,7 +304,7 @@ public class EventPublisherService {
             event.addProperty("outputKeys", String.join(",", taskExecution.getOutputs().keySet()));
         }
 
-        eventPublisher.publishEvent(event);
+        publish(event);
     }
 
     /**
@@ -245,10 +313,14 @@ public class EventPublisherService {
     public void publishTaskFailedEvent(TaskExecution taskExecution) {
         if (!eventsEnabled) return;
 
-        logEvent("Task failed: {}, type: {}, error: {}",
-                taskExecution.getId(),
-                taskExecution.getTaskDefinition().getType(),
-                taskExecution.getErrorMessage());
+        if (isLogEnabled()) {
+            logEvent("Task failed: {}, type: {}, error: {}",
+                    taskExecution.getId(),
+                    taskExecution.getTaskDefinition().getType(),
+                    taskExecution.getErrorMessage());
+        }
+
+        if (!hasSubscribers(TaskEvent.class)) return;
 
         TaskEvent event = createTaskEvent(
                 taskExecution.getWorkflowExecutionId(),
@@ -257,7 +329,7 @@ public class EventPublisherService {
 
         event.setErrorMessage(taskExecution.getErrorMessage());
 
-        eventPublisher.publishEvent(event);
+        publish(event);
     }
 
     /**
@@ -266,16 +338,20 @@ public class EventPublisherService {
     public void publishTaskSkippedEvent(TaskExecution taskExecution) {
         if (!eventsEnabled) return;
 
-        logEvent("Task skipped: {}, type: {}",
-                taskExecution.getId(),
-                taskExecution.getTaskDefinition().getType());
+        if (isLogEnabled()) {
+            logEvent("Task skipped: {}, type: {}",
+                    taskExecution.getId(),
+                    taskExecution.getTaskDefinition().getType());
+        }
+
+        if (!hasSubscribers(TaskEvent.class)) return;
 
         TaskEvent event = createTaskEvent(
                 taskExecution.getWorkflowExecutionId(),
                 taskExecution,
                 TaskEventType.SKIPPED);
 
-        eventPublisher.publishEvent(event);
+        publish(event);
     }
 
     /**
@@ -284,11 +360,15 @@ public class EventPublisherService {
     public void publishTaskRetryScheduledEvent(TaskExecution taskExecution) {
         if (!eventsEnabled) return;
 
-        logEvent("Task retry scheduled: {}, type: {}, attempt: {}, nextRetry: {}",
-                taskExecution.getId(),
-                taskExecution.getTaskDefinition().getType(),
-                taskExecution.getRetryCount(),
-                taskExecution.getNextRetryAt());
+        if (isLogEnabled()) {
+            logEvent("Task retry scheduled: {}, type: {}, attempt: {}, nextRetry: {}",
+                    taskExecution.getId(),
+                    taskExecution.getTaskDefinition().getType(),
+                    taskExecution.getRetryCount(),
+                    taskExecution.getNextRetryAt());
+        }
+
+        if (!hasSubscribers(TaskEvent.class)) return;
 
         TaskEvent event = createTaskEvent(
                 taskExecution.getWorkflowExecutionId(),
@@ -298,7 +378,7 @@ public class EventPublisherService {
         event.addProperty("retryCount", taskExecution.getRetryCount().toString());
         event.addProperty("nextRetryAt", taskExecution.getNextRetryAt().toString());
 
-        eventPublisher.publishEvent(event);
+        publish(event);
     }
 
     /**
@@ -307,17 +387,21 @@ public class EventPublisherService {
     public void publishUserReviewRequestedEvent(WorkflowExecution workflowExecution, UserReviewPoint reviewPoint) {
         if (!eventsEnabled) return;
 
-        logEvent("User review requested: {}, workflow: {}, task: {}",
-                reviewPoint.getId(),
-                workflowExecution.getId(),
-                reviewPoint.getTaskExecutionId());
+        if (isLogEnabled()) {
+            logEvent("User review requested: {}, workflow: {}, task: {}",
+                    reviewPoint.getId(),
+                    workflowExecution.getId(),
+                    reviewPoint.getTaskExecutionId());
+        }
+
+        if (!hasSubscribers(UserReviewEvent.class)) return;
 
         UserReviewEvent event = createUserReviewEvent(
                 workflowExecution,
                 reviewPoint,
                 UserReviewEventType.REQUESTED);
 
-        eventPublisher.publishEvent(event);
+        publish(event);
     }
 
     /**
@@ -326,12 +410,16 @@ public class EventPublisherService {
     public void publishUserReviewCompletedEvent(WorkflowExecution workflowExecution, UserReviewPoint reviewPoint) {
         if (!eventsEnabled) return;
 
-        logEvent("User review completed: {}, workflow: {}, task: {}, decision: {}, reviewer: {}",
-                reviewPoint.getId(),
-                workflowExecution.getId(),
-                reviewPoint.getTaskExecutionId(),
-                reviewPoint.getDecision(),
-                reviewPoint.getReviewer());
+        if (isLogEnabled()) {
+            logEvent("User review completed: {}, workflow: {}, task: {}, decision: {}, reviewer: {}",
+                    reviewPoint.getId(),
+                    workflowExecution.getId(),
+                    reviewPoint.getTaskExecutionId(),
+                    reviewPoint.getDecision(),
+                    reviewPoint.getReviewer());
+        }
+
+        if (!hasSubscribers(UserReviewEvent.class)) return;
 
         UserReviewEvent event = createUserReviewEvent(
                 workflowExecution,
@@ -341,7 +429,7 @@ public class EventPublisherService {
         event.addProperty("decision", reviewPoint.getDecision().name());
         event.addProperty("reviewer", reviewPoint.getReviewer());
 
-        eventPublisher.publishEvent(event);
+        publish(event);
     }
 
     /**
@@ -351,7 +439,6 @@ public class EventPublisherService {
         WorkflowEvent event = new WorkflowEvent(this);
 
         event.setEventType(eventType);
-        event.setTimestamp(LocalDateTime.now());
         event.setWorkflowExecutionId(workflowExecution.getId());
         event.setWorkflowDefinitionId(workflowExecution.getWorkflowDefinition().getId());
         event.setWorkflowName(workflowExecution.getWorkflowDefinition().getName());
@@ -371,7 +458,6 @@ public class EventPublisherService {
         TaskEvent event = new TaskEvent(this);
 
         event.setEventType(eventType);
-        event.setTimestamp(LocalDateTime.now());
         event.setWorkflowExecutionId(workflowExecution.getId());
         event.setWorkflowDefinitionId(workflowExecution.getWorkflowDefinition().getId());
         event.setWorkflowName(workflowExecution.getWorkflowDefinition().getName());
@@ -395,7 +481,6 @@ public class EventPublisherService {
         TaskEvent event = new TaskEvent(this);
 
         event.setEventType(eventType);
-        event.setTimestamp(LocalDateTime.now());
         event.setWorkflowExecutionId(workflowExecutionId);
         event.setTaskExecutionId(taskExecution.getId());
         event.setTaskDefinitionId(taskExecution.getTaskDefinition().getId());
@@ -415,7 +500,6 @@ public class EventPublisherService {
         UserReviewEvent event = new UserReviewEvent(this);
 
         event.setEventType(eventType);
-        event.setTimestamp(LocalDateTime.now());
         event.setWorkflowExecutionId(workflowExecution.getId());
         event.setWorkflowDefinitionId(workflowExecution.getWorkflowDefinition().getId());
         event.setWorkflowName(workflowExecution.getWorkflowDefinition().getName());
@@ -435,26 +519,46 @@ public class EventPublisherService {
         return event;
     }
 
+    /**
+     * Record an event for external systems and hand it to the event pipeline
+     * Inside a transaction the outbox write joins it and a failure of it is thrown, so the
+     * transition does not commit without its event. Without one there is nothing to keep atomic,
+     * so a failed outbox write is logged like a failure to reach local listeners, for which events
+     * are side information; neither is allowed to fail the workflow transition that raised it.
+     */
+    private void publish(BaseEvent event) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            externalEventPublisher.publishEvent(event);
+        } else {
+            try {
+                externalEventPublisher.publishEvent(event);
+            } catch (RuntimeException e) {
+                log.error("Failed to write {} event {} to the outbox", event.getEventTypeString(), event.getEventId(), e);
+            }
+        }
+
+        if (!eventSubscriptions.hasListeners(event.getClass())) {
+            return;
+        }
+        try {
+            eventPublisher.publishEvent(event);
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish {} event", event.getEventTypeString(), e);
+        }
+    }
+
+    private boolean hasSubscribers(Class<? extends BaseEvent> eventClass) {
+        return externalEventPublisher.isEnabled() || eventSubscriptions.hasListeners(eventClass);
+    }
+
+    private boolean isLogEnabled() {
+        return log.isEnabledForLevel(eventLogLevel);
+    }
+
     /**
      * Log an event message with the configured log level
      */
     private void logEvent(String message, Object... args) {
-        switch (logLevel.toUpperCase()) {
-            case "TRACE":
-                log.trace(message, args);
-                break;
-            case "DEBUG":
-                log.debug(message, args);
-                break;
-            case "WARN":
-                log.warn(message, args);
-                break;
-            case "ERROR":
-                log.error(message, args);
-                break;
-            case "INFO":
-            default:
-                log.info(message, args);
-        }
+        log.atLevel(eventLogLevel).log(message, args);
     }
 }
@@ -1,23 +1,37 @@
 package com.example.workfloworchestrator.service;
 
+import com.example.workfloworchestrator.engine.cancellation.CancellationRegistry;
+import com.example.workfloworchestrator.engine.cancellation.CancellationToken;
+import com.example.workfloworchestrator.engine.cancellation.ExecutionDeadlines;
+import com.example.workfloworchestrator.engine.executor.TaskExecutionBackend;
 import com.example.workfloworchestrator.engine.executor.TaskExecutor;
+import com.example.workfloworchestrator.engine.scheduler.RetryTimer;
 import com.example.workfloworchestrator.exception.TaskExecutionException;
 import com.example.workfloworchestrator.messaging.RabbitMQSender;
 import com.example.workfloworchestrator.messaging.TaskMessage;
 import com.example.workfloworchestrator.model.*;
 import com.example.workfloworchestrator.repository.TaskExecutionRepository;
+import com.example.workfloworchestrator.repository.TaskRetryCandidate;
 import com.example.workfloworchestrator.util.RetryUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Service for managing task executions
@@ -33,6 +47,32 @@ public class TaskExecutionService {
     private final RabbitMQSender rabbitMQSender;
     private final EventPublisherService eventPublisherService;
     private final RetryUtil retryUtil;
+    private final TaskExecutionBackend taskExecutionBackend;
+    private final TaskExecutionStateStore taskExecutionStateStore;
+    private final CancellationRegistry cancellationRegistry;
+    private final ExecutionDeadlines executionDeadlines;
+    private final TransactionTemplate transactionTemplate;
+    private RetryTimer retryTimer;
+
+    // Statuses a task can still leave through cancellation
+    private static final Set<TaskStatus> CANCELLABLE_STATUSES =
+            EnumSet.of(TaskStatus.PENDING, TaskStatus.RUNNING, TaskStatus.AWAITING_RETRY);
+
+    @Value("${workflow.task.persistence.storage-format:ROWS}")
+    private StorageFormat storageFormat = StorageFormat.ROWS;
+
+    @Value("${workflow.scheduler.retry-batch-size:500}")
+    private int retryBatchSize = 500;
+
+    /**
+     * Setter for RetryTimer - used to break circular dependency
+     *
+     * @param retryTimer the retry timer
+     */
+    @Autowired
+    public void setRetryTimer(@Lazy RetryTimer retryTimer) {
+        this.retryTimer = retryTimer;
+    }
 
     /**
      * Create a new task execution for a workflow
@@ -49,6 +89,8 @@ public class TaskExecutionService {
         taskExecution.setTaskDefinition(taskDefinition);
         taskExecution.setStatus(TaskStatus.PENDING);
         taskExecution.setExecutionMode(taskDefinition.getExecutionMode());
+        // Set before the inputs so they go straight into the chosen representation
+        taskExecution.setStorageFormat(storageFormat);
         taskExecution.setInputs(inputs);
         taskExecution.setRetryCount(0);
         taskExecution.setWorkflowExecutionId(workflowExecution.getId());
@@ -70,12 +112,16 @@ public class TaskExecutionService {
     @Transactional
     public CompletableFuture<TaskExecution> executeTask(Long taskExecutionId) {
         TaskExecution taskExecution = getTaskExecution(taskExecutionId);
-        TaskDefinition taskDefinition = taskExecution.getTaskDefinition();
+
+        CancellationToken workflowToken = cancellationRegistry.tokenFor(taskExecution.getWorkflowExecutionId());
+        if (workflowToken.isCancelled()) {
+            return CompletableFuture.completedFuture(cancelTaskExecution(taskExecutionId));
+        }
 
         // Update status to RUNNING
         taskExecution.setStatus(TaskStatus.RUNNING);
         taskExecution.setStartedAt(LocalDateTime.now());
-        taskExecutionRepository.save(taskExecution);
+        taskExecutionStateStore.save(taskExecution);
 
         // Publish event for task started
         eventPublisherService.publishTaskStartedEvent(taskExecution);
@@ -86,47 +132,95 @@ public class TaskExecutionService {
             return executeTaskViaRabbitMQ(taskExecution);
         } else {
             // Execute via API directly
-            return executeTaskViaAPI(taskExecution);
+            return executeTaskViaAPI(taskExecution, workflowToken);
         }
     }
 
     /**
      * Execute a task via API call
+     * Cancelling the workflow aborts the call: the pending response or the worker running a
+     * blocking executor is cancelled, and hooks registered by the executor (e.g. HTTP request abort) run.
+     * A task that runs past its timeout is aborted the same way but recorded as failed, so it is retried.
      *
      * @param taskExecution the task execution to process
+     * @param workflowToken the cancellation token of the workflow run
      * @return CompletableFuture with the task execution result
      */
-    private CompletableFuture<TaskExecution> executeTaskViaAPI(TaskExecution taskExecution) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String taskType = taskExecution.getTaskDefinition().getType();
-                TaskExecutor executor = getTaskExecutor(taskType);
+    private CompletableFuture<TaskExecution> executeTaskViaAPI(TaskExecution taskExecution, CancellationToken workflowToken) {
+        TaskDefinition taskDefinition = taskExecution.getTaskDefinition();
+        String taskType = taskDefinition.getType();
+        TaskExecutor asyncExecutor = taskExecutors.get(taskType);
+        CancellationToken cancellation = executionDeadlines.newTaskToken(workflowToken, taskDefinition);
+
+        CompletableFuture<Map<String, Object>> response;
+        if (asyncExecutor != null && asyncExecutor.supportsAsyncExecution()) {
+            // The executor completes its own future, so no thread waits for the response;
+            // the task type's execution slot is held until it does
+            response = taskExecutionBackend.submitAsync(taskType, () -> {
+                CancellationToken.Registration binding = cancellation.bind();
+                try {
+                    return asyncExecutor.executeAsync(taskDefinition, createExecutionContext(taskExecution));
+                } finally {
+                    binding.close();
+                }
+            });
+        } else {
+            // Executors block on I/O, so run them on the task execution backend rather than the common pool;
+            // completing the future early interrupts the worker
+            response = taskExecutionBackend.submit(taskType, () -> {
+                CancellationToken.Registration binding = cancellation.bind();
+                try {
+                    return getTaskExecutor(taskType).execute(taskDefinition, createExecutionContext(taskExecution));
+                } finally {
+                    binding.close();
+                }
+            });
+        }
+        cancellation.onCancel(() -> {
+            // A task cancelled as FAILED on its own ran past its deadline, which fails the response itself
+            if (workflowToken.isCancelled() || cancellation.getCancelledAs() != WorkflowStatus.FAILED) {
+                response.cancel(false);
+            }
+        });
+        executionDeadlines.enforce(taskDefinition, response, cancellation);
+
+        // Whichever completes the response first, the executor, a cancellation or the timeout, decides
+        // the outcome; recording it hops back onto the task execution backend. The outcome and its
+        // events are written in one transaction, so a failure to record them leaves the task as it was
+        return response.handleAsync((result, throwable) -> {
+            cancellation.close();
+            return transactionTemplate.execute(status -> throwable != null
+                    ? handleTaskExecutionError(taskExecution, unwrapException(throwable), workflowToken)
+                    : recordTaskResult(taskExecution, result));
+        }, taskExecutionBackend.getExecutor());
+    }
 
-                // Create execution context
-                ExecutionContext context = new ExecutionContext();
-                taskExecution.getInputs().forEach(context::setVariable);
+    private ExecutionContext createExecutionContext(TaskExecution taskExecution) {
+        // Shares the inputs when they are already a persistent snapshot
+        return ExecutionContext.of(taskExecution.getInputs());
+    }
 
-                // Execute task
-                Map<String, Object> result = executor.execute(taskExecution.getTaskDefinition(), context);
+    private TaskExecution recordTaskResult(TaskExecution taskExecution, Map<String, Object> result) {
+        // Update task execution with results
+        taskExecution.setStatus(TaskStatus.COMPLETED);
+        taskExecution.setCompletedAt(LocalDateTime.now());
 
-                // Update task execution with results
-                taskExecution.setStatus(TaskStatus.COMPLETED);
-                taskExecution.setCompletedAt(LocalDateTime.now());
+        // Convert result values to string for storage
+        Map<String, String> outputs = convertResultToStringMap(result);
+        taskExecution.setOutputs(outputs);
 
-                // Convert result values to string for storage
-                Map<String, String> outputs = convertResultToStringMap(result);
-                taskExecution.setOutputs(outputs);
+        TaskExecution savedExecution = taskExecutionStateStore.save(taskExecution);
 
-                TaskExecution savedExecution = taskExecutionRepository.save(taskExecution);
+        // Publish event for task completed
+        eventPublisherService.publishTaskCompletedEvent(savedExecution);
 
-                // Publish event for task completed
-                eventPublisherService.publishTaskCompletedEvent(savedExecution);
+        return savedExecution;
+    }
 
-                return savedExecution;
-            } catch (Exception e) {
-                return handleTaskExecutionError(taskExecution, e);
-            }
-        });
+    private Exception unwrapException(Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause() : throwable;
+        return cause instanceof Exception ? (Exception) cause : new TaskExecutionException(cause.getMessage(), cause);
     }
 
     /**
@@ -136,29 +230,25 @@ public class TaskExecutionService {
      * @return CompletableFuture with the task execution result
      */
     private CompletableFuture<TaskExecution> executeTaskViaRabbitMQ(TaskExecution taskExecution) {
-        CompletableFuture<TaskExecution> future = new CompletableFuture<>();
-
-        try {
-            // Create task message
-            TaskMessage taskMessage = new TaskMessage();
-            taskMessage.setTaskExecutionId(taskExecution.getId());
-            taskMessage.setTaskType(taskExecution.getTaskDefinition().getType());
-            taskMessage.setInputs(taskExecution.getInputs());
-            taskMessage.setConfiguration(taskExecution.getTaskDefinition().getConfiguration());
-
-            // Send to RabbitMQ
-            rabbitMQSender.sendTaskMessage(taskMessage);
-
-            // The task will be completed asynchronously when result is received
-            // Return current state for now
-            future.complete(taskExecution);
-        } catch (Exception e) {
-            log.error("Error sending task to RabbitMQ", e);
-            TaskExecution failedExecution = handleTaskExecutionError(taskExecution, e);
-            future.complete(failedExecution);
-        }
-
-        return future;
+        // Create task message
+        TaskMessage taskMessage = new TaskMessage();
+        taskMessage.setTaskExecutionId(taskExecution.getId());
+        taskMessage.setTaskType(taskExecution.getTaskDefinition().getType());
+        taskMessage.setInputs(taskExecution.getInputs());
+        taskMessage.setConfiguration(taskExecution.getTaskDefinition().getConfiguration());
+
+        // Send to RabbitMQ without waiting, so the sends of a parallel wave are pipelined.
+        // The task will be completed asynchronously when the result is received; until then
+        // the current state is returned once the broker has confirmed the message
+        return rabbitMQSender.sendTaskMessageAsync(taskMessage)
+                .handleAsync((confirmed, throwable) -> {
+                    if (throwable == null) {
+                        return taskExecution;
+                    }
+                    log.error("Error sending task to RabbitMQ", throwable);
+                    return transactionTemplate.execute(status -> handleTaskExecutionError(
+                            taskExecution, unwrapException(throwable), CancellationToken.NONE));
+                }, taskExecutionBackend.getExecutor());
     }
 
     /**
@@ -176,7 +266,7 @@ public class TaskExecutionService {
         taskExecution.setCompletedAt(LocalDateTime.now());
         taskExecution.setOutputs(outputs != null ? outputs : new HashMap<>());
 
-        TaskExecution savedExecution = taskExecutionRepository.save(taskExecution);
+        TaskExecution savedExecution = taskExecutionStateStore.save(taskExecution);
 
         // Publish event for task completed
         eventPublisherService.publishTaskCompletedEvent(savedExecution);
@@ -212,6 +302,9 @@ public class TaskExecutionService {
 
             // Publish retry scheduled event
             eventPublisherService.publishTaskRetryScheduledEvent(taskExecution);
+
+            retryTimer.scheduleAfterCommit(new TaskRetryCandidate(taskExecution.getId(),
+                    taskExecution.getWorkflowExecutionId(), taskExecution.getRetryCount(), nextRetryAt));
         } else {
             taskExecution.setStatus(TaskStatus.FAILED);
             taskExecution.setCompletedAt(LocalDateTime.now());
@@ -220,7 +313,28 @@ public class TaskExecutionService {
             eventPublisherService.publishTaskFailedEvent(taskExecution);
         }
 
-        return taskExecutionRepository.save(taskExecution);
+        return taskExecutionStateStore.save(taskExecution);
+    }
+
+    /**
+     * Mark a task execution as cancelled, unless it already finished
+     * Used when its workflow is cancelled or paused while the task is in flight or awaiting retry
+     *
+     * @param taskExecutionId the task execution ID
+     * @return the task execution
+     */
+    @Transactional
+    public TaskExecution cancelTaskExecution(Long taskExecutionId) {
+        TaskExecution taskExecution = getTaskExecution(taskExecutionId);
+        if (!CANCELLABLE_STATUSES.contains(taskExecution.getStatus())) {
+            return taskExecution;
+        }
+
+        taskExecution.setStatus(TaskStatus.CANCELLED);
+        taskExecution.setCompletedAt(LocalDateTime.now());
+        retryTimer.cancel(taskExecutionId);
+
+        return taskExecutionStateStore.save(taskExecution);
     }
 
     /**
@@ -236,7 +350,7 @@ public class TaskExecutionService {
         taskExecution.setStatus(TaskStatus.SKIPPED);
         taskExecution.setCompletedAt(LocalDateTime.now());
 
-        TaskExecution savedExecution = taskExecutionRepository.save(taskExecution);
+        TaskExecution savedExecution = taskExecutionStateStore.save(taskExecution);
 
         // Publish event for task skipped
         eventPublisherService.publishTaskSkippedEvent(savedExecution);
@@ -252,7 +366,7 @@ public class TaskExecutionService {
      */
     @Transactional
     public TaskExecution saveTaskExecution(TaskExecution taskExecution) {
-        return taskExecutionRepository.save(taskExecution);
+        return taskExecutionStateStore.saveFully(taskExecution);
     }
 
     /**
@@ -294,14 +408,31 @@ public class TaskExecutionService {
     }
 
     /**
-     * Get tasks that are ready for retry
+     * Get tasks awaiting a retry that is due by the given time, earliest first
+     * At most one batch is returned; the rest is picked up by the next scan
      *
-     * @param now the current time
-     * @return list of task executions ready for retry
+     * @param dueBefore the latest retry time to include
+     * @return the task executions awaiting retry
      */
     @Transactional(readOnly = true)
-    public List<TaskExecution> getTasksToRetry(LocalDateTime now) {
-        return taskExecutionRepository.findTasksToRetry(TaskStatus.AWAITING_RETRY, now);
+    public List<TaskRetryCandidate> getTasksToRetry(LocalDateTime dueBefore) {
+        return taskExecutionRepository.findTasksToRetry(TaskStatus.AWAITING_RETRY, dueBefore,
+                PageRequest.of(0, retryBatchSize));
+    }
+
+    /**
+     * Reset a task awaiting retry to PENDING, clearing its start and completion times
+     * The update only applies while the task is still awaiting retry, so a task picked up
+     * concurrently is not retried twice
+     *
+     * @param taskExecutionId the task execution ID
+     * @return true if the task was reset, false if it was no longer awaiting retry
+     */
+    @Transactional
+    public boolean resetForRetry(Long taskExecutionId) {
+        taskExecutionStateStore.discard(taskExecutionId);
+        return taskExecutionRepository.resetStatusIfCurrent(taskExecutionId,
+                TaskStatus.AWAITING_RETRY, TaskStatus.PENDING) > 0;
     }
 
     /**
@@ -314,6 +445,7 @@ public class TaskExecutionService {
     @Transactional(readOnly = true)
     public TaskExecution getTaskExecution(Long id) {
         return taskExecutionRepository.findById(id)
+                .map(taskExecutionStateStore::applyPending)
                 .orElseThrow(() -> new TaskExecutionException("Task execution not found with id: " + id));
     }
 
@@ -334,9 +466,17 @@ public class TaskExecutionService {
      *
      * @param taskExecution the task execution
      * @param exception the exception
+     * @param workflowToken the cancellation token of the workflow run, cancelled if the task was aborted on purpose
      * @return the updated task execution
      */
-    private TaskExecution handleTaskExecutionError(TaskExecution taskExecution, Exception exception) {
+    private TaskExecution handleTaskExecutionError(TaskExecution taskExecution, Exception exception,
+                                                   CancellationToken workflowToken) {
+        if (workflowToken.isCancelled()) {
+            // Aborted on purpose: neither a failure nor worth a retry
+            log.debug("Task {} aborted, workflow is {}", taskExecution.getId(), workflowToken.getCancelledAs());
+            return cancelTaskExecution(taskExecution.getId());
+        }
+
         log.error("Error executing task: {}", taskExecution.getId(), exception);
 
         String errorMessage = exception.getMessage();
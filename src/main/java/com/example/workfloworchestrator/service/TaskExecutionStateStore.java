@@ -0,0 +1,271 @@
+package com.example.workfloworchestrator.service;
+
+import com.example.workfloworchestrator.model.TaskExecution;
+import com.example.workfloworchestrator.model.TaskStatus;
+import com.example.workfloworchestrator.repository.TaskExecutionRepository;
+import com.example.workfloworchestrator.repository.TaskExecutionStateWriter;
+import com.example.workfloworchestrator.repository.TaskExecutionStateWriter.StateSnapshot;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Write-behind persistence for task execution state transitions
+ * Transitions are coalesced per task execution and flushed in JDBC batches,
+ * either on a short interval or once the batch size threshold is reached.
+ *
+ * Durability modes:
+ * SYNC     - every transition is written immediately through JPA (default)
+ * TERMINAL - RUNNING transitions are written behind; terminal and retry transitions are written immediately
+ * ASYNC    - all transitions are written behind; up to one flush interval can be lost on a crash
+ */
+@Slf4j
+@Component
+public class TaskExecutionStateStore {
+
+    private static final int MAX_MISSING_ROW_ATTEMPTS = 20;
+
+    private static final Set<TaskStatus> DURABLE_STATUSES = EnumSet.of(
+            TaskStatus.COMPLETED, TaskStatus.FAILED, TaskStatus.SKIPPED,
+            TaskStatus.CANCELLED, TaskStatus.AWAITING_RETRY);
+
+    private final TaskExecutionRepository taskExecutionRepository;
+    private final TaskExecutionStateWriter stateWriter;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentHashMap<Long, StateSnapshot> pendingSnapshots = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Integer> missingRowAttempts = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    private ScheduledExecutorService flushExecutor;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${workflow.task.persistence.durability:SYNC}")
+    private Durability durability = Durability.SYNC;
+
+    @Value("${workflow.task.persistence.flush-interval-ms:50}")
+    private long flushIntervalMs = 50;
+
+    @Value("${workflow.task.persistence.batch-size:500}")
+    private int batchSize = 500;
+
+    public TaskExecutionStateStore(TaskExecutionRepository taskExecutionRepository,
+                                   TaskExecutionStateWriter stateWriter,
+                                   PlatformTransactionManager transactionManager) {
+        this.taskExecutionRepository = taskExecutionRepository;
+        this.stateWriter = stateWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (durability == Durability.SYNC) {
+            return;
+        }
+
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-state-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Task execution write-behind enabled: durability={}, flushInterval={}ms, batchSize={}",
+                durability, flushIntervalMs, batchSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+        }
+        // Do not lose queued transitions on a clean shutdown
+        flushQuietly();
+    }
+
+    /**
+     * Persist a state transition of an existing task execution according to the durability mode
+     * Outputs are only written when the task has completed
+     *
+     * @param taskExecution the task execution
+     * @return the task execution
+     */
+    public TaskExecution save(TaskExecution taskExecution) {
+        if (durability == Durability.SYNC || taskExecution.getId() == null) {
+            return taskExecutionRepository.save(taskExecution);
+        }
+
+        // Keep JPA from writing the same transition again when the caller's transaction commits
+        detach(taskExecution);
+
+        StateSnapshot snapshot = StateSnapshot.of(taskExecution,
+                taskExecution.getStatus() == TaskStatus.COMPLETED);
+
+        if (durability == Durability.TERMINAL && DURABLE_STATUSES.contains(taskExecution.getStatus())) {
+            writeNow(snapshot, taskExecution);
+            return taskExecution;
+        }
+
+        pendingSnapshots.merge(taskExecution.getId(), snapshot, (older, newer) -> newer.coalesce(older));
+
+        if (pendingSnapshots.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flushExecutor.execute(this::flushQuietly);
+        }
+
+        return taskExecution;
+    }
+
+    /**
+     * Persist a task execution through JPA, discarding any queued transition it already includes
+     * Use for changes beyond a state transition, such as resetting a task for restart
+     *
+     * @param taskExecution the task execution
+     * @return the saved task execution
+     */
+    public synchronized TaskExecution saveFully(TaskExecution taskExecution) {
+        if (taskExecution.getId() != null) {
+            pendingSnapshots.remove(taskExecution.getId());
+        }
+        return taskExecutionRepository.save(taskExecution);
+    }
+
+    /**
+     * Drop the queued transition of a task execution that is about to be updated directly in the database
+     *
+     * @param taskExecutionId the task execution ID
+     */
+    public synchronized void discard(Long taskExecutionId) {
+        pendingSnapshots.remove(taskExecutionId);
+    }
+
+    /**
+     * Apply a queued transition to a task execution read from the database, so callers
+     * see their own writes. The entity is detached so that the overlay is never flushed
+     * by JPA behind a newer write-behind batch.
+     *
+     * @param taskExecution the task execution as loaded
+     * @return the task execution with queued state applied
+     */
+    public TaskExecution applyPending(TaskExecution taskExecution) {
+        StateSnapshot snapshot = pendingSnapshots.get(taskExecution.getId());
+        if (snapshot == null) {
+            return taskExecution;
+        }
+
+        detach(taskExecution);
+        snapshot.applyTo(taskExecution);
+        return taskExecution;
+    }
+
+    /**
+     * Get the number of transitions waiting to be flushed
+     *
+     * @return the pending transition count
+     */
+    public int getPendingCount() {
+        return pendingSnapshots.size();
+    }
+
+    /**
+     * Flush all queued transitions in batches
+     */
+    public synchronized void flush() {
+        flushRequested.set(false);
+
+        while (!pendingSnapshots.isEmpty()) {
+            List<StateSnapshot> batch = drainBatch();
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            List<StateSnapshot> missing;
+            try {
+                missing = transactionTemplate.execute(status -> stateWriter.writeStates(batch));
+            } catch (RuntimeException e) {
+                // Put the batch back unless a newer transition has been queued meanwhile
+                batch.forEach(snapshot -> pendingSnapshots.merge(snapshot.id(), snapshot, (newer, older) -> newer.coalesce(older)));
+                throw e;
+            }
+
+            batch.forEach(snapshot -> missingRowAttempts.remove(snapshot.id()));
+            if (missing != null && !missing.isEmpty()) {
+                requeueMissing(missing);
+                // Rows created by transactions that have not committed yet are retried on the next flush
+                return;
+            }
+        }
+    }
+
+    private List<StateSnapshot> drainBatch() {
+        List<StateSnapshot> batch = new ArrayList<>();
+
+        for (Long id : pendingSnapshots.keySet()) {
+            if (batch.size() >= batchSize) {
+                break;
+            }
+            StateSnapshot snapshot = pendingSnapshots.remove(id);
+            if (snapshot != null) {
+                batch.add(snapshot);
+            }
+        }
+
+        return batch;
+    }
+
+    private void requeueMissing(List<StateSnapshot> missing) {
+        for (StateSnapshot snapshot : missing) {
+            int attempts = missingRowAttempts.merge(snapshot.id(), 1, Integer::sum);
+            if (attempts > MAX_MISSING_ROW_ATTEMPTS) {
+                missingRowAttempts.remove(snapshot.id());
+                log.error("Dropping state transition to {} for missing task execution {}", snapshot.status(), snapshot.id());
+                continue;
+            }
+            pendingSnapshots.merge(snapshot.id(), snapshot, (newer, older) -> newer.coalesce(older));
+        }
+    }
+
+    // Synchronized with flush so an older queued snapshot can never land after this write
+    private synchronized void writeNow(StateSnapshot snapshot, TaskExecution taskExecution) {
+        // Supersedes anything still queued for this task
+        StateSnapshot durableSnapshot = snapshot.coalesce(pendingSnapshots.remove(taskExecution.getId()));
+        List<StateSnapshot> missing = transactionTemplate.execute(status -> stateWriter.writeStates(List.of(durableSnapshot)));
+
+        if (missing != null && !missing.isEmpty()) {
+            // Row not visible to JDBC yet, fall back to JPA
+            taskExecutionRepository.save(taskExecution);
+        }
+    }
+
+    private void detach(TaskExecution taskExecution) {
+        if (entityManager != null && entityManager.contains(taskExecution)) {
+            // Load lazy collections before detaching
+            taskExecution.getInputs().size();
+            taskExecution.getOutputs().size();
+            entityManager.detach(taskExecution);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Error flushing task execution state transitions", e);
+        }
+    }
+
+    public enum Durability {
+        SYNC,
+        TERMINAL,
+        ASYNC
+    }
+}
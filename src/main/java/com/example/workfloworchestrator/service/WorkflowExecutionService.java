@@ -1,9 +1,15 @@
 package com.example.workfloworchestrator.service;
 
 import com.example.workfloworchestrator.engine.WorkflowEngine;
+import com.example.workfloworchestrator.engine.cancellation.CancellationRegistry;
 import com.example.workfloworchestrator.exception.WorkflowException;
 import com.example.workfloworchestrator.model.*;
+import com.example.workfloworchestrator.repository.TaskExecutionRepository;
 import com.example.workfloworchestrator.repository.WorkflowExecutionRepository;
+import com.example.workfloworchestrator.repository.WorkflowExecutionSummary;
+import com.example.workfloworchestrator.repository.WorkflowVariableWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,7 +21,6 @@ import org.springframework.transaction.support.TransactionSynchronizationManager
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -25,6 +30,15 @@ public class WorkflowExecutionService {
     private final WorkflowExecutionRepository workflowExecutionRepository;
     private WorkflowEngine workflowEngine;
     private final EventPublisherService eventPublisherService;
+    private final WorkflowVariableWriter workflowVariableWriter;
+    private final TaskExecutionRepository taskExecutionRepository;
+    private final CancellationRegistry cancellationRegistry;
+
+    // Tasks that would still start on their own once their workflow is stopped
+    private static final List<TaskStatus> QUEUED_TASK_STATUSES = List.of(TaskStatus.PENDING, TaskStatus.AWAITING_RETRY);
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     /**
      * Constructor with fields except WorkflowEngine
@@ -32,15 +46,24 @@ public class WorkflowExecutionService {
      * @param workflowService the workflow service
      * @param workflowExecutionRepository the repository
      * @param eventPublisherService the event publisher
+     * @param workflowVariableWriter the writer for changed variables
+     * @param taskExecutionRepository the task execution repository, for cancelling queued tasks
+     * @param cancellationRegistry the tokens of the workflow runs active on this node
      */
     @Autowired
     public WorkflowExecutionService(
             WorkflowService workflowService,
             WorkflowExecutionRepository workflowExecutionRepository,
-            EventPublisherService eventPublisherService) {
+            EventPublisherService eventPublisherService,
+            WorkflowVariableWriter workflowVariableWriter,
+            TaskExecutionRepository taskExecutionRepository,
+            CancellationRegistry cancellationRegistry) {
         this.workflowService = workflowService;
         this.workflowExecutionRepository = workflowExecutionRepository;
         this.eventPublisherService = eventPublisherService;
+        this.workflowVariableWriter = workflowVariableWriter;
+        this.taskExecutionRepository = taskExecutionRepository;
+        this.cancellationRegistry = cancellationRegistry;
     }
 
     /**
@@ -113,9 +136,19 @@ public class WorkflowExecutionService {
                 .orElseThrow(() -> new WorkflowException("Workflow execution not found with correlationId: " + correlationId));
     }
 
+    /**
+     * Move a workflow to a new status
+     * Starting (from CREATED), completing and failing a workflow also publish the matching
+     * lifecycle event; its outbox rows are written in this transaction, with the status change.
+     *
+     * @param id the workflow execution ID
+     * @param status the new status
+     * @return the updated workflow execution
+     */
     @Transactional
     public WorkflowExecution updateWorkflowExecutionStatus(Long id, WorkflowStatus status) {
         WorkflowExecution execution = getWorkflowExecution(id);
+        WorkflowStatus previousStatus = execution.getStatus();
         execution.setStatus(status);
 
         if (status == WorkflowStatus.COMPLETED || status == WorkflowStatus.FAILED) {
@@ -124,10 +157,27 @@ public class WorkflowExecutionService {
 
         // Publish event for status change
         eventPublisherService.publishWorkflowStatusChangedEvent(execution);
+        if (status != previousStatus) {
+            publishLifecycleEvent(execution, previousStatus);
+        }
 
         return workflowExecutionRepository.save(execution);
     }
 
+    private void publishLifecycleEvent(WorkflowExecution execution, WorkflowStatus previousStatus) {
+        switch (execution.getStatus()) {
+            case RUNNING -> {
+                if (previousStatus == WorkflowStatus.CREATED) {
+                    eventPublisherService.publishWorkflowStartedEvent(execution);
+                }
+            }
+            case COMPLETED -> eventPublisherService.publishWorkflowCompletedEvent(execution);
+            case FAILED -> eventPublisherService.publishWorkflowFailedEvent(execution);
+            default -> {
+            }
+        }
+    }
+
     @Transactional
     public WorkflowExecution pauseWorkflowExecution(Long id) {
         WorkflowExecution execution = getWorkflowExecution(id);
@@ -135,6 +185,7 @@ public class WorkflowExecutionService {
         if (execution.getStatus() == WorkflowStatus.RUNNING) {
             execution.setStatus(WorkflowStatus.PAUSED);
             workflowExecutionRepository.save(execution);
+            stopRun(id, WorkflowStatus.PAUSED);
 
             eventPublisherService.publishWorkflowPausedEvent(execution);
         }
@@ -170,6 +221,7 @@ public class WorkflowExecutionService {
             execution.setStatus(WorkflowStatus.CANCELLED);
             execution.setCompletedAt(LocalDateTime.now());
             workflowExecutionRepository.save(execution);
+            stopRun(id, WorkflowStatus.CANCELLED);
 
             eventPublisherService.publishWorkflowCancelledEvent(execution);
         }
@@ -177,6 +229,60 @@ public class WorkflowExecutionService {
         return execution;
     }
 
+    /**
+     * Fail a workflow that ran past its timeout and stop its active run
+     * In-flight tasks are aborted and cancelled rather than failed, so they are not retried.
+     *
+     * @param id the workflow execution ID
+     * @param errorMessage the error message
+     * @return true if the workflow was still unfinished and has been failed
+     */
+    @Transactional
+    public boolean timeoutWorkflowExecution(Long id, String errorMessage) {
+        WorkflowExecution execution = getWorkflowExecution(id);
+
+        if (execution.getStatus() == WorkflowStatus.COMPLETED ||
+                execution.getStatus() == WorkflowStatus.FAILED ||
+                execution.getStatus() == WorkflowStatus.CANCELLED) {
+            return false;
+        }
+
+        log.warn("Workflow {} timed out in status {}", id, execution.getStatus());
+        execution.setStatus(WorkflowStatus.FAILED);
+        execution.setErrorMessage(errorMessage);
+        execution.setCompletedAt(LocalDateTime.now());
+        workflowExecutionRepository.save(execution);
+        stopRun(id, WorkflowStatus.FAILED);
+
+        eventPublisherService.publishWorkflowFailedEvent(execution);
+        return true;
+    }
+
+    /**
+     * Stop the run of a workflow that was cancelled, paused or timed out
+     * Queued tasks are cancelled with the status change, so pending retries do not start them again.
+     * Once the change commits, the run's token is cancelled, which stops the strategy from starting
+     * further tasks and aborts the tasks in flight on this node; other nodes pick it up on their heartbeat.
+     *
+     * @param id the workflow execution ID
+     * @param status the new status, CANCELLED or PAUSED, or FAILED on a timeout
+     */
+    private void stopRun(Long id, WorkflowStatus status) {
+        int cancelledTasks = taskExecutionRepository.cancelTasks(id, QUEUED_TASK_STATUSES, TaskStatus.CANCELLED, LocalDateTime.now());
+        log.debug("Cancelled {} queued tasks of workflow {}", cancelledTasks, id);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cancellationRegistry.cancel(id, status);
+                }
+            });
+        } else {
+            cancellationRegistry.cancel(id, status);
+        }
+    }
+
     @Transactional
     public WorkflowExecution retryWorkflowExecution(Long id) {
         WorkflowExecution execution = getWorkflowExecution(id);
@@ -201,8 +307,22 @@ public class WorkflowExecutionService {
     }
 
     @Transactional(readOnly = true)
-    public List<WorkflowExecution> getStuckWorkflowExecutions(LocalDateTime before) {
-        return workflowExecutionRepository.findStuckExecutions(WorkflowStatus.RUNNING, before);
+    public List<WorkflowExecutionSummary> getStuckWorkflowExecutions(LocalDateTime before) {
+        return workflowExecutionRepository.findSummariesStartedBefore(WorkflowStatus.RUNNING, before);
+    }
+
+    /**
+     * Mark a workflow execution as failed with an error message
+     *
+     * @param id the workflow execution ID
+     * @param errorMessage the reason for the failure
+     * @return the updated workflow execution
+     */
+    @Transactional
+    public WorkflowExecution failWorkflowExecution(Long id, String errorMessage) {
+        WorkflowExecution execution = getWorkflowExecution(id);
+        execution.setErrorMessage(errorMessage);
+        return updateWorkflowExecutionStatus(id, WorkflowStatus.FAILED);
     }
 
     @Transactional
@@ -210,9 +330,49 @@ public class WorkflowExecutionService {
         return workflowExecutionRepository.save(workflowExecution);
     }
 
+    /**
+     * Persist variables changed by WorkflowExecution.mergeVariables
+     * Only the changed keys are written; saving the whole entity would rewrite every variable row
+     *
+     * @param workflowExecution the workflow execution, already holding the merged variables
+     * @param changedVariables the added or changed variables
+     */
+    @Transactional
+    public void saveVariableChanges(WorkflowExecution workflowExecution, Map<String, String> changedVariables) {
+        if (changedVariables == null || changedVariables.isEmpty()) {
+            return;
+        }
+
+        if (workflowExecution.getId() == null) {
+            workflowExecutionRepository.save(workflowExecution);
+        } else if (entityManager != null && entityManager.contains(workflowExecution)) {
+            // Managed entities are flushed row by row from the persistence context snapshot
+            log.trace("Variables of managed workflow execution {} are flushed by JPA", workflowExecution.getId());
+        } else {
+            workflowVariableWriter.writeVariables(workflowExecution.getId(), changedVariables);
+        }
+    }
+
+    /**
+     * Update the current task index without rewriting the rest of the workflow execution
+     *
+     * @param workflowExecution the workflow execution
+     * @param currentTaskIndex the new current task index
+     */
+    @Transactional
+    public void updateCurrentTaskIndex(WorkflowExecution workflowExecution, int currentTaskIndex) {
+        workflowExecution.setCurrentTaskIndex(currentTaskIndex);
+
+        if (workflowExecution.getId() == null) {
+            workflowExecutionRepository.save(workflowExecution);
+        } else {
+            workflowExecutionRepository.updateCurrentTaskIndex(workflowExecution.getId(), currentTaskIndex);
+        }
+    }
+
     /**
      * Find completed/failed/cancelled workflows older than a specified date
-     * Used for cleanup operations
+     * Loads full entities; the scheduled cleanup deletes through WorkflowRetentionService instead
      *
      * @param before the date threshold
      * @return list of old workflow executions
@@ -220,13 +380,8 @@ public class WorkflowExecutionService {
     @Transactional(readOnly = true)
     public List<WorkflowExecution> findCompletedWorkflowsOlderThan(LocalDateTime before) {
         // Find workflows with terminal statuses that completed before the threshold
-        List<WorkflowExecution> completedWorkflows = workflowExecutionRepository.findByStatusIn(
-                List.of(WorkflowStatus.COMPLETED, WorkflowStatus.FAILED, WorkflowStatus.CANCELLED));
-
-        // Filter for those completed before the threshold date
-        return completedWorkflows.stream()
-                .filter(we -> we.getCompletedAt() != null && we.getCompletedAt().isBefore(before))
-                .collect(Collectors.toList());
+        return workflowExecutionRepository.findByStatusInAndCompletedAtBefore(
+                List.of(WorkflowStatus.COMPLETED, WorkflowStatus.FAILED, WorkflowStatus.CANCELLED), before);
     }
 
     /**
@@ -237,14 +392,9 @@ public class WorkflowExecutionService {
      * @return list of long-paused workflow executions
      */
     @Transactional(readOnly = true)
-    public List<WorkflowExecution> findPausedWorkflowsOlderThan(LocalDateTime before) {
-        List<WorkflowExecution> pausedWorkflows = workflowExecutionRepository.findByStatus(WorkflowStatus.PAUSED);
-
-        // Filter for workflows paused before the threshold date
+    public List<WorkflowExecutionSummary> findPausedWorkflowsOlderThan(LocalDateTime before) {
         // For paused workflows, we use startedAt since there's no specific "pausedAt" timestamp
-        return pausedWorkflows.stream()
-                .filter(we -> we.getStartedAt() != null && we.getStartedAt().isBefore(before))
-                .collect(Collectors.toList());
+        return workflowExecutionRepository.findSummariesStartedBefore(WorkflowStatus.PAUSED, before);
     }
 
     /**
@@ -0,0 +1,130 @@
+package com.example.workfloworchestrator.service;
+
+import com.example.workfloworchestrator.repository.WorkflowRetentionRepository;
+import com.example.workfloworchestrator.repository.WorkflowRetentionRepository.DeletedRows;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes workflow executions that completed before a retention threshold
+ * Expired IDs are read in keyset-paginated batches and each batch is deleted, children first,
+ * in its own short transaction. Batches are spaced out so a large backlog does not
+ * monopolise the database, and progress is published as metrics:
+ *
+ * workflow.retention.deleted          - rows deleted, tagged by table
+ * workflow.retention.batches          - batches processed, tagged by outcome
+ * workflow.retention.batch.duration   - time spent deleting a batch
+ * workflow.retention.run.deleted      - workflow executions deleted so far by the current or last run
+ */
+@Slf4j
+@Service
+public class WorkflowRetentionService {
+
+    private final WorkflowRetentionRepository retentionRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter deletedWorkflowExecutions;
+    private final Counter deletedTaskExecutions;
+    private final Counter completedBatches;
+    private final Counter failedBatches;
+    private final Timer batchTimer;
+    private final AtomicLong runDeleted = new AtomicLong();
+
+    @Value("${workflow.retention.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${workflow.retention.batch-delay-ms:200}")
+    private long batchDelayMs = 200;
+
+    @Value("${workflow.retention.max-batches-per-run:0}")
+    private int maxBatchesPerRun = 0;
+
+    public WorkflowRetentionService(WorkflowRetentionRepository retentionRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry) {
+        this.retentionRepository = retentionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        this.deletedWorkflowExecutions = meterRegistry.counter("workflow.retention.deleted", "table", "workflow_executions");
+        this.deletedTaskExecutions = meterRegistry.counter("workflow.retention.deleted", "table", "task_executions");
+        this.completedBatches = meterRegistry.counter("workflow.retention.batches", "outcome", "deleted");
+        this.failedBatches = meterRegistry.counter("workflow.retention.batches", "outcome", "failed");
+        this.batchTimer = meterRegistry.timer("workflow.retention.batch.duration");
+        meterRegistry.gauge("workflow.retention.run.deleted", runDeleted);
+    }
+
+    /**
+     * Delete terminal workflow executions that completed before a threshold
+     * A batch that fails is logged and skipped; the run continues with the next one.
+     *
+     * @param completedBefore the retention threshold
+     * @return the number of workflow executions deleted
+     */
+    public long purgeCompletedBefore(LocalDateTime completedBefore) {
+        runDeleted.set(0);
+        long afterId = 0;
+        int batches = 0;
+
+        while (maxBatchesPerRun <= 0 || batches < maxBatchesPerRun) {
+            List<Long> ids = retentionRepository.findExpiredIds(completedBefore, afterId, batchSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            afterId = ids.get(ids.size() - 1);
+            batches++;
+
+            try {
+                DeletedRows deleted = batchTimer.record(() -> transactionTemplate.execute(
+                        status -> retentionRepository.deleteExpired(ids, completedBefore)));
+                if (deleted != null) {
+                    deletedWorkflowExecutions.increment(deleted.workflowExecutions());
+                    deletedTaskExecutions.increment(deleted.taskExecutions());
+                    runDeleted.addAndGet(deleted.workflowExecutions());
+                }
+                completedBatches.increment();
+            } catch (Exception e) {
+                failedBatches.increment();
+                log.error("Error deleting workflow executions {} to {}", ids.get(0), afterId, e);
+            }
+
+            if (batches % 100 == 0) {
+                log.info("Retention in progress: {} workflow executions deleted in {} batches, up to id {}",
+                        runDeleted.get(), batches, afterId);
+            }
+
+            if (ids.size() < batchSize || !pause()) {
+                break;
+            }
+        }
+
+        log.info("Retention finished: {} workflow executions completed before {} deleted in {} batches",
+                runDeleted.get(), completedBefore, batches);
+        return runDeleted.get();
+    }
+
+    // Throttle between batches; false if the run should stop
+    private boolean pause() {
+        if (batchDelayMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(batchDelayMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Retention interrupted, stopping after {} workflow executions", runDeleted.get());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.workfloworchestrator.service;
+
+import com.example.workfloworchestrator.repository.WorkflowRetryBudgetRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * Per-workflow budget of failed retry attempts
+ * Each failure to start a task retry counts against its workflow; once the budget is used up
+ * the caller restarts the workflow and resets it. A budget expires a fixed time after its last
+ * failure, so counts only add up while a workflow keeps failing.
+ *
+ * The database holds the authoritative count, incremented atomically, which keeps budgets across
+ * restarts and shares them between nodes. A bounded map ordered by last failure mirrors the counts
+ * this node has seen and carries on counting while the database is unreachable; expired and, under
+ * a failure storm, the least recently failing budgets are evicted from its head. Metrics:
+ *
+ * workflow.retry.budget.entries    - budgets held in memory
+ * workflow.retry.budget.failures   - failures recorded
+ * workflow.retry.budget.exhausted  - budgets used up
+ * workflow.retry.budget.evicted    - budgets dropped from memory, tagged by reason
+ */
+@Slf4j
+@Service
+public class WorkflowRetryBudgetService {
+
+    private final WorkflowRetryBudgetRepository budgetRepository;
+
+    // Insertion-ordered by last failure, guarded by this
+    private final Map<Long, Budget> budgets = new LinkedHashMap<>();
+
+    private final Counter recordedFailures;
+    private final Counter exhaustedBudgets;
+    private final Counter expiredEvictions;
+    private final Counter sizeEvictions;
+
+    @Value("${workflow.retry.budget.max-failures:3}")
+    private int maxFailures = 3;
+
+    @Value("${workflow.retry.budget.ttl-minutes:60}")
+    private long ttlMinutes = 60;
+
+    @Value("${workflow.retry.budget.max-entries:100000}")
+    private int maxEntries = 100000;
+
+    public WorkflowRetryBudgetService(WorkflowRetryBudgetRepository budgetRepository, MeterRegistry meterRegistry) {
+        this.budgetRepository = budgetRepository;
+
+        this.recordedFailures = meterRegistry.counter("workflow.retry.budget.failures");
+        this.exhaustedBudgets = meterRegistry.counter("workflow.retry.budget.exhausted");
+        this.expiredEvictions = meterRegistry.counter("workflow.retry.budget.evicted", "reason", "expired");
+        this.sizeEvictions = meterRegistry.counter("workflow.retry.budget.evicted", "reason", "size");
+        // Read without the lock; a gauge may be momentarily stale
+        meterRegistry.gauge("workflow.retry.budget.entries", budgets, Map::size);
+    }
+
+    /**
+     * Count a failed retry attempt against a workflow
+     *
+     * @param workflowExecutionId the workflow execution ID
+     * @return true if the workflow has now used up its budget
+     */
+    public boolean recordFailure(Long workflowExecutionId) {
+        LocalDateTime now = LocalDateTime.now();
+        OptionalInt stored = persistFailure(workflowExecutionId, now);
+
+        int failures;
+        synchronized (this) {
+            Budget budget = budgets.remove(workflowExecutionId);
+            if (stored.isPresent()) {
+                failures = stored.getAsInt();
+            } else {
+                // Database unreachable: count on this node alone
+                failures = budget != null && !isExpired(budget, now) ? budget.failures() + 1 : 1;
+            }
+            budgets.put(workflowExecutionId, new Budget(failures, now));
+            evictOverflow();
+        }
+
+        recordedFailures.increment();
+
+        if (failures >= maxFailures) {
+            exhaustedBudgets.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the failures currently counted against a workflow
+     *
+     * @param workflowExecutionId the workflow execution ID
+     * @return the last failure count this node has seen, 0 if the workflow has no live budget in memory
+     */
+    public synchronized int getFailures(Long workflowExecutionId) {
+        Budget budget = budgets.get(workflowExecutionId);
+        return budget != null && !isExpired(budget, LocalDateTime.now()) ? budget.failures() : 0;
+    }
+
+    /**
+     * Give a workflow its full budget back, e.g. after it was restarted
+     *
+     * @param workflowExecutionId the workflow execution ID
+     */
+    public void reset(Long workflowExecutionId) {
+        synchronized (this) {
+            budgets.remove(workflowExecutionId);
+        }
+
+        try {
+            budgetRepository.delete(workflowExecutionId);
+        } catch (Exception e) {
+            log.warn("Could not delete retry budget of workflow {}", workflowExecutionId, e);
+        }
+    }
+
+    public synchronized int size() {
+        return budgets.size();
+    }
+
+    /**
+     * Drop expired budgets from memory and the database
+     */
+    @Scheduled(fixedDelayString = "${workflow.retry.budget.sweep-interval-ms:60000}")
+    public void sweepExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int evicted = 0;
+
+        synchronized (this) {
+            // Oldest failures come first, so the sweep stops at the first live budget
+            Iterator<Budget> iterator = budgets.values().iterator();
+            while (iterator.hasNext() && isExpired(iterator.next(), now)) {
+                iterator.remove();
+                evicted++;
+            }
+        }
+        expiredEvictions.increment(evicted);
+
+        try {
+            int deleted = budgetRepository.deleteUpdatedBefore(now.minusMinutes(ttlMinutes));
+            if (evicted > 0 || deleted > 0) {
+                log.debug("Swept {} expired retry budgets from memory and {} from the database", evicted, deleted);
+            }
+        } catch (Exception e) {
+            log.warn("Could not delete expired retry budgets", e);
+        }
+    }
+
+    private OptionalInt persistFailure(Long workflowExecutionId, LocalDateTime now) {
+        LocalDateTime expiredBefore = now.minusMinutes(ttlMinutes);
+        try {
+            int failures = budgetRepository.incrementFailures(workflowExecutionId, now, expiredBefore);
+            if (failures > 0) {
+                return OptionalInt.of(failures);
+            }
+
+            try {
+                budgetRepository.insertFirstFailure(workflowExecutionId, now);
+                return OptionalInt.of(1);
+            } catch (DuplicateKeyException e) {
+                // Another node counted a first failure at the same time
+                return OptionalInt.of(budgetRepository.incrementFailures(workflowExecutionId, now, expiredBefore));
+            }
+        } catch (Exception e) {
+            log.warn("Could not count retry failure of workflow {} in the database", workflowExecutionId, e);
+            return OptionalInt.empty();
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Budget> iterator = budgets.values().iterator();
+        while (budgets.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            sizeEvictions.increment();
+        }
+    }
+
+    private boolean isExpired(Budget budget, LocalDateTime now) {
+        return budget.updatedAt().plusMinutes(ttlMinutes).isBefore(now);
+    }
+
+    private record Budget(int failures, LocalDateTime updatedAt) {
+    }
+}
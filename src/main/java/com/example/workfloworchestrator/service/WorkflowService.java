@@ -1,5 +1,6 @@
 package com.example.workfloworchestrator.service;
 
+import com.example.workfloworchestrator.engine.strategy.WorkflowPlanCache;
 import com.example.workfloworchestrator.exception.WorkflowException;
 import com.example.workfloworchestrator.model.TaskDefinition;
 import com.example.workfloworchestrator.model.WorkflowDefinition;
@@ -21,6 +22,7 @@ public class WorkflowService {
 
     private final WorkflowDefinitionRepository workflowDefinitionRepository;
     private final WorkflowVersioning workflowVersioning;
+    private final WorkflowPlanCache workflowPlanCache;
 
     @Transactional(readOnly = true)
     public List<WorkflowDefinition> getAllWorkflowDefinitions() {
@@ -75,12 +77,16 @@ public class WorkflowService {
                     newVersion.setDescription(updatedWorkflow.getDescription());
                     newVersion.setTasks(updatedWorkflow.getTasks());
                     newVersion.setStrategyType(updatedWorkflow.getStrategyType());
+                    newVersion.setTimeoutSeconds(updatedWorkflow.getTimeoutSeconds());
                     newVersion.setCreatedAt(LocalDateTime.now());
 
                     // Generate new version
                     String newVersionNumber = workflowVersioning.generateNextVersion(existingWorkflow.getName());
                     newVersion.setVersion(newVersionNumber);
 
+                    // The new version gets its own plan; drop the old one's in case its tasks were moved over
+                    workflowPlanCache.invalidate(id);
+
                     return workflowDefinitionRepository.save(newVersion);
                 })
                 .orElseThrow(() -> new WorkflowException("Workflow definition not found with id: " + id));
@@ -89,5 +95,6 @@ public class WorkflowService {
     @Transactional
     public void deleteWorkflowDefinition(Long id) {
         workflowDefinitionRepository.deleteById(id);
+        workflowPlanCache.invalidate(id);
     }
 }
@@ -0,0 +1,83 @@
+package com.example.workfloworchestrator.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Thread-safe cache that holds at most a fixed number of entries, evicting the least recently used
+ * Meant for small values that are cheap to rebuild, such as parsed expressions and templates; the
+ * lock is only held for the map lookup itself.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class BoundedCache<K, V> {
+
+    private final int maxSize;
+    private final LinkedHashMap<K, V> entries;
+
+    public BoundedCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > BoundedCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get a cached value, marking it as recently used
+     *
+     * @param key the key
+     * @return the value, or null if it is not cached
+     */
+    public synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Cache a value, evicting the least recently used entry if the cache is full
+     *
+     * @param key the key
+     * @param value the value
+     */
+    public synchronized void put(K key, V value) {
+        entries.put(key, value);
+    }
+
+    /**
+     * Cache a value unless the key is already cached, evicting the least recently used entry if the cache is full
+     *
+     * @param key the key
+     * @param value the value
+     * @return the value already cached, or null if the given value was cached
+     */
+    public synchronized V putIfAbsent(K key, V value) {
+        return entries.putIfAbsent(key, value);
+    }
+
+    /**
+     * Drop the cached entries whose key matches a filter
+     *
+     * @param filter the key filter
+     */
+    public synchronized void removeIf(Predicate<? super K> filter) {
+        entries.keySet().removeIf(filter);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drop all cached entries
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.workfloworchestrator.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary codec for string maps stored in a single column
+ *
+ * Layout: one header byte (1 = plain, 2 = deflated), followed by the optionally deflated body.
+ * Body: varint entry count, then per entry a varint-length UTF-8 key and a value encoded as
+ * varint (length + 1) with 0 meaning null.
+ */
+public final class CompactMapCodec {
+
+    private static final byte FORMAT_PLAIN = 1;
+    private static final byte FORMAT_DEFLATED = 2;
+
+    // Bodies smaller than this rarely shrink enough to pay for compression
+    private static final int COMPRESSION_THRESHOLD = 256;
+
+    private CompactMapCodec() {
+    }
+
+    /**
+     * Encode a map
+     *
+     * @param map the map to encode, may be null
+     * @return the encoded bytes, or null for a null map
+     */
+    public static byte[] encode(Map<String, String> map) {
+        if (map == null) {
+            return null;
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64 + map.size() * 32);
+        writeVarint(body, map.size());
+
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            writeVarint(body, key.length);
+            body.writeBytes(key);
+
+            if (entry.getValue() == null) {
+                writeVarint(body, 0);
+            } else {
+                byte[] value = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                writeVarint(body, value.length + 1);
+                body.writeBytes(value);
+            }
+        }
+
+        byte[] plain = body.toByteArray();
+        if (plain.length >= COMPRESSION_THRESHOLD) {
+            byte[] deflated = deflate(plain);
+            if (deflated.length < plain.length) {
+                return withHeader(FORMAT_DEFLATED, deflated);
+            }
+        }
+
+        return withHeader(FORMAT_PLAIN, plain);
+    }
+
+    /**
+     * Decode a map produced by encode
+     *
+     * @param bytes the encoded bytes, may be null
+     * @return the decoded map in its original iteration order, or null for null input
+     * @throws IllegalArgumentException if the bytes are not a valid encoding
+     */
+    public static Map<String, String> decode(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length == 0) {
+            throw new IllegalArgumentException("Empty compact map encoding");
+        }
+
+        byte[] body;
+        if (bytes[0] == FORMAT_PLAIN) {
+            body = bytes;
+        } else if (bytes[0] == FORMAT_DEFLATED) {
+            body = inflate(bytes);
+        } else {
+            throw new IllegalArgumentException("Unknown compact map format: " + bytes[0]);
+        }
+
+        // Plain bodies are read in place after the header byte
+        Reader reader = new Reader(body, body == bytes ? 1 : 0);
+        int size = reader.readVarint();
+        Map<String, String> map = new LinkedHashMap<>(Math.max(16, size * 4 / 3 + 1));
+
+        for (int i = 0; i < size; i++) {
+            String key = reader.readString(reader.readVarint());
+            int valueLength = reader.readVarint();
+            map.put(key, valueLength == 0 ? null : reader.readString(valueLength - 1));
+        }
+
+        return map;
+    }
+
+    private static byte[] withHeader(byte format, byte[] body) {
+        byte[] result = new byte[body.length + 1];
+        result[0] = format;
+        System.arraycopy(body, 0, result, 1, body.length);
+        return result;
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 2);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, 1, bytes.length - 1);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 3);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated compact map encoding");
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt compact map encoding", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static final class Reader {
+
+        private final byte[] bytes;
+        private int position;
+
+        private Reader(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                if (position >= bytes.length) {
+                    throw new IllegalArgumentException("Truncated compact map encoding");
+                }
+                byte b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in compact map encoding");
+        }
+
+        private String readString(int length) {
+            if (length < 0 || position + length > bytes.length) {
+                throw new IllegalArgumentException("Truncated compact map encoding");
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.workfloworchestrator.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed wheel timer for large numbers of short-lived timeouts
+ * A single worker thread advances the wheel one tick at a time and runs expired tasks.
+ * Scheduling and cancelling are O(1); expiry precision is one tick.
+ * Tasks run on the worker thread, so they must be short and hand heavier work off.
+ */
+@Slf4j
+public class HashedWheelTimer {
+
+    private final long tickNanos;
+    private final List<Set<TimerTimeout>> wheel;
+    private final int mask;
+    private final Queue<TimerTimeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<TimerTimeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final String name;
+    private final long startTime;
+
+    private volatile boolean running = true;
+    private volatile Thread workerThread;
+    private long tick;
+
+    /**
+     * Create a timer; its worker thread starts with {@link #start()} or the first scheduled timeout
+     *
+     * @param name the worker thread name
+     * @param tickDuration the duration between ticks
+     * @param unit the unit of tickDuration
+     * @param ticksPerWheel the number of buckets, rounded up to a power of two
+     */
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive: " + tickDuration);
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("ticksPerWheel must be between 1 and 2^30: " + ticksPerWheel);
+        }
+
+        int wheelSize = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        if (wheelSize == 0) {
+            wheelSize = 1;
+        }
+
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.mask = wheelSize - 1;
+        this.wheel = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            wheel.add(new LinkedHashSet<>());
+        }
+
+        this.name = name;
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * Start the worker thread; later calls have no effect
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+
+        Thread worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        workerThread = worker;
+        worker.start();
+    }
+
+    /**
+     * Schedule a task to run once after the given delay
+     *
+     * @param task the task to run
+     * @param delay the delay
+     * @param unit the unit of delay
+     * @return a handle that can cancel the task
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        Objects.requireNonNull(task, "task");
+        if (!running) {
+            throw new IllegalStateException("Timer has been stopped");
+        }
+        start();
+
+        long deadline = System.nanoTime() - startTime + Math.max(0, unit.toNanos(delay));
+        TimerTimeout timeout = new TimerTimeout(task, deadline);
+        pendingCount.incrementAndGet();
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Get the number of scheduled timeouts that have not yet expired or been cancelled
+     *
+     * @return the pending timeout count
+     */
+    public int getPendingTimeouts() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Stop the worker thread; unexpired timeouts are discarded
+     */
+    public void stop() {
+        running = false;
+        Thread worker = workerThread;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = waitForNextTick();
+            if (!running) {
+                break;
+            }
+
+            processCancelledTimeouts();
+            transferPendingTimeouts();
+            expireTimeouts(wheel.get((int) (tick & mask)), deadline);
+            tick++;
+        }
+    }
+
+    private long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+
+        while (running) {
+            long sleepNanos = deadline - (System.nanoTime() - startTime);
+            if (sleepNanos <= 0) {
+                break;
+            }
+            LockSupport.parkNanos(this, sleepNanos);
+        }
+
+        return deadline;
+    }
+
+    private void transferPendingTimeouts() {
+        // Bound the work per tick so a burst of scheduling cannot stall expiry
+        for (int i = 0; i < 100_000; i++) {
+            TimerTimeout timeout = pendingTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.isCancelled()) {
+                continue;
+            }
+
+            long calculatedTick = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculatedTick - tick) / wheel.size();
+
+            // Deadlines already in the past go into the current bucket
+            Set<TimerTimeout> bucket = wheel.get((int) (Math.max(calculatedTick, tick) & mask));
+            timeout.bucket = bucket;
+            bucket.add(timeout);
+        }
+    }
+
+    private void processCancelledTimeouts() {
+        TimerTimeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+                timeout.bucket = null;
+            }
+        }
+    }
+
+    private void expireTimeouts(Set<TimerTimeout> bucket, long deadline) {
+        Iterator<TimerTimeout> iterator = bucket.iterator();
+
+        while (iterator.hasNext()) {
+            TimerTimeout timeout = iterator.next();
+
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+                continue;
+            }
+
+            if (timeout.deadline <= deadline) {
+                iterator.remove();
+                timeout.bucket = null;
+                timeout.expire();
+            }
+        }
+    }
+
+    /**
+     * Handle for a scheduled task
+     */
+    public interface Timeout {
+
+        /**
+         * Cancel the task if it has not run yet
+         *
+         * @return true if the task was cancelled by this call
+         */
+        boolean cancel();
+
+        boolean isCancelled();
+
+        boolean isExpired();
+    }
+
+    private final class TimerTimeout implements Timeout {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+
+        // Only accessed by the worker thread
+        private long remainingRounds;
+        private Set<TimerTimeout> bucket;
+
+        private TimerTimeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            pendingCount.decrementAndGet();
+            cancelledTimeouts.add(this);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state.get() == ST_EXPIRED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            pendingCount.decrementAndGet();
+
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.warn("Timer task threw an exception", t);
+            }
+        }
+    }
+}
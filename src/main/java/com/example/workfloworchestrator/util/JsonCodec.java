@@ -0,0 +1,104 @@
+package com.example.workfloworchestrator.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared JSON reader and writer for task executors and messaging
+ * Wraps one configured ObjectMapper and hands out immutable ObjectReader and ObjectWriter
+ * instances, so Jackson's serializer and deserializer caches stay warm across calls.
+ * All methods are thread-safe.
+ */
+public class JsonCodec {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader valueReader;
+    private final ObjectWriter writer;
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    public JsonCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.valueReader = objectMapper.readerFor(Object.class);
+        this.writer = objectMapper.writer();
+    }
+
+    /**
+     * Get a codec with a default mapper, for code created outside the application context
+     *
+     * @return the shared default codec
+     */
+    public static JsonCodec defaultCodec() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Parse JSON into maps, lists and scalars
+     *
+     * @param json the JSON text
+     * @return the parsed value
+     * @throws JsonProcessingException if the text is not valid JSON
+     */
+    public Object read(String json) throws JsonProcessingException {
+        return valueReader.readValue(json);
+    }
+
+    /**
+     * Parse JSON into a type
+     *
+     * @param json the JSON text
+     * @param type the target type
+     * @return the parsed value
+     * @throws JsonProcessingException if the text is not valid JSON or does not fit the type
+     */
+    public <T> T read(String json, Class<T> type) throws JsonProcessingException {
+        return readerFor(type).readValue(json);
+    }
+
+    /**
+     * Serialize a value to JSON
+     *
+     * @param value the value
+     * @return the JSON text
+     * @throws JsonProcessingException if the value cannot be serialized
+     */
+    public String write(Object value) throws JsonProcessingException {
+        return writer.writeValueAsString(value);
+    }
+
+    /**
+     * Create a streaming parser whose tree and value reads go through this codec's mapper
+     *
+     * @param input the JSON input
+     * @return the parser, to be closed by the caller
+     * @throws IOException if the parser cannot be created
+     */
+    public JsonParser createParser(InputStream input) throws IOException {
+        return objectMapper.createParser(input);
+    }
+
+    /**
+     * Get the reader for a type, created once and reused
+     *
+     * @param type the target type
+     * @return the reader
+     */
+    public ObjectReader readerFor(Class<?> type) {
+        return readers.computeIfAbsent(type, objectMapper::readerFor);
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    private static class DefaultHolder {
+        private static final JsonCodec INSTANCE = new JsonCodec(new ObjectMapper().findAndRegisterModules());
+    }
+}
@@ -0,0 +1,567 @@
+package com.example.workfloworchestrator.util;
+
+import java.util.*;
+
+/**
+ * Immutable hash array mapped trie (HAMT)
+ * Updates return a new map that shares all untouched nodes with the original, so
+ * taking a snapshot is O(1) and a single put or remove copies at most one path
+ * of up to seven 32-way nodes. Null keys are not supported; null values are.
+ *
+ * Bulk construction goes through a Builder, which mutates nodes it created itself
+ * in place instead of copying them on every insertion.
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+
+    private static final Object NOT_FOUND = new Object();
+
+    private final Node root;
+    private final int size;
+    private int hash;
+    private Set<Entry<K, V>> entrySet;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Get a persistent copy of a map; persistent maps are returned as they are
+     *
+     * @param map the map to copy
+     * @return the persistent map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentHashMap) {
+            // Safe because the map can never be modified through this reference
+            return (PersistentHashMap<K, V>) map;
+        }
+        if (map == null || map.isEmpty()) {
+            return empty();
+        }
+
+        Builder<K, V> builder = builder();
+        builder.putAll(map);
+        return builder.build();
+    }
+
+    public static <K, V> Builder<K, V> builder() {
+        return new Builder<>(null, 0);
+    }
+
+    /**
+     * Get a builder that starts from this map; the map itself is not affected
+     *
+     * @return the builder
+     */
+    public Builder<K, V> toBuilder() {
+        return new Builder<>(root, size);
+    }
+
+    /**
+     * Get a map with the given entry added or replaced
+     *
+     * @param key the key
+     * @param value the value
+     * @return the new map, or this map if the entry is already present
+     */
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(key, "key");
+        Box added = new Box();
+        Node newRoot = (root != null ? root : BitmapNode.EMPTY).assoc(null, 0, hash(key), key, value, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(newRoot, added.changed ? size + 1 : size);
+    }
+
+    /**
+     * Get a map with all entries of another map added or replaced
+     *
+     * @param map the entries to add
+     * @return the new map
+     */
+    public PersistentHashMap<K, V> plusAll(Map<? extends K, ? extends V> map) {
+        if (map == null || map.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return copyOf(map);
+        }
+        if (map.size() == 1) {
+            Entry<? extends K, ? extends V> entry = map.entrySet().iterator().next();
+            return plus(entry.getKey(), entry.getValue());
+        }
+
+        Builder<K, V> builder = toBuilder();
+        builder.putAll(map);
+        return builder.build();
+    }
+
+    /**
+     * Get a map without the given key
+     *
+     * @param key the key
+     * @return the new map, or this map if the key is absent
+     */
+    public PersistentHashMap<K, V> minus(Object key) {
+        if (root == null || key == null) {
+            return this;
+        }
+        Box removed = new Box();
+        Node newRoot = root.without(null, 0, hash(key), key, removed);
+        if (!removed.changed) {
+            return this;
+        }
+        return newRoot == null ? empty() : new PersistentHashMap<>(newRoot, size - 1);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (root == null || key == null) {
+            return null;
+        }
+        Object value = root.find(0, hash(key), key, NOT_FOUND);
+        return value == NOT_FOUND ? null : (V) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        if (root == null || key == null) {
+            return defaultValue;
+        }
+        Object value = root.find(0, hash(key), key, NOT_FOUND);
+        return value == NOT_FOUND ? defaultValue : (V) value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return root != null && key != null && root.find(0, hash(key), key, NOT_FOUND) != NOT_FOUND;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        Set<Entry<K, V>> entries = entrySet;
+        if (entries == null) {
+            entries = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new EntryIterator<>(root);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+            entrySet = entries;
+        }
+        return entries;
+    }
+
+    @Override
+    public int hashCode() {
+        // Benign race: every thread computes the same value
+        int h = hash;
+        if (h == 0 && size > 0) {
+            h = super.hashCode();
+            hash = h;
+        }
+        return h;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bitpos(int hash, int shift) {
+        return 1 << ((hash >>> shift) & 0x1F);
+    }
+
+    private static Node createNode(Object edit, int shift, Object key1, Object value1,
+                                   int hash2, Object key2, Object value2) {
+        int hash1 = hash(key1);
+        if (hash1 == hash2) {
+            return new CollisionNode(hash1, new Object[]{key1, value1, key2, value2});
+        }
+        Box added = new Box();
+        return BitmapNode.EMPTY
+                .assoc(edit, shift, hash1, key1, value1, added)
+                .assoc(edit, shift, hash2, key2, value2, added);
+    }
+
+    /**
+     * Mutable builder for a persistent map
+     * A builder must not be shared between threads; build() may be called repeatedly.
+     */
+    public static final class Builder<K, V> {
+
+        private Node root;
+        private int size;
+        private Object edit = new Object();
+
+        private Builder(Node root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        public Builder<K, V> put(K key, V value) {
+            Objects.requireNonNull(key, "key");
+            Box added = new Box();
+            root = (root != null ? root : BitmapNode.EMPTY).assoc(edit, 0, hash(key), key, value, added);
+            if (added.changed) {
+                size++;
+            }
+            return this;
+        }
+
+        public Builder<K, V> putAll(Map<? extends K, ? extends V> map) {
+            for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+            return this;
+        }
+
+        public Builder<K, V> remove(Object key) {
+            if (root == null || key == null) {
+                return this;
+            }
+            Box removed = new Box();
+            root = root.without(edit, 0, hash(key), key, removed);
+            if (removed.changed) {
+                size--;
+            }
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public PersistentHashMap<K, V> build() {
+            // Nodes handed out are frozen: later edits through this builder copy them
+            edit = new Object();
+            return root == null || size == 0 ? empty() : new PersistentHashMap<>(root, size);
+        }
+    }
+
+    private static final class Box {
+        private boolean changed;
+    }
+
+    private abstract static class Node {
+
+        // Key/value pairs; a null key marks a child node stored in the value slot
+        Object[] array;
+
+        abstract int pairCount();
+
+        abstract Object find(int shift, int hash, Object key, Object notFound);
+
+        abstract Node assoc(Object edit, int shift, int hash, Object key, Object value, Box added);
+
+        abstract Node without(Object edit, int shift, int hash, Object key, Box removed);
+    }
+
+    private static final class BitmapNode extends Node {
+
+        private static final BitmapNode EMPTY = new BitmapNode(null, 0, new Object[0]);
+
+        private final Object edit;
+        private int bitmap;
+
+        private BitmapNode(Object edit, int bitmap, Object[] array) {
+            this.edit = edit;
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        @Override
+        int pairCount() {
+            return Integer.bitCount(bitmap);
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private boolean ownedBy(Object edit) {
+            return edit != null && edit == this.edit;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key, Object notFound) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return notFound;
+            }
+            int idx = index(bit);
+            Object k = array[2 * idx];
+            Object v = array[2 * idx + 1];
+            if (k == null) {
+                return ((Node) v).find(shift + 5, hash, key, notFound);
+            }
+            return key.equals(k) ? v : notFound;
+        }
+
+        @Override
+        Node assoc(Object edit, int shift, int hash, Object key, Object value, Box added) {
+            int bit = bitpos(hash, shift);
+            int idx = index(bit);
+
+            if ((bitmap & bit) != 0) {
+                Object k = array[2 * idx];
+                Object v = array[2 * idx + 1];
+
+                if (k == null) {
+                    Node child = ((Node) v).assoc(edit, shift + 5, hash, key, value, added);
+                    return child == v ? this : set(edit, 2 * idx + 1, child);
+                }
+                if (key.equals(k)) {
+                    return v == value ? this : set(edit, 2 * idx + 1, value);
+                }
+
+                added.changed = true;
+                Node child = createNode(edit, shift + 5, k, v, hash, key, value);
+                BitmapNode node = set(edit, 2 * idx, null);
+                node.array[2 * idx + 1] = child;
+                return node;
+            }
+
+            added.changed = true;
+            int n = Integer.bitCount(bitmap);
+
+            if (ownedBy(edit) && 2 * n < array.length) {
+                System.arraycopy(array, 2 * idx, array, 2 * (idx + 1), 2 * (n - idx));
+                array[2 * idx] = key;
+                array[2 * idx + 1] = value;
+                bitmap |= bit;
+                return this;
+            }
+
+            // Builders get spare capacity so that later insertions can happen in place
+            Object[] newArray = new Object[2 * (edit != null ? Math.min(32, n + 4) : n + 1)];
+            System.arraycopy(array, 0, newArray, 0, 2 * idx);
+            newArray[2 * idx] = key;
+            newArray[2 * idx + 1] = value;
+            System.arraycopy(array, 2 * idx, newArray, 2 * (idx + 1), 2 * (n - idx));
+
+            if (ownedBy(edit)) {
+                array = newArray;
+                bitmap |= bit;
+                return this;
+            }
+            return new BitmapNode(edit, bitmap | bit, newArray);
+        }
+
+        @Override
+        Node without(Object edit, int shift, int hash, Object key, Box removed) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+
+            int idx = index(bit);
+            Object k = array[2 * idx];
+            Object v = array[2 * idx + 1];
+
+            if (k == null) {
+                Node child = ((Node) v).without(edit, shift + 5, hash, key, removed);
+                if (child == v) {
+                    return this;
+                }
+                if (child != null) {
+                    return set(edit, 2 * idx + 1, child);
+                }
+                return bitmap == bit ? null : removePair(edit, bit, idx);
+            }
+
+            if (!key.equals(k)) {
+                return this;
+            }
+            removed.changed = true;
+            return bitmap == bit ? null : removePair(edit, bit, idx);
+        }
+
+        private BitmapNode set(Object edit, int i, Object element) {
+            if (ownedBy(edit)) {
+                array[i] = element;
+                return this;
+            }
+            Object[] newArray = Arrays.copyOf(array, 2 * Integer.bitCount(bitmap));
+            newArray[i] = element;
+            return new BitmapNode(edit, bitmap, newArray);
+        }
+
+        private BitmapNode removePair(Object edit, int bit, int idx) {
+            int n = Integer.bitCount(bitmap);
+
+            if (ownedBy(edit)) {
+                System.arraycopy(array, 2 * (idx + 1), array, 2 * idx, 2 * (n - idx - 1));
+                array[2 * n - 2] = null;
+                array[2 * n - 1] = null;
+                bitmap ^= bit;
+                return this;
+            }
+
+            Object[] newArray = new Object[2 * (n - 1)];
+            System.arraycopy(array, 0, newArray, 0, 2 * idx);
+            System.arraycopy(array, 2 * (idx + 1), newArray, 2 * idx, 2 * (n - idx - 1));
+            return new BitmapNode(edit, bitmap ^ bit, newArray);
+        }
+    }
+
+    // Keys whose full 32-bit hashes are equal
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+
+        private CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        @Override
+        int pairCount() {
+            return array.length / 2;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key, Object notFound) {
+            if (hash != this.hash) {
+                return notFound;
+            }
+            int i = indexOf(key);
+            return i < 0 ? notFound : array[i + 1];
+        }
+
+        @Override
+        Node assoc(Object edit, int shift, int hash, Object key, Object value, Box added) {
+            if (hash != this.hash) {
+                // Push this node one level down next to the new key
+                return new BitmapNode(edit, bitpos(this.hash, shift), new Object[]{null, this})
+                        .assoc(edit, shift, hash, key, value, added);
+            }
+
+            int i = indexOf(key);
+            if (i >= 0) {
+                if (array[i + 1] == value) {
+                    return this;
+                }
+                Object[] newArray = array.clone();
+                newArray[i + 1] = value;
+                return new CollisionNode(hash, newArray);
+            }
+
+            added.changed = true;
+            Object[] newArray = Arrays.copyOf(array, array.length + 2);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        Node without(Object edit, int shift, int hash, Object key, Box removed) {
+            int i = hash == this.hash ? indexOf(key) : -1;
+            if (i < 0) {
+                return this;
+            }
+
+            removed.changed = true;
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, i);
+            System.arraycopy(array, i + 2, newArray, i, array.length - i - 2);
+            return new CollisionNode(hash, newArray);
+        }
+    }
+
+    private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+
+        // Seven bitmap levels plus one collision level
+        private final Object[][] arrays = new Object[8][];
+        private final int[] positions = new int[8];
+        private final int[] limits = new int[8];
+        private int depth = -1;
+        private Entry<K, V> next;
+
+        private EntryIterator(Node root) {
+            if (root != null) {
+                push(root);
+            }
+            advance();
+        }
+
+        private void push(Node node) {
+            depth++;
+            arrays[depth] = node.array;
+            positions[depth] = 0;
+            limits[depth] = 2 * node.pairCount();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            while (depth >= 0) {
+                if (positions[depth] >= limits[depth]) {
+                    arrays[depth] = null;
+                    depth--;
+                    continue;
+                }
+
+                Object[] array = arrays[depth];
+                int i = positions[depth];
+                positions[depth] = i + 2;
+
+                if (array[i] == null) {
+                    push((Node) array[i + 1]);
+                } else {
+                    next = new SimpleImmutableEntry<>((K) array[i], (V) array[i + 1]);
+                    return;
+                }
+            }
+            next = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> entry = next;
+            advance();
+            return entry;
+        }
+    }
+}
@@ -101,7 +101,7 @@ public class TaskDependencyUtil {
                 .collect(Collectors.toMap(TaskDefinition::getId, task -> task));
 
         Map<Long, Set<Long>> graph = new HashMap<>();
-        Map<Long, Integer> inDegree = new HashMap<>();
+        Map<Long, Integer> inDegree = new LinkedHashMap<>();
 
         // Initialize graph and in-degree
         for (TaskDefinition task : tasks) {
@@ -114,6 +114,11 @@ public class TaskDependencyUtil {
         for (TaskDefinition task : tasks) {
             if (task.hasDependencies()) {
                 for (Long depId : task.getDependsOn()) {
+                    // Dependencies outside of the given task list are treated as already satisfied
+                    if (!graph.containsKey(depId)) {
+                        continue;
+                    }
+
                     // Add edge from dependency to task
                     graph.get(depId).add(task.getId());
                     // Increment in-degree of task
@@ -0,0 +1,206 @@
+package com.example.workfloworchestrator.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Compiled ${...} template for task configuration values
+ * A template is parsed once into literal and placeholder segments and rendered in a single
+ * pass into one StringBuilder. Compiled templates are cached by their source text, so each
+ * configuration value is parsed once no matter how many tasks render it; beyond 4096 templates
+ * the least recently used are dropped.
+ *
+ * Placeholders name a variable, e.g. ${orderId}, or a path into a map or list variable,
+ * e.g. ${parsedResponse.items[0].id}; a variable whose name is the whole placeholder wins
+ * over a path. Placeholders that resolve to null are left in the output as written.
+ * $${ renders a literal ${.
+ */
+public final class VariableTemplate {
+
+    private static final int MAX_CACHED_TEMPLATES = 4096;
+    private static final BoundedCache<String, VariableTemplate> CACHE = new BoundedCache<>(MAX_CACHED_TEMPLATES);
+
+    private final String[] literals;
+    private final Placeholder[] placeholders;
+    private final int literalLength;
+
+    private VariableTemplate(List<String> literals, List<Placeholder> placeholders) {
+        this.literals = literals.toArray(String[]::new);
+        this.placeholders = placeholders.toArray(Placeholder[]::new);
+        this.literalLength = literals.stream().mapToInt(String::length).sum();
+    }
+
+    /**
+     * Render a template string, compiling it on first use
+     *
+     * @param source the template text
+     * @param variables looks up a variable by name, returning null if it is not set
+     * @return the rendered text
+     */
+    public static String render(String source, Function<String, Object> variables) {
+        if (source == null || source.indexOf('$') < 0) {
+            return source;
+        }
+        return compile(source).render(variables);
+    }
+
+    /**
+     * Get the compiled form of a template, from the cache if it has been compiled before
+     *
+     * @param source the template text
+     * @return the compiled template
+     */
+    public static VariableTemplate compile(String source) {
+        VariableTemplate template = CACHE.get(source);
+        if (template == null) {
+            template = parse(source);
+            CACHE.put(source, template);
+        }
+        return template;
+    }
+
+    /**
+     * Parse a template without caching it
+     *
+     * @param source the template text
+     * @return the compiled template
+     */
+    public static VariableTemplate parse(String source) {
+        List<String> literals = new ArrayList<>();
+        List<Placeholder> placeholders = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        int i = 0;
+        while (i < source.length()) {
+            if (source.startsWith("$${", i)) {
+                literal.append("${");
+                i += 3;
+                continue;
+            }
+
+            int end = source.startsWith("${", i) ? source.indexOf('}', i + 2) : -1;
+            if (end > i + 2) {
+                literals.add(literal.toString());
+                literal.setLength(0);
+                placeholders.add(Placeholder.of(source.substring(i + 2, end)));
+                i = end + 1;
+            } else {
+                literal.append(source.charAt(i++));
+            }
+        }
+        literals.add(literal.toString());
+
+        return new VariableTemplate(literals, placeholders);
+    }
+
+    /**
+     * Render this template
+     *
+     * @param variables looks up a variable by name, returning null if it is not set
+     * @return the rendered text
+     */
+    public String render(Function<String, Object> variables) {
+        if (placeholders.length == 0) {
+            return literals[0];
+        }
+
+        StringBuilder result = new StringBuilder(literalLength + 16 * placeholders.length);
+        result.append(literals[0]);
+        for (int i = 0; i < placeholders.length; i++) {
+            Object value = placeholders[i].resolve(variables);
+            if (value != null) {
+                result.append(value);
+            } else {
+                result.append("${").append(placeholders[i].name()).append('}');
+            }
+            result.append(literals[i + 1]);
+        }
+        return result.toString();
+    }
+
+    public int getPlaceholderCount() {
+        return placeholders.length;
+    }
+
+    static int getCacheSize() {
+        return CACHE.size();
+    }
+
+    /**
+     * A placeholder and, if it reads as one, its path: field names as strings, list indexes as integers
+     */
+    private record Placeholder(String name, String root, Object[] path) {
+
+        static Placeholder of(String name) {
+            List<Object> path = new ArrayList<>();
+            int i = 0;
+            int length = name.length();
+
+            while (i < length) {
+                char c = name.charAt(i);
+                if (c == '[') {
+                    int close = name.indexOf(']', i);
+                    if (close < 0 || !isIndex(name, i + 1, close)) {
+                        return new Placeholder(name, null, null);
+                    }
+                    path.add(Integer.parseInt(name, i + 1, close, 10));
+                    i = close + 1;
+                } else {
+                    if (c == '.') {
+                        if (path.isEmpty()) {
+                            return new Placeholder(name, null, null);
+                        }
+                        i++;
+                    }
+                    int end = i;
+                    while (end < length && name.charAt(end) != '.' && name.charAt(end) != '[') {
+                        end++;
+                    }
+                    if (end == i) {
+                        return new Placeholder(name, null, null);
+                    }
+                    path.add(name.substring(i, end));
+                    i = end;
+                }
+            }
+
+            if (path.size() < 2 || !(path.get(0) instanceof String root)) {
+                return new Placeholder(name, null, null);
+            }
+            return new Placeholder(name, root, path.subList(1, path.size()).toArray());
+        }
+
+        Object resolve(Function<String, Object> variables) {
+            Object value = variables.apply(name);
+            if (value != null || path == null) {
+                return value;
+            }
+
+            value = variables.apply(root);
+            for (Object segment : path) {
+                if (value instanceof Map<?, ?> map) {
+                    value = map.get(segment instanceof String ? segment : segment.toString());
+                } else if (value instanceof List<?> list && segment instanceof Integer index) {
+                    value = index < list.size() ? list.get(index) : null;
+                } else {
+                    return null;
+                }
+            }
+            return value;
+        }
+
+        private static boolean isIndex(String name, int start, int end) {
+            if (start == end) {
+                return false;
+            }
+            for (int i = start; i < end; i++) {
+                if (!Character.isDigit(name.charAt(i))) {
+                    return false;
+                }
+            }
+            return end - start < 10;
+        }
+    }
+}
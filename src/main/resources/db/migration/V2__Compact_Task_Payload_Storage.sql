@@ -0,0 +1,10 @@
+-- V2__Compact_Task_Payload_Storage.sql
+-- Optional compact storage for task execution inputs and outputs
+
+ALTER TABLE task_executions ADD COLUMN storage_format VARCHAR(20) DEFAULT 'ROWS' NOT NULL;
+ALTER TABLE task_executions ADD COLUMN inputs_blob BYTEA;
+ALTER TABLE task_executions ADD COLUMN outputs_blob BYTEA;
+
+COMMENT ON COLUMN task_executions.storage_format IS 'ROWS: inputs/outputs in key-value tables, COMPACT: in the *_blob columns';
+COMMENT ON COLUMN task_executions.inputs_blob IS 'Compact encoded input map when storage_format = COMPACT';
+COMMENT ON COLUMN task_executions.outputs_blob IS 'Compact encoded output map when storage_format = COMPACT';
@@ -0,0 +1,19 @@
+-- V3__Scheduler_Scan_Indexes.sql
+-- Secondary indexes for the scheduler, retry and per-workflow access paths
+-- workflow_executions.correlation_id is already covered by its UNIQUE constraint
+
+-- RetryScheduler: status = 'AWAITING_RETRY' AND next_retry_at <= now
+CREATE INDEX idx_task_executions_status_next_retry ON task_executions (status, next_retry_at);
+
+-- Task executions of a workflow execution, and the cascade from workflow_executions
+CREATE INDEX idx_task_executions_workflow_execution ON task_executions (workflow_execution_id);
+
+-- WorkflowScheduler stuck and paused checks: status = ? AND started_at < threshold
+CREATE INDEX idx_workflow_executions_status_started ON workflow_executions (status, started_at);
+
+-- WorkflowScheduler cleanup: terminal status AND completed_at < threshold
+CREATE INDEX idx_workflow_executions_status_completed ON workflow_executions (status, completed_at);
+
+-- Review points of a workflow or task execution, and the cascades from both
+CREATE INDEX idx_user_review_points_workflow_execution ON user_review_points (workflow_execution_id);
+CREATE INDEX idx_user_review_points_task_execution ON user_review_points (task_execution_id);
@@ -0,0 +1,18 @@
+-- V4__Execution_Leases.sql
+-- Lease columns so several orchestrator nodes can share scheduling and execution work
+-- A row is owned by lease_owner until lease_expires_at, and the owner renews it while it works on the row
+
+ALTER TABLE workflow_executions ADD COLUMN lease_owner VARCHAR(255);
+ALTER TABLE workflow_executions ADD COLUMN lease_expires_at TIMESTAMP;
+
+ALTER TABLE task_executions ADD COLUMN lease_owner VARCHAR(255);
+ALTER TABLE task_executions ADD COLUMN lease_expires_at TIMESTAMP;
+
+-- Lease renewal: all rows held by one node
+CREATE INDEX idx_workflow_executions_lease_owner ON workflow_executions (lease_owner);
+CREATE INDEX idx_task_executions_lease_owner ON task_executions (lease_owner);
+
+COMMENT ON COLUMN workflow_executions.lease_owner IS 'Node currently driving this workflow execution, NULL if unclaimed';
+COMMENT ON COLUMN workflow_executions.lease_expires_at IS 'Other nodes may claim the row once this has passed';
+COMMENT ON COLUMN task_executions.lease_owner IS 'Node that claimed this task execution for retry, NULL if unclaimed';
+COMMENT ON COLUMN task_executions.lease_expires_at IS 'Other nodes may claim the row once this has passed';
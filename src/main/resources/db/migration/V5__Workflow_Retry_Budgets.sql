@@ -0,0 +1,15 @@
+-- V5__Workflow_Retry_Budgets.sql
+-- Per-workflow count of failed retry attempts, so restart decisions survive node restarts and are shared in a cluster
+-- Rows are kept only while a workflow keeps failing and are swept once they expire
+
+CREATE TABLE workflow_retry_budgets (
+    workflow_execution_id BIGINT PRIMARY KEY,
+    failure_count INT NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
+
+-- Sweep of expired budgets
+CREATE INDEX idx_workflow_retry_budgets_updated_at ON workflow_retry_budgets (updated_at);
+
+COMMENT ON TABLE workflow_retry_budgets IS 'Consecutive failed retry attempts per workflow execution';
+COMMENT ON COLUMN workflow_retry_budgets.updated_at IS 'Time of the last failure, the budget expires a fixed time after it';
@@ -0,0 +1,7 @@
+-- V6__Workflow_Timeouts.sql
+-- Optional time limit of a whole workflow, measured from the start of its execution
+-- Task time limits already live in task_definitions.timeout_seconds
+
+ALTER TABLE workflow_definitions ADD COLUMN timeout_seconds INT;
+
+COMMENT ON COLUMN workflow_definitions.timeout_seconds IS 'Seconds a workflow execution may run before it is failed, no limit when NULL';
@@ -0,0 +1,23 @@
+-- V7__Event_Outbox.sql
+-- Transactional outbox for events sent to external systems
+-- Rows are written in the transaction of the state change that raised the event and deleted once delivered
+
+CREATE TABLE event_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    destination VARCHAR(50) NOT NULL,
+    event_id VARCHAR(100) NOT NULL,
+    event_type VARCHAR(100) NOT NULL,
+    payload TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    last_error VARCHAR(1000)
+);
+
+-- Relay claims: due rows of one destination
+CREATE INDEX idx_event_outbox_due ON event_outbox (destination, status, next_attempt_at);
+
+COMMENT ON TABLE event_outbox IS 'Events waiting to be delivered to an external destination, at least once';
+COMMENT ON COLUMN event_outbox.status IS 'PENDING until delivered, DEAD once max attempts are used up';
+COMMENT ON COLUMN event_outbox.next_attempt_at IS 'Earliest time of the next delivery attempt, pushed forward while a relay holds the row';
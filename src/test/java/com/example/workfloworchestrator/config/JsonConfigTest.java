@@ -0,0 +1,22 @@
+package com.example.workfloworchestrator.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JsonConfigTest {
+
+    @Test
+    void createBytecodeModule_WithUnknownName_ShouldThrow() {
+        assertThatThrownBy(() -> JsonConfig.createBytecodeModule("turbo"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Unknown JSON bytecode module: turbo");
+    }
+
+    @Test
+    void createBytecodeModule_WithoutModuleOnClasspath_ShouldThrow() {
+        assertThatThrownBy(() -> JsonConfig.createBytecodeModule("Blackbird"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("com.fasterxml.jackson.module.blackbird.BlackbirdModule");
+    }
+}
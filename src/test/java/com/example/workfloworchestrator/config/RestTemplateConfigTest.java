@@ -0,0 +1,114 @@
+package com.example.workfloworchestrator.config;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.io.CloseMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class RestTemplateConfigTest {
+
+    private HttpServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private Set<Integer> clientPorts;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        clientPorts = ConcurrentHashMap.newKeySet();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] response = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void asyncHttpClient_ShouldReuseConnectionsAcrossRequests() throws Exception {
+        // Arrange
+        CloseableHttpAsyncClient client = RestTemplateConfig.asyncHttpClient(new HttpClientProperties(), meterRegistry);
+        client.start();
+        String url = "http://localhost:" + server.getAddress().getPort() + "/ping";
+
+        try {
+            // Act
+            for (int i = 0; i < 3; i++) {
+                SimpleHttpResponse response = client.execute(SimpleRequestBuilder.get(url).build(), null)
+                        .get(5, TimeUnit.SECONDS);
+                assertThat(response.getCode()).isEqualTo(200);
+
+                // The connection goes back to the pool just after the response is handed over
+                await().atMost(5, TimeUnit.SECONDS)
+                        .until(() -> poolGauge("workflow.http.pool.leased", "async") == 0);
+            }
+
+            // Assert: every request came in over the same connection
+            assertThat(clientPorts).hasSize(1);
+            assertThat(poolGauge("workflow.http.pool.max", "async")).isEqualTo(200.0);
+        } finally {
+            client.close(CloseMode.IMMEDIATE);
+        }
+    }
+
+    @Test
+    void blockingHttpClient_ShouldRegisterPoolMetrics() {
+        // Arrange
+        HttpClientProperties properties = new HttpClientProperties();
+        properties.setMaxConnTotal(20);
+
+        // Act
+        CloseableHttpClient client = RestTemplateConfig.blockingHttpClient(properties, meterRegistry);
+
+        // Assert
+        try {
+            assertThat(poolGauge("workflow.http.pool.max", "blocking")).isEqualTo(20.0);
+            assertThat(poolGauge("workflow.http.pool.leased", "blocking")).isZero();
+        } finally {
+            client.close(CloseMode.IMMEDIATE);
+        }
+    }
+
+    @Test
+    void routeOf_ShouldMatchRoutePlannedForTarget() {
+        // Act
+        HttpRoute secure = RestTemplateConfig.routeOf("https://billing.internal");
+        HttpRoute plain = RestTemplateConfig.routeOf("http://inventory.internal:8080");
+
+        // Assert
+        assertThat(secure.isSecure()).isTrue();
+        assertThat(secure.getTargetHost().getPort()).isEqualTo(443);
+        assertThat(plain.isSecure()).isFalse();
+        assertThat(plain.getTargetHost().getPort()).isEqualTo(8080);
+        assertThat(plain.getTargetHost().getHostName()).isEqualTo("inventory.internal");
+    }
+
+    private double poolGauge(String name, String client) {
+        return meterRegistry.get(name).tag("client", client).gauge().value();
+    }
+}
@@ -1,13 +1,16 @@
 package com.example.workfloworchestrator.engine;
 
+import com.example.workfloworchestrator.engine.cancellation.CancellationRegistry;
+import com.example.workfloworchestrator.engine.cancellation.ExecutionDeadlines;
+import com.example.workfloworchestrator.engine.cluster.ClusterLeaseManager;
 import com.example.workfloworchestrator.engine.strategy.ExecutionStrategy;
 import com.example.workfloworchestrator.model.*;
-import com.example.workfloworchestrator.service.EventPublisherService;
 import com.example.workfloworchestrator.service.TaskExecutionService;
 import com.example.workfloworchestrator.service.WorkflowExecutionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -15,6 +18,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
@@ -29,10 +33,15 @@ class WorkflowEngineTest {
     private TaskExecutionService taskExecutionService;
 
     @Mock
-    private EventPublisherService eventPublisherService;
+    private ExecutionStrategy mockStrategy;
 
     @Mock
-    private ExecutionStrategy mockStrategy;
+    private ClusterLeaseManager clusterLeaseManager;
+
+    @Mock
+    private ExecutionDeadlines executionDeadlines;
+
+    private CancellationRegistry cancellationRegistry;
 
     private WorkflowEngine workflowEngine;
     private Map<WorkflowDefinition.ExecutionStrategyType, ExecutionStrategy> executionStrategies;
@@ -42,12 +51,17 @@ class WorkflowEngineTest {
         executionStrategies = Map.of(
                 WorkflowDefinition.ExecutionStrategyType.SEQUENTIAL, mockStrategy
         );
+        cancellationRegistry = new CancellationRegistry();
         workflowEngine = new WorkflowEngine(
                 workflowExecutionService,
                 taskExecutionService,
-                eventPublisherService,
-                executionStrategies
+                executionStrategies,
+                clusterLeaseManager,
+                cancellationRegistry,
+                executionDeadlines
         );
+
+        lenient().when(clusterLeaseManager.tryAcquireWorkflow(anyLong())).thenReturn(true);
     }
 
     @Test
@@ -68,7 +82,119 @@ class WorkflowEngineTest {
         // Assert
         verify(workflowExecutionService).updateWorkflowExecutionStatus(
                 workflowExecutionId, WorkflowStatus.RUNNING);
-        verify(eventPublisherService).publishWorkflowStartedEvent(mockExecution);
+        verify(executionDeadlines).armWorkflowDeadline(mockExecution);
+        verify(executionDeadlines).disarmWorkflowDeadline(workflowExecutionId);
+    }
+
+    @Test
+    void executeWorkflow_ShouldReleaseLeaseWhenExecutionFinishes() {
+        // Arrange
+        Long workflowExecutionId = 1L;
+        WorkflowExecution mockExecution = createMockWorkflowExecution();
+
+        when(workflowExecutionService.getWorkflowExecution(workflowExecutionId))
+                .thenReturn(mockExecution);
+        when(mockStrategy.execute(any(WorkflowExecution.class)))
+                .thenReturn(CompletableFuture.completedFuture(WorkflowStatus.COMPLETED));
+
+        // Act
+        workflowEngine.executeWorkflow(workflowExecutionId);
+
+        // Assert
+        InOrder inOrder = inOrder(clusterLeaseManager, workflowExecutionService);
+        inOrder.verify(clusterLeaseManager).tryAcquireWorkflow(workflowExecutionId);
+        inOrder.verify(workflowExecutionService).updateWorkflowExecutionStatus(workflowExecutionId, WorkflowStatus.COMPLETED);
+        inOrder.verify(clusterLeaseManager).releaseWorkflow(workflowExecutionId);
+    }
+
+    @Test
+    void executeWorkflow_WhenCancelledWhileRunning_ShouldKeepCancelledStatus() {
+        // Arrange
+        Long workflowExecutionId = 1L;
+        WorkflowExecution mockExecution = createMockWorkflowExecution();
+        CompletableFuture<WorkflowStatus> strategyResult = new CompletableFuture<>();
+
+        when(workflowExecutionService.getWorkflowExecution(workflowExecutionId))
+                .thenReturn(mockExecution);
+        when(mockStrategy.execute(any(WorkflowExecution.class)))
+                .thenReturn(strategyResult);
+
+        // Act
+        workflowEngine.executeWorkflow(workflowExecutionId);
+        cancellationRegistry.cancel(workflowExecutionId, WorkflowStatus.CANCELLED);
+        strategyResult.complete(WorkflowStatus.CANCELLED);
+
+        // Assert
+        verify(workflowExecutionService, never()).updateWorkflowExecutionStatus(workflowExecutionId, WorkflowStatus.CANCELLED);
+        verify(clusterLeaseManager).releaseWorkflow(workflowExecutionId);
+        assertThat(cancellationRegistry.getActiveCount()).isZero();
+    }
+
+    @Test
+    void executeWorkflow_WhenStrategyFails_ShouldFailWorkflowAndReleaseLease() {
+        // Arrange
+        Long workflowExecutionId = 1L;
+        WorkflowExecution mockExecution = createMockWorkflowExecution();
+
+        when(workflowExecutionService.getWorkflowExecution(workflowExecutionId))
+                .thenReturn(mockExecution);
+        when(mockStrategy.execute(any(WorkflowExecution.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Strategy error")));
+
+        // Act
+        workflowEngine.executeWorkflow(workflowExecutionId);
+
+        // Assert
+        verify(workflowExecutionService).failWorkflowExecution(workflowExecutionId, "Strategy error");
+        verify(executionDeadlines).disarmWorkflowDeadline(workflowExecutionId);
+        verify(clusterLeaseManager).releaseWorkflow(workflowExecutionId);
+        assertThat(cancellationRegistry.getActiveCount()).isZero();
+    }
+
+    @Test
+    void executeWorkflow_WhenPausedRunFinishesAfterResume_ShouldKeepLeaseOfNewRun() {
+        // Arrange
+        Long workflowExecutionId = 1L;
+        WorkflowExecution mockExecution = createMockWorkflowExecution();
+        CompletableFuture<WorkflowStatus> pausedRun = new CompletableFuture<>();
+        CompletableFuture<WorkflowStatus> resumedRun = new CompletableFuture<>();
+
+        when(workflowExecutionService.getWorkflowExecution(workflowExecutionId))
+                .thenReturn(mockExecution);
+        when(mockStrategy.execute(any(WorkflowExecution.class)))
+                .thenReturn(pausedRun)
+                .thenReturn(resumedRun);
+
+        workflowEngine.executeWorkflow(workflowExecutionId);
+        cancellationRegistry.cancel(workflowExecutionId, WorkflowStatus.PAUSED);
+        workflowEngine.executeWorkflow(workflowExecutionId);
+
+        // Act
+        pausedRun.complete(WorkflowStatus.PAUSED);
+
+        // Assert
+        verify(clusterLeaseManager, never()).releaseWorkflow(workflowExecutionId);
+
+        resumedRun.complete(WorkflowStatus.COMPLETED);
+        verify(clusterLeaseManager).releaseWorkflow(workflowExecutionId);
+    }
+
+    @Test
+    void executeWorkflow_WhenHeldByAnotherNode_ShouldNotExecute() {
+        // Arrange
+        Long workflowExecutionId = 1L;
+        WorkflowExecution mockExecution = createMockWorkflowExecution();
+
+        when(workflowExecutionService.getWorkflowExecution(workflowExecutionId))
+                .thenReturn(mockExecution);
+        when(clusterLeaseManager.tryAcquireWorkflow(workflowExecutionId)).thenReturn(false);
+
+        // Act
+        workflowEngine.executeWorkflow(workflowExecutionId);
+
+        // Assert
+        verify(mockStrategy, never()).execute(any());
+        verify(workflowExecutionService, never()).updateWorkflowExecutionStatus(anyLong(), any());
     }
 
     @Test
@@ -96,6 +222,29 @@ class WorkflowEngineTest {
         verify(taskExecutionService).saveTaskExecution(mockTaskExecution);
     }
 
+    @Test
+    void restartTask_WhenResetFails_ShouldFailWorkflowAndReleaseLease() {
+        // Arrange
+        Long workflowExecutionId = 1L;
+        Long taskExecutionId = 2L;
+        TaskExecution mockTaskExecution = createMockTaskExecution();
+
+        when(workflowExecutionService.getWorkflowExecution(workflowExecutionId))
+                .thenReturn(createMockWorkflowExecution());
+        when(taskExecutionService.getTaskExecution(taskExecutionId))
+                .thenReturn(mockTaskExecution);
+        when(taskExecutionService.saveTaskExecution(mockTaskExecution))
+                .thenThrow(new RuntimeException("Save failed"));
+
+        // Act
+        workflowEngine.restartTask(workflowExecutionId, taskExecutionId);
+
+        // Assert
+        verify(workflowExecutionService).failWorkflowExecution(workflowExecutionId, "Save failed");
+        verify(clusterLeaseManager).releaseWorkflow(workflowExecutionId);
+        verify(mockStrategy, never()).execute(any());
+    }
+
     @Test
     void executeTaskSubset_ShouldExecuteSubsetSuccessfully() {
         // Arrange
@@ -133,9 +282,8 @@ class WorkflowEngineTest {
         workflowEngine.executeWorkflow(workflowExecutionId);
 
         // Assert
-        verify(workflowExecutionService).updateWorkflowExecutionStatus(
-                workflowExecutionId, WorkflowStatus.FAILED);
-        verify(eventPublisherService).publishWorkflowFailedEvent(mockExecution);
+        verify(workflowExecutionService).failWorkflowExecution(workflowExecutionId, "Test error");
+        verify(clusterLeaseManager).releaseWorkflow(workflowExecutionId);
     }
 
     @Test
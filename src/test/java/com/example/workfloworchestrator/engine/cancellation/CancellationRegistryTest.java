@@ -0,0 +1,125 @@
+package com.example.workfloworchestrator.engine.cancellation;
+
+import com.example.workfloworchestrator.model.WorkflowStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CancellationRegistryTest {
+
+    private CancellationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new CancellationRegistry();
+    }
+
+    @Test
+    void cancel_ShouldRunHooksOfTasksInFlight() {
+        // Arrange
+        CancellationToken run = registry.begin(1L);
+        CancellationToken task = run.newChild();
+        AtomicInteger aborted = new AtomicInteger();
+        task.onCancel(aborted::incrementAndGet);
+
+        // Act
+        boolean cancelled = registry.cancel(1L, WorkflowStatus.CANCELLED);
+        registry.cancel(1L, WorkflowStatus.CANCELLED);
+
+        // Assert
+        assertThat(cancelled).isTrue();
+        assertThat(task.isCancelled()).isTrue();
+        assertThat(task.getCancelledAs()).isEqualTo(WorkflowStatus.CANCELLED);
+        assertThat(aborted).hasValue(1);
+    }
+
+    @Test
+    void onCancel_WhenAlreadyCancelled_ShouldRunHookRightAway() {
+        // Arrange
+        CancellationToken run = registry.begin(1L);
+        registry.cancel(1L, WorkflowStatus.PAUSED);
+        AtomicInteger aborted = new AtomicInteger();
+
+        // Act
+        CancellationToken task = run.newChild();
+        task.onCancel(aborted::incrementAndGet);
+
+        // Assert
+        assertThat(task.getCancelledAs()).isEqualTo(WorkflowStatus.PAUSED);
+        assertThat(aborted).hasValue(1);
+    }
+
+    @Test
+    void close_ShouldDetachFinishedTaskFromRun() {
+        // Arrange
+        CancellationToken run = registry.begin(1L);
+        CancellationToken task = run.newChild();
+        AtomicInteger aborted = new AtomicInteger();
+        task.onCancel(aborted::incrementAndGet);
+
+        // Act
+        task.close();
+        registry.cancel(1L, WorkflowStatus.CANCELLED);
+
+        // Assert
+        assertThat(run.isCancelled()).isTrue();
+        assertThat(task.isCancelled()).isFalse();
+        assertThat(aborted).hasValue(0);
+    }
+
+    @Test
+    void begin_AfterCancel_ShouldStartFreshRun() {
+        // Arrange
+        CancellationToken paused = registry.begin(1L);
+        registry.cancel(1L, WorkflowStatus.PAUSED);
+
+        // Act
+        CancellationToken resumed = registry.begin(1L);
+        boolean pausedWasLast = registry.end(1L, paused);
+
+        // Assert
+        assertThat(pausedWasLast).isFalse();
+        assertThat(resumed.isCancelled()).isFalse();
+        assertThat(registry.tokenFor(1L)).isSameAs(resumed);
+
+        assertThat(registry.end(1L, resumed)).isTrue();
+        assertThat(registry.getActiveCount()).isZero();
+    }
+
+    @Test
+    void end_ShouldKeepTokenUntilEveryParticipantEnded() {
+        // Arrange
+        CancellationToken first = registry.begin(1L);
+        CancellationToken nested = registry.begin(1L);
+
+        // Act
+        boolean nestedWasLast = registry.end(1L, nested);
+
+        // Assert
+        assertThat(nestedWasLast).isFalse();
+        assertThat(nested).isSameAs(first);
+        assertThat(registry.tokenFor(1L)).isSameAs(first);
+
+        assertThat(registry.end(1L, first)).isTrue();
+        assertThat(registry.tokenFor(1L)).isSameAs(CancellationToken.NONE);
+        assertThat(registry.cancel(1L, WorkflowStatus.CANCELLED)).isFalse();
+    }
+
+    @Test
+    void current_ShouldExposeBoundTokenOnlyWhileBound() {
+        // Arrange
+        CancellationToken task = registry.begin(1L).newChild();
+
+        // Act & Assert
+        CancellationToken.Registration binding = task.bind();
+        try {
+            assertThat(CancellationToken.current()).isSameAs(task);
+        } finally {
+            binding.close();
+        }
+        assertThat(CancellationToken.current()).isSameAs(CancellationToken.NONE);
+    }
+}
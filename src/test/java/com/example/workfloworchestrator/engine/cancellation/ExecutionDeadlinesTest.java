@@ -0,0 +1,171 @@
+package com.example.workfloworchestrator.engine.cancellation;
+
+import com.example.workfloworchestrator.engine.executor.TaskExecutionBackend;
+import com.example.workfloworchestrator.exception.TaskExecutionException;
+import com.example.workfloworchestrator.model.TaskDefinition;
+import com.example.workfloworchestrator.model.WorkflowDefinition;
+import com.example.workfloworchestrator.model.WorkflowExecution;
+import com.example.workfloworchestrator.model.WorkflowStatus;
+import com.example.workfloworchestrator.service.WorkflowExecutionService;
+import com.example.workfloworchestrator.util.HashedWheelTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExecutionDeadlinesTest {
+
+    @Mock
+    private TaskExecutionBackend taskExecutionBackend;
+
+    @Mock
+    private WorkflowExecutionService workflowExecutionService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private HashedWheelTimer timer;
+    private ExecutionDeadlines executionDeadlines;
+
+    @BeforeEach
+    void setUp() {
+        timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 8);
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(taskExecutionBackend.getExecutor()).thenReturn((Executor) Runnable::run);
+        executionDeadlines = new ExecutionDeadlines(timer, taskExecutionBackend, workflowExecutionService, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    void newTaskToken_ShouldCarryDeadlineOnlyForTasksWithTimeout() {
+        // Arrange
+        TaskDefinition withTimeout = new TaskDefinition();
+        withTimeout.setTimeoutSeconds(30);
+        TaskDefinition withoutTimeout = new TaskDefinition();
+
+        // Act
+        CancellationToken timed = executionDeadlines.newTaskToken(new CancellationToken(), withTimeout);
+        CancellationToken untimed = executionDeadlines.newTaskToken(new CancellationToken(), withoutTimeout);
+        CancellationToken outsideRun = executionDeadlines.newTaskToken(CancellationToken.NONE, withTimeout);
+
+        // Assert
+        assertThat(timed.getDeadline()).isNotNull();
+        assertThat(untimed.getDeadline()).isNull();
+        assertThat(outsideRun.getDeadline()).isNotNull();
+    }
+
+    @Test
+    void getTaskTimeoutSeconds_ShouldFallBackToDefault() {
+        // Arrange
+        ReflectionTestUtils.setField(executionDeadlines, "defaultTaskTimeoutSeconds", 120);
+        TaskDefinition withTimeout = new TaskDefinition();
+        withTimeout.setTimeoutSeconds(30);
+
+        // Act & Assert
+        assertThat(executionDeadlines.getTaskTimeoutSeconds(withTimeout)).isEqualTo(30);
+        assertThat(executionDeadlines.getTaskTimeoutSeconds(new TaskDefinition())).isEqualTo(120);
+    }
+
+    @Test
+    void enforce_WhenTaskRunsPastDeadline_ShouldFailResponseAndAbortWork() {
+        // Arrange
+        TaskDefinition taskDefinition = new TaskDefinition();
+        taskDefinition.setTimeoutSeconds(1);
+        CancellationToken workflowToken = new CancellationToken();
+        CancellationToken taskToken = workflowToken.newChild(Duration.ofMillis(50));
+        AtomicBoolean aborted = new AtomicBoolean();
+        taskToken.onCancel(() -> aborted.set(true));
+        CompletableFuture<Object> response = new CompletableFuture<>();
+
+        // Act
+        executionDeadlines.enforce(taskDefinition, response, taskToken);
+
+        // Assert - the token is cancelled and the timeout counted before the response fails
+        assertThatThrownBy(() -> response.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TaskExecutionException.class)
+                .hasMessageContaining("Task timed out after 1 seconds");
+        assertThat(aborted).isTrue();
+        assertThat(taskToken.getCancelledAs()).isEqualTo(WorkflowStatus.FAILED);
+        assertThat(workflowToken.isCancelled()).isFalse();
+        assertThat(meterRegistry.counter("workflow.timeouts", "scope", "task").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void enforce_WhenTaskFinishesInTime_ShouldDisarmTimeout() {
+        // Arrange
+        TaskDefinition taskDefinition = new TaskDefinition();
+        taskDefinition.setTimeoutSeconds(60);
+        CancellationToken taskToken = executionDeadlines.newTaskToken(new CancellationToken(), taskDefinition);
+        CompletableFuture<Object> response = new CompletableFuture<>();
+        executionDeadlines.enforce(taskDefinition, response, taskToken);
+
+        // Act
+        response.complete("done");
+
+        // Assert
+        assertThat(timer.getPendingTimeouts()).isZero();
+        assertThat(taskToken.isCancelled()).isFalse();
+    }
+
+    @Test
+    void armWorkflowDeadline_WhenDeadlinePassed_ShouldTimeOutWorkflow() {
+        // Arrange
+        WorkflowExecution workflowExecution = createWorkflowExecution(5, LocalDateTime.now().minusSeconds(10));
+        when(workflowExecutionService.timeoutWorkflowExecution(anyLong(), anyString())).thenReturn(true);
+
+        // Act
+        executionDeadlines.armWorkflowDeadline(workflowExecution);
+
+        // Assert
+        verify(workflowExecutionService, timeout(5000)).timeoutWorkflowExecution(1L, "Workflow timed out after 5 seconds");
+        assertThat(executionDeadlines.getArmedWorkflowCount()).isZero();
+    }
+
+    @Test
+    void disarmWorkflowDeadline_ShouldKeepWorkflowFromTimingOut() {
+        // Arrange
+        WorkflowExecution workflowExecution = createWorkflowExecution(60, LocalDateTime.now());
+        executionDeadlines.armWorkflowDeadline(workflowExecution);
+        executionDeadlines.armWorkflowDeadline(workflowExecution);
+
+        // Act
+        executionDeadlines.disarmWorkflowDeadline(1L);
+
+        // Assert
+        assertThat(executionDeadlines.getArmedWorkflowCount()).isZero();
+        assertThat(timer.getPendingTimeouts()).isZero();
+        verifyNoInteractions(workflowExecutionService);
+    }
+
+    private WorkflowExecution createWorkflowExecution(int timeoutSeconds, LocalDateTime startedAt) {
+        WorkflowDefinition workflowDefinition = new WorkflowDefinition();
+        workflowDefinition.setTimeoutSeconds(timeoutSeconds);
+
+        WorkflowExecution workflowExecution = new WorkflowExecution();
+        workflowExecution.setId(1L);
+        workflowExecution.setWorkflowDefinition(workflowDefinition);
+        workflowExecution.setStartedAt(startedAt);
+        return workflowExecution;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.workfloworchestrator.engine.executor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+class JsonPathExtractorTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void extract_ShouldReturnValuesAtPointers() throws Exception {
+        // Arrange
+        JsonPathExtractor extractor = JsonPathExtractor.parse(
+                "id=/order/id, count=/order/count, paid=/order/paid, first=/order/lines/0, " +
+                        "slashed=/order/a~1b, copy=/order/id");
+        String json = "{\"skipped\":{\"deep\":[1,2,3]},\"order\":{\"id\":\"A-1\",\"count\":3,\"paid\":true," +
+                "\"lines\":[{\"sku\":\"X\"},{\"sku\":\"Y\"}],\"a/b\":\"escaped\",\"note\":null}}";
+
+        // Act
+        Map<String, Object> values = extractor.extract(objectMapper.createParser(json));
+
+        // Assert
+        assertThat(values).containsOnly(
+                entry("id", "A-1"),
+                entry("copy", "A-1"),
+                entry("count", 3),
+                entry("paid", true),
+                entry("first", "{\"sku\":\"X\"}"),
+                entry("slashed", "escaped"));
+    }
+
+    @Test
+    void extract_ShouldLeaveOutMissingAndNullValues() throws Exception {
+        // Arrange
+        JsonPathExtractor extractor = JsonPathExtractor.parse("note=/note, missing=/items/5");
+
+        // Act
+        Map<String, Object> values = extractor.extract(objectMapper.createParser("{\"note\":null,\"items\":[1]}"));
+
+        // Assert
+        assertThat(values).isEmpty();
+    }
+
+    @Test
+    void extract_WithRootPointer_ShouldReturnWholeDocument() throws Exception {
+        // Arrange
+        JsonPathExtractor extractor = JsonPathExtractor.parse("all=");
+
+        // Act
+        Map<String, Object> values = extractor.extract(objectMapper.createParser("[1, {\"a\": 2}]"));
+
+        // Assert
+        assertThat(values).containsOnly(entry("all", "[1,{\"a\":2}]"));
+    }
+
+    @Test
+    void parse_WithMalformedSpec_ShouldThrow() {
+        assertThatThrownBy(() -> JsonPathExtractor.parse("/no/name"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> JsonPathExtractor.parse("name=no-leading-slash"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(JsonPathExtractor.parse(" ").isEmpty()).isTrue();
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.workfloworchestrator.engine.executor;
+
+import com.example.workfloworchestrator.engine.cancellation.CancellationToken;
+import com.example.workfloworchestrator.exception.TaskExecutionException;
+import com.example.workfloworchestrator.messaging.RabbitMQSender;
+import com.example.workfloworchestrator.messaging.TaskMessage;
+import com.example.workfloworchestrator.model.ExecutionContext;
+import com.example.workfloworchestrator.model.TaskDefinition;
+import com.example.workfloworchestrator.model.WorkflowStatus;
+import com.example.workfloworchestrator.util.HashedWheelTimer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RabbitMQTaskExecutorTest {
+
+    @Mock
+    private RabbitMQSender rabbitMQSender;
+
+    private HashedWheelTimer timer;
+
+    private RabbitMQTaskExecutor taskExecutor;
+
+    @BeforeEach
+    void setUp() {
+        timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 64);
+        taskExecutor = new RabbitMQTaskExecutor(rabbitMQSender, timer);
+        lenient().when(rabbitMQSender.sendMessageAsync(anyString(), anyString(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    void executeAsync_WhenTaskCancelled_ShouldDropPendingResponse() {
+        // Arrange
+        TaskDefinition taskDefinition = createTaskDefinition("60");
+        CancellationToken cancellation = new CancellationToken();
+
+        CompletableFuture<Map<String, Object>> result;
+        CancellationToken.Registration binding = cancellation.bind();
+        try {
+            result = taskExecutor.executeAsync(taskDefinition, new ExecutionContext());
+        } finally {
+            binding.close();
+        }
+        assertThat(taskExecutor.getPendingResponseCount()).isEqualTo(1);
+
+        // Act
+        cancellation.cancel(WorkflowStatus.CANCELLED);
+
+        // Assert
+        assertThat(result).isCompletedExceptionally();
+        assertThat(taskExecutor.getPendingResponseCount()).isZero();
+        assertThat(timer.getPendingTimeouts()).isZero();
+    }
+
+    @Test
+    void executeAsync_WhenResponseArrives_ShouldCompleteWithoutBlocking() throws Exception {
+        // Arrange
+        TaskDefinition taskDefinition = createTaskDefinition("60");
+        ExecutionContext context = new ExecutionContext();
+        context.setVariable("orderId", "42");
+
+        // Act
+        CompletableFuture<Map<String, Object>> result = taskExecutor.executeAsync(taskDefinition, context);
+
+        // Assert - the call returns before any response is received
+        assertThat(taskExecutor.supportsAsyncExecution()).isTrue();
+        assertThat(result).isNotDone();
+        assertThat(taskExecutor.getPendingResponseCount()).isEqualTo(1);
+
+        ArgumentCaptor<TaskMessage> messageCaptor = ArgumentCaptor.forClass(TaskMessage.class);
+        verify(rabbitMQSender).sendMessageAsync(eq("tasks"), eq("tasks.process"), messageCaptor.capture());
+        assertThat(messageCaptor.getValue().getInputs()).containsEntry("orderId", "42");
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "done");
+        taskExecutor.handleResponse(messageCaptor.getValue().getCorrelationId(), response);
+
+        assertThat(result.get(5, TimeUnit.SECONDS))
+                .containsEntry("status", "done")
+                .containsEntry("executedVia", "rabbitmq");
+        assertThat(taskExecutor.getPendingResponseCount()).isZero();
+        assertThat(timer.getPendingTimeouts()).isZero();
+    }
+
+    @Test
+    void executeAsync_WhenNoResponse_ShouldTimeOutFromTimer() {
+        // Arrange
+        TaskDefinition taskDefinition = createTaskDefinition("1");
+
+        // Act
+        CompletableFuture<Map<String, Object>> result = taskExecutor.executeAsync(taskDefinition, new ExecutionContext());
+
+        // Assert
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TaskExecutionException.class)
+                .hasMessageContaining("timed out after 1 seconds");
+        assertThat(taskExecutor.getPendingResponseCount()).isZero();
+    }
+
+    @Test
+    void executeAsync_WhenSendFails_ShouldFailAndReleasePendingResponse() {
+        // Arrange
+        TaskDefinition taskDefinition = createTaskDefinition("60");
+        doThrow(new IllegalStateException("broker down"))
+                .when(rabbitMQSender).sendMessageAsync(anyString(), anyString(), any());
+
+        // Act
+        CompletableFuture<Map<String, Object>> result = taskExecutor.executeAsync(taskDefinition, new ExecutionContext());
+
+        // Assert
+        assertThat(result).isCompletedExceptionally();
+        assertThat(taskExecutor.getPendingResponseCount()).isZero();
+        assertThat(timer.getPendingTimeouts()).isZero();
+    }
+
+    @Test
+    void executeAsync_WhenBrokerRejectsMessage_ShouldFailWithoutWaitingForTimeout() {
+        // Arrange
+        TaskDefinition taskDefinition = createTaskDefinition("60");
+        CompletableFuture<Void> confirm = new CompletableFuture<>();
+        when(rabbitMQSender.sendMessageAsync(anyString(), anyString(), any())).thenReturn(confirm);
+        CompletableFuture<Map<String, Object>> result = taskExecutor.executeAsync(taskDefinition, new ExecutionContext());
+        assertThat(result).isNotDone();
+
+        // Act
+        confirm.completeExceptionally(new AmqpException("was not confirmed: nack"));
+
+        // Assert
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(TaskExecutionException.class)
+                .hasMessageContaining("was not confirmed");
+        assertThat(taskExecutor.getPendingResponseCount()).isZero();
+        assertThat(timer.getPendingTimeouts()).isZero();
+    }
+
+    @Test
+    void executeAsync_WithMissingConfig_ShouldFailWithoutSending() {
+        // Arrange
+        TaskDefinition taskDefinition = new TaskDefinition();
+        taskDefinition.setConfiguration(new HashMap<>());
+
+        // Act
+        CompletableFuture<Map<String, Object>> result = taskExecutor.executeAsync(taskDefinition, new ExecutionContext());
+
+        // Assert
+        assertThat(result).isCompletedExceptionally();
+        verifyNoInteractions(rabbitMQSender);
+    }
+
+    private TaskDefinition createTaskDefinition(String timeoutSeconds) {
+        TaskDefinition taskDefinition = new TaskDefinition();
+        taskDefinition.setName("rabbit-task");
+        Map<String, String> config = new HashMap<>();
+        config.put("exchange", "tasks");
+        config.put("routingKey", "tasks.process");
+        config.put("timeoutSeconds", timeoutSeconds);
+        taskDefinition.setConfiguration(config);
+        return taskDefinition;
+    }
+}
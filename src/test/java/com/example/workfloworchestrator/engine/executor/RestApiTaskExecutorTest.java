@@ -1,19 +1,40 @@
 package com.example.workfloworchestrator.engine.executor;
 
+import com.example.workfloworchestrator.config.HttpClientProperties;
+import com.example.workfloworchestrator.engine.cancellation.CancellationToken;
 import com.example.workfloworchestrator.exception.TaskExecutionException;
 import com.example.workfloworchestrator.model.ExecutionContext;
 import com.example.workfloworchestrator.model.TaskDefinition;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.workfloworchestrator.model.WorkflowStatus;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.core5.io.CloseMode;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.*;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -25,14 +46,113 @@ class RestApiTaskExecutorTest {
     @Mock
     private RestTemplate restTemplate;
 
-    @Mock
-    private ObjectMapper objectMapper;
-
     private RestApiTaskExecutor taskExecutor;
 
+    private HttpServer server;
+
+    @TempDir
+    Path blobDirectory;
+    private CloseableHttpAsyncClient asyncClient;
+
     @BeforeEach
     void setUp() {
-        taskExecutor = new RestApiTaskExecutor(restTemplate, objectMapper);
+        taskExecutor = new RestApiTaskExecutor(restTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (asyncClient != null) {
+            asyncClient.close(CloseMode.IMMEDIATE);
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void execute_WithStreamMode_ShouldExtractPathsAndSpillLargeBody() throws Exception {
+        // Arrange
+        String json = largeOrderJson();
+        String url = startJsonServer("/orders", json);
+        RestApiTaskExecutor streamingExecutor = createStreamingExecutor(null, 1024);
+
+        TaskDefinition taskDefinition = new TaskDefinition();
+        Map<String, String> config = new HashMap<>();
+        config.put("url", url);
+        config.put("method", "GET");
+        config.put("responseMode", "STREAM");
+        config.put("extractPaths", "orderId=/data/id, total=/data/total, tags=/data/tags, sku=/items/999/sku");
+        taskDefinition.setConfiguration(config);
+
+        // Act
+        Map<String, Object> result = streamingExecutor.execute(taskDefinition, new ExecutionContext());
+
+        // Assert
+        assertThat(result.get("success")).isEqualTo(true);
+        assertThat(result.get("orderId")).isEqualTo("A-1");
+        assertThat(result.get("total")).isEqualTo(12.5);
+        assertThat(result.get("tags")).isEqualTo("[\"x\",\"y\"]");
+        assertThat(result.get("sku")).isEqualTo("SKU-999");
+        assertThat(result).doesNotContainKeys("responseBody", "parsedResponse");
+        assertThat(result.get("responseBodySize")).isEqualTo((long) json.getBytes(StandardCharsets.UTF_8).length);
+
+        ResponseBlobStore blobStore = (ResponseBlobStore) ReflectionTestUtils.getField(streamingExecutor, "blobStore");
+        try (InputStream blob = blobStore.open((String) result.get("responseBodyBlob"))) {
+            assertThat(new String(blob.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(json);
+        }
+    }
+
+    @Test
+    void executeAsync_WithStreamMode_ShouldExtractPathsWithoutKeepingBody() throws Exception {
+        // Arrange
+        String url = startJsonServer("/orders", largeOrderJson());
+        asyncClient = HttpAsyncClients.createDefault();
+        asyncClient.start();
+        RestApiTaskExecutor streamingExecutor = createStreamingExecutor(asyncClient, 1024);
+
+        TaskDefinition taskDefinition = new TaskDefinition();
+        Map<String, String> config = new HashMap<>();
+        config.put("url", url);
+        config.put("method", "GET");
+        config.put("responseMode", "STREAM");
+        config.put("extractPaths", "orderId=/data/id");
+        config.put("storeResponseBody", "false");
+        taskDefinition.setConfiguration(config);
+
+        // Act
+        Map<String, Object> result = streamingExecutor.executeAsync(taskDefinition, new ExecutionContext())
+                .get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(result.get("statusCode")).isEqualTo(200);
+        assertThat(result.get("orderId")).isEqualTo("A-1");
+        assertThat(result).doesNotContainKeys("responseBody", "responseBodyBlob");
+        try (Stream<Path> blobs = Files.list(blobDirectory)) {
+            assertThat(blobs).isEmpty();
+        }
+    }
+
+    @Test
+    void execute_WithStreamModeAndSmallBody_ShouldKeepBodyInline() throws Exception {
+        // Arrange
+        String url = startJsonServer("/status", "{\"state\":\"ok\"}");
+        RestApiTaskExecutor streamingExecutor = createStreamingExecutor(null, 1024);
+
+        TaskDefinition taskDefinition = new TaskDefinition();
+        Map<String, String> config = new HashMap<>();
+        config.put("url", url);
+        config.put("method", "GET");
+        config.put("responseMode", "STREAM");
+        config.put("extractPaths", "state=/state, missing=/nothing/here");
+        taskDefinition.setConfiguration(config);
+
+        // Act
+        Map<String, Object> result = streamingExecutor.execute(taskDefinition, new ExecutionContext());
+
+        // Assert
+        assertThat(result.get("state")).isEqualTo("ok");
+        assertThat(result.get("responseBody")).isEqualTo("{\"state\":\"ok\"}");
+        assertThat(result).doesNotContainKeys("missing", "responseBodyBlob");
     }
 
     @Test
@@ -134,4 +254,148 @@ class RestApiTaskExecutorTest {
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("Required task configuration parameter missing: url");
     }
+
+    @Test
+    void executeAsync_WithAsyncClient_ShouldCallServerWithoutBlocking() throws Exception {
+        // Arrange
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/orders", exchange -> {
+            byte[] requestBody = exchange.getRequestBody().readAllBytes();
+            byte[] response = ("{\"method\":\"" + exchange.getRequestMethod() + "\",\"received\":"
+                    + new String(requestBody, StandardCharsets.UTF_8) + "}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(201, response.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response);
+            }
+        });
+        server.start();
+        RestApiTaskExecutor asyncExecutor = createAsyncExecutor();
+
+        TaskDefinition taskDefinition = new TaskDefinition();
+        Map<String, String> config = new HashMap<>();
+        config.put("url", "http://localhost:" + server.getAddress().getPort() + "/orders");
+        config.put("method", "POST");
+        config.put("requestBody", "{\"item\":\"café\"}");
+        taskDefinition.setConfiguration(config);
+
+        // Act
+        Map<String, Object> result = asyncExecutor.executeAsync(taskDefinition, new ExecutionContext())
+                .get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(asyncExecutor.supportsAsyncExecution()).isTrue();
+        assertThat(result.get("success")).isEqualTo(true);
+        assertThat(result.get("statusCode")).isEqualTo(201);
+        assertThat(result.get("responseBody")).isEqualTo("{\"method\":\"POST\",\"received\":{\"item\":\"café\"}}");
+        assertThat(result.get("parsedResponse")).isEqualTo(Map.of("method", "POST", "received", Map.of("item", "café")));
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    void executeAsync_ShouldProcessBufferedResponseOffIoThread() throws Exception {
+        // Arrange
+        String url = startJsonServer("/status", "{\"state\":\"ok\"}");
+        asyncClient = HttpAsyncClients.createDefault();
+        asyncClient.start();
+        AtomicBoolean handedOff = new AtomicBoolean();
+        RestApiTaskExecutor asyncExecutor = new RestApiTaskExecutor(restTemplate, new HttpClientProperties(),
+                asyncClient, new ResponseBlobStore(), task -> {
+                    handedOff.set(true);
+                    task.run();
+                });
+
+        TaskDefinition taskDefinition = new TaskDefinition();
+        taskDefinition.setConfiguration(new HashMap<>(Map.of("url", url, "method", "GET")));
+
+        // Act
+        Map<String, Object> result = asyncExecutor.executeAsync(taskDefinition, new ExecutionContext())
+                .get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(result.get("parsedResponse")).isEqualTo(Map.of("state", "ok"));
+        assertThat(handedOff).isTrue();
+    }
+
+    @Test
+    void executeAsync_WhenTaskCancelled_ShouldAbortRequest() throws Exception {
+        // Arrange
+        CountDownLatch requestReceived = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/slow", exchange -> {
+            requestReceived.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+        RestApiTaskExecutor asyncExecutor = createAsyncExecutor();
+
+        TaskDefinition taskDefinition = new TaskDefinition();
+        Map<String, String> config = new HashMap<>();
+        config.put("url", "http://localhost:" + server.getAddress().getPort() + "/slow");
+        config.put("method", "GET");
+        taskDefinition.setConfiguration(config);
+
+        CancellationToken cancellation = new CancellationToken().newChild();
+        CompletableFuture<Map<String, Object>> result;
+        CancellationToken.Registration binding = cancellation.bind();
+        try {
+            result = asyncExecutor.executeAsync(taskDefinition, new ExecutionContext());
+        } finally {
+            binding.close();
+        }
+        assertThat(requestReceived.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Act
+        cancellation.cancel(WorkflowStatus.CANCELLED);
+
+        // Assert
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(result).isCompletedExceptionally();
+        release.countDown();
+    }
+
+    private RestApiTaskExecutor createAsyncExecutor() {
+        asyncClient = HttpAsyncClients.createDefault();
+        asyncClient.start();
+        return new RestApiTaskExecutor(restTemplate, new HttpClientProperties(), asyncClient,
+                new ResponseBlobStore(), Runnable::run);
+    }
+
+    private RestApiTaskExecutor createStreamingExecutor(CloseableHttpAsyncClient client, int maxInMemoryBytes) {
+        ResponseBlobStore blobStore = new ResponseBlobStore();
+        ReflectionTestUtils.setField(blobStore, "directory", blobDirectory);
+        RestApiTaskExecutor executor = new RestApiTaskExecutor(new RestTemplate(), new HttpClientProperties(), client,
+                blobStore, Runnable::run);
+        ReflectionTestUtils.setField(executor, "maxInMemoryBytes", maxInMemoryBytes);
+        return executor;
+    }
+
+    private String startJsonServer(String path, String json) throws IOException {
+        byte[] response = json.getBytes(StandardCharsets.UTF_8);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(path, exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response);
+            }
+        });
+        server.start();
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    private String largeOrderJson() {
+        StringBuilder json = new StringBuilder("{\"items\":[");
+        for (int i = 0; i < 1000; i++) {
+            json.append(i > 0 ? "," : "").append("{\"sku\":\"SKU-").append(i).append("\",\"qty\":1}");
+        }
+        return json.append("],\"data\":{\"id\":\"A-1\",\"total\":12.5,\"tags\":[\"x\",\"y\"]}}").toString();
+    }
 }
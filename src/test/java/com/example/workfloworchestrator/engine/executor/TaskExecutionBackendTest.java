@@ -0,0 +1,198 @@
+package com.example.workfloworchestrator.engine.executor;
+
+import com.example.workfloworchestrator.config.TaskExecutionProperties;
+import com.example.workfloworchestrator.exception.TaskExecutionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class TaskExecutionBackendTest {
+
+    private TaskExecutionBackend backend;
+
+    @AfterEach
+    void tearDown() {
+        if (backend != null) {
+            backend.shutdown();
+        }
+    }
+
+    @Test
+    void submit_WithVirtualBackend_ShouldRunOnVirtualThread() throws Exception {
+        // Arrange
+        backend = new TaskExecutionBackend(new TaskExecutionProperties());
+
+        // Act
+        CompletableFuture<Boolean> result = backend.submit("rest-api", () -> Thread.currentThread().isVirtual());
+
+        // Assert
+        assertThat(result.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void submit_WithPlatformBackend_ShouldRunOnPlatformThread() throws Exception {
+        // Arrange
+        TaskExecutionProperties properties = new TaskExecutionProperties();
+        properties.setBackend(TaskExecutionProperties.Backend.PLATFORM);
+        backend = new TaskExecutionBackend(properties);
+
+        // Act
+        CompletableFuture<String> result = backend.submit("rest-api", () -> Thread.currentThread().getName());
+
+        // Assert
+        assertThat(result.get(5, TimeUnit.SECONDS)).startsWith("workflow-exec-");
+    }
+
+    @Test
+    void submit_WithConcurrencyLimit_ShouldHoldBackWorkBeyondLimit() throws Exception {
+        // Arrange
+        TaskExecutionProperties properties = new TaskExecutionProperties();
+        properties.getConcurrencyLimits().put("rest-api", 1);
+        backend = new TaskExecutionBackend(properties);
+
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        AtomicBoolean secondStarted = new AtomicBoolean(false);
+
+        // Act
+        CompletableFuture<String> first = backend.submit("rest-api", () -> {
+            firstStarted.countDown();
+            awaitQuietly(releaseFirst);
+            return "first";
+        });
+        assertThat(firstStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<String> second = backend.submit("rest-api", () -> {
+            secondStarted.set(true);
+            return "second";
+        });
+        CompletableFuture<String> otherType = backend.submit("rabbitmq", () -> "other");
+
+        // Assert
+        assertThat(otherType.get(5, TimeUnit.SECONDS)).isEqualTo("other");
+        assertThat(backend.getAvailablePermits("rest-api")).isZero();
+        assertThat(secondStarted).isFalse();
+
+        releaseFirst.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("second");
+        assertThat(backend.getAvailablePermits("rest-api")).isEqualTo(1);
+        assertThat(backend.getAvailablePermits("rabbitmq")).isEqualTo(-1);
+    }
+
+    @Test
+    void submit_WhenCancelled_ShouldInterruptRunningWork() throws Exception {
+        // Arrange
+        backend = new TaskExecutionBackend(new TaskExecutionProperties());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        CompletableFuture<String> result = backend.submit("rest-api", () -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "finished";
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Act
+        result.cancel(true);
+
+        // Assert
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(result).isCancelled();
+    }
+
+    @Test
+    void submit_WhenTimedOut_ShouldInterruptRunningWork() throws Exception {
+        // Arrange
+        backend = new TaskExecutionBackend(new TaskExecutionProperties());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        CompletableFuture<String> result = backend.submit("rest-api", () -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "finished";
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Act
+        result.completeExceptionally(new TaskExecutionException("Task timed out after 1 seconds"));
+
+        // Assert
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(result).isCompletedExceptionally();
+    }
+
+    @Test
+    void submitAsync_WithConcurrencyLimit_ShouldHoldSlotUntilResultCompletes() throws Exception {
+        // Arrange
+        TaskExecutionProperties properties = new TaskExecutionProperties();
+        properties.getConcurrencyLimits().put("rabbitmq", 1);
+        backend = new TaskExecutionBackend(properties);
+
+        CompletableFuture<String> firstResponse = new CompletableFuture<>();
+        CompletableFuture<String> secondResponse = new CompletableFuture<>();
+        AtomicBoolean secondStarted = new AtomicBoolean(false);
+
+        // Act
+        CompletableFuture<String> first = backend.submitAsync("rabbitmq", () -> firstResponse);
+        CompletableFuture<String> second = backend.submitAsync("rabbitmq", () -> {
+            secondStarted.set(true);
+            return secondResponse;
+        });
+
+        // Assert - the first response is pending, so its slot is still taken
+        assertThat(backend.getAvailablePermits("rabbitmq")).isZero();
+        assertThat(secondStarted).isFalse();
+
+        firstResponse.complete("first");
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+
+        await().atMost(5, TimeUnit.SECONDS).untilTrue(secondStarted);
+        secondResponse.complete("second");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("second");
+        assertThat(backend.getAvailablePermits("rabbitmq")).isEqualTo(1);
+    }
+
+    @Test
+    void submitAsync_WhenCancelled_ShouldReleaseSlotAndCancelStartedWork() {
+        // Arrange
+        TaskExecutionProperties properties = new TaskExecutionProperties();
+        properties.getConcurrencyLimits().put("rabbitmq", 1);
+        backend = new TaskExecutionBackend(properties);
+
+        CompletableFuture<String> response = new CompletableFuture<>();
+        CompletableFuture<String> result = backend.submitAsync("rabbitmq", () -> response);
+
+        // Act
+        result.cancel(false);
+
+        // Assert
+        assertThat(response).isCancelled();
+        assertThat(backend.getAvailablePermits("rabbitmq")).isEqualTo(1);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
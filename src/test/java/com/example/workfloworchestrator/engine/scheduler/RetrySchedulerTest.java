@@ -1,18 +1,25 @@
 package com.example.workfloworchestrator.engine.scheduler;
 
 import com.example.workfloworchestrator.engine.WorkflowEngine;
+import com.example.workfloworchestrator.engine.cluster.ClusterLeaseManager;
 import com.example.workfloworchestrator.model.*;
+import com.example.workfloworchestrator.repository.TaskRetryCandidate;
+import com.example.workfloworchestrator.repository.WorkflowRetryBudgetRepository;
 import com.example.workfloworchestrator.service.EventPublisherService;
 import com.example.workfloworchestrator.service.TaskExecutionService;
+import com.example.workfloworchestrator.service.WorkflowRetryBudgetService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -33,23 +40,52 @@ class RetrySchedulerTest {
     @Mock
     private WorkflowEngine workflowEngine;
 
+    @Mock
+    private ClusterLeaseManager clusterLeaseManager;
+
+    @Mock
+    private RetryTimer retryTimer;
+
+    @Mock
+    private WorkflowRetryBudgetRepository retryBudgetRepository;
+
+    private WorkflowRetryBudgetService retryBudgetService;
+
     private RetryScheduler retryScheduler;
 
     @BeforeEach
     void setUp() {
+        retryBudgetService = new WorkflowRetryBudgetService(retryBudgetRepository, new SimpleMeterRegistry());
         retryScheduler = new RetryScheduler(
                 taskExecutionService,
                 eventPublisherService,
-                workflowEngine
+                workflowEngine,
+                clusterLeaseManager,
+                retryTimer,
+                retryBudgetService
         );
+
+        lenient().when(taskExecutionService.resetForRetry(anyLong())).thenReturn(true);
+
+        // Budget rows counted in a map in place of the database
+        Map<Long, Integer> storedFailures = new HashMap<>();
+        lenient().when(retryBudgetRepository.incrementFailures(anyLong(), any(), any()))
+                .thenAnswer(invocation -> {
+                    Integer failures = storedFailures.computeIfPresent(invocation.getArgument(0), (id, count) -> count + 1);
+                    return failures != null ? failures : 0;
+                });
+        lenient().doAnswer(invocation -> storedFailures.put(invocation.getArgument(0), 1))
+                .when(retryBudgetRepository).insertFirstFailure(anyLong(), any());
+        lenient().doAnswer(invocation -> storedFailures.remove(invocation.getArgument(0)))
+                .when(retryBudgetRepository).delete(anyLong());
     }
 
     @Test
     void retryFailedTasks_ShouldRetryTasksScheduledForRetry() {
         // Arrange
-        TaskExecution taskExecution1 = createTaskForRetry(1L, 100L, 1);
-        TaskExecution taskExecution2 = createTaskForRetry(2L, 200L, 2);
-        List<TaskExecution> tasksToRetry = Arrays.asList(taskExecution1, taskExecution2);
+        TaskRetryCandidate taskExecution1 = createTaskForRetry(1L, 100L, 1);
+        TaskRetryCandidate taskExecution2 = createTaskForRetry(2L, 200L, 2);
+        List<TaskRetryCandidate> tasksToRetry = Arrays.asList(taskExecution1, taskExecution2);
 
         when(taskExecutionService.getTasksToRetry(any(LocalDateTime.class)))
                 .thenReturn(tasksToRetry);
@@ -61,22 +97,63 @@ class RetrySchedulerTest {
         verify(taskExecutionService).getTasksToRetry(any(LocalDateTime.class));
 
         // Verify task statuses were reset
-        verify(taskExecutionService).saveTaskExecution(argThat(task ->
-                task.getId().equals(1L) && task.getStatus() == TaskStatus.PENDING));
-        verify(taskExecutionService).saveTaskExecution(argThat(task ->
-                task.getId().equals(2L) && task.getStatus() == TaskStatus.PENDING));
+        verify(taskExecutionService).resetForRetry(1L);
+        verify(taskExecutionService).resetForRetry(2L);
 
         // Verify tasks were executed
         verify(taskExecutionService).executeTask(1L);
         verify(taskExecutionService).executeTask(2L);
     }
 
+    @Test
+    void retryFailedTasks_WhenRetryNotYetDue_ShouldArmTimerInsteadOfRetrying() {
+        // Arrange
+        TaskRetryCandidate upcomingTask = new TaskRetryCandidate(1L, 100L, 1, LocalDateTime.now().plusSeconds(30));
+
+        when(taskExecutionService.getTasksToRetry(any(LocalDateTime.class)))
+                .thenReturn(List.of(upcomingTask));
+
+        // Act
+        retryScheduler.retryFailedTasks();
+
+        // Assert - the scan looks one interval ahead
+        ArgumentCaptor<LocalDateTime> dueBeforeCaptor = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(taskExecutionService).getTasksToRetry(dueBeforeCaptor.capture());
+        assertThat(dueBeforeCaptor.getValue()).isAfter(LocalDateTime.now().plusSeconds(50));
+
+        verify(retryTimer).schedule(upcomingTask);
+        verify(taskExecutionService, never()).resetForRetry(anyLong());
+        verify(taskExecutionService, never()).executeTask(anyLong());
+    }
+
+    @Test
+    void retryFailedTasks_WhenClustered_ShouldRetryClaimedTasksOnly() {
+        // Arrange
+        TaskRetryCandidate claimedTask = createTaskForRetry(1L, 100L, 1);
+
+        CompletableFuture<TaskExecution> attempt = new CompletableFuture<>();
+
+        when(clusterLeaseManager.isEnabled()).thenReturn(true);
+        when(clusterLeaseManager.claimTasksToRetry(any(LocalDateTime.class)))
+                .thenReturn(List.of(claimedTask));
+        when(taskExecutionService.executeTask(1L)).thenReturn(attempt);
+
+        // Act
+        retryScheduler.retryFailedTasks();
+
+        // Assert - the lease is handed back once the attempt is over
+        verify(taskExecutionService, never()).getTasksToRetry(any());
+        verify(taskExecutionService).resetForRetry(1L);
+        verify(taskExecutionService).executeTask(1L);
+        verify(clusterLeaseManager).releaseTaskWhenDone(1L, attempt);
+    }
+
     @Test
     void retryFailedTasks_WhenRetryExecutionFails_ShouldContinueWithOtherTasks() {
         // Arrange
-        TaskExecution taskExecution1 = createTaskForRetry(1L, 100L, 1);
-        TaskExecution taskExecution2 = createTaskForRetry(2L, 200L, 2);
-        List<TaskExecution> tasksToRetry = Arrays.asList(taskExecution1, taskExecution2);
+        TaskRetryCandidate taskExecution1 = createTaskForRetry(1L, 100L, 1);
+        TaskRetryCandidate taskExecution2 = createTaskForRetry(2L, 200L, 2);
+        List<TaskRetryCandidate> tasksToRetry = Arrays.asList(taskExecution1, taskExecution2);
 
         when(taskExecutionService.getTasksToRetry(any(LocalDateTime.class)))
                 .thenReturn(tasksToRetry);
@@ -90,17 +167,16 @@ class RetrySchedulerTest {
         verify(taskExecutionService).executeTask(1L);
         verify(taskExecutionService).executeTask(2L); // Should still try second task
 
-        // Verify retry tracker is updated for the failed workflow
-        Map<Long, Integer> retryTracker = getRetryTracker();
-        assertThat(retryTracker).containsEntry(100L, 1);
+        // Verify the failure counts against the workflow's retry budget
+        assertThat(retryBudgetService.getFailures(100L)).isEqualTo(1);
     }
 
     @Test
     void retryFailedTasks_WhenMultipleRetriesFailForSameWorkflow_ShouldRestartWorkflow() {
         // Arrange
-        TaskExecution taskExecution1 = createTaskForRetry(1L, 100L, 1);
-        TaskExecution taskExecution2 = createTaskForRetry(2L, 100L, 2);
-        TaskExecution taskExecution3 = createTaskForRetry(3L, 100L, 3);
+        TaskRetryCandidate taskExecution1 = createTaskForRetry(1L, 100L, 1);
+        TaskRetryCandidate taskExecution2 = createTaskForRetry(2L, 100L, 2);
+        TaskRetryCandidate taskExecution3 = createTaskForRetry(3L, 100L, 3);
 
         // First call returns tasks to retry
         when(taskExecutionService.getTasksToRetry(any(LocalDateTime.class)))
@@ -118,15 +194,15 @@ class RetrySchedulerTest {
         // Assert
         verify(workflowEngine).executeWorkflow(100L);
 
-        // Verify retry tracker is cleared after restart
-        Map<Long, Integer> retryTracker = getRetryTracker();
-        assertThat(retryTracker).doesNotContainKey(100L);
+        // Verify the budget is reset after restart
+        assertThat(retryBudgetService.getFailures(100L)).isZero();
+        verify(retryBudgetRepository).delete(100L);
     }
 
     @Test
     void retryFailedTasks_WhenWorkflowRestartFails_ShouldLogError() {
         // Arrange
-        TaskExecution taskExecution = createTaskForRetry(1L, 100L, 1);
+        TaskRetryCandidate taskExecution = createTaskForRetry(1L, 100L, 1);
 
         when(taskExecutionService.getTasksToRetry(any(LocalDateTime.class)))
                 .thenReturn(Arrays.asList(taskExecution));
@@ -156,7 +232,7 @@ class RetrySchedulerTest {
 
         // Assert
         verify(taskExecutionService).getTasksToRetry(any(LocalDateTime.class));
-        verify(taskExecutionService, never()).saveTaskExecution(any());
+        verify(taskExecutionService, never()).resetForRetry(any());
         verify(taskExecutionService, never()).executeTask(any());
         verify(workflowEngine, never()).executeWorkflow(any());
     }
@@ -164,18 +240,18 @@ class RetrySchedulerTest {
     @Test
     void retryFailedTasks_WithMixedSuccessAndFailure_ShouldHandleCorrectly() {
         // Arrange
-        TaskExecution successTask = createTaskForRetry(1L, 100L, 1);
-        TaskExecution failTask = createTaskForRetry(2L, 200L, 1);
-        TaskExecution anotherSuccessTask = createTaskForRetry(3L, 300L, 1);
+        TaskRetryCandidate successTask = createTaskForRetry(1L, 100L, 1);
+        TaskRetryCandidate failTask = createTaskForRetry(2L, 200L, 1);
+        TaskRetryCandidate anotherSuccessTask = createTaskForRetry(3L, 300L, 1);
 
         when(taskExecutionService.getTasksToRetry(any(LocalDateTime.class)))
                 .thenReturn(Arrays.asList(successTask, failTask, anotherSuccessTask));
 
         // Mock successful execution for tasks 1 and 3 - return completed CompletableFuture
         when(taskExecutionService.executeTask(1L))
-                .thenReturn(CompletableFuture.completedFuture(successTask));
+                .thenReturn(CompletableFuture.completedFuture(new TaskExecution()));
         when(taskExecutionService.executeTask(3L))
-                .thenReturn(CompletableFuture.completedFuture(anotherSuccessTask));
+                .thenReturn(CompletableFuture.completedFuture(new TaskExecution()));
 
         // Mock failure for task 2
         doThrow(new RuntimeException("Task retry failed"))
@@ -189,96 +265,68 @@ class RetrySchedulerTest {
         verify(taskExecutionService).executeTask(2L);
         verify(taskExecutionService).executeTask(3L);
 
-        // Verify only the failed workflow is tracked
-        Map<Long, Integer> retryTracker = getRetryTracker();
-        assertThat(retryTracker).containsEntry(200L, 1);
-        assertThat(retryTracker).doesNotContainKey(100L);
-        assertThat(retryTracker).doesNotContainKey(300L);
+        // Verify only the failed workflow is charged
+        assertThat(retryBudgetService.getFailures(200L)).isEqualTo(1);
+        assertThat(retryBudgetService.getFailures(100L)).isZero();
+        assertThat(retryBudgetService.getFailures(300L)).isZero();
     }
 
     @Test
-    void cleanupRetryTracker_ShouldClearAllEntries() {
-        // Arrange - Add some entries to the retry tracker
-        TaskExecution taskExecution = createTaskForRetry(1L, 100L, 1);
+    void retryFailedTasks_WithDifferentRetryCountsForSameWorkflow_ShouldAccumulateRetries() {
+        // Arrange
+        TaskRetryCandidate taskExecution1 = createTaskForRetry(1L, 100L, 1);
+
         when(taskExecutionService.getTasksToRetry(any(LocalDateTime.class)))
-                .thenReturn(Arrays.asList(taskExecution));
+                .thenReturn(Arrays.asList(taskExecution1));
         doThrow(new RuntimeException("Retry failed"))
                 .when(taskExecutionService).executeTask(1L);
 
-        // Add entries to the tracker
+        // Act - call multiple times
+        retryScheduler.retryFailedTasks();
         retryScheduler.retryFailedTasks();
-
-        // Verify tracker has entries
-        Map<Long, Integer> retryTracker = getRetryTracker();
-        assertThat(retryTracker).isNotEmpty();
-
-        // Act
-        retryScheduler.cleanupRetryTracker();
 
         // Assert
-        assertThat(retryTracker).isEmpty();
+        assertThat(retryBudgetService.getFailures(100L)).isEqualTo(2);
     }
 
     @Test
-    void retryFailedTasks_WithDifferentRetryCountsForSameWorkflow_ShouldAccumulateRetries() {
+    void retryFailedTasks_ShouldResetTaskBeforeExecutingIt() {
         // Arrange
-        TaskExecution taskExecution1 = createTaskForRetry(1L, 100L, 1);
+        TaskRetryCandidate taskExecution = createTaskForRetry(1L, 100L, 1);
 
         when(taskExecutionService.getTasksToRetry(any(LocalDateTime.class)))
-                .thenReturn(Arrays.asList(taskExecution1));
-        doThrow(new RuntimeException("Retry failed"))
-                .when(taskExecutionService).executeTask(1L);
+                .thenReturn(Arrays.asList(taskExecution));
 
-        // Act - call multiple times
-        retryScheduler.retryFailedTasks();
+        // Act
         retryScheduler.retryFailedTasks();
 
         // Assert
-        Map<Long, Integer> retryTracker = getRetryTracker();
-        assertThat(retryTracker).containsEntry(100L, 2);
+        InOrder inOrder = inOrder(taskExecutionService);
+        inOrder.verify(taskExecutionService).resetForRetry(1L);
+        inOrder.verify(taskExecutionService).executeTask(1L);
     }
 
     @Test
-    void retryFailedTasks_ShouldResetTaskExecutionFields() {
+    void retryFailedTasks_WhenTaskNoLongerAwaitingRetry_ShouldSkipIt() {
         // Arrange
-        TaskExecution taskExecution = createTaskForRetry(1L, 100L, 1);
-        taskExecution.setStartedAt(LocalDateTime.now().minusMinutes(5));
-        taskExecution.setCompletedAt(LocalDateTime.now().minusMinutes(4));
+        TaskRetryCandidate taskExecution1 = createTaskForRetry(1L, 100L, 1);
+        TaskRetryCandidate taskExecution2 = createTaskForRetry(2L, 200L, 1);
 
         when(taskExecutionService.getTasksToRetry(any(LocalDateTime.class)))
-                .thenReturn(Arrays.asList(taskExecution));
+                .thenReturn(Arrays.asList(taskExecution1, taskExecution2));
+        when(taskExecutionService.resetForRetry(1L)).thenReturn(false);
 
         // Act
         retryScheduler.retryFailedTasks();
 
         // Assert
-        verify(taskExecutionService).saveTaskExecution(argThat(task -> {
-            assertThat(task.getStartedAt()).isNull();
-            assertThat(task.getCompletedAt()).isNull();
-            assertThat(task.getStatus()).isEqualTo(TaskStatus.PENDING);
-            return true;
-        }));
-    }
-
-    private TaskExecution createTaskForRetry(Long taskId, Long workflowId, int retryCount) {
-        TaskExecution taskExecution = new TaskExecution();
-        taskExecution.setId(taskId);
-        taskExecution.setWorkflowExecutionId(workflowId);
-        taskExecution.setStatus(TaskStatus.AWAITING_RETRY);
-        taskExecution.setRetryCount(retryCount);
-        taskExecution.setNextRetryAt(LocalDateTime.now().minusMinutes(1));
-
-        TaskDefinition taskDefinition = new TaskDefinition();
-        taskDefinition.setId(taskId);
-        taskDefinition.setName("test-task-" + taskId);
-        taskDefinition.setType("rest-api");
-        taskExecution.setTaskDefinition(taskDefinition);
-
-        return taskExecution;
+        verify(taskExecutionService, never()).executeTask(1L);
+        verify(taskExecutionService).executeTask(2L);
+        verify(clusterLeaseManager).releaseTaskWhenDone(1L, null);
+        assertThat(retryBudgetService.size()).isZero();
     }
 
-    @SuppressWarnings("unchecked")
-    private Map<Long, Integer> getRetryTracker() {
-        return (Map<Long, Integer>) ReflectionTestUtils.getField(retryScheduler, "workflowRetryTracker");
+    private TaskRetryCandidate createTaskForRetry(Long taskId, Long workflowId, int retryCount) {
+        return new TaskRetryCandidate(taskId, workflowId, retryCount, LocalDateTime.now().minusSeconds(1));
     }
 }
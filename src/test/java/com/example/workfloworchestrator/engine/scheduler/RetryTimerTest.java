@@ -0,0 +1,88 @@
+package com.example.workfloworchestrator.engine.scheduler;
+
+import com.example.workfloworchestrator.engine.executor.TaskExecutionBackend;
+import com.example.workfloworchestrator.repository.TaskRetryCandidate;
+import com.example.workfloworchestrator.util.HashedWheelTimer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RetryTimerTest {
+
+    @Mock
+    private TaskExecutionBackend taskExecutionBackend;
+
+    @Mock
+    private RetryScheduler retryScheduler;
+
+    private HashedWheelTimer timer;
+    private RetryTimer retryTimer;
+
+    @BeforeEach
+    void setUp() {
+        timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 8);
+        lenient().when(taskExecutionBackend.getExecutor()).thenReturn((Executor) Runnable::run);
+        retryTimer = new RetryTimer(timer, taskExecutionBackend, retryScheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    void schedule_ShouldRetryTaskAtItsDueTime() {
+        // Arrange
+        TaskRetryCandidate candidate = new TaskRetryCandidate(1L, 100L, 1, LocalDateTime.now().plusNanos(100_000_000));
+
+        // Act
+        retryTimer.schedule(candidate);
+
+        // Assert
+        assertThat(retryTimer.isArmed(1L)).isTrue();
+        verify(retryScheduler, after(50).never()).retryTask(any());
+        verify(retryScheduler, timeout(5000)).retryTask(candidate);
+        assertThat(retryTimer.getArmedCount()).isZero();
+    }
+
+    @Test
+    void schedule_WhenRearmedWithNewDueTime_ShouldRetryOnlyOnce() {
+        // Arrange
+        TaskRetryCandidate first = new TaskRetryCandidate(1L, 100L, 1, LocalDateTime.now().plusSeconds(60));
+        TaskRetryCandidate second = new TaskRetryCandidate(1L, 100L, 2, LocalDateTime.now().plusNanos(50_000_000));
+
+        // Act
+        retryTimer.schedule(first);
+        retryTimer.schedule(second);
+
+        // Assert
+        verify(retryScheduler, timeout(5000)).retryTask(second);
+        verify(retryScheduler, never()).retryTask(first);
+        assertThat(timer.getPendingTimeouts()).isZero();
+    }
+
+    @Test
+    void cancel_ShouldDisarmRetry() {
+        // Arrange
+        retryTimer.schedule(new TaskRetryCandidate(1L, 100L, 1, LocalDateTime.now().plusNanos(50_000_000)));
+
+        // Act
+        retryTimer.cancel(1L);
+
+        // Assert
+        verify(retryScheduler, after(200).never()).retryTask(any());
+        assertThat(retryTimer.isArmed(1L)).isFalse();
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.workfloworchestrator.engine.scheduler;
 
 import com.example.workfloworchestrator.engine.WorkflowEngine;
+import com.example.workfloworchestrator.engine.cluster.ClusterLeaseManager;
 import com.example.workfloworchestrator.model.*;
-import com.example.workfloworchestrator.service.EventPublisherService;
+import com.example.workfloworchestrator.repository.WorkflowExecutionSummary;
 import com.example.workfloworchestrator.service.WorkflowExecutionService;
+import com.example.workfloworchestrator.service.WorkflowRetentionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,10 +29,13 @@ class WorkflowSchedulerTest {
     private WorkflowExecutionService workflowExecutionService;
 
     @Mock
-    private EventPublisherService eventPublisherService;
+    private WorkflowEngine workflowEngine;
 
     @Mock
-    private WorkflowEngine workflowEngine;
+    private WorkflowRetentionService workflowRetentionService;
+
+    @Mock
+    private ClusterLeaseManager clusterLeaseManager;
 
     private WorkflowScheduler workflowScheduler;
 
@@ -38,8 +43,9 @@ class WorkflowSchedulerTest {
     void setUp() {
         workflowScheduler = new WorkflowScheduler(
                 workflowExecutionService,
-                eventPublisherService,
-                workflowEngine
+                workflowEngine,
+                workflowRetentionService,
+                clusterLeaseManager
         );
 
         // Set configuration properties using reflection
@@ -51,9 +57,9 @@ class WorkflowSchedulerTest {
     @Test
     void checkStuckWorkflows_ShouldDetectAndRetryStuckWorkflows() {
         // Arrange
-        WorkflowExecution stuckWorkflow1 = createStuckWorkflow(1L, LocalDateTime.now().minusHours(1));
-        WorkflowExecution stuckWorkflow2 = createStuckWorkflow(2L, LocalDateTime.now().minusHours(2));
-        List<WorkflowExecution> stuckWorkflows = Arrays.asList(stuckWorkflow1, stuckWorkflow2);
+        WorkflowExecutionSummary stuckWorkflow1 = createStuckWorkflow(1L, LocalDateTime.now().minusHours(1));
+        WorkflowExecutionSummary stuckWorkflow2 = createStuckWorkflow(2L, LocalDateTime.now().minusHours(2));
+        List<WorkflowExecutionSummary> stuckWorkflows = Arrays.asList(stuckWorkflow1, stuckWorkflow2);
 
         when(workflowExecutionService.getStuckWorkflowExecutions(any(LocalDateTime.class)))
                 .thenReturn(stuckWorkflows);
@@ -74,8 +80,24 @@ class WorkflowSchedulerTest {
         verify(workflowEngine).executeWorkflow(2L);
 
         // Verify no status updates (since auto-retry succeeded)
-        verify(workflowExecutionService, never()).updateWorkflowExecutionStatus(anyLong(), eq(WorkflowStatus.FAILED));
-        verify(eventPublisherService, never()).publishWorkflowFailedEvent(any());
+        verify(workflowExecutionService, never()).failWorkflowExecution(anyLong(), anyString());
+    }
+
+    @Test
+    void checkStuckWorkflows_WhenClustered_ShouldResumeClaimedWorkflowsOnly() {
+        // Arrange
+        WorkflowExecutionSummary claimedWorkflow = createStuckWorkflow(1L, LocalDateTime.now().minusHours(1));
+
+        when(clusterLeaseManager.isEnabled()).thenReturn(true);
+        when(clusterLeaseManager.claimStuckWorkflows(any(LocalDateTime.class)))
+                .thenReturn(List.of(claimedWorkflow));
+
+        // Act
+        workflowScheduler.checkStuckWorkflows();
+
+        // Assert
+        verify(workflowExecutionService, never()).getStuckWorkflowExecutions(any());
+        verify(workflowEngine).executeWorkflow(1L);
     }
 
     @Test
@@ -83,8 +105,8 @@ class WorkflowSchedulerTest {
         // Arrange
         ReflectionTestUtils.setField(workflowScheduler, "stuckWorkflowAutoRetry", false);
 
-        WorkflowExecution stuckWorkflow = createStuckWorkflow(1L, LocalDateTime.now().minusHours(1));
-        List<WorkflowExecution> stuckWorkflows = Arrays.asList(stuckWorkflow);
+        WorkflowExecutionSummary stuckWorkflow = createStuckWorkflow(1L, LocalDateTime.now().minusHours(1));
+        List<WorkflowExecutionSummary> stuckWorkflows = Arrays.asList(stuckWorkflow);
 
         when(workflowExecutionService.getStuckWorkflowExecutions(any(LocalDateTime.class)))
                 .thenReturn(stuckWorkflows);
@@ -94,17 +116,14 @@ class WorkflowSchedulerTest {
 
         // Assert
         verify(workflowEngine, never()).executeWorkflow(anyLong());
-        verify(workflowExecutionService).updateWorkflowExecutionStatus(1L, WorkflowStatus.FAILED);
-        verify(eventPublisherService).publishWorkflowFailedEvent(stuckWorkflow);
-
-        assertThat(stuckWorkflow.getErrorMessage()).isEqualTo("Workflow execution timed out");
+        verify(workflowExecutionService).failWorkflowExecution(1L, "Workflow execution timed out");
     }
 
     @Test
     void checkStuckWorkflows_When_RestartFails_ShouldMarkAsFailed() {
         // Arrange
-        WorkflowExecution stuckWorkflow = createStuckWorkflow(1L, LocalDateTime.now().minusHours(1));
-        List<WorkflowExecution> stuckWorkflows = Arrays.asList(stuckWorkflow);
+        WorkflowExecutionSummary stuckWorkflow = createStuckWorkflow(1L, LocalDateTime.now().minusHours(1));
+        List<WorkflowExecutionSummary> stuckWorkflows = Arrays.asList(stuckWorkflow);
 
         when(workflowExecutionService.getStuckWorkflowExecutions(any(LocalDateTime.class)))
                 .thenReturn(stuckWorkflows);
@@ -116,11 +135,8 @@ class WorkflowSchedulerTest {
 
         // Assert
         verify(workflowEngine).executeWorkflow(1L);
-        verify(workflowExecutionService).updateWorkflowExecutionStatus(1L, WorkflowStatus.FAILED);
-        verify(eventPublisherService).publishWorkflowFailedEvent(stuckWorkflow);
-
-        assertThat(stuckWorkflow.getErrorMessage())
-                .startsWith("Workflow execution timed out and auto-retry failed:");
+        verify(workflowExecutionService).failWorkflowExecution(eq(1L),
+                startsWith("Workflow execution timed out and auto-retry failed:"));
     }
 
     @Test
@@ -134,75 +150,47 @@ class WorkflowSchedulerTest {
 
         // Assert
         verify(workflowEngine, never()).executeWorkflow(anyLong());
-        verify(workflowExecutionService, never()).updateWorkflowExecutionStatus(anyLong(), any());
-        verify(eventPublisherService, never()).publishWorkflowFailedEvent(any());
+        verify(workflowExecutionService, never()).failWorkflowExecution(anyLong(), any());
     }
 
     @Test
-    void cleanupOldWorkflowExecutions_ShouldDeleteOldWorkflows() {
+    void cleanupOldWorkflowExecutions_ShouldPurgeWorkflowsOlderThanRetention() {
         // Arrange
-        WorkflowExecution oldWorkflow1 = createCompletedWorkflow(1L, LocalDateTime.now().minusDays(35));
-        WorkflowExecution oldWorkflow2 = createCompletedWorkflow(2L, LocalDateTime.now().minusDays(40));
-        List<WorkflowExecution> oldWorkflows = Arrays.asList(oldWorkflow1, oldWorkflow2);
-
-        when(workflowExecutionService.findCompletedWorkflowsOlderThan(any(LocalDateTime.class)))
-                .thenReturn(oldWorkflows);
+        when(workflowRetentionService.purgeCompletedBefore(any(LocalDateTime.class)))
+                .thenReturn(2L);
 
         // Act
         workflowScheduler.cleanupOldWorkflowExecutions();
 
         // Assert
         ArgumentCaptor<LocalDateTime> thresholdCaptor = ArgumentCaptor.forClass(LocalDateTime.class);
-        verify(workflowExecutionService).findCompletedWorkflowsOlderThan(thresholdCaptor.capture());
+        verify(workflowRetentionService).purgeCompletedBefore(thresholdCaptor.capture());
 
         LocalDateTime capturedThreshold = thresholdCaptor.getValue();
         assertThat(capturedThreshold).isBefore(LocalDateTime.now().minusDays(29));
         assertThat(capturedThreshold).isAfter(LocalDateTime.now().minusDays(31));
 
-        // Verify each old workflow is deleted
-        verify(workflowExecutionService).deleteWorkflowExecution(1L);
-        verify(workflowExecutionService).deleteWorkflowExecution(2L);
-    }
-
-    @Test
-    void cleanupOldWorkflowExecutions_WhenDeletionFails_ShouldContinueWithOthers() {
-        // Arrange
-        WorkflowExecution oldWorkflow1 = createCompletedWorkflow(1L, LocalDateTime.now().minusDays(35));
-        WorkflowExecution oldWorkflow2 = createCompletedWorkflow(2L, LocalDateTime.now().minusDays(40));
-        List<WorkflowExecution> oldWorkflows = Arrays.asList(oldWorkflow1, oldWorkflow2);
-
-        when(workflowExecutionService.findCompletedWorkflowsOlderThan(any(LocalDateTime.class)))
-                .thenReturn(oldWorkflows);
-        doThrow(new RuntimeException("Failed to delete"))
-                .when(workflowExecutionService).deleteWorkflowExecution(1L);
-
-        // Act
-        workflowScheduler.cleanupOldWorkflowExecutions();
-
-        // Assert
-        verify(workflowExecutionService).deleteWorkflowExecution(1L);
-        verify(workflowExecutionService).deleteWorkflowExecution(2L);
+        // Deletion goes through the bulk retention path, not entity by entity
+        verify(workflowExecutionService, never()).findCompletedWorkflowsOlderThan(any());
+        verify(workflowExecutionService, never()).deleteWorkflowExecution(anyLong());
     }
 
     @Test
-    void cleanupOldWorkflowExecutions_WithNoOldWorkflows_ShouldNotPerformAnyDeletions() {
+    void cleanupOldWorkflowExecutions_WhenPurgeFails_ShouldNotPropagate() {
         // Arrange
-        when(workflowExecutionService.findCompletedWorkflowsOlderThan(any(LocalDateTime.class)))
-                .thenReturn(Arrays.asList());
+        when(workflowRetentionService.purgeCompletedBefore(any(LocalDateTime.class)))
+                .thenThrow(new RuntimeException("Database unavailable"));
 
-        // Act
-        workflowScheduler.cleanupOldWorkflowExecutions();
-
-        // Assert
-        verify(workflowExecutionService, never()).deleteWorkflowExecution(anyLong());
+        // Act & Assert
+        assertThatCode(() -> workflowScheduler.cleanupOldWorkflowExecutions()).doesNotThrowAnyException();
     }
 
     @Test
     void checkPausedWorkflows_ShouldDetectLongPausedWorkflows() {
         // Arrange
-        WorkflowExecution pausedWorkflow1 = createPausedWorkflow(1L, LocalDateTime.now().minusHours(25));
-        WorkflowExecution pausedWorkflow2 = createPausedWorkflow(2L, LocalDateTime.now().minusHours(30));
-        List<WorkflowExecution> pausedWorkflows = Arrays.asList(pausedWorkflow1, pausedWorkflow2);
+        WorkflowExecutionSummary pausedWorkflow1 = createPausedWorkflow(1L, LocalDateTime.now().minusHours(25));
+        WorkflowExecutionSummary pausedWorkflow2 = createPausedWorkflow(2L, LocalDateTime.now().minusHours(30));
+        List<WorkflowExecutionSummary> pausedWorkflows = Arrays.asList(pausedWorkflow1, pausedWorkflow2);
 
         when(workflowExecutionService.findPausedWorkflowsOlderThan(any(LocalDateTime.class)))
                 .thenReturn(pausedWorkflows);
@@ -241,8 +229,8 @@ class WorkflowSchedulerTest {
         // Arrange
         ReflectionTestUtils.setField(workflowScheduler, "stuckWorkflowTimeoutMinutes", 60);
 
-        WorkflowExecution stuckWorkflow = createStuckWorkflow(1L, LocalDateTime.now().minusMinutes(90));
-        List<WorkflowExecution> stuckWorkflows = Arrays.asList(stuckWorkflow);
+        WorkflowExecutionSummary stuckWorkflow = createStuckWorkflow(1L, LocalDateTime.now().minusMinutes(90));
+        List<WorkflowExecutionSummary> stuckWorkflows = Arrays.asList(stuckWorkflow);
 
         when(workflowExecutionService.getStuckWorkflowExecutions(any(LocalDateTime.class)))
                 .thenReturn(stuckWorkflows);
@@ -264,48 +252,23 @@ class WorkflowSchedulerTest {
         // Arrange
         ReflectionTestUtils.setField(workflowScheduler, "completedWorkflowRetentionDays", 7);
 
-        WorkflowExecution oldWorkflow = createCompletedWorkflow(1L, LocalDateTime.now().minusDays(10));
-        List<WorkflowExecution> oldWorkflows = Arrays.asList(oldWorkflow);
-
-        when(workflowExecutionService.findCompletedWorkflowsOlderThan(any(LocalDateTime.class)))
-                .thenReturn(oldWorkflows);
-
         // Act
         workflowScheduler.cleanupOldWorkflowExecutions();
 
         // Assert
         ArgumentCaptor<LocalDateTime> thresholdCaptor = ArgumentCaptor.forClass(LocalDateTime.class);
-        verify(workflowExecutionService).findCompletedWorkflowsOlderThan(thresholdCaptor.capture());
+        verify(workflowRetentionService).purgeCompletedBefore(thresholdCaptor.capture());
 
         LocalDateTime capturedThreshold = thresholdCaptor.getValue();
         assertThat(capturedThreshold).isBefore(LocalDateTime.now().minusDays(6));
         assertThat(capturedThreshold).isAfter(LocalDateTime.now().minusDays(8));
     }
 
-    private WorkflowExecution createStuckWorkflow(Long id, LocalDateTime startedAt) {
-        WorkflowExecution execution = new WorkflowExecution();
-        execution.setId(id);
-        execution.setStatus(WorkflowStatus.RUNNING);
-        execution.setStartedAt(startedAt);
-        execution.setCorrelationId("stuck-" + id);
-        return execution;
-    }
-
-    private WorkflowExecution createCompletedWorkflow(Long id, LocalDateTime completedAt) {
-        WorkflowExecution execution = new WorkflowExecution();
-        execution.setId(id);
-        execution.setStatus(WorkflowStatus.COMPLETED);
-        execution.setCompletedAt(completedAt);
-        execution.setCorrelationId("completed-" + id);
-        return execution;
+    private WorkflowExecutionSummary createStuckWorkflow(Long id, LocalDateTime startedAt) {
+        return new WorkflowExecutionSummary(id, "stuck-" + id, WorkflowStatus.RUNNING, startedAt, null);
     }
 
-    private WorkflowExecution createPausedWorkflow(Long id, LocalDateTime startedAt) {
-        WorkflowExecution execution = new WorkflowExecution();
-        execution.setId(id);
-        execution.setStatus(WorkflowStatus.PAUSED);
-        execution.setStartedAt(startedAt);
-        execution.setCorrelationId("paused-" + id);
-        return execution;
+    private WorkflowExecutionSummary createPausedWorkflow(Long id, LocalDateTime startedAt) {
+        return new WorkflowExecutionSummary(id, "paused-" + id, WorkflowStatus.PAUSED, startedAt, null);
     }
 }
@@ -0,0 +1,88 @@
+package com.example.workfloworchestrator.engine.strategy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.expression.spel.SpelCompilerMode;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ConditionEvaluatorTest {
+
+    private ConditionEvaluator conditionEvaluator;
+
+    @BeforeEach
+    void setUp() {
+        conditionEvaluator = new ConditionEvaluator(SpelCompilerMode.MIXED, 2);
+    }
+
+    @Test
+    void evaluate_ShouldResolveVariablesWithAndWithoutHash() {
+        // Arrange
+        Map<String, String> variables = Map.of("status", "success", "count", "7");
+
+        // Act & Assert
+        assertThat(conditionEvaluator.evaluate(1L, 1L, "#status == 'success'", variables)).isTrue();
+        assertThat(conditionEvaluator.evaluate(1L, 2L, "status == 'success' && T(Integer).parseInt(count) > 5", variables)).isTrue();
+        assertThat(conditionEvaluator.evaluate(1L, 3L, "#missing == null", variables)).isTrue();
+    }
+
+    @Test
+    void evaluate_WithPropertyOfVariableValue_ShouldResolveIt() {
+        // Arrange
+        Map<String, String> variables = Map.of("name", "", "status", "success");
+
+        // Act & Assert
+        assertThat(conditionEvaluator.evaluate(1L, 1L, "#name.empty", variables)).isTrue();
+        assertThat(conditionEvaluator.evaluate(1L, 2L, "status.bytes.length == 7", variables)).isTrue();
+    }
+
+    @Test
+    void evaluate_RepeatedEvaluations_ShouldStayCorrectOnceCompiled() {
+        // Act & Assert: MIXED mode compiles after the first evaluations and must keep the same results
+        for (int i = 0; i < 10; i++) {
+            assertThat(conditionEvaluator.evaluate(1L, 1L, "#result == 'PROCEED'", Map.of("result", "PROCEED"))).isTrue();
+            assertThat(conditionEvaluator.evaluate(1L, 1L, "#result == 'PROCEED'", Map.of("result", "STOP"))).isFalse();
+        }
+        assertThat(conditionEvaluator.getCacheSize()).isEqualTo(1);
+    }
+
+    @Test
+    void evaluate_WithChangedExpressionForSameTask_ShouldReparse() {
+        // Arrange
+        Map<String, String> variables = Map.of("priority", "HIGH");
+        conditionEvaluator.evaluate(1L, 1L, "#priority == 'HIGH'", variables);
+
+        // Act
+        boolean result = conditionEvaluator.evaluate(1L, 1L, "#priority == 'LOW'", variables);
+
+        // Assert
+        assertThat(result).isFalse();
+    }
+
+    @Test
+    void evaluate_WithInvalidExpressionOrFullCache_ShouldReturnFalseAndStayBounded() {
+        // Act
+        boolean invalid = conditionEvaluator.evaluate(1L, 1L, "#invalidVariable.someMethod()", Map.of());
+        conditionEvaluator.evaluate(1L, 2L, "true", Map.of());
+        conditionEvaluator.evaluate(1L, 3L, "true", Map.of());
+        conditionEvaluator.evaluate(1L, 4L, "true", Map.of());
+
+        // Assert
+        assertThat(invalid).isFalse();
+        assertThat(conditionEvaluator.getCacheSize()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void referencedVariables_ShouldFindPlainReferencesAndRejectDynamicOnes() {
+        // Act & Assert
+        assertThat(conditionEvaluator.referencedVariables("#count != null && T(Integer).parseInt(#count) > 5 && status == 'active'"))
+                .containsExactlyInAnyOrder("count", "status");
+        assertThat(conditionEvaluator.referencedVariables("#name.toUpperCase().startsWith(#prefix)"))
+                .containsExactlyInAnyOrder("name", "prefix");
+        assertThat(conditionEvaluator.referencedVariables("#root['status'] == 'x'")).isNull();
+        assertThat(conditionEvaluator.referencedVariables("containsKey('status')")).isNull();
+        assertThat(conditionEvaluator.referencedVariables("not a valid (")).isNull();
+    }
+}
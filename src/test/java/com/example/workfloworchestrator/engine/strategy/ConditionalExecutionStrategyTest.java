@@ -1,8 +1,10 @@
 package com.example.workfloworchestrator.engine.strategy;
 
+import com.example.workfloworchestrator.engine.cancellation.CancellationRegistry;
 import com.example.workfloworchestrator.model.*;
 import com.example.workfloworchestrator.service.TaskExecutionService;
 import com.example.workfloworchestrator.service.WorkflowExecutionService;
+import com.example.workfloworchestrator.util.TaskDependencyUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -33,10 +35,14 @@ class ConditionalExecutionStrategyTest {
 
     @BeforeEach
     void setUp() {
+        ConditionEvaluator conditionEvaluator = new ConditionEvaluator();
         strategy = new ConditionalExecutionStrategy(
                 taskExecutionService,
                 workflowExecutionService,
-                sequentialStrategy
+                sequentialStrategy,
+                conditionEvaluator,
+                new WorkflowPlanCache(new TaskDependencyUtil(), conditionEvaluator),
+                new CancellationRegistry()
         );
     }
 
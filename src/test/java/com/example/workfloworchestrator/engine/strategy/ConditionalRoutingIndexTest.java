@@ -0,0 +1,44 @@
+package com.example.workfloworchestrator.engine.strategy;
+
+import com.example.workfloworchestrator.model.TaskDefinition;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ConditionalRoutingIndexTest {
+
+    private final ConditionEvaluator conditionEvaluator = new ConditionEvaluator();
+
+    @Test
+    void candidates_ShouldOnlyIncludeConditionsReadingChangedVariables() {
+        // Arrange
+        List<TaskDefinition> tasks = List.of(
+                createTask(1L, null),
+                createTask(2L, "#status == 'success'"),
+                createTask(3L, "priority == 'HIGH' && #region == 'EU'"),
+                createTask(4L, "#root.size() > 2"));
+        ConditionalRoutingIndex index = ConditionalRoutingIndex.build(tasks, conditionEvaluator);
+
+        // Act
+        BitSet all = index.candidates(null);
+        BitSet afterStatus = index.candidates(Set.of("status"));
+        BitSet afterRegion = index.candidates(Set.of("region", "unrelated"));
+
+        // Assert: position 2 (task 4) cannot be analysed and is always evaluated
+        assertThat(all.cardinality()).isEqualTo(3);
+        assertThat(afterStatus.stream().mapToObj(index::taskIdAt).toList()).containsExactly(2L, 4L);
+        assertThat(afterRegion.stream().mapToObj(index::taskIdAt).toList()).containsExactly(3L, 4L);
+    }
+
+    private TaskDefinition createTask(Long id, String condition) {
+        TaskDefinition task = new TaskDefinition();
+        task.setId(id);
+        task.setName("task-" + id);
+        task.setConditionalExpression(condition);
+        return task;
+    }
+}
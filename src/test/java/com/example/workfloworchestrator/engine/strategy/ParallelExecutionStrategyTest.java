@@ -1,14 +1,17 @@
 package com.example.workfloworchestrator.engine.strategy;
 
+import com.example.workfloworchestrator.engine.cancellation.CancellationRegistry;
 import com.example.workfloworchestrator.model.*;
 import com.example.workfloworchestrator.service.TaskExecutionService;
 import com.example.workfloworchestrator.service.WorkflowExecutionService;
+import com.example.workfloworchestrator.util.TaskDependencyUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
@@ -27,11 +30,15 @@ class ParallelExecutionStrategyTest {
     @Mock
     private WorkflowExecutionService workflowExecutionService;
 
+    private CancellationRegistry cancellationRegistry;
+
     private ParallelExecutionStrategy strategy;
 
     @BeforeEach
     void setUp() {
-        strategy = new ParallelExecutionStrategy(taskExecutionService, workflowExecutionService);
+        cancellationRegistry = new CancellationRegistry();
+        strategy = new ParallelExecutionStrategy(taskExecutionService, workflowExecutionService,
+                new WorkflowPlanCache(new TaskDependencyUtil(), new ConditionEvaluator()), cancellationRegistry);
     }
 
     @Test
@@ -75,7 +82,7 @@ class ParallelExecutionStrategyTest {
         verify(taskExecutionService).executeTask(taskExec3.getId());
 
         // Verify workflow variables were updated with all outputs
-        verify(workflowExecutionService, atLeastOnce()).save(workflowExecution);
+        verify(workflowExecutionService, atLeastOnce()).saveVariableChanges(eq(workflowExecution), anyMap());
     }
 
     @Test
@@ -307,7 +314,7 @@ class ParallelExecutionStrategyTest {
 
         // Verify workflow variables were updated with both outputs
         ArgumentCaptor<WorkflowExecution> workflowCaptor = ArgumentCaptor.forClass(WorkflowExecution.class);
-        verify(workflowExecutionService, atLeastOnce()).save(workflowCaptor.capture());
+        verify(workflowExecutionService, atLeastOnce()).saveVariableChanges(workflowCaptor.capture(), anyMap());
 
         WorkflowExecution savedWorkflow = workflowCaptor.getValue();
         assertThat(savedWorkflow.getVariables()).containsEntry("output1", "value1");
@@ -580,7 +587,7 @@ class ParallelExecutionStrategyTest {
 
         // Verify workflow variables were collected from successful tasks
         ArgumentCaptor<WorkflowExecution> workflowCaptor = ArgumentCaptor.forClass(WorkflowExecution.class);
-        verify(workflowExecutionService, atLeastOnce()).save(workflowCaptor.capture());
+        verify(workflowExecutionService, atLeastOnce()).saveVariableChanges(workflowCaptor.capture(), anyMap());
     }
 
     @Test
@@ -757,7 +764,7 @@ class ParallelExecutionStrategyTest {
 
         // Verify workflow variables were updated
         ArgumentCaptor<WorkflowExecution> workflowCaptor = ArgumentCaptor.forClass(WorkflowExecution.class);
-        verify(workflowExecutionService, atLeastOnce()).save(workflowCaptor.capture());
+        verify(workflowExecutionService, atLeastOnce()).saveVariableChanges(workflowCaptor.capture(), anyMap());
 
         // Check that outputs were merged (order might vary for shared key)
         WorkflowExecution savedWorkflow = workflowCaptor.getValue();
@@ -767,6 +774,103 @@ class ParallelExecutionStrategyTest {
         assertThat(savedWorkflow.getVariables()).containsKey("shared");
     }
 
+    @Test
+    void execute_WithDependencyDrivenMode_ShouldStartTaskWhenOwnDependenciesComplete() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(strategy, "dependencyDriven", true);
+        WorkflowExecution workflowExecution = createWorkflowExecution();
+
+        TaskDefinition slowTask = createTaskDefinition("slow-task", 0);
+        TaskDefinition fastTask = createTaskDefinition("fast-task", 0);
+        TaskDefinition dependentTask = createTaskDefinition("dependent-task", 1);
+        dependentTask.getDependsOn().add(fastTask.getId());
+
+        workflowExecution.getWorkflowDefinition().getTasks().addAll(Arrays.asList(slowTask, fastTask, dependentTask));
+
+        TaskExecution slowExec = createTaskExecution(slowTask, TaskStatus.COMPLETED);
+        TaskExecution fastExec = createTaskExecution(fastTask, TaskStatus.COMPLETED);
+        fastExec.getOutputs().put("fastOutput", "value");
+        TaskExecution dependentExec = createTaskExecution(dependentTask, TaskStatus.COMPLETED);
+
+        when(taskExecutionService.createTaskExecution(eq(workflowExecution), eq(slowTask), anyMap()))
+                .thenReturn(slowExec);
+        when(taskExecutionService.createTaskExecution(eq(workflowExecution), eq(fastTask), anyMap()))
+                .thenReturn(fastExec);
+        when(taskExecutionService.createTaskExecution(eq(workflowExecution), eq(dependentTask), anyMap()))
+                .thenReturn(dependentExec);
+
+        CompletableFuture<TaskExecution> slowFuture = new CompletableFuture<>();
+        when(taskExecutionService.executeTask(slowExec.getId())).thenReturn(slowFuture);
+        when(taskExecutionService.executeTask(fastExec.getId()))
+                .thenReturn(CompletableFuture.completedFuture(fastExec));
+        when(taskExecutionService.executeTask(dependentExec.getId()))
+                .thenReturn(CompletableFuture.completedFuture(dependentExec));
+
+        // Act
+        CompletableFuture<WorkflowStatus> result = strategy.execute(workflowExecution);
+
+        // Assert - dependent task runs while the unrelated slow task is still in flight
+        verify(taskExecutionService).executeTask(dependentExec.getId());
+        assertThat(result).isNotDone();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, String>> inputsCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(taskExecutionService).createTaskExecution(eq(workflowExecution), eq(dependentTask), inputsCaptor.capture());
+        assertThat(inputsCaptor.getValue()).containsEntry("fastOutput", "value");
+
+        slowFuture.complete(slowExec);
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(WorkflowStatus.COMPLETED);
+    }
+
+    @Test
+    void execute_WithDependencyDrivenModeAndFailedDependency_ShouldNotStartDependents() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(strategy, "dependencyDriven", true);
+        WorkflowExecution workflowExecution = createWorkflowExecution();
+
+        TaskDefinition failingTask = createTaskDefinition("failing-task", 0);
+        TaskDefinition dependentTask = createTaskDefinition("dependent-task", 1);
+        dependentTask.getDependsOn().add(failingTask.getId());
+
+        workflowExecution.getWorkflowDefinition().getTasks().addAll(Arrays.asList(failingTask, dependentTask));
+
+        TaskExecution failedExec = createTaskExecution(failingTask, TaskStatus.FAILED);
+
+        when(taskExecutionService.createTaskExecution(eq(workflowExecution), eq(failingTask), anyMap()))
+                .thenReturn(failedExec);
+        when(taskExecutionService.executeTask(failedExec.getId()))
+                .thenReturn(CompletableFuture.completedFuture(failedExec));
+
+        // Act
+        CompletableFuture<WorkflowStatus> result = strategy.execute(workflowExecution);
+
+        // Assert
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(WorkflowStatus.FAILED);
+        verify(taskExecutionService, never()).createTaskExecution(eq(workflowExecution), eq(dependentTask), anyMap());
+        assertThat(workflowExecution.getErrorMessage()).isEqualTo("One or more tasks failed in parallel execution");
+    }
+
+    @Test
+    void execute_WithDependencyDrivenModeAndCycle_ShouldFailWithoutStartingTasks() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(strategy, "dependencyDriven", true);
+        WorkflowExecution workflowExecution = createWorkflowExecution();
+
+        TaskDefinition task1 = createTaskDefinition("task-1", 0);
+        TaskDefinition task2 = createTaskDefinition("task-2", 0);
+        task1.getDependsOn().add(task2.getId());
+        task2.getDependsOn().add(task1.getId());
+
+        workflowExecution.getWorkflowDefinition().getTasks().addAll(Arrays.asList(task1, task2));
+
+        // Act
+        CompletableFuture<WorkflowStatus> result = strategy.execute(workflowExecution);
+
+        // Assert
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(WorkflowStatus.FAILED);
+        verify(taskExecutionService, never()).createTaskExecution(any(), any(), anyMap());
+    }
+
     private WorkflowExecution createWorkflowExecution() {
         WorkflowDefinition definition = new WorkflowDefinition();
         definition.setTasks(new ArrayList<>());
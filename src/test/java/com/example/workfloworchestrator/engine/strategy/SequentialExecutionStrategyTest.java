@@ -1,8 +1,10 @@
 package com.example.workfloworchestrator.engine.strategy;
 
+import com.example.workfloworchestrator.engine.cancellation.CancellationRegistry;
 import com.example.workfloworchestrator.model.*;
 import com.example.workfloworchestrator.service.TaskExecutionService;
 import com.example.workfloworchestrator.service.WorkflowExecutionService;
+import com.example.workfloworchestrator.util.TaskDependencyUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,11 +29,15 @@ class SequentialExecutionStrategyTest {
     @Mock
     private WorkflowExecutionService workflowExecutionService;
 
+    private CancellationRegistry cancellationRegistry;
+
     private SequentialExecutionStrategy strategy;
 
     @BeforeEach
     void setUp() {
-        strategy = new SequentialExecutionStrategy(taskExecutionService, workflowExecutionService);
+        cancellationRegistry = new CancellationRegistry();
+        strategy = new SequentialExecutionStrategy(taskExecutionService, workflowExecutionService,
+                new WorkflowPlanCache(new TaskDependencyUtil(), new ConditionEvaluator()), cancellationRegistry);
     }
 
     @Test
@@ -85,6 +91,43 @@ class SequentialExecutionStrategyTest {
         verify(taskExecutionService, times(2)).executeTask(any());
     }
 
+    @Test
+    void execute_WhenCancelledDuringTask_ShouldNotStartNextTask() {
+        // Arrange
+        TaskDefinition task1 = createTaskDefinition("task1", 0);
+        TaskDefinition task2 = createTaskDefinition("task2", 1);
+
+        WorkflowDefinition definition = new WorkflowDefinition();
+        definition.getTasks().add(task1);
+        definition.getTasks().add(task2);
+
+        WorkflowExecution execution = new WorkflowExecution();
+        execution.setId(1L);
+        execution.setWorkflowDefinition(definition);
+        execution.setVariables(new HashMap<>());
+
+        TaskExecution taskExec1 = createTaskExecution(task1, TaskStatus.RUNNING);
+        CompletableFuture<TaskExecution> inFlight = new CompletableFuture<>();
+
+        when(taskExecutionService.createTaskExecution(eq(execution), eq(task1), anyMap()))
+                .thenReturn(taskExec1);
+        when(taskExecutionService.executeTask(taskExec1.getId()))
+                .thenReturn(inFlight);
+
+        cancellationRegistry.begin(execution.getId());
+
+        // Act
+        CompletableFuture<WorkflowStatus> future = strategy.execute(execution);
+        cancellationRegistry.cancel(execution.getId(), WorkflowStatus.CANCELLED);
+        taskExec1.setStatus(TaskStatus.CANCELLED);
+        inFlight.complete(taskExec1);
+
+        // Assert
+        assertThat(future.join()).isEqualTo(WorkflowStatus.CANCELLED);
+        verify(taskExecutionService, times(1)).executeTask(any());
+        verify(taskExecutionService, never()).createTaskExecution(any(), eq(task2), anyMap());
+    }
+
     @Test
     void execute_WithFailedTask_ShouldFailWorkflow() {
         // Arrange
@@ -111,7 +154,8 @@ class SequentialExecutionStrategyTest {
 
         // Assert
         assertThat(future.join()).isEqualTo(WorkflowStatus.FAILED);
-        verify(workflowExecutionService, times (2)).save(any());
+        verify(workflowExecutionService).updateCurrentTaskIndex(execution, 0);
+        verify(workflowExecutionService).save(any());
     }
 
     @Test
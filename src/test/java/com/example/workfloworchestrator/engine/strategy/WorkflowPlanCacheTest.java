@@ -0,0 +1,95 @@
+package com.example.workfloworchestrator.engine.strategy;
+
+import com.example.workfloworchestrator.model.TaskDefinition;
+import com.example.workfloworchestrator.model.WorkflowDefinition;
+import com.example.workfloworchestrator.util.TaskDependencyUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class WorkflowPlanCacheTest {
+
+    private WorkflowPlanCache workflowPlanCache;
+
+    @BeforeEach
+    void setUp() {
+        workflowPlanCache = new WorkflowPlanCache(new TaskDependencyUtil(), new ConditionEvaluator(), 2);
+    }
+
+    @Test
+    void getPlan_ShouldReuseCompiledPlanPerDefinitionVersion() {
+        // Arrange
+        WorkflowDefinition definition = createDefinition(1L, "1.0.0");
+
+        // Act
+        WorkflowPlan first = workflowPlanCache.getPlan(definition);
+        WorkflowPlan second = workflowPlanCache.getPlan(definition);
+        WorkflowPlan otherVersion = workflowPlanCache.getPlan(createDefinition(1L, "1.0.1"));
+
+        // Assert
+        assertThat(second).isSameAs(first);
+        assertThat(otherVersion).isNotSameAs(first);
+        assertThat(first.getTasks()).hasSize(3);
+        assertThat(first.indexOf(12L)).isEqualTo(1);
+        assertThat(first.indexOf(99L)).isEqualTo(-1);
+        assertThat(first.getStartTasks()).extracting(TaskDefinition::getId).containsExactly(11L, 12L);
+        assertThat(first.copyWaves()).containsOnlyKeys(0, 1);
+    }
+
+    @Test
+    void getPlan_ShouldEvictLeastRecentlyUsedAndHonourInvalidate() {
+        // Arrange
+        WorkflowDefinition a = createDefinition(1L, "1.0.0");
+        WorkflowDefinition b = createDefinition(2L, "1.0.0");
+        WorkflowDefinition c = createDefinition(3L, "1.0.0");
+        WorkflowPlan planA = workflowPlanCache.getPlan(a);
+        workflowPlanCache.getPlan(b);
+
+        // Act
+        workflowPlanCache.getPlan(a);
+        workflowPlanCache.getPlan(c);
+        workflowPlanCache.invalidate(3L);
+
+        // Assert: b was least recently used, c was invalidated
+        assertThat(workflowPlanCache.size()).isEqualTo(1);
+        assertThat(workflowPlanCache.getPlan(a)).isSameAs(planA);
+    }
+
+    @Test
+    void dependencyGraph_ShouldDetectCycles() {
+        // Arrange
+        TaskDefinition first = createTask(1L, 0);
+        TaskDefinition second = createTask(2L, 0);
+        first.setDependsOn(new ArrayList<>(List.of(2L)));
+        second.setDependsOn(new ArrayList<>(List.of(1L)));
+
+        // Act
+        WorkflowPlan.DependencyGraph graph = workflowPlanCache.dependencyGraph(List.of(first, second));
+
+        // Assert
+        assertThat(graph.hasDependencies()).isTrue();
+        assertThat(graph.isCyclic()).isTrue();
+        assertThat(graph.getPredecessors(1L)).containsExactly(2L);
+    }
+
+    private WorkflowDefinition createDefinition(Long id, String version) {
+        WorkflowDefinition definition = new WorkflowDefinition();
+        definition.setId(id);
+        definition.setVersion(version);
+        definition.setTasks(new ArrayList<>(List.of(
+                createTask(id * 10 + 1, 0), createTask(id * 10 + 2, 0), createTask(id * 10 + 3, 1))));
+        return definition;
+    }
+
+    private TaskDefinition createTask(Long id, int executionOrder) {
+        TaskDefinition task = new TaskDefinition();
+        task.setId(id);
+        task.setName("task-" + id);
+        task.setExecutionOrder(executionOrder);
+        return task;
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.workfloworchestrator.event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
+
+class BatchingEventMulticasterTest {
+
+    private BatchingEventMulticaster multicaster;
+
+    private final List<String> deliveredEvents = new CopyOnWriteArrayList<>();
+    private final List<Thread> deliveryThreads = new CopyOnWriteArrayList<>();
+    private final List<EventBatch> batches = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        multicaster.close();
+    }
+
+    @Test
+    void multicastEvent_ShouldDeliverWorkflowEventsOffThePublishingThread() {
+        // Arrange
+        multicaster = createMulticaster(BatchingEventMulticaster.Backpressure.BLOCK, 16);
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            multicaster.multicastEvent(payload(taskEvent(i)));
+        }
+
+        // Assert
+        await().atMost(5, TimeUnit.SECONDS).until(() -> deliveredEvents.size() == 5);
+        assertThat(deliveredEvents).containsExactly("task-0", "task-1", "task-2", "task-3", "task-4");
+        assertThat(deliveryThreads).doesNotContain(Thread.currentThread());
+        await().atMost(5, TimeUnit.SECONDS).until(() -> batches.stream().mapToInt(b -> b.events().size()).sum() == 5);
+        assertThat(multicaster.getPublishedCount()).isEqualTo(5);
+        assertThat(multicaster.getDroppedCount()).isZero();
+    }
+
+    @Test
+    void multicastEvent_WithOtherEvents_ShouldDeliverSynchronously() {
+        // Arrange
+        multicaster = createMulticaster(BatchingEventMulticaster.Backpressure.BLOCK, 16);
+        List<ApplicationEvent> received = new CopyOnWriteArrayList<>();
+        multicaster.addApplicationListener((ApplicationListener<ContextRefreshedEvent>) received::add);
+
+        // Act
+        multicaster.multicastEvent(new ContextRefreshedEvent(new GenericApplicationContext()));
+
+        // Assert
+        assertThat(received).hasSize(1);
+        assertThat(multicaster.getPublishedCount()).isZero();
+    }
+
+    @Test
+    void multicastEvent_BeforeStartAndAfterClose_ShouldDeliverSynchronously() {
+        // Arrange
+        multicaster = createMulticaster(BatchingEventMulticaster.Backpressure.BLOCK, 16);
+        multicaster.close();
+        BatchingEventMulticaster unstarted = new BatchingEventMulticaster(16, BatchingEventMulticaster.Backpressure.BLOCK, 2, 64);
+        unstarted.addApplicationListener(event -> deliveryThreads.add(Thread.currentThread()));
+
+        // Act
+        multicaster.multicastEvent(payload(taskEvent(1)));
+        unstarted.multicastEvent(payload(taskEvent(2)));
+
+        // Assert
+        assertThat(deliveredEvents).containsExactly("task-1");
+        assertThat(deliveryThreads).containsOnly(Thread.currentThread()).hasSize(2);
+        unstarted.close();
+    }
+
+    @Test
+    void multicastEvent_WhenFullWithDropOldest_ShouldKeepNewestEvents() throws Exception {
+        // Arrange
+        multicaster = createMulticaster(BatchingEventMulticaster.Backpressure.DROP_OLDEST, 4);
+        CountDownLatch release = blockDispatcher();
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            multicaster.multicastEvent(payload(taskEvent(i)));
+        }
+        release.countDown();
+
+        // Assert
+        await().atMost(5, TimeUnit.SECONDS).until(() -> deliveredEvents.size() == 5);
+        assertThat(deliveredEvents).containsExactly("blocker", "task-6", "task-7", "task-8", "task-9");
+        assertThat(multicaster.getDroppedCount()).isEqualTo(6);
+    }
+
+    @Test
+    void multicastEvent_WhenSaturatedWithSample_ShouldQueueEveryNthEvent() throws Exception {
+        // Arrange
+        multicaster = createMulticaster(BatchingEventMulticaster.Backpressure.SAMPLE, 8);
+        CountDownLatch release = blockDispatcher();
+
+        // Act
+        for (int i = 0; i < 20; i++) {
+            multicaster.multicastEvent(payload(taskEvent(i)));
+        }
+        release.countDown();
+
+        // Assert: the first 4 fill half the ring, then 1 in 2 is kept while there is room
+        await().atMost(5, TimeUnit.SECONDS).until(() -> multicaster.getQueuedCount() == 0 && deliveredEvents.size() == 9);
+        assertThat(deliveredEvents).startsWith("blocker", "task-0", "task-1", "task-2", "task-3");
+        assertThat(multicaster.getDroppedCount()).isEqualTo(12);
+    }
+
+    @Test
+    void multicastEvent_WhenListenerFails_ShouldKeepDelivering() {
+        // Arrange
+        multicaster = createMulticaster(BatchingEventMulticaster.Backpressure.BLOCK, 16);
+        multicaster.addApplicationListener((ApplicationListener<PayloadApplicationEvent<TaskEvent>>) event -> {
+            throw new IllegalStateException("listener failure");
+        });
+
+        // Act
+        multicaster.multicastEvent(payload(taskEvent(1)));
+        multicaster.multicastEvent(payload(taskEvent(2)));
+
+        // Assert
+        await().atMost(5, TimeUnit.SECONDS).until(() -> deliveredEvents.size() == 2);
+    }
+
+    @Test
+    void hasListeners_ShouldFollowRegisteredListenerTypes() {
+        // Arrange
+        multicaster = new BatchingEventMulticaster(16, BatchingEventMulticaster.Backpressure.BLOCK, 2, 64);
+        // Anonymous classes keep their generic type, which lambdas lose
+        ApplicationListener<PayloadApplicationEvent<TaskEvent>> taskListener = new ApplicationListener<>() {
+            @Override
+            public void onApplicationEvent(PayloadApplicationEvent<TaskEvent> event) {
+            }
+        };
+        assertThat(multicaster.hasListeners(TaskEvent.class)).isFalse();
+
+        // Act
+        multicaster.addApplicationListener(taskListener);
+
+        // Assert
+        assertThat(multicaster.hasListeners(TaskEvent.class)).isTrue();
+        assertThat(multicaster.hasListeners(WorkflowEvent.class)).isFalse();
+
+        multicaster.removeApplicationListener(taskListener);
+        assertThat(multicaster.hasListeners(TaskEvent.class)).isFalse();
+    }
+
+    @Test
+    void hasListeners_WithBatchListener_ShouldReportEveryEventType() {
+        // Arrange
+        multicaster = new BatchingEventMulticaster(16, BatchingEventMulticaster.Backpressure.BLOCK, 2, 64);
+
+        // Act
+        multicaster.addApplicationListener(new ApplicationListener<PayloadApplicationEvent<EventBatch>>() {
+            @Override
+            public void onApplicationEvent(PayloadApplicationEvent<EventBatch> event) {
+            }
+        });
+
+        // Assert
+        assertThat(multicaster.hasListeners(WorkflowEvent.class)).isTrue();
+        assertThat(multicaster.hasListeners(UserReviewEvent.class)).isTrue();
+    }
+
+    private BatchingEventMulticaster createMulticaster(BatchingEventMulticaster.Backpressure backpressure, int bufferSize) {
+        BatchingEventMulticaster eventMulticaster = new BatchingEventMulticaster(bufferSize, backpressure, 2, 64);
+        eventMulticaster.addApplicationListener(event -> {
+            if (event instanceof PayloadApplicationEvent<?> payloadEvent) {
+                if (payloadEvent.getPayload() instanceof TaskEvent taskEvent) {
+                    deliveryThreads.add(Thread.currentThread());
+                    deliveredEvents.add(taskEvent.getTaskName());
+                } else if (payloadEvent.getPayload() instanceof EventBatch batch) {
+                    batches.add(batch);
+                }
+            }
+        });
+        eventMulticaster.start();
+        return eventMulticaster;
+    }
+
+    /**
+     * Publish an event whose delivery holds the dispatcher until the returned latch is released
+     */
+    private CountDownLatch blockDispatcher() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        multicaster.addApplicationListener(event -> {
+            if (event instanceof PayloadApplicationEvent<?> payloadEvent
+                    && payloadEvent.getPayload() instanceof TaskEvent taskEvent
+                    && "blocker".equals(taskEvent.getTaskName())) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        TaskEvent blocker = new TaskEvent(this);
+        blocker.setTaskName("blocker");
+        multicaster.multicastEvent(payload(blocker));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        return release;
+    }
+
+    private TaskEvent taskEvent(int index) {
+        TaskEvent event = new TaskEvent(this);
+        event.setEventType(TaskEventType.STARTED);
+        event.setTaskName("task-" + index);
+        return event;
+    }
+
+    private PayloadApplicationEvent<BaseEvent> payload(BaseEvent event) {
+        return new PayloadApplicationEvent<>(this, event);
+    }
+}
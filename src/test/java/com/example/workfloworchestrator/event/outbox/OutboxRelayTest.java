@@ -0,0 +1,189 @@
+package com.example.workfloworchestrator.event.outbox;
+
+import com.example.workfloworchestrator.config.OutboxProperties;
+import com.example.workfloworchestrator.repository.EventOutboxRepository;
+import com.example.workfloworchestrator.repository.EventOutboxRepository.FailedAttempt;
+import com.example.workfloworchestrator.repository.EventOutboxRepository.OutboxEntry;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private EventOutboxRepository outboxRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final OutboxProperties properties = new OutboxProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private HttpServer server;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        properties.setBatchSize(10);
+        properties.setCompressMinBytes(64);
+        properties.setMaxAttempts(3);
+        properties.setInitialBackoff(Duration.ofSeconds(2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (relay != null) {
+            relay.close();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void poll_ShouldPostCompressedBatchAndDeleteDeliveredEvents() throws Exception {
+        // Arrange
+        List<String> encodings = new CopyOnWriteArrayList<>();
+        List<String> bodies = new CopyOnWriteArrayList<>();
+        String endpoint = startServer(200, encodings, bodies);
+        when(outboxRepository.claim(eq("http"), any(), any(), eq(10)))
+                .thenReturn(List.of(entry(1, 0), entry(2, 0), entry(3, 0)))
+                .thenReturn(List.of());
+        relay = createRelay(new HttpEventSender(new RestTemplate(), endpoint, 1, properties.getCompressMinBytes()));
+
+        // Act
+        relay.poll();
+
+        // Assert
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> verify(outboxRepository).delete(List.of(1L, 2L, 3L)));
+        assertThat(encodings).containsExactly("gzip");
+        assertThat(bodies).containsExactly("[" + payload(1) + "," + payload(2) + "," + payload(3) + "]");
+        assertThat(meterRegistry.counter("workflow.events.outbox.delivered", "destination", "http").count()).isEqualTo(3);
+    }
+
+    @Test
+    void poll_WhenEndpointFails_ShouldRetryWithBackoffAndParkExhaustedEvents() throws Exception {
+        // Arrange
+        String endpoint = startServer(503, new CopyOnWriteArrayList<>(), new CopyOnWriteArrayList<>());
+        when(outboxRepository.claim(eq("http"), any(), any(), anyInt()))
+                .thenReturn(List.of(entry(1, 0), entry(2, 2)))
+                .thenReturn(List.of());
+        relay = createRelay(new HttpEventSender(new RestTemplate(), endpoint, 1, properties.getCompressMinBytes()));
+        LocalDateTime before = LocalDateTime.now();
+
+        // Act
+        relay.poll();
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<FailedAttempt>> captor = ArgumentCaptor.forClass(List.class);
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() ->
+                verify(outboxRepository).recordFailures(captor.capture(), contains("503")));
+        FailedAttempt retried = captor.getValue().get(0);
+        FailedAttempt parked = captor.getValue().get(1);
+        assertThat(retried.attempts()).isEqualTo(1);
+        assertThat(retried.status()).isEqualTo(EventOutboxRepository.STATUS_PENDING);
+        assertThat(retried.nextAttemptAt()).isAfterOrEqualTo(before.plusSeconds(2));
+        assertThat(parked.attempts()).isEqualTo(3);
+        assertThat(parked.status()).isEqualTo(EventOutboxRepository.STATUS_DEAD);
+        verify(outboxRepository, never()).delete(any());
+        assertThat(meterRegistry.counter("workflow.events.outbox.dead", "destination", "http").count()).isEqualTo(1);
+    }
+
+    @Test
+    void poll_WithBacklog_ShouldKeepBatchesInFlightUpToDestinationConcurrency() throws Exception {
+        // Arrange
+        properties.setBatchSize(1);
+        AtomicBoolean drained = new AtomicBoolean();
+        AtomicInteger claimed = new AtomicInteger();
+        when(outboxRepository.claim(eq("test"), any(), any(), eq(1))).thenAnswer(invocation ->
+                drained.get() ? List.of() : List.of(entry(claimed.incrementAndGet(), 0)));
+
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        relay = createRelay(new EventSender() {
+            @Override
+            public String getDestination() {
+                return "test";
+            }
+
+            @Override
+            public int getConcurrency() {
+                return 2;
+            }
+
+            @Override
+            public void send(List<String> payloads) throws Exception {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                release.await(5, TimeUnit.SECONDS);
+                inFlight.decrementAndGet();
+            }
+        });
+
+        // Act
+        relay.poll();
+        await().atMost(5, TimeUnit.SECONDS).until(() -> inFlight.get() == 2);
+        relay.poll();
+        drained.set(true);
+        release.countDown();
+
+        // Assert
+        await().atMost(5, TimeUnit.SECONDS).until(() -> inFlight.get() == 0);
+        assertThat(maxInFlight.get()).isEqualTo(2);
+    }
+
+    private OutboxRelay createRelay(EventSender sender) {
+        return new OutboxRelay(List.of(sender), outboxRepository, transactionManager, properties, meterRegistry);
+    }
+
+    private String startServer(int status, List<String> encodings, List<String> bodies) throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/events", exchange -> {
+            String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            InputStream body = "gzip".equals(encoding)
+                    ? new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody();
+            encodings.add(String.valueOf(encoding));
+            bodies.add(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+        return "http://localhost:" + server.getAddress().getPort() + "/events";
+    }
+
+    private OutboxEntry entry(long id, int attempts) {
+        return new OutboxEntry(id, "event-" + id, payload(id), attempts);
+    }
+
+    private String payload(long id) {
+        return "{\"eventId\":\"event-" + id + "\",\"eventTypeString\":\"TASK_COMPLETED\"}";
+    }
+}
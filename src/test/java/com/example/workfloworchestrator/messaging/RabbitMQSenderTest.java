@@ -0,0 +1,121 @@
+package com.example.workfloworchestrator.messaging;
+
+import com.example.workfloworchestrator.config.RabbitMQConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.BatchingRabbitTemplate;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RabbitMQSenderTest {
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private ConnectionFactory connectionFactory;
+
+    @Test
+    void sendMessageAsync_ShouldPipelineSendsAndCompleteOnConfirm() {
+        // Arrange
+        when(rabbitTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+        RabbitMQSender sender = new RabbitMQSender(rabbitTemplate, (BatchingRabbitTemplate) null, 10_000);
+
+        // Act
+        List<CompletableFuture<Void>> sends = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            sends.add(sender.sendMessageAsync("tasks", "tasks.process", "message-" + i));
+        }
+
+        // Assert: all three are on the wire before any confirm arrives
+        ArgumentCaptor<CorrelationData> correlations = ArgumentCaptor.forClass(CorrelationData.class);
+        verify(rabbitTemplate, times(3)).convertAndSend(eq("tasks"), eq("tasks.process"), any(Object.class), correlations.capture());
+        assertThat(sends).noneMatch(CompletableFuture::isDone);
+        assertThat(correlations.getAllValues()).extracting(CorrelationData::getId).doesNotHaveDuplicates();
+
+        correlations.getAllValues().forEach(correlation -> correlation.getFuture().complete(new CorrelationData.Confirm(true, null)));
+        assertThat(sends).allMatch(send -> send.isDone() && !send.isCompletedExceptionally());
+    }
+
+    @Test
+    void sendMessage_WhenNackedOrReturned_ShouldThrow() {
+        // Arrange
+        when(rabbitTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+        RabbitMQSender sender = new RabbitMQSender(rabbitTemplate, (BatchingRabbitTemplate) null, 10_000);
+        doAnswer(invocation -> {
+            CorrelationData correlation = invocation.getArgument(3);
+            correlation.getFuture().complete(new CorrelationData.Confirm(false, "queue full"));
+            return null;
+        }).when(rabbitTemplate).convertAndSend(eq("tasks"), eq("full"), any(Object.class), any(CorrelationData.class));
+        doAnswer(invocation -> {
+            CorrelationData correlation = invocation.getArgument(3);
+            correlation.setReturned(new ReturnedMessage(new Message(new byte[0], new MessageProperties()),
+                    312, "NO_ROUTE", "tasks", "nowhere"));
+            correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+            return null;
+        }).when(rabbitTemplate).convertAndSend(eq("tasks"), eq("nowhere"), any(Object.class), any(CorrelationData.class));
+
+        // Act & Assert
+        assertThatThrownBy(() -> sender.sendMessage("tasks", "full", "message"))
+                .isInstanceOf(AmqpException.class)
+                .hasMessageContaining("queue full");
+        assertThatThrownBy(() -> sender.sendMessage("tasks", "nowhere", "message"))
+                .isInstanceOf(AmqpException.class)
+                .hasMessageContaining("NO_ROUTE");
+    }
+
+    @Test
+    void sendTaskMessageAsync_WithBatching_ShouldHandOffToBatchingTemplate() {
+        // Arrange
+        BatchingRabbitTemplate batchingRabbitTemplate = mock(BatchingRabbitTemplate.class);
+        RabbitMQSender sender = new RabbitMQSender(rabbitTemplate, batchingRabbitTemplate, 10_000);
+        TaskMessage message = new TaskMessage();
+
+        // Act
+        CompletableFuture<Void> send = sender.sendTaskMessageAsync(message);
+
+        // Assert
+        assertThat(send).isCompleted();
+        verify(batchingRabbitTemplate).convertAndSend(RabbitMQConfig.TASK_EXCHANGE, RabbitMQConfig.TASK_ROUTING_KEY, message);
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    void sendMessageAsync_WithBatching_ShouldSendOnItsOwnAndWaitForConfirm() {
+        // Arrange
+        when(rabbitTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+        BatchingRabbitTemplate batchingRabbitTemplate = mock(BatchingRabbitTemplate.class);
+        RabbitMQSender sender = new RabbitMQSender(rabbitTemplate, batchingRabbitTemplate, 10_000);
+
+        // Act
+        CompletableFuture<Void> send = sender.sendMessageAsync("events", "events.outbox", "message");
+
+        // Assert
+        ArgumentCaptor<CorrelationData> correlation = ArgumentCaptor.forClass(CorrelationData.class);
+        verify(rabbitTemplate).convertAndSend(eq("events"), eq("events.outbox"), any(Object.class), correlation.capture());
+        assertThat(send).isNotDone();
+        correlation.getValue().getFuture().complete(new CorrelationData.Confirm(false, "nack"));
+        assertThat(send).isCompletedExceptionally();
+        verifyNoInteractions(batchingRabbitTemplate);
+    }
+}
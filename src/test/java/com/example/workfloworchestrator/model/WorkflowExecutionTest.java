@@ -0,0 +1,99 @@
+package com.example.workfloworchestrator.model;
+
+import com.example.workfloworchestrator.util.PersistentHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkflowExecutionTest {
+
+    @Test
+    void snapshotVariables_WithoutChanges_ShouldReturnSameSnapshot() {
+        // Arrange
+        WorkflowExecution execution = new WorkflowExecution();
+        execution.getVariables().put("key", "value");
+
+        // Act
+        PersistentHashMap<String, String> first = execution.snapshotVariables();
+        PersistentHashMap<String, String> second = execution.snapshotVariables();
+
+        // Assert
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void snapshotVariables_AfterInPlaceOverwrite_ShouldSeeNewValue() {
+        // Arrange
+        WorkflowExecution execution = new WorkflowExecution();
+        execution.getVariables().put("key", "old");
+        execution.snapshotVariables();
+
+        // Act
+        execution.getVariables().put("key", "new");
+
+        // Assert
+        assertThat(execution.snapshotVariables()).containsOnly(Map.entry("key", "new"));
+    }
+
+    @Test
+    void snapshotVariables_AfterWriteThroughEntry_ShouldSeeNewValue() {
+        // Arrange
+        WorkflowExecution execution = new WorkflowExecution();
+        execution.getVariables().put("key", "old");
+        execution.snapshotVariables();
+
+        // Act
+        execution.getVariables().entrySet().forEach(entry -> entry.setValue("new"));
+
+        // Assert
+        assertThat(execution.getVariables()).containsOnly(Map.entry("key", "new"));
+        assertThat(execution.snapshotVariables()).containsOnly(Map.entry("key", "new"));
+    }
+
+    @Test
+    void snapshotVariables_AfterMerge_ShouldIncludeChanges() {
+        // Arrange
+        WorkflowExecution execution = new WorkflowExecution();
+        execution.getVariables().put("key", "old");
+        execution.snapshotVariables();
+
+        // Act
+        execution.mergeVariables(Map.of("key", "new", "added", "value"));
+
+        // Assert
+        assertThat(execution.snapshotVariables())
+                .containsOnly(Map.entry("key", "new"), Map.entry("added", "value"));
+    }
+
+    @Test
+    void setVariables_WithOwnVariables_ShouldKeepWorking() {
+        // Arrange
+        WorkflowExecution execution = new WorkflowExecution();
+        execution.getVariables().put("key", "value");
+
+        // Act
+        execution.setVariables(execution.getVariables());
+
+        // Assert
+        assertThat(execution.getVariables()).containsOnly(Map.entry("key", "value"));
+        assertThat(execution.snapshotVariables()).containsOnly(Map.entry("key", "value"));
+    }
+
+    @Test
+    void setVariables_WithAnotherExecutionsVariables_ShouldNotShareThem() {
+        // Arrange
+        WorkflowExecution source = new WorkflowExecution();
+        source.getVariables().put("key", "value");
+        WorkflowExecution target = new WorkflowExecution();
+
+        // Act
+        target.setVariables(source.getVariables());
+        target.getVariables().put("key", "changed");
+
+        // Assert
+        assertThat(source.getVariables()).containsOnly(Map.entry("key", "value"));
+        assertThat(target.getVariables()).containsOnly(Map.entry("key", "changed"));
+    }
+}
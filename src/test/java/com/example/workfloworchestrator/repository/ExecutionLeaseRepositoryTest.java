@@ -0,0 +1,227 @@
+package com.example.workfloworchestrator.repository;
+
+import com.example.workfloworchestrator.model.TaskStatus;
+import com.example.workfloworchestrator.model.WorkflowStatus;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the claim SQL against H2 with the Flyway migrations applied
+ */
+class ExecutionLeaseRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private ExecutionLeaseRepository leaseRepository;
+    private LocalDateTime now;
+    private long workflowDefinitionId;
+    private long taskDefinitionId;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        leaseRepository = new ExecutionLeaseRepository(jdbcTemplate);
+        now = LocalDateTime.now().withNano(0);
+
+        jdbcTemplate.update("INSERT INTO workflow_definitions (name, version, created_at) VALUES ('test', '1', ?)",
+                Timestamp.valueOf(now));
+        workflowDefinitionId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM workflow_definitions", Long.class);
+        jdbcTemplate.update("INSERT INTO task_definitions (workflow_definition_id, name, type) VALUES (?, 'task', 'rest-api')",
+                workflowDefinitionId);
+        taskDefinitionId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM task_definitions", Long.class);
+    }
+
+    @Test
+    void claimTasksToRetry_ShouldClaimDueTasksEarliestFirstAndStampOwner() {
+        // Arrange
+        long workflowId = insertWorkflow(WorkflowStatus.RUNNING, now);
+        long later = insertTask(workflowId, TaskStatus.AWAITING_RETRY, now.minusSeconds(10));
+        long earlier = insertTask(workflowId, TaskStatus.AWAITING_RETRY, now.minusSeconds(20));
+        insertTask(workflowId, TaskStatus.AWAITING_RETRY, now.plusMinutes(5));
+        insertTask(workflowId, TaskStatus.FAILED, now.minusSeconds(30));
+
+        // Act
+        List<TaskRetryCandidate> claimed = claimTasks("node-a", now, now.plusSeconds(60), 10);
+
+        // Assert
+        assertThat(claimed).extracting(TaskRetryCandidate::id).containsExactly(earlier, later);
+        assertThat(leaseOf("task_executions", earlier)).containsEntry("LEASE_OWNER", "node-a")
+                .containsEntry("LEASE_EXPIRES_AT", Timestamp.valueOf(now.plusSeconds(60)));
+    }
+
+    @Test
+    void claimTasksToRetry_WhileAnotherNodeHoldsRowLocks_ShouldSkipLockedRows() {
+        // Arrange
+        long workflowId = insertWorkflow(WorkflowStatus.RUNNING, now);
+        long first = insertTask(workflowId, TaskStatus.AWAITING_RETRY, now.minusSeconds(20));
+        long second = insertTask(workflowId, TaskStatus.AWAITING_RETRY, now.minusSeconds(10));
+
+        // Act - node-b claims while the transaction of node-a's claim is still open. Node-a's claim is
+        // narrowed by due time rather than by limit, since H2 locks every row matching the WHERE of
+        // an ordered FOR UPDATE query, where PostgreSQL only locks the rows returned
+        List<TaskRetryCandidate> claimedByB = transactionTemplate.execute(status -> {
+            List<TaskRetryCandidate> claimedByA = leaseRepository.claimTasksToRetry(
+                    "node-a", now.minusSeconds(15), now, now.plusSeconds(60), 10);
+            assertThat(claimedByA).extracting(TaskRetryCandidate::id).containsExactly(first);
+
+            return CompletableFuture.supplyAsync(() -> claimTasks("node-b", now, now.plusSeconds(60), 10))
+                    .orTimeout(10, TimeUnit.SECONDS)
+                    .join();
+        });
+
+        // Assert
+        assertThat(claimedByB).extracting(TaskRetryCandidate::id).containsExactly(second);
+        assertThat(leaseOf("task_executions", first)).containsEntry("LEASE_OWNER", "node-a");
+        assertThat(leaseOf("task_executions", second)).containsEntry("LEASE_OWNER", "node-b");
+    }
+
+    @Test
+    void claimTasksToRetry_ShouldLeaveLiveLeasesAndTakeOverExpiredOnes() {
+        // Arrange
+        long workflowId = insertWorkflow(WorkflowStatus.RUNNING, now);
+        long taskId = insertTask(workflowId, TaskStatus.AWAITING_RETRY, now.minusSeconds(10));
+        claimTasks("node-a", now, now.plusSeconds(60), 10);
+
+        // Act
+        List<TaskRetryCandidate> whileLive = claimTasks("node-b", now.plusSeconds(30), now.plusSeconds(90), 10);
+        List<TaskRetryCandidate> afterExpiry = claimTasks("node-b", now.plusSeconds(61), now.plusSeconds(121), 10);
+
+        // Assert
+        assertThat(whileLive).isEmpty();
+        assertThat(afterExpiry).extracting(TaskRetryCandidate::id).containsExactly(taskId);
+        assertThat(leaseOf("task_executions", taskId)).containsEntry("LEASE_OWNER", "node-b");
+    }
+
+    @Test
+    void releaseTask_ShouldFreeOwnLeaseOnly() {
+        // Arrange
+        long workflowId = insertWorkflow(WorkflowStatus.RUNNING, now);
+        long taskId = insertTask(workflowId, TaskStatus.AWAITING_RETRY, now.minusSeconds(10));
+        claimTasks("node-a", now, now.plusSeconds(60), 10);
+
+        // Act
+        leaseRepository.releaseTask(taskId, "node-b");
+        List<TaskRetryCandidate> beforeRelease = claimTasks("node-b", now, now.plusSeconds(60), 10);
+        leaseRepository.releaseTask(taskId, "node-a");
+        List<TaskRetryCandidate> afterRelease = claimTasks("node-b", now, now.plusSeconds(60), 10);
+
+        // Assert - a released task can be claimed again without waiting for the lease to expire
+        assertThat(beforeRelease).isEmpty();
+        assertThat(afterRelease).extracting(TaskRetryCandidate::id).containsExactly(taskId);
+    }
+
+    @Test
+    void claimStuckWorkflows_ShouldClaimRunningWorkflowsWithoutLiveLease() {
+        // Arrange
+        long stuck = insertWorkflow(WorkflowStatus.RUNNING, now.minusHours(2));
+        long leased = insertWorkflow(WorkflowStatus.RUNNING, now.minusHours(2));
+        insertWorkflow(WorkflowStatus.RUNNING, now);
+        insertWorkflow(WorkflowStatus.COMPLETED, now.minusHours(2));
+        leaseRepository.acquireWorkflow(leased, "node-a", now, now.plusSeconds(60));
+
+        // Act
+        List<WorkflowExecutionSummary> claimed = transactionTemplate.execute(status ->
+                leaseRepository.claimStuckWorkflows("node-b", now.minusHours(1), now, now.plusSeconds(60), 10));
+
+        // Assert
+        assertThat(claimed).extracting(WorkflowExecutionSummary::id).containsExactly(stuck);
+        assertThat(leaseOf("workflow_executions", stuck)).containsEntry("LEASE_OWNER", "node-b");
+        assertThat(leaseOf("workflow_executions", leased)).containsEntry("LEASE_OWNER", "node-a");
+    }
+
+    @Test
+    void acquireWorkflow_ShouldExcludeOtherNodesUntilReleasedOrExpired() {
+        // Arrange
+        long workflowId = insertWorkflow(WorkflowStatus.RUNNING, now);
+
+        // Act & Assert
+        assertThat(leaseRepository.acquireWorkflow(workflowId, "node-a", now, now.plusSeconds(60))).isTrue();
+        assertThat(leaseRepository.acquireWorkflow(workflowId, "node-a", now, now.plusSeconds(90))).isTrue();
+        assertThat(leaseRepository.acquireWorkflow(workflowId, "node-b", now.plusSeconds(60), now.plusSeconds(120))).isFalse();
+        assertThat(leaseRepository.acquireWorkflow(workflowId, "node-b", now.plusSeconds(91), now.plusSeconds(151))).isTrue();
+
+        leaseRepository.releaseWorkflow(workflowId, "node-a");
+        assertThat(leaseOf("workflow_executions", workflowId)).containsEntry("LEASE_OWNER", "node-b");
+
+        leaseRepository.releaseWorkflow(workflowId, "node-b");
+        assertThat(leaseOf("workflow_executions", workflowId)).containsEntry("LEASE_OWNER", null);
+        assertThat(leaseRepository.acquireWorkflow(workflowId, "node-a", now, now.plusSeconds(60))).isTrue();
+    }
+
+    @Test
+    void renewLeases_ShouldExtendOwnLeasesOnUnfinishedRowsOnly() {
+        // Arrange
+        long running = insertWorkflow(WorkflowStatus.RUNNING, now);
+        long completed = insertWorkflow(WorkflowStatus.COMPLETED, now);
+        long otherNode = insertWorkflow(WorkflowStatus.RUNNING, now);
+        leaseRepository.acquireWorkflow(running, "node-a", now, now.plusSeconds(60));
+        leaseRepository.acquireWorkflow(completed, "node-a", now, now.plusSeconds(60));
+        leaseRepository.acquireWorkflow(otherNode, "node-b", now, now.plusSeconds(60));
+
+        // Act
+        int renewed = leaseRepository.renewLeases("node-a", now.plusSeconds(120));
+
+        // Assert
+        assertThat(renewed).isEqualTo(1);
+        assertThat(leaseOf("workflow_executions", running))
+                .containsEntry("LEASE_EXPIRES_AT", Timestamp.valueOf(now.plusSeconds(120)));
+        assertThat(leaseOf("workflow_executions", completed))
+                .containsEntry("LEASE_EXPIRES_AT", Timestamp.valueOf(now.plusSeconds(60)));
+        assertThat(leaseOf("workflow_executions", otherNode))
+                .containsEntry("LEASE_EXPIRES_AT", Timestamp.valueOf(now.plusSeconds(60)));
+    }
+
+    @Test
+    void dialect_ForSqlServer_ShouldUseTableHintsAndLeadingLimit() {
+        // Act
+        ExecutionLeaseRepository.Dialect dialect = ExecutionLeaseRepository.Dialect.of("Microsoft SQL Server");
+
+        // Assert
+        assertThat(dialect).isEqualTo(ExecutionLeaseRepository.Dialect.SQL_SERVER);
+        assertThat(dialect.selectForClaim("id", "task_executions", "status = ?", "id"))
+                .isEqualTo("SELECT TOP (?) id FROM task_executions WITH (UPDLOCK, READPAST, ROWLOCK) WHERE status = ? ORDER BY id");
+        assertThat(dialect.claimArgs(5, "AWAITING_RETRY")).containsExactly(5, "AWAITING_RETRY");
+        assertThat(ExecutionLeaseRepository.Dialect.of("H2")).isEqualTo(ExecutionLeaseRepository.Dialect.SKIP_LOCKED);
+    }
+
+    private List<TaskRetryCandidate> claimTasks(String owner, LocalDateTime at, LocalDateTime leaseUntil, int limit) {
+        return transactionTemplate.execute(status ->
+                leaseRepository.claimTasksToRetry(owner, at, at, leaseUntil, limit));
+    }
+
+    private long insertWorkflow(WorkflowStatus status, LocalDateTime startedAt) {
+        jdbcTemplate.update("INSERT INTO workflow_executions (workflow_definition_id, correlation_id, status, started_at) " +
+                "VALUES (?, ?, ?, ?)", workflowDefinitionId, UUID.randomUUID().toString(), status.name(), Timestamp.valueOf(startedAt));
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM workflow_executions", Long.class);
+    }
+
+    private long insertTask(long workflowId, TaskStatus status, LocalDateTime nextRetryAt) {
+        jdbcTemplate.update("INSERT INTO task_executions (workflow_execution_id, task_definition_id, status, retry_count, next_retry_at) " +
+                "VALUES (?, ?, ?, 1, ?)", workflowId, taskDefinitionId, status.name(), Timestamp.valueOf(nextRetryAt));
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM task_executions", Long.class);
+    }
+
+    private Map<String, Object> leaseOf(String table, long id) {
+        return jdbcTemplate.queryForMap("SELECT lease_owner, lease_expires_at FROM " + table + " WHERE id = ?", id);
+    }
+}
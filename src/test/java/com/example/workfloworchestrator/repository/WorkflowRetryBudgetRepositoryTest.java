@@ -0,0 +1,90 @@
+package com.example.workfloworchestrator.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the budget SQL against H2 with the Flyway migrations applied
+ */
+class WorkflowRetryBudgetRepositoryTest {
+
+    private WorkflowRetryBudgetRepository budgetRepository;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        budgetRepository = new WorkflowRetryBudgetRepository(new JdbcTemplate(dataSource));
+        now = LocalDateTime.now().withNano(0);
+    }
+
+    @Test
+    void incrementFailures_ShouldAddToCountOfExistingBudget() {
+        // Arrange
+        budgetRepository.insertFirstFailure(1L, now.minusMinutes(5));
+
+        // Act
+        int second = budgetRepository.incrementFailures(1L, now.minusMinutes(1), now.minusHours(1));
+        int third = budgetRepository.incrementFailures(1L, now, now.minusHours(1));
+
+        // Assert
+        assertThat(second).isEqualTo(2);
+        assertThat(third).isEqualTo(3);
+    }
+
+    @Test
+    void incrementFailures_WithoutBudget_ShouldReturnZero() {
+        // Act & Assert
+        assertThat(budgetRepository.incrementFailures(1L, now, now.minusHours(1))).isZero();
+    }
+
+    @Test
+    void incrementFailures_WhenBudgetExpired_ShouldStartOver() {
+        // Arrange
+        budgetRepository.insertFirstFailure(1L, now.minusHours(2));
+        budgetRepository.incrementFailures(1L, now.minusHours(2), now.minusHours(3));
+
+        // Act
+        int failures = budgetRepository.incrementFailures(1L, now, now.minusHours(1));
+
+        // Assert
+        assertThat(failures).isEqualTo(1);
+    }
+
+    @Test
+    void insertFirstFailure_WhenBudgetExists_ShouldThrowDuplicateKey() {
+        // Arrange
+        budgetRepository.insertFirstFailure(1L, now);
+
+        // Act & Assert
+        assertThatThrownBy(() -> budgetRepository.insertFirstFailure(1L, now))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void deleteUpdatedBefore_ShouldDeleteExpiredBudgetsOnly() {
+        // Arrange
+        budgetRepository.insertFirstFailure(1L, now.minusHours(2));
+        budgetRepository.insertFirstFailure(2L, now);
+
+        // Act
+        int deleted = budgetRepository.deleteUpdatedBefore(now.minusHours(1));
+
+        // Assert
+        assertThat(deleted).isEqualTo(1);
+        assertThat(budgetRepository.incrementFailures(2L, now, now.minusHours(1))).isEqualTo(2);
+    }
+}
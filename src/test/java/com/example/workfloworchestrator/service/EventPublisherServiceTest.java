@@ -0,0 +1,152 @@
+package com.example.workfloworchestrator.service;
+
+import com.example.workfloworchestrator.event.EventSubscriptions;
+import com.example.workfloworchestrator.event.TaskEvent;
+import com.example.workfloworchestrator.event.TaskEventType;
+import com.example.workfloworchestrator.event.WorkflowEvent;
+import com.example.workfloworchestrator.event.WorkflowEventType;
+import com.example.workfloworchestrator.event.outbox.ExternalEventPublisher;
+import com.example.workfloworchestrator.model.TaskDefinition;
+import com.example.workfloworchestrator.model.TaskExecution;
+import com.example.workfloworchestrator.model.WorkflowDefinition;
+import com.example.workfloworchestrator.model.WorkflowExecution;
+import com.example.workfloworchestrator.model.WorkflowStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EventPublisherServiceTest {
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EventSubscriptions eventSubscriptions;
+
+    @Mock
+    private ExternalEventPublisher externalEventPublisher;
+
+    private EventPublisherService eventPublisherService;
+
+    @BeforeEach
+    void setUp() {
+        eventPublisherService = new EventPublisherService(eventPublisher, eventSubscriptions, externalEventPublisher);
+        ReflectionTestUtils.setField(eventPublisherService, "eventsEnabled", true);
+        ReflectionTestUtils.setField(eventPublisherService, "logLevel", "trace");
+        eventPublisherService.resolveLogLevel();
+    }
+
+    @Test
+    void publishWorkflowCreatedEvent_WithoutListeners_ShouldNotBuildEvent() {
+        // Arrange
+        WorkflowExecution workflowExecution = mock(WorkflowExecution.class);
+        when(eventSubscriptions.hasListeners(WorkflowEvent.class)).thenReturn(false);
+
+        // Act
+        eventPublisherService.publishWorkflowCreatedEvent(workflowExecution);
+
+        // Assert: trace logging is off, so not even the log arguments are read
+        verifyNoInteractions(eventPublisher);
+        verify(externalEventPublisher, never()).publishEvent(any());
+        verify(workflowExecution, never()).getWorkflowDefinition();
+    }
+
+    @Test
+    void publishWorkflowStatusChangedEvent_WithListeners_ShouldPublishStampedEvent() {
+        // Arrange
+        WorkflowDefinition definition = new WorkflowDefinition();
+        definition.setId(3L);
+        definition.setName("order-flow");
+        definition.setVersion("1.0.0");
+        WorkflowExecution workflowExecution = WorkflowExecution.builder()
+                .id(7L)
+                .workflowDefinition(definition)
+                .correlationId("corr-1")
+                .status(WorkflowStatus.RUNNING)
+                .build();
+        when(eventSubscriptions.hasListeners(WorkflowEvent.class)).thenReturn(true);
+
+        // Act
+        eventPublisherService.publishWorkflowStatusChangedEvent(workflowExecution);
+        eventPublisherService.publishWorkflowStatusChangedEvent(workflowExecution);
+
+        // Assert
+        ArgumentCaptor<WorkflowEvent> captor = ArgumentCaptor.forClass(WorkflowEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(captor.capture());
+        WorkflowEvent first = captor.getAllValues().get(0);
+        WorkflowEvent second = captor.getAllValues().get(1);
+        assertThat(first.getEventType()).isEqualTo(WorkflowEventType.STATUS_CHANGED);
+        assertThat(first.getWorkflowName()).isEqualTo("order-flow");
+        assertThat(first.getProperty("status")).isEqualTo("RUNNING");
+        assertThat(first.getTimestamp()).isNotNull();
+        assertThat(first.getEventId()).isNotEqualTo(second.getEventId());
+        verify(externalEventPublisher).publishEvent(first);
+    }
+
+    @Test
+    void publishTaskFailedEvent_WithOutboxOnly_ShouldRecordEventWithoutLocalDelivery() {
+        // Arrange
+        TaskExecution taskExecution = createFailedTask();
+        when(externalEventPublisher.isEnabled()).thenReturn(true);
+
+        // Act
+        eventPublisherService.publishTaskFailedEvent(taskExecution);
+
+        // Assert
+        ArgumentCaptor<TaskEvent> captor = ArgumentCaptor.forClass(TaskEvent.class);
+        verify(externalEventPublisher).publishEvent(captor.capture());
+        assertThat(captor.getValue().getEventType()).isEqualTo(TaskEventType.FAILED);
+        assertThat(captor.getValue().getErrorMessage()).isEqualTo("timeout");
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void publishTaskFailedEvent_WhenOutboxWriteFailsOutsideTransaction_ShouldNotThrow() {
+        // Arrange
+        when(externalEventPublisher.isEnabled()).thenReturn(true);
+        doThrow(new DataAccessResourceFailureException("database down")).when(externalEventPublisher).publishEvent(any());
+
+        // Act & Assert
+        assertThatCode(() -> eventPublisherService.publishTaskFailedEvent(createFailedTask())).doesNotThrowAnyException();
+    }
+
+    @Test
+    void publishTaskFailedEvent_WhenOutboxWriteFailsInTransaction_ShouldThrowToRollBackTransition() {
+        // Arrange
+        when(externalEventPublisher.isEnabled()).thenReturn(true);
+        doThrow(new DataAccessResourceFailureException("database down")).when(externalEventPublisher).publishEvent(any());
+
+        try (MockedStatic<TransactionSynchronizationManager> tsm = mockStatic(TransactionSynchronizationManager.class)) {
+            tsm.when(TransactionSynchronizationManager::isActualTransactionActive).thenReturn(true);
+
+            // Act & Assert
+            assertThatThrownBy(() -> eventPublisherService.publishTaskFailedEvent(createFailedTask()))
+                    .isInstanceOf(DataAccessResourceFailureException.class);
+        }
+    }
+
+    private TaskExecution createFailedTask() {
+        TaskDefinition taskDefinition = new TaskDefinition();
+        taskDefinition.setName("charge");
+        taskDefinition.setType("rest-api");
+        TaskExecution taskExecution = new TaskExecution();
+        taskExecution.setId(11L);
+        taskExecution.setWorkflowExecutionId(7L);
+        taskExecution.setTaskDefinition(taskDefinition);
+        taskExecution.setErrorMessage("timeout");
+        return taskExecution;
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.workfloworchestrator.service;
+
+import com.example.workfloworchestrator.model.TaskExecution;
+import com.example.workfloworchestrator.model.TaskStatus;
+import com.example.workfloworchestrator.repository.TaskExecutionRepository;
+import com.example.workfloworchestrator.repository.TaskExecutionStateWriter;
+import com.example.workfloworchestrator.repository.TaskExecutionStateWriter.StateSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskExecutionStateStoreTest {
+
+    @Mock
+    private TaskExecutionRepository taskExecutionRepository;
+
+    @Mock
+    private TaskExecutionStateWriter stateWriter;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TaskExecutionStateStore stateStore;
+
+    @BeforeEach
+    void setUp() {
+        stateStore = new TaskExecutionStateStore(taskExecutionRepository, stateWriter, transactionManager);
+    }
+
+    @Test
+    void save_WithSyncDurability_ShouldSaveThroughRepository() {
+        // Arrange
+        TaskExecution taskExecution = createTaskExecution(1L, TaskStatus.RUNNING);
+        when(taskExecutionRepository.save(taskExecution)).thenReturn(taskExecution);
+
+        // Act
+        TaskExecution result = stateStore.save(taskExecution);
+
+        // Assert
+        assertThat(result).isSameAs(taskExecution);
+        verify(taskExecutionRepository).save(taskExecution);
+        verifyNoInteractions(stateWriter);
+        assertThat(stateStore.getPendingCount()).isZero();
+    }
+
+    @Test
+    void save_WithAsyncDurability_ShouldCoalesceTransitionsIntoOneBatchWrite() {
+        // Arrange
+        ReflectionTestUtils.setField(stateStore, "durability", TaskExecutionStateStore.Durability.ASYNC);
+        when(stateWriter.writeStates(anyList())).thenReturn(Collections.emptyList());
+
+        TaskExecution task1 = createTaskExecution(1L, TaskStatus.RUNNING);
+        TaskExecution task2 = createTaskExecution(2L, TaskStatus.RUNNING);
+
+        // Act
+        stateStore.save(task1);
+        stateStore.save(task2);
+        task1.setStatus(TaskStatus.COMPLETED);
+        task1.setCompletedAt(LocalDateTime.now());
+        task1.getOutputs().put("result", "ok");
+        stateStore.save(task1);
+
+        assertThat(stateStore.getPendingCount()).isEqualTo(2);
+        stateStore.flush();
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<StateSnapshot>> batchCaptor = ArgumentCaptor.forClass(List.class);
+        verify(stateWriter, times(1)).writeStates(batchCaptor.capture());
+        verifyNoInteractions(taskExecutionRepository);
+
+        List<StateSnapshot> batch = batchCaptor.getValue();
+        assertThat(batch).hasSize(2);
+        StateSnapshot task1Snapshot = batch.stream().filter(s -> s.id() == 1L).findFirst().orElseThrow();
+        assertThat(task1Snapshot.status()).isEqualTo(TaskStatus.COMPLETED);
+        assertThat(task1Snapshot.outputs()).containsEntry("result", "ok");
+        StateSnapshot task2Snapshot = batch.stream().filter(s -> s.id() == 2L).findFirst().orElseThrow();
+        assertThat(task2Snapshot.outputs()).isNull();
+        assertThat(stateStore.getPendingCount()).isZero();
+    }
+
+    @Test
+    void save_WithTerminalDurability_ShouldWriteTerminalTransitionImmediately() {
+        // Arrange
+        ReflectionTestUtils.setField(stateStore, "durability", TaskExecutionStateStore.Durability.TERMINAL);
+        when(stateWriter.writeStates(anyList())).thenReturn(Collections.emptyList());
+
+        TaskExecution taskExecution = createTaskExecution(1L, TaskStatus.RUNNING);
+
+        // Act
+        stateStore.save(taskExecution);
+        verifyNoInteractions(stateWriter);
+
+        taskExecution.setStatus(TaskStatus.FAILED);
+        taskExecution.setErrorMessage("boom");
+        stateStore.save(taskExecution);
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<StateSnapshot>> batchCaptor = ArgumentCaptor.forClass(List.class);
+        verify(stateWriter).writeStates(batchCaptor.capture());
+        assertThat(batchCaptor.getValue()).singleElement()
+                .satisfies(snapshot -> {
+                    assertThat(snapshot.status()).isEqualTo(TaskStatus.FAILED);
+                    assertThat(snapshot.errorMessage()).isEqualTo("boom");
+                });
+        assertThat(stateStore.getPendingCount()).isZero();
+    }
+
+    @Test
+    void flush_WhenRowNotYetVisible_ShouldRequeueTransition() {
+        // Arrange
+        ReflectionTestUtils.setField(stateStore, "durability", TaskExecutionStateStore.Durability.ASYNC);
+        TaskExecution taskExecution = createTaskExecution(1L, TaskStatus.RUNNING);
+        stateStore.save(taskExecution);
+
+        when(stateWriter.writeStates(anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenReturn(Collections.emptyList());
+
+        // Act
+        stateStore.flush();
+        int pendingAfterMiss = stateStore.getPendingCount();
+        stateStore.flush();
+
+        // Assert
+        assertThat(pendingAfterMiss).isEqualTo(1);
+        assertThat(stateStore.getPendingCount()).isZero();
+        verify(stateWriter, times(2)).writeStates(anyList());
+    }
+
+    @Test
+    void flush_WhenWriteFails_ShouldKeepTransitionsQueued() {
+        // Arrange
+        ReflectionTestUtils.setField(stateStore, "durability", TaskExecutionStateStore.Durability.ASYNC);
+        stateStore.save(createTaskExecution(1L, TaskStatus.RUNNING));
+        when(stateWriter.writeStates(anyList())).thenThrow(new IllegalStateException("db down"));
+
+        // Act & Assert
+        assertThatThrownBy(() -> stateStore.flush()).isInstanceOf(IllegalStateException.class);
+        assertThat(stateStore.getPendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void applyPending_ShouldOverlayQueuedTransitionOnLoadedEntity() {
+        // Arrange
+        ReflectionTestUtils.setField(stateStore, "durability", TaskExecutionStateStore.Durability.ASYNC);
+        TaskExecution queued = createTaskExecution(1L, TaskStatus.COMPLETED);
+        queued.getOutputs().put("result", "ok");
+        stateStore.save(queued);
+
+        TaskExecution loaded = createTaskExecution(1L, TaskStatus.RUNNING);
+
+        // Act
+        TaskExecution result = stateStore.applyPending(loaded);
+
+        // Assert
+        assertThat(result.getStatus()).isEqualTo(TaskStatus.COMPLETED);
+        assertThat(result.getOutputs()).containsEntry("result", "ok");
+    }
+
+    @Test
+    void saveFully_ShouldDiscardQueuedTransition() {
+        // Arrange
+        ReflectionTestUtils.setField(stateStore, "durability", TaskExecutionStateStore.Durability.ASYNC);
+        TaskExecution taskExecution = createTaskExecution(1L, TaskStatus.RUNNING);
+        stateStore.save(taskExecution);
+        when(taskExecutionRepository.save(taskExecution)).thenReturn(taskExecution);
+
+        // Act
+        taskExecution.setStatus(TaskStatus.PENDING);
+        stateStore.saveFully(taskExecution);
+        stateStore.flush();
+
+        // Assert
+        assertThat(stateStore.getPendingCount()).isZero();
+        verify(taskExecutionRepository).save(taskExecution);
+        verifyNoInteractions(stateWriter);
+    }
+
+    private TaskExecution createTaskExecution(Long id, TaskStatus status) {
+        TaskExecution taskExecution = new TaskExecution();
+        taskExecution.setId(id);
+        taskExecution.setStatus(status);
+        taskExecution.setRetryCount(0);
+        taskExecution.setInputs(new HashMap<>(Map.of("input", "value")));
+        taskExecution.setOutputs(new HashMap<>());
+        return taskExecution;
+    }
+}
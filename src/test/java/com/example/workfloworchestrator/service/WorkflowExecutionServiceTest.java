@@ -1,11 +1,16 @@
 package com.example.workfloworchestrator.service;
 
 import com.example.workfloworchestrator.engine.WorkflowEngine;
+import com.example.workfloworchestrator.engine.cancellation.CancellationRegistry;
+import com.example.workfloworchestrator.engine.cancellation.CancellationToken;
 import com.example.workfloworchestrator.exception.WorkflowException;
 import com.example.workfloworchestrator.model.WorkflowDefinition;
 import com.example.workfloworchestrator.model.WorkflowExecution;
+import com.example.workfloworchestrator.model.TaskStatus;
 import com.example.workfloworchestrator.model.WorkflowStatus;
+import com.example.workfloworchestrator.repository.TaskExecutionRepository;
 import com.example.workfloworchestrator.repository.WorkflowExecutionRepository;
+import com.example.workfloworchestrator.repository.WorkflowVariableWriter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -38,14 +43,26 @@ class WorkflowExecutionServiceTest {
     @Mock
     private EventPublisherService eventPublisherService;
 
+    @Mock
+    private WorkflowVariableWriter workflowVariableWriter;
+
+    @Mock
+    private TaskExecutionRepository taskExecutionRepository;
+
+    private CancellationRegistry cancellationRegistry;
+
     private WorkflowExecutionService workflowExecutionService;
 
     @BeforeEach
     void setUp() {
+        cancellationRegistry = new CancellationRegistry();
         workflowExecutionService = new WorkflowExecutionService(
                 workflowService,
                 workflowExecutionRepository,
-                eventPublisherService
+                eventPublisherService,
+                workflowVariableWriter,
+                taskExecutionRepository,
+                cancellationRegistry
         );
         workflowExecutionService.setWorkflowEngine(workflowEngine);
     }
@@ -228,6 +245,47 @@ class WorkflowExecutionServiceTest {
         assertThat(result.getStatus()).isEqualTo(newStatus);
         assertThat(result.getCompletedAt()).isNotNull(); // Should be set for terminal status
         verify(eventPublisherService).publishWorkflowStatusChangedEvent(mockExecution);
+        verify(eventPublisherService).publishWorkflowCompletedEvent(mockExecution);
+    }
+
+    @Test
+    void updateWorkflowExecutionStatus_FromCreatedToRunning_ShouldPublishStartedEventOnce() {
+        // Arrange
+        WorkflowExecution mockExecution = new WorkflowExecution();
+        mockExecution.setId(1L);
+        mockExecution.setStatus(WorkflowStatus.CREATED);
+
+        when(workflowExecutionRepository.findById(1L)).thenReturn(Optional.of(mockExecution));
+        when(workflowExecutionRepository.save(any(WorkflowExecution.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        workflowExecutionService.updateWorkflowExecutionStatus(1L, WorkflowStatus.RUNNING);
+        workflowExecutionService.updateWorkflowExecutionStatus(1L, WorkflowStatus.RUNNING);
+
+        // Assert
+        verify(eventPublisherService).publishWorkflowStartedEvent(mockExecution);
+        verify(eventPublisherService, times(2)).publishWorkflowStatusChangedEvent(mockExecution);
+    }
+
+    @Test
+    void failWorkflowExecution_ShouldPublishFailedEventWithErrorMessage() {
+        // Arrange
+        WorkflowExecution mockExecution = new WorkflowExecution();
+        mockExecution.setId(1L);
+        mockExecution.setStatus(WorkflowStatus.RUNNING);
+
+        when(workflowExecutionRepository.findById(1L)).thenReturn(Optional.of(mockExecution));
+        when(workflowExecutionRepository.save(any(WorkflowExecution.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        workflowExecutionService.failWorkflowExecution(1L, "Workflow execution timed out");
+
+        // Assert
+        assertThat(mockExecution.getStatus()).isEqualTo(WorkflowStatus.FAILED);
+        assertThat(mockExecution.getErrorMessage()).isEqualTo("Workflow execution timed out");
+        verify(eventPublisherService).publishWorkflowFailedEvent(mockExecution);
     }
 
     @Test
@@ -288,6 +346,93 @@ class WorkflowExecutionServiceTest {
         verify(eventPublisherService).publishWorkflowCancelledEvent(mockExecution);
     }
 
+    @Test
+    void cancelWorkflowExecution_ShouldStopActiveRunAndQueuedTasks() {
+        // Arrange
+        Long executionId = 1L;
+        WorkflowExecution mockExecution = new WorkflowExecution();
+        mockExecution.setId(executionId);
+        mockExecution.setStatus(WorkflowStatus.RUNNING);
+
+        when(workflowExecutionRepository.findById(executionId))
+                .thenReturn(Optional.of(mockExecution));
+        CancellationToken run = cancellationRegistry.begin(executionId);
+
+        // Act
+        workflowExecutionService.cancelWorkflowExecution(executionId);
+
+        // Assert
+        assertThat(run.isCancelled()).isTrue();
+        assertThat(run.getCancelledAs()).isEqualTo(WorkflowStatus.CANCELLED);
+        verify(taskExecutionRepository).cancelTasks(eq(executionId),
+                eq(List.of(TaskStatus.PENDING, TaskStatus.AWAITING_RETRY)), eq(TaskStatus.CANCELLED), any(LocalDateTime.class));
+    }
+
+    @Test
+    void pauseWorkflowExecution_ShouldStopActiveRunAsPaused() {
+        // Arrange
+        Long executionId = 1L;
+        WorkflowExecution mockExecution = new WorkflowExecution();
+        mockExecution.setId(executionId);
+        mockExecution.setStatus(WorkflowStatus.RUNNING);
+
+        when(workflowExecutionRepository.findById(executionId))
+                .thenReturn(Optional.of(mockExecution));
+        CancellationToken run = cancellationRegistry.begin(executionId);
+
+        // Act
+        workflowExecutionService.pauseWorkflowExecution(executionId);
+
+        // Assert
+        assertThat(run.getCancelledAs()).isEqualTo(WorkflowStatus.PAUSED);
+
+        // Resuming starts a fresh run
+        assertThat(cancellationRegistry.begin(executionId).isCancelled()).isFalse();
+    }
+
+    @Test
+    void timeoutWorkflowExecution_ShouldFailWorkflowAndStopActiveRun() {
+        // Arrange
+        Long executionId = 1L;
+        WorkflowExecution mockExecution = new WorkflowExecution();
+        mockExecution.setId(executionId);
+        mockExecution.setStatus(WorkflowStatus.RUNNING);
+
+        when(workflowExecutionRepository.findById(executionId))
+                .thenReturn(Optional.of(mockExecution));
+        CancellationToken run = cancellationRegistry.begin(executionId);
+
+        // Act
+        boolean timedOut = workflowExecutionService.timeoutWorkflowExecution(executionId, "Workflow timed out after 5 seconds");
+
+        // Assert
+        assertThat(timedOut).isTrue();
+        assertThat(mockExecution.getStatus()).isEqualTo(WorkflowStatus.FAILED);
+        assertThat(mockExecution.getErrorMessage()).isEqualTo("Workflow timed out after 5 seconds");
+        assertThat(run.getCancelledAs()).isEqualTo(WorkflowStatus.FAILED);
+        verify(eventPublisherService).publishWorkflowFailedEvent(mockExecution);
+    }
+
+    @Test
+    void timeoutWorkflowExecution_WhenAlreadyCompleted_ShouldDoNothing() {
+        // Arrange
+        Long executionId = 1L;
+        WorkflowExecution mockExecution = new WorkflowExecution();
+        mockExecution.setId(executionId);
+        mockExecution.setStatus(WorkflowStatus.COMPLETED);
+
+        when(workflowExecutionRepository.findById(executionId))
+                .thenReturn(Optional.of(mockExecution));
+
+        // Act
+        boolean timedOut = workflowExecutionService.timeoutWorkflowExecution(executionId, "Workflow timed out after 5 seconds");
+
+        // Assert
+        assertThat(timedOut).isFalse();
+        assertThat(mockExecution.getStatus()).isEqualTo(WorkflowStatus.COMPLETED);
+        verify(workflowExecutionRepository, never()).save(any());
+    }
+
     @Test
     void retryWorkflowExecution_ShouldRetryFailedWorkflow() {
         // Arrange
@@ -324,7 +469,10 @@ class WorkflowExecutionServiceTest {
         WorkflowExecutionService serviceWithoutTxSync = new WorkflowExecutionService(
                 workflowService,
                 workflowExecutionRepository,
-                eventPublisherService
+                eventPublisherService,
+                workflowVariableWriter,
+                taskExecutionRepository,
+                cancellationRegistry
         ) {
             @Override
             public WorkflowExecution startWorkflow(String workflowName, String version, Map<String, String> variables) {
@@ -360,6 +508,62 @@ class WorkflowExecutionServiceTest {
         assertThat(result.getStatus()).isEqualTo(WorkflowStatus.CREATED);
     }
 
+    @Test
+    void saveVariableChanges_ShouldWriteOnlyChangedKeys() {
+        // Arrange
+        WorkflowExecution execution = createMockExecution(1L, WorkflowStatus.RUNNING);
+        execution.getVariables().put("unchanged", "same");
+        execution.getVariables().put("updated", "old");
+
+        Map<String, String> outputs = new HashMap<>();
+        outputs.put("unchanged", "same");
+        outputs.put("updated", "new");
+        outputs.put("added", "value");
+
+        // Act
+        Map<String, String> changed = execution.mergeVariables(outputs);
+        workflowExecutionService.saveVariableChanges(execution, changed);
+
+        // Assert
+        assertThat(changed).containsOnly(entry("updated", "new"), entry("added", "value"));
+        assertThat(execution.getVariables())
+                .containsEntry("unchanged", "same")
+                .containsEntry("updated", "new")
+                .containsEntry("added", "value");
+        verify(workflowVariableWriter).writeVariables(1L, changed);
+        verify(workflowExecutionRepository, never()).save(any());
+    }
+
+    @Test
+    void saveVariableChanges_WithNoChanges_ShouldNotWrite() {
+        // Arrange
+        WorkflowExecution execution = createMockExecution(1L, WorkflowStatus.RUNNING);
+        execution.getVariables().put("key", "value");
+
+        // Act
+        Map<String, String> changed = execution.mergeVariables(Map.of("key", "value"));
+        workflowExecutionService.saveVariableChanges(execution, changed);
+
+        // Assert
+        assertThat(changed).isEmpty();
+        verifyNoInteractions(workflowVariableWriter);
+        verify(workflowExecutionRepository, never()).save(any());
+    }
+
+    @Test
+    void updateCurrentTaskIndex_ShouldUpdateColumnOnly() {
+        // Arrange
+        WorkflowExecution execution = createMockExecution(1L, WorkflowStatus.RUNNING);
+
+        // Act
+        workflowExecutionService.updateCurrentTaskIndex(execution, 3);
+
+        // Assert
+        assertThat(execution.getCurrentTaskIndex()).isEqualTo(3);
+        verify(workflowExecutionRepository).updateCurrentTaskIndex(1L, 3);
+        verify(workflowExecutionRepository, never()).save(any());
+    }
+
     private WorkflowExecution createMockExecution(Long id, WorkflowStatus status) {
         WorkflowExecution execution = new WorkflowExecution();
         execution.setId(id);
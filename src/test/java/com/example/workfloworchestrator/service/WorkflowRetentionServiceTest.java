@@ -0,0 +1,97 @@
+package com.example.workfloworchestrator.service;
+
+import com.example.workfloworchestrator.repository.WorkflowRetentionRepository;
+import com.example.workfloworchestrator.repository.WorkflowRetentionRepository.DeletedRows;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WorkflowRetentionServiceTest {
+
+    @Mock
+    private WorkflowRetentionRepository retentionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private WorkflowRetentionService retentionService;
+
+    private final LocalDateTime threshold = LocalDateTime.now().minusDays(30);
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        retentionService = new WorkflowRetentionService(retentionRepository, transactionManager, meterRegistry);
+        ReflectionTestUtils.setField(retentionService, "batchSize", 2);
+        ReflectionTestUtils.setField(retentionService, "batchDelayMs", 0L);
+    }
+
+    @Test
+    void purgeCompletedBefore_ShouldPageByIdAndDeleteEachBatch() {
+        // Arrange
+        when(retentionRepository.findExpiredIds(threshold, 0L, 2)).thenReturn(List.of(1L, 2L));
+        when(retentionRepository.findExpiredIds(threshold, 2L, 2)).thenReturn(List.of(5L));
+        when(retentionRepository.deleteExpired(List.of(1L, 2L), threshold)).thenReturn(new DeletedRows(2, 6));
+        when(retentionRepository.deleteExpired(List.of(5L), threshold)).thenReturn(new DeletedRows(1, 3));
+
+        // Act
+        long deleted = retentionService.purgeCompletedBefore(threshold);
+
+        // Assert: the short second batch ends the run without another query
+        assertThat(deleted).isEqualTo(3);
+        verify(retentionRepository, times(2)).findExpiredIds(eq(threshold), anyLong(), eq(2));
+        verify(transactionManager, times(2)).commit(any());
+        assertThat(meterRegistry.counter("workflow.retention.deleted", "table", "workflow_executions").count()).isEqualTo(3);
+        assertThat(meterRegistry.counter("workflow.retention.deleted", "table", "task_executions").count()).isEqualTo(9);
+        assertThat(meterRegistry.counter("workflow.retention.batches", "outcome", "deleted").count()).isEqualTo(2);
+        assertThat(meterRegistry.get("workflow.retention.run.deleted").gauge().value()).isEqualTo(3);
+    }
+
+    @Test
+    void purgeCompletedBefore_WhenBatchFails_ShouldSkipItAndContinue() {
+        // Arrange
+        when(retentionRepository.findExpiredIds(threshold, 0L, 2)).thenReturn(List.of(1L, 2L));
+        when(retentionRepository.findExpiredIds(threshold, 2L, 2)).thenReturn(List.of(3L, 4L));
+        when(retentionRepository.findExpiredIds(threshold, 4L, 2)).thenReturn(List.of());
+        when(retentionRepository.deleteExpired(List.of(1L, 2L), threshold)).thenThrow(new RuntimeException("Lock timeout"));
+        when(retentionRepository.deleteExpired(List.of(3L, 4L), threshold)).thenReturn(new DeletedRows(2, 2));
+
+        // Act
+        long deleted = retentionService.purgeCompletedBefore(threshold);
+
+        // Assert
+        assertThat(deleted).isEqualTo(2);
+        verify(transactionManager).rollback(any());
+        assertThat(meterRegistry.counter("workflow.retention.batches", "outcome", "failed").count()).isEqualTo(1);
+    }
+
+    @Test
+    void purgeCompletedBefore_ShouldStopAtMaxBatchesPerRun() {
+        // Arrange
+        ReflectionTestUtils.setField(retentionService, "maxBatchesPerRun", 1);
+        when(retentionRepository.findExpiredIds(threshold, 0L, 2)).thenReturn(List.of(1L, 2L));
+        when(retentionRepository.deleteExpired(List.of(1L, 2L), threshold)).thenReturn(new DeletedRows(2, 0));
+
+        // Act
+        long deleted = retentionService.purgeCompletedBefore(threshold);
+
+        // Assert
+        assertThat(deleted).isEqualTo(2);
+        verify(retentionRepository, times(1)).findExpiredIds(any(), anyLong(), anyInt());
+    }
+}
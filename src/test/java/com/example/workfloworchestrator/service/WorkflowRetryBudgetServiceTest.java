@@ -0,0 +1,161 @@
+package com.example.workfloworchestrator.service;
+
+import com.example.workfloworchestrator.repository.WorkflowRetryBudgetRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WorkflowRetryBudgetServiceTest {
+
+    @Mock
+    private WorkflowRetryBudgetRepository budgetRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private WorkflowRetryBudgetService budgetService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        budgetService = new WorkflowRetryBudgetService(budgetRepository, meterRegistry);
+    }
+
+    @Test
+    void recordFailure_ShouldExhaustBudgetAtMaxFailuresCountedInDatabase() {
+        // Arrange - the first failure creates the row, later ones increment it
+        when(budgetRepository.incrementFailures(eq(1L), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(0, 2, 3);
+
+        // Act
+        boolean first = budgetService.recordFailure(1L);
+        boolean second = budgetService.recordFailure(1L);
+        boolean third = budgetService.recordFailure(1L);
+
+        // Assert
+        assertThat(first).isFalse();
+        assertThat(second).isFalse();
+        assertThat(third).isTrue();
+        verify(budgetRepository).insertFirstFailure(eq(1L), any(LocalDateTime.class));
+        assertThat(budgetService.getFailures(1L)).isEqualTo(3);
+        assertThat(meterRegistry.counter("workflow.retry.budget.exhausted").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void recordFailure_ShouldContinueFromCountOfOtherNodes() {
+        // Arrange - e.g. counted before a restart or on another node
+        when(budgetRepository.incrementFailures(eq(1L), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(3);
+
+        // Act
+        boolean exhausted = budgetService.recordFailure(1L);
+
+        // Assert
+        assertThat(exhausted).isTrue();
+        verify(budgetRepository, never()).insertFirstFailure(anyLong(), any());
+    }
+
+    @Test
+    void recordFailure_ShouldLetDatabaseExpireBudgetsAfterTtl() {
+        // Act
+        budgetService.recordFailure(1L);
+
+        // Assert
+        ArgumentCaptor<LocalDateTime> now = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> expiredBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(budgetRepository).incrementFailures(eq(1L), now.capture(), expiredBefore.capture());
+        assertThat(expiredBefore.getValue()).isEqualTo(now.getValue().minusMinutes(60));
+    }
+
+    @Test
+    void recordFailure_WhenFirstFailureInsertedConcurrently_ShouldIncrementInstead() {
+        // Arrange
+        when(budgetRepository.incrementFailures(eq(1L), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(0, 2);
+        doThrow(new DuplicateKeyException("workflow_retry_budgets_pkey"))
+                .when(budgetRepository).insertFirstFailure(eq(1L), any(LocalDateTime.class));
+
+        // Act
+        budgetService.recordFailure(1L);
+
+        // Assert
+        assertThat(budgetService.getFailures(1L)).isEqualTo(2);
+        verify(budgetRepository, times(2)).incrementFailures(eq(1L), any(), any());
+    }
+
+    @Test
+    void recordFailure_WhenFull_ShouldEvictLeastRecentlyFailingBudget() {
+        // Arrange
+        ReflectionTestUtils.setField(budgetService, "maxEntries", 2);
+        when(budgetRepository.incrementFailures(eq(1L), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(0, 2);
+
+        // Act
+        budgetService.recordFailure(1L);
+        budgetService.recordFailure(2L);
+        budgetService.recordFailure(1L);
+        budgetService.recordFailure(3L);
+
+        // Assert
+        assertThat(budgetService.size()).isEqualTo(2);
+        assertThat(budgetService.getFailures(1L)).isEqualTo(2);
+        assertThat(budgetService.getFailures(2L)).isZero();
+        assertThat(budgetService.getFailures(3L)).isEqualTo(1);
+        assertThat(meterRegistry.counter("workflow.retry.budget.evicted", "reason", "size").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void sweepExpired_ShouldDropExpiredBudgets() {
+        // Arrange
+        budgetService.recordFailure(1L);
+        budgetService.recordFailure(2L);
+        ReflectionTestUtils.setField(budgetService, "ttlMinutes", -1L);
+
+        // Act - with a negative TTL every budget has expired
+        budgetService.sweepExpired();
+
+        // Assert
+        assertThat(budgetService.size()).isZero();
+        assertThat(meterRegistry.get("workflow.retry.budget.entries").gauge().value()).isZero();
+        verify(budgetRepository).deleteUpdatedBefore(any(LocalDateTime.class));
+    }
+
+    @Test
+    void reset_ShouldRemoveBudgetFromMemoryAndDatabase() {
+        // Arrange
+        budgetService.recordFailure(1L);
+
+        // Act
+        budgetService.reset(1L);
+
+        // Assert
+        assertThat(budgetService.getFailures(1L)).isZero();
+        verify(budgetRepository).delete(1L);
+    }
+
+    @Test
+    void recordFailure_WhenDatabaseUnavailable_ShouldStillCountInMemory() {
+        // Arrange
+        when(budgetRepository.incrementFailures(anyLong(), any(), any()))
+                .thenThrow(new RuntimeException("Connection refused"));
+
+        // Act
+        budgetService.recordFailure(1L);
+        budgetService.recordFailure(1L);
+
+        // Assert
+        assertThat(budgetService.getFailures(1L)).isEqualTo(2);
+    }
+}
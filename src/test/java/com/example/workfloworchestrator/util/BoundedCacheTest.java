@@ -0,0 +1,83 @@
+package com.example.workfloworchestrator.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedCacheTest {
+
+    @Test
+    void put_WhenFull_ShouldEvictLeastRecentlyUsed() {
+        // Arrange
+        BoundedCache<String, Integer> cache = new BoundedCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+
+        // Act
+        cache.put("c", 3);
+
+        // Assert
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("a")).isEqualTo(1);
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo(3);
+    }
+
+    @Test
+    void put_WithExistingKey_ShouldReplaceValueWithoutEvicting() {
+        // Arrange
+        BoundedCache<String, Integer> cache = new BoundedCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        // Act
+        cache.put("a", 10);
+
+        // Assert
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("a")).isEqualTo(10);
+        assertThat(cache.get("b")).isEqualTo(2);
+    }
+
+    @Test
+    void constructor_WithNonPositiveSize_ShouldReject() {
+        // Act & Assert
+        assertThatThrownBy(() -> new BoundedCache<String, Integer>(0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void putIfAbsent_WithCachedKey_ShouldKeepCachedValue() {
+        // Arrange
+        BoundedCache<String, Integer> cache = new BoundedCache<>(2);
+        cache.put("a", 1);
+
+        // Act
+        Integer existing = cache.putIfAbsent("a", 10);
+        Integer added = cache.putIfAbsent("b", 2);
+
+        // Assert
+        assertThat(existing).isEqualTo(1);
+        assertThat(added).isNull();
+        assertThat(cache.get("a")).isEqualTo(1);
+        assertThat(cache.get("b")).isEqualTo(2);
+    }
+
+    @Test
+    void removeIf_ShouldDropMatchingKeysOnly() {
+        // Arrange
+        BoundedCache<String, Integer> cache = new BoundedCache<>(3);
+        cache.put("a1", 1);
+        cache.put("a2", 2);
+        cache.put("b1", 3);
+
+        // Act
+        cache.removeIf(key -> key.startsWith("a"));
+
+        // Assert
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.get("b1")).isEqualTo(3);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.workfloworchestrator.util;
+
+import com.example.workfloworchestrator.model.StorageFormat;
+import com.example.workfloworchestrator.model.TaskExecution;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+class CompactMapCodecTest {
+
+    @Test
+    void encodeDecode_ShouldRoundTripSmallMapIncludingNullsAndUnicode() {
+        // Arrange
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put("status", "ok");
+        map.put("empty", "");
+        map.put("missing", null);
+        map.put("name", "Grüße 日本");
+
+        // Act
+        byte[] encoded = CompactMapCodec.encode(map);
+        Map<String, String> decoded = CompactMapCodec.decode(encoded);
+
+        // Assert
+        assertThat(encoded[0]).isEqualTo((byte) 1);
+        assertThat(decoded).containsExactlyEntriesOf(map);
+    }
+
+    @Test
+    void encode_WithLargeRepetitiveMap_ShouldCompress() {
+        // Arrange
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < 200; i++) {
+            map.put("response.items[" + i + "].status", "{\"state\":\"COMPLETED\",\"code\":200}");
+        }
+
+        // Act
+        byte[] encoded = CompactMapCodec.encode(map);
+
+        // Assert
+        assertThat(encoded[0]).isEqualTo((byte) 2);
+        assertThat(encoded.length).isLessThan(map.size() * 20);
+        assertThat(CompactMapCodec.decode(encoded)).containsExactlyEntriesOf(map);
+    }
+
+    @Test
+    void encodeDecode_WithNullAndEmptyMap_ShouldRoundTrip() {
+        assertThat(CompactMapCodec.encode(null)).isNull();
+        assertThat(CompactMapCodec.decode(null)).isNull();
+        assertThat(CompactMapCodec.decode(CompactMapCodec.encode(Map.of()))).isEmpty();
+    }
+
+    @Test
+    void decode_WithCorruptInput_ShouldThrow() {
+        assertThatThrownBy(() -> CompactMapCodec.decode(new byte[]{9, 1}))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CompactMapCodec.decode(new byte[]{1, 1, 5, 'a'}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void setStorageFormat_ShouldMoveExistingInputsAndOutputs() {
+        // Arrange
+        TaskExecution taskExecution = new TaskExecution();
+        taskExecution.setInputs(new HashMap<>(Map.of("in", "1")));
+        taskExecution.setOutputs(new HashMap<>(Map.of("out", "2")));
+
+        // Act
+        taskExecution.setStorageFormat(StorageFormat.COMPACT);
+
+        // Assert
+        assertThat(taskExecution.getInputs()).containsExactly(Map.entry("in", "1"));
+        assertThat(taskExecution.getOutputs()).containsExactly(Map.entry("out", "2"));
+        assertThat(taskExecution.getCompactInputs()).containsEntry("in", "1");
+        assertThat(taskExecution.getCompactOutputs()).containsEntry("out", "2");
+    }
+}
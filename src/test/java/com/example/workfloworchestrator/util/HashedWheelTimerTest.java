@@ -0,0 +1,100 @@
+package com.example.workfloworchestrator.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class HashedWheelTimerTest {
+
+    private HashedWheelTimer timer;
+
+    @BeforeEach
+    void setUp() {
+        timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    void newTimeout_ShouldRunTaskAfterDelay() throws Exception {
+        // Arrange
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        // Act
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(fired::countDown, 50, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertThat(fired.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(50);
+        assertThat(timeout.isExpired()).isTrue();
+        assertThat(timer.getPendingTimeouts()).isZero();
+    }
+
+    @Test
+    void newTimeout_WithDelayLongerThanOneRotation_ShouldWaitForRemainingRounds() throws Exception {
+        // Arrange - 8 buckets of 10ms make an 80ms rotation
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        // Act
+        timer.newTimeout(fired::countDown, 200, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertThat(fired.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(200);
+    }
+
+    @Test
+    void cancel_ShouldPreventTaskFromRunning() throws Exception {
+        // Arrange
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch later = new CountDownLatch(1);
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(runs::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+
+        // Act
+        boolean cancelled = timeout.cancel();
+        timer.newTimeout(later::countDown, 100, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertThat(cancelled).isTrue();
+        assertThat(timeout.cancel()).isFalse();
+        assertThat(later.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(runs).hasValue(0);
+        assertThat(timeout.isCancelled()).isTrue();
+    }
+
+    @Test
+    void newTimeout_WhenTaskThrows_ShouldKeepRunningOtherTasks() throws Exception {
+        // Arrange
+        CountDownLatch fired = new CountDownLatch(1);
+
+        // Act
+        timer.newTimeout(() -> {
+            throw new IllegalStateException("boom");
+        }, 10, TimeUnit.MILLISECONDS);
+        timer.newTimeout(fired::countDown, 40, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertThat(fired.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void newTimeout_AfterStop_ShouldThrow() {
+        // Act
+        timer.stop();
+
+        // Assert
+        assertThatThrownBy(() -> timer.newTimeout(() -> { }, 10, TimeUnit.MILLISECONDS))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
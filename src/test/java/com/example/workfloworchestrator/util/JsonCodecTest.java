@@ -0,0 +1,68 @@
+package com.example.workfloworchestrator.util;
+
+import com.example.workfloworchestrator.messaging.TaskMessage;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+class JsonCodecTest {
+
+    private final JsonCodec jsonCodec = new JsonCodec(new ObjectMapper());
+
+    @Test
+    void read_ShouldParseIntoMapsAndLists() throws Exception {
+        // Act
+        Object value = jsonCodec.read("{\"id\":\"A-1\",\"lines\":[1,2]}");
+
+        // Assert
+        assertThat(value).isEqualTo(Map.of("id", "A-1", "lines", List.of(1, 2)));
+    }
+
+    @Test
+    void write_ThenRead_ShouldRoundTripTypedValue() throws Exception {
+        // Arrange
+        TaskMessage message = new TaskMessage();
+        message.setTaskExecutionId(7L);
+        message.setOutputs(Map.of("orderId", "A-1"));
+
+        // Act
+        TaskMessage copy = jsonCodec.read(jsonCodec.write(message), TaskMessage.class);
+
+        // Assert
+        assertThat(copy).isEqualTo(message);
+    }
+
+    @Test
+    void readerFor_ShouldReuseReaderPerType() {
+        assertThat(jsonCodec.readerFor(TaskMessage.class)).isSameAs(jsonCodec.readerFor(TaskMessage.class));
+        assertThat(jsonCodec.readerFor(Map.class)).isNotSameAs(jsonCodec.readerFor(TaskMessage.class));
+    }
+
+    @Test
+    void createParser_ShouldReadTreesThroughCodecMapper() throws Exception {
+        // Arrange
+        byte[] json = "{\"a\":{\"b\":1}}".getBytes(StandardCharsets.UTF_8);
+
+        // Act
+        try (JsonParser parser = jsonCodec.createParser(new ByteArrayInputStream(json))) {
+            parser.nextToken();
+
+            // Assert
+            assertThat(parser.readValueAsTree().toString()).isEqualTo("{\"a\":{\"b\":1}}");
+        }
+    }
+
+    @Test
+    void read_WithInvalidJson_ShouldThrow() {
+        assertThatThrownBy(() -> jsonCodec.read("{not json"))
+                .isInstanceOf(JsonProcessingException.class);
+    }
+}
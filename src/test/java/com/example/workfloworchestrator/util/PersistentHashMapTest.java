@@ -0,0 +1,93 @@
+package com.example.workfloworchestrator.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+class PersistentHashMapTest {
+
+    @Test
+    void plus_ShouldLeaveOriginalUnchanged() {
+        // Arrange
+        PersistentHashMap<String, String> original = PersistentHashMap.<String, String>empty()
+                .plus("a", "1")
+                .plus("b", "2");
+
+        // Act
+        PersistentHashMap<String, String> updated = original.plus("a", "changed").plus("c", "3");
+
+        // Assert
+        assertThat(original).containsOnly(Map.entry("a", "1"), Map.entry("b", "2"));
+        assertThat(updated).containsOnly(Map.entry("a", "changed"), Map.entry("b", "2"), Map.entry("c", "3"));
+        assertThat(original.plus("b", "2")).isSameAs(original);
+    }
+
+    @Test
+    void operations_ShouldMatchHashMapUnderRandomUpdates() {
+        // Arrange
+        Random random = new Random(42);
+        Map<Integer, String> expected = new HashMap<>();
+        PersistentHashMap<Integer, String> actual = PersistentHashMap.empty();
+
+        // Act
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(5_000);
+            if (random.nextInt(4) == 0) {
+                expected.remove(key);
+                actual = actual.minus(key);
+            } else {
+                String value = random.nextInt(10) == 0 ? null : "v" + i;
+                expected.put(key, value);
+                actual = actual.plus(key, value);
+            }
+        }
+
+        // Assert
+        assertThat(actual).hasSize(expected.size());
+        assertThat(actual).isEqualTo(expected);
+        assertThat(expected).isEqualTo(actual);
+        assertThat(actual.hashCode()).isEqualTo(expected.hashCode());
+    }
+
+    @Test
+    void copyOf_ShouldHandleHashCollisionsAndReturnPersistentMapsAsIs() {
+        // Arrange: "Aa" and "BB" have the same hash code
+        Map<String, Integer> source = new HashMap<>();
+        source.put("Aa", 1);
+        source.put("BB", 2);
+        source.put("other", 3);
+
+        // Act
+        PersistentHashMap<String, Integer> copy = PersistentHashMap.copyOf(source);
+        PersistentHashMap<String, Integer> withoutCollision = copy.minus("Aa");
+
+        // Assert
+        assertThat(copy).isEqualTo(source);
+        assertThat(PersistentHashMap.copyOf(copy)).isSameAs(copy);
+        assertThat(withoutCollision).containsOnly(Map.entry("BB", 2), Map.entry("other", 3));
+        assertThat(copy.get("Aa")).isEqualTo(1);
+    }
+
+    @Test
+    void builder_ShouldNotAffectMapsAlreadyBuilt() {
+        // Arrange
+        PersistentHashMap.Builder<String, String> builder = PersistentHashMap.builder();
+        for (int i = 0; i < 1_000; i++) {
+            builder.put("key" + i, "value" + i);
+        }
+        PersistentHashMap<String, String> first = builder.build();
+
+        // Act
+        builder.put("key0", "changed").remove("key1").put("extra", "x");
+        PersistentHashMap<String, String> second = builder.build();
+
+        // Assert
+        assertThat(first).hasSize(1_000).containsEntry("key0", "value0").containsKey("key1");
+        assertThat(second).hasSize(1_000).containsEntry("key0", "changed").doesNotContainKey("key1");
+        assertThatThrownBy(() -> first.put("x", "y")).isInstanceOf(UnsupportedOperationException.class);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.workfloworchestrator.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RingBufferTest {
+
+    @Test
+    void constructor_ShouldRoundCapacityUpToPowerOfTwo() {
+        assertThat(new RingBuffer<>(1).capacity()).isEqualTo(2);
+        assertThat(new RingBuffer<>(8).capacity()).isEqualTo(8);
+        assertThat(new RingBuffer<>(9).capacity()).isEqualTo(16);
+        assertThatThrownBy(() -> new RingBuffer<>(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void offer_WhenFull_ShouldRejectUntilPolled() {
+        // Arrange
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+
+        // Act & Assert
+        assertThat(buffer.offer(4)).isFalse();
+        assertThat(buffer.poll()).isZero();
+        assertThat(buffer.offer(4)).isTrue();
+        assertThat(buffer.size()).isEqualTo(4);
+    }
+
+    @Test
+    void drainTo_ShouldKeepOrderAcrossLaps() {
+        // Arrange
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        List<Integer> drained = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+            if (i % 3 == 2) {
+                buffer.drainTo(drained, 3);
+            }
+        }
+        buffer.drainTo(drained, Integer.MAX_VALUE);
+
+        // Assert
+        assertThat(drained).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        assertThat(buffer.poll()).isNull();
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+
+    @Test
+    void offerAndPoll_FromManyThreads_ShouldHandOverEveryElementOnce() throws Exception {
+        // Arrange
+        RingBuffer<Integer> buffer = new RingBuffer<>(64);
+        Set<Integer> received = ConcurrentHashMap.newKeySet();
+        int producers = 4;
+        int perProducer = 2_000;
+        CountDownLatch done = new CountDownLatch(producers * perProducer);
+        ExecutorService threads = Executors.newFixedThreadPool(producers + 2);
+
+        // Act
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            threads.execute(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+        for (int c = 0; c < 2; c++) {
+            threads.execute(() -> {
+                while (done.getCount() > 0) {
+                    Integer element = buffer.poll();
+                    if (element == null) {
+                        Thread.yield();
+                    } else if (received.add(element)) {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+
+        // Assert
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).hasSize(producers * perProducer);
+        assertThat(buffer.isEmpty()).isTrue();
+        threads.shutdownNow();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.workfloworchestrator.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+class VariableTemplateTest {
+
+    private final Map<String, Object> variables = Map.of(
+            "orderId", "A-1",
+            "amount", 12,
+            "parsedResponse", Map.of("items", List.of(Map.of("id", "X"), Map.of("id", "Y"))),
+            "customer.name", "Ada");
+
+    @Test
+    void render_ShouldReplacePlaceholdersInOnePass() {
+        // Act
+        String result = VariableTemplate.render(
+                "{\"order\":\"${orderId}\",\"amount\":${amount},\"again\":\"${orderId}\"}", variables::get);
+
+        // Assert
+        assertThat(result).isEqualTo("{\"order\":\"A-1\",\"amount\":12,\"again\":\"A-1\"}");
+    }
+
+    @Test
+    void render_ShouldResolveNestedPaths() {
+        assertThat(VariableTemplate.render("${parsedResponse.items[1].id}", variables::get)).isEqualTo("Y");
+        assertThat(VariableTemplate.render("${parsedResponse.items[5].id}", variables::get))
+                .isEqualTo("${parsedResponse.items[5].id}");
+        assertThat(VariableTemplate.render("${orderId.length}", variables::get)).isEqualTo("${orderId.length}");
+    }
+
+    @Test
+    void render_ShouldPreferVariableNamedLikeThePath() {
+        assertThat(VariableTemplate.render("Hi ${customer.name}", variables::get)).isEqualTo("Hi Ada");
+    }
+
+    @Test
+    void render_ShouldKeepUnresolvedEscapedAndMalformedPlaceholders() {
+        assertThat(VariableTemplate.render("${missing}/$${orderId}/${}/${orderId", variables::get))
+                .isEqualTo("${missing}/${orderId}/${}/${orderId");
+    }
+
+    @Test
+    void render_ShouldNotRenderValuesAgain() {
+        // Arrange
+        Map<String, Object> nested = Map.of("a", "${b}", "b", "B");
+
+        // Act & Assert
+        assertThat(VariableTemplate.render("${a}-${b}", nested::get)).isEqualTo("${b}-B");
+    }
+
+    @Test
+    void compile_ShouldReuseCompiledTemplate() {
+        // Arrange
+        String source = "/orders/${orderId}/lines/" + System.nanoTime();
+
+        // Act
+        VariableTemplate first = VariableTemplate.compile(source);
+        VariableTemplate second = VariableTemplate.compile(new String(source));
+
+        // Assert
+        assertThat(second).isSameAs(first);
+        assertThat(first.getPlaceholderCount()).isEqualTo(1);
+        assertThat(VariableTemplate.getCacheSize()).isPositive();
+    }
+}